@@ -0,0 +1,72 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.benchmarks;
+
+/**
+ * Describes a column of a {@link MemoryResultSet}.
+ */
+public class Column {
+    
+    private String name;
+    private int type;
+    private String typeName;
+    private int precision;
+    private int scale;
+    
+    /**
+     * Creates a column.
+     * 
+     * @param name The name of the column
+     * @param type The JDBC type of the column (see {@link java.sql.Types})
+     * @param typeName The database's name for the type
+     * @param precision The precision (or maximum length) of the column
+     * @param scale The scale of the column
+     */
+    public Column (String name, int type, String typeName,
+            int precision, int scale) {
+        
+        this.name = name;
+        this.type = type;
+        this.typeName = typeName;
+        this.precision = precision;
+        this.scale = scale;
+    }
+    
+    public String getName() {
+        
+        return name;
+    }
+    
+    public int getType() {
+        
+        return type;
+    }
+    
+    public String getTypeName() {
+        
+        return typeName;
+    }
+    
+    public int getPrecision() {
+        
+        return precision;
+    }
+    
+    public int getScale() {
+        
+        return scale;
+    }
+}
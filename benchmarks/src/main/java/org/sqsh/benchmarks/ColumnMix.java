@@ -0,0 +1,230 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.benchmarks;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Random;
+
+/**
+ * Realistic mixes of column types, along with a deterministic generator
+ * of row data for each. The same seed always produces the same rows so
+ * that results are comparable between runs.
+ */
+public enum ColumnMix {
+    
+    /**
+     * A handful of short columns, typical of lookup tables.
+     */
+    NARROW (
+        new Column("id",      Types.INTEGER,  "INTEGER",  10, 0),
+        new Column("code",    Types.VARCHAR,  "VARCHAR",  12, 0),
+        new Column("qty",     Types.SMALLINT, "SMALLINT",  5, 0),
+        new Column("created", Types.DATE,     "DATE",     10, 0)),
+    
+    /**
+     * A wider, fact table style row with money, timestamps, free text
+     * and a fair number of NULLs.
+     */
+    ORDERS (
+        new Column("order_id", Types.BIGINT,    "BIGINT",    19, 0),
+        new Column("customer", Types.VARCHAR,   "VARCHAR",   40, 0),
+        new Column("status",   Types.CHAR,      "CHAR",       1, 0),
+        new Column("amount",   Types.DECIMAL,   "DECIMAL",   18, 4),
+        new Column("discount", Types.DOUBLE,    "DOUBLE",    15, 0),
+        new Column("created",  Types.TIMESTAMP, "TIMESTAMP", 26, 6),
+        new Column("shipped",  Types.DATE,      "DATE",      10, 0),
+        new Column("rush",     Types.BOOLEAN,   "BOOLEAN",    1, 0),
+        new Column("notes",    Types.VARCHAR,   "VARCHAR",  200, 0)),
+    
+    /**
+     * Binary and large object columns.
+     */
+    LOBS (
+        new Column("id",      Types.INTEGER,   "INTEGER",   10, 0),
+        new Column("digest",  Types.VARBINARY, "VARBINARY", 32, 0),
+        new Column("body",    Types.CLOB,      "CLOB",      Integer.MAX_VALUE, 0),
+        new Column("image",   Types.BLOB,      "BLOB",      Integer.MAX_VALUE, 0),
+        new Column("doc",     Types.SQLXML,    "XML",       Integer.MAX_VALUE, 0));
+    
+    private static final String []WORDS = {
+        "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf",
+        "hotel", "india", "juliet", "kilo", "lima", "mike", "november",
+        "oscar", "papa", "quebec", "romeo", "sierra", "tango", "uniform",
+        "victor", "whiskey", "x-ray", "yankee", "zulu", "O'Brien",
+        "\"quoted\"", "comma,separated", "tab\tseparated"
+    };
+    
+    private Column []columns;
+    
+    private ColumnMix (Column... columns) {
+        
+        this.columns = columns;
+    }
+    
+    /**
+     * @return The columns of the mix.
+     */
+    public Column[] getColumns() {
+        
+        return columns;
+    }
+    
+    /**
+     * Creates a result set containing rows of this mix.
+     * 
+     * @param nRows The number of rows
+     * @param seed Seed for the generated values
+     * @return The result set
+     */
+    public MemoryResultSet newResultSet(int nRows, long seed) {
+        
+        return new MemoryResultSet(columns, rows(nRows, seed));
+    }
+    
+    /**
+     * Generates rows of this mix.
+     * 
+     * @param nRows The number of rows
+     * @param seed Seed for the generated values
+     * @return The rows
+     */
+    public Object[][] rows(int nRows, long seed) {
+        
+        Random random = new Random(seed);
+        Object [][]rows = new Object[nRows][];
+        
+        for (int r = 0; r < nRows; r++) {
+            
+            Object []row = new Object[columns.length];
+            for (int c = 0; c < columns.length; c++) {
+                
+                row[c] = value(random, columns[c], r);
+            }
+            
+            rows[r] = row;
+        }
+        
+        return rows;
+    }
+    
+    private static Object value(Random random, Column column, int r) {
+        
+        /*
+         * Roughly one in ten nullable looking values are NULL. The first
+         * column of each mix is a key, so is never NULL.
+         */
+        if (r > 0 && !column.getName().endsWith("id")
+                && random.nextInt(10) == 0) {
+            
+            return null;
+        }
+        
+        long base = 1262304000000L; /* 2010-01-01 */
+        
+        switch (column.getType()) {
+            
+            case Types.INTEGER:
+                return Integer.valueOf(r + 1);
+            
+            case Types.SMALLINT:
+                return Short.valueOf((short) random.nextInt(1000));
+            
+            case Types.BIGINT:
+                return Long.valueOf(1000000000L + r * 7L);
+            
+            case Types.DECIMAL:
+                return BigDecimal.valueOf(random.nextInt(100000000), 4);
+            
+            case Types.DOUBLE:
+                return Double.valueOf(random.nextDouble() / 4.0);
+            
+            case Types.BOOLEAN:
+                return Boolean.valueOf(random.nextBoolean());
+            
+            case Types.DATE:
+                return new Date(base + random.nextInt(3650) * 86400000L);
+            
+            case Types.TIMESTAMP: {
+                
+                Timestamp ts = new Timestamp(base
+                    + (random.nextLong() & 0xfffffffffL));
+                ts.setNanos(random.nextInt(1000000) * 1000);
+                return ts;
+            }
+            
+            case Types.CHAR:
+                return String.valueOf((char) ('A' + random.nextInt(5)));
+            
+            case Types.VARCHAR:
+                return text(random, column.getPrecision());
+            
+            case Types.VARBINARY:
+                return bytes(random, column.getPrecision());
+            
+            case Types.BLOB:
+                return bytes(random, 256 + random.nextInt(4096));
+            
+            case Types.CLOB:
+                return text(random, 512 + random.nextInt(8192));
+            
+            case Types.SQLXML: {
+                
+                StringBuilder sb = new StringBuilder("<order><id>")
+                    .append(r).append("</id><items>");
+                int n = 1 + random.nextInt(8);
+                for (int i = 0; i < n; i++) {
+                    
+                    sb.append("<item sku=\"").append(random.nextInt(99999))
+                      .append("\"><qty>").append(1 + random.nextInt(9))
+                      .append("</qty></item>");
+                }
+                return sb.append("</items></order>").toString();
+            }
+            
+            default:
+                throw new IllegalArgumentException("Unsupported type "
+                    + column.getTypeName());
+        }
+    }
+    
+    private static String text(Random random, int maxLength) {
+        
+        int len = 1 + random.nextInt(maxLength);
+        StringBuilder sb = new StringBuilder(len + 16);
+        
+        while (sb.length() < len) {
+            
+            if (sb.length() > 0) {
+                
+                sb.append(' ');
+            }
+            sb.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        
+        sb.setLength(len);
+        return sb.toString();
+    }
+    
+    private static byte[] bytes(Random random, int len) {
+        
+        byte []b = new byte[len];
+        random.nextBytes(b);
+        return b;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.benchmarks;
+
+import java.io.OutputStream;
+
+/**
+ * An output stream that throws away everything written to it, keeping
+ * only a count of the bytes.
+ */
+public class CountingOutputStream
+    extends OutputStream {
+    
+    private long count = 0L;
+    
+    @Override
+    public void write(int b) {
+        
+        ++count;
+    }
+    
+    @Override
+    public void write(byte []b, int off, int len) {
+        
+        count += len;
+    }
+    
+    /**
+     * @return The number of bytes written so far.
+     */
+    public long getCount() {
+        
+        return count;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.benchmarks;
+
+import java.math.BigDecimal;
+import java.text.DecimalFormat;
+import java.text.FieldPosition;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqsh.format.NumberFormatter;
+
+/**
+ * Compares {@link NumberFormatter}, which writes the digits of numbers
+ * with a scale itself, with the DecimalFormat it used to hand every such
+ * number to. Scores are in values per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DecimalBenchmark {
+    
+    /**
+     * The number of distinct values formatted per invocation.
+     */
+    public static final int VALUES = 1000;
+    
+    /**
+     * The kinds of value that are formatted.
+     */
+    public static enum Kind {
+        
+        /**
+         * A DECIMAL(18,scale) column, as handed back by the driver.
+         */
+        BIGDECIMAL,
+        
+        /**
+         * A DOUBLE column, fetched as a primitive.
+         */
+        DOUBLE,
+        
+        /**
+         * An integer displayed with a scale, fetched as a primitive.
+         */
+        LONG
+    }
+    
+    @Param({ "BIGDECIMAL", "DOUBLE", "LONG" })
+    public Kind kind;
+    
+    @Param({ "2", "4" })
+    public int scale;
+    
+    private NumberFormatter formatter;
+    private DecimalFormat decimalFormat;
+    private FieldPosition pos = new FieldPosition(0);
+    private StringBuffer stringBuffer = new StringBuffer(64);
+    private StringBuilder buffer = new StringBuilder(64);
+    
+    private BigDecimal []decimals = new BigDecimal[VALUES];
+    private double []doubles = new double[VALUES];
+    private long []longs = new long[VALUES];
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        
+        formatter = new NumberFormatter(18, scale);
+        
+        StringBuilder pattern = new StringBuilder("#.");
+        for (int i = 0; i < scale; i++) {
+            
+            pattern.append('0');
+        }
+        decimalFormat = new DecimalFormat(pattern.toString());
+        
+        /*
+         * Amounts of up to twelve digits, about half of them negative.
+         */
+        Random random = new Random(42L);
+        for (int i = 0; i < VALUES; i++) {
+            
+            long unscaled = random.nextLong() % 1000000000000L;
+            
+            decimals[i] = BigDecimal.valueOf(unscaled, scale);
+            doubles[i] = unscaled / 1000000.0;
+            longs[i] = unscaled / 1000000L;
+        }
+    }
+    
+    /**
+     * Formats each value through {@link NumberFormatter}.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int numberFormatter() {
+        
+        int len = 0;
+        for (int i = 0; i < VALUES; i++) {
+            
+            buffer.setLength(0);
+            switch (kind) {
+                
+                case BIGDECIMAL: formatter.format(buffer, decimals[i]); break;
+                case DOUBLE:     formatter.format(buffer, doubles[i]); break;
+                case LONG:       formatter.format(buffer, longs[i]); break;
+            }
+            len += buffer.length();
+        }
+        
+        return len;
+    }
+    
+    /**
+     * Formats each value through DecimalFormat, the way that
+     * NumberFormatter used to.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int decimalFormat() {
+        
+        int len = 0;
+        for (int i = 0; i < VALUES; i++) {
+            
+            stringBuffer.setLength(0);
+            switch (kind) {
+                
+                case BIGDECIMAL:
+                    decimalFormat.format(decimals[i], stringBuffer, pos);
+                    break;
+                case DOUBLE:
+                    decimalFormat.format(doubles[i], stringBuffer, pos);
+                    break;
+                case LONG:
+                    decimalFormat.format(longs[i], stringBuffer, pos);
+                    break;
+            }
+            len += stringBuffer.length();
+        }
+        
+        return len;
+    }
+}
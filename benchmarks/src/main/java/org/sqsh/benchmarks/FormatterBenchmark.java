@@ -0,0 +1,199 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.benchmarks;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqsh.DataFormatter;
+import org.sqsh.Formatter;
+import org.sqsh.SqshContext;
+
+/**
+ * Measures each of the {@link Formatter}s used for display on its own.
+ * The values come from the same generated data as the 
+ * {@link RendererBenchmark}. Scores are in values per second; run with
+ * "-prof gc" and look at gc.alloc.rate.norm for the bytes allocated per
+ * value.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FormatterBenchmark {
+    
+    /**
+     * The number of distinct values formatted per invocation.
+     */
+    public static final int VALUES = 1000;
+    
+    /**
+     * The kinds of value that may be formatted. Each names the column mix
+     * and column the values are drawn from.
+     */
+    public static enum Kind {
+        
+        INTEGER   (ColumnMix.NARROW, 1),
+        BIGINT    (ColumnMix.ORDERS, 1),
+        DOUBLE    (ColumnMix.ORDERS, 5),
+        DECIMAL   (ColumnMix.ORDERS, 4),
+        DATE      (ColumnMix.ORDERS, 7),
+        TIMESTAMP (ColumnMix.ORDERS, 6),
+        BYTES     (ColumnMix.LOBS,   2),
+        CLOB      (ColumnMix.LOBS,   3),
+        BLOB      (ColumnMix.LOBS,   4),
+        XML       (ColumnMix.LOBS,   5);
+        
+        private ColumnMix mix;
+        private int column;
+        
+        private Kind (ColumnMix mix, int column) {
+            
+            this.mix = mix;
+            this.column = column;
+        }
+    }
+    
+    @Param({ "INTEGER", "BIGINT", "DOUBLE", "DECIMAL", "DATE", "TIMESTAMP",
+        "BYTES", "CLOB", "BLOB", "XML" })
+    public Kind kind;
+    
+    private SqshContext context;
+    private Formatter formatter;
+    private Object []values;
+    private StringBuilder buffer = new StringBuilder(256);
+    
+    @Setup(Level.Trial)
+    public void setup()
+        throws SQLException {
+        
+        context = new SqshContext();
+        DataFormatter df = context.getDataFormatter();
+        
+        switch (kind) {
+            
+            case INTEGER:   formatter = df.getIntFormatter(); break;
+            case BIGINT:    formatter = df.getLongFormatter(); break;
+            case DOUBLE:    formatter = df.getDoubleFormatter(); break;
+            case DECIMAL:   formatter = df.getBigDecimalFormatter(18, 4); break;
+            case DATE:      formatter = df.getDateFormatter(); break;
+            case TIMESTAMP: formatter = df.getDatetimeFormatter(); break;
+            case BYTES:     formatter = df.getByteFormatter(32); break;
+            case CLOB:      formatter = df.getClobFormatter(); break;
+            case BLOB:      formatter = df.getBlobFormatter(); break;
+            case XML:       formatter = df.getXMLFormatter(); break;
+        }
+        
+        fetchValues();
+    }
+    
+    /**
+     * LOB formatters free the LOB once they have formatted it, so the
+     * LOBs are fetched again before each invocation.
+     */
+    @Setup(Level.Invocation)
+    public void refetchLobs()
+        throws SQLException {
+        
+        if (kind == Kind.CLOB || kind == Kind.BLOB) {
+            
+            fetchValues();
+        }
+    }
+    
+    /*
+     * Pulls the (non-null) values out through the result set so that
+     * they are of the types a driver would hand back.
+     */
+    private void fetchValues()
+        throws SQLException {
+        
+        MemoryResultSet rs = kind.mix.newResultSet(VALUES * 2, 42L);
+        values = new Object[VALUES];
+        int n = 0;
+        while (n < VALUES && rs.next()) {
+            
+            Object value = rs.getObject(kind.column);
+            if (value != null) {
+                
+                values[n++] = value;
+            }
+        }
+        
+        if (n < VALUES) {
+            
+            throw new IllegalStateException("Only generated " + n
+                + " non-null values");
+        }
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        
+        context.close();
+    }
+    
+    /**
+     * Formats each value into a new string.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int formatString() {
+        
+        int len = 0;
+        for (int i = 0; i < VALUES; i++) {
+            
+            len += formatter.format(values[i]).length();
+        }
+        
+        return len;
+    }
+    
+    /**
+     * Formats each value by appending it to a re-used buffer, the way
+     * that rows are formatted for display.
+     */
+    @Benchmark
+    @OperationsPerInvocation(VALUES)
+    public int formatAppend() {
+        
+        int len = 0;
+        for (int i = 0; i < VALUES; i++) {
+            
+            buffer.setLength(0);
+            formatter.format(buffer, values[i]);
+            len += buffer.length();
+        }
+        
+        return len;
+    }
+}
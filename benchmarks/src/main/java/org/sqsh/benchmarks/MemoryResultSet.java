@@ -0,0 +1,1343 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.benchmarks;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.Clob;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Calendar;
+import java.util.Map;
+
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+
+/**
+ * A forward-only, read-only {@link ResultSet} over rows that are held
+ * in memory. This lets the benchmarks drive the real fetch, format and
+ * render code paths without a database or network being involved. The
+ * cursor may be rewound with {@link #beforeFirst()} so the same result
+ * set can be displayed over and over again.
+ */
+public class MemoryResultSet
+    implements ResultSet {
+    
+    private Column []columns;
+    private Object [][]rows;
+    private ResultSetMetaData metaData;
+    private int row = -1;
+    private boolean wasNull = false;
+    private boolean closed = false;
+    
+    /**
+     * Creates a result set.
+     * 
+     * @param columns Description of the columns
+     * @param rows The rows. Each value must be of the Java type that the
+     *   JDBC specification maps the column's type to, or null. The exception
+     *   are large objects: the value of a CLOB or SQLXML column is held as
+     *   a String and that of a BLOB as a byte[], and a new locator is
+     *   created each time the value is retrieved, as a driver would.
+     */
+    public MemoryResultSet (Column []columns, Object [][]rows) {
+        
+        this.columns = columns;
+        this.rows = rows;
+        this.metaData = new MemoryResultSetMetaData(columns);
+    }
+    
+    /**
+     * Re-opens and rewinds the result set so that it may be read again.
+     */
+    public void reset() {
+        
+        closed = false;
+        row = -1;
+    }
+    
+    /**
+     * @return The number of rows in the result set.
+     */
+    public int getRowCount() {
+        
+        return rows.length;
+    }
+    
+    private Object value(int columnIndex)
+        throws SQLException {
+        
+        if (row < 0 || row >= rows.length) {
+            
+            throw new SQLException("Result set is not positioned on a row");
+        }
+        
+        Object value = rows[row][columnIndex - 1];
+        wasNull = (value == null);
+        if (value == null) {
+            
+            return null;
+        }
+        
+        switch (columns[columnIndex - 1].getType()) {
+            
+            case Types.CLOB:
+                return new SerialClob(((String) value).toCharArray());
+            
+            case Types.BLOB:
+                return new SerialBlob((byte[]) value);
+            
+            case Types.SQLXML:
+                return new MemorySQLXML((String) value);
+            
+            default:
+                return value;
+        }
+    }
+    
+    private static Number number(Object value) {
+        
+        if (value instanceof Number) {
+            
+            return (Number) value;
+        }
+        
+        return new BigDecimal(value.toString());
+    }
+    
+    private static SQLException unsupported(String method) {
+        
+        return new SQLFeatureNotSupportedException(
+            "MemoryResultSet does not support " + method + "()");
+    }
+    
+    public boolean next()
+        throws SQLException {
+        
+        if (closed) {
+            
+            throw new SQLException("Result set is closed");
+        }
+        
+        if (row < rows.length) {
+            
+            ++row;
+        }
+        
+        return row < rows.length;
+    }
+    
+    public void close()
+        throws SQLException {
+        
+        closed = true;
+    }
+    
+    public boolean wasNull()
+        throws SQLException {
+        
+        return wasNull;
+    }
+    
+    public String getString(int columnIndex)
+        throws SQLException {
+        
+        Object value = value(columnIndex);
+        return (value == null ? null : value.toString());
+    }
+    
+    public boolean getBoolean(int columnIndex)
+        throws SQLException {
+        
+        Object value = value(columnIndex);
+        if (value == null) {
+            
+            return false;
+        }
+        if (value instanceof Boolean) {
+            
+            return ((Boolean) value).booleanValue();
+        }
+        return number(value).intValue() != 0;
+    }
+    
+    public byte getByte(int columnIndex)
+        throws SQLException {
+        
+        Object value = value(columnIndex);
+        return (value == null ? 0 : number(value).byteValue());
+    }
+    
+    public short getShort(int columnIndex)
+        throws SQLException {
+        
+        Object value = value(columnIndex);
+        return (value == null ? 0 : number(value).shortValue());
+    }
+    
+    public int getInt(int columnIndex)
+        throws SQLException {
+        
+        Object value = value(columnIndex);
+        return (value == null ? 0 : number(value).intValue());
+    }
+    
+    public long getLong(int columnIndex)
+        throws SQLException {
+        
+        Object value = value(columnIndex);
+        return (value == null ? 0L : number(value).longValue());
+    }
+    
+    public float getFloat(int columnIndex)
+        throws SQLException {
+        
+        Object value = value(columnIndex);
+        return (value == null ? 0.0f : number(value).floatValue());
+    }
+    
+    public double getDouble(int columnIndex)
+        throws SQLException {
+        
+        Object value = value(columnIndex);
+        return (value == null ? 0.0 : number(value).doubleValue());
+    }
+    
+    public BigDecimal getBigDecimal(int columnIndex, int scale)
+        throws SQLException {
+        
+        BigDecimal value = getBigDecimal(columnIndex);
+        return (value == null ? null : value.setScale(scale, BigDecimal.ROUND_HALF_UP));
+    }
+    
+    public byte[] getBytes(int columnIndex)
+        throws SQLException {
+        
+        return (byte[]) value(columnIndex);
+    }
+    
+    public Date getDate(int columnIndex)
+        throws SQLException {
+        
+        Object value = value(columnIndex);
+        if (value == null || value instanceof Date) {
+            
+            return (Date) value;
+        }
+        return new Date(((java.util.Date) value).getTime());
+    }
+    
+    public Time getTime(int columnIndex)
+        throws SQLException {
+        
+        Object value = value(columnIndex);
+        if (value == null || value instanceof Time) {
+            
+            return (Time) value;
+        }
+        return new Time(((java.util.Date) value).getTime());
+    }
+    
+    public Timestamp getTimestamp(int columnIndex)
+        throws SQLException {
+        
+        Object value = value(columnIndex);
+        if (value == null || value instanceof Timestamp) {
+            
+            return (Timestamp) value;
+        }
+        return new Timestamp(((java.util.Date) value).getTime());
+    }
+    
+    public InputStream getAsciiStream(int columnIndex)
+        throws SQLException {
+        
+        throw unsupported("getAsciiStream");
+    }
+    
+    public InputStream getUnicodeStream(int columnIndex)
+        throws SQLException {
+        
+        throw unsupported("getUnicodeStream");
+    }
+    
+    public InputStream getBinaryStream(int columnIndex)
+        throws SQLException {
+        
+        throw unsupported("getBinaryStream");
+    }
+    
+    public String getString(String columnLabel)
+        throws SQLException {
+        
+        return getString(findColumn(columnLabel));
+    }
+    
+    public boolean getBoolean(String columnLabel)
+        throws SQLException {
+        
+        return getBoolean(findColumn(columnLabel));
+    }
+    
+    public byte getByte(String columnLabel)
+        throws SQLException {
+        
+        return getByte(findColumn(columnLabel));
+    }
+    
+    public short getShort(String columnLabel)
+        throws SQLException {
+        
+        return getShort(findColumn(columnLabel));
+    }
+    
+    public int getInt(String columnLabel)
+        throws SQLException {
+        
+        return getInt(findColumn(columnLabel));
+    }
+    
+    public long getLong(String columnLabel)
+        throws SQLException {
+        
+        return getLong(findColumn(columnLabel));
+    }
+    
+    public float getFloat(String columnLabel)
+        throws SQLException {
+        
+        return getFloat(findColumn(columnLabel));
+    }
+    
+    public double getDouble(String columnLabel)
+        throws SQLException {
+        
+        return getDouble(findColumn(columnLabel));
+    }
+    
+    public BigDecimal getBigDecimal(String columnLabel, int scale)
+        throws SQLException {
+        
+        return getBigDecimal(findColumn(columnLabel), scale);
+    }
+    
+    public byte[] getBytes(String columnLabel)
+        throws SQLException {
+        
+        return getBytes(findColumn(columnLabel));
+    }
+    
+    public Date getDate(String columnLabel)
+        throws SQLException {
+        
+        return getDate(findColumn(columnLabel));
+    }
+    
+    public Time getTime(String columnLabel)
+        throws SQLException {
+        
+        return getTime(findColumn(columnLabel));
+    }
+    
+    public Timestamp getTimestamp(String columnLabel)
+        throws SQLException {
+        
+        return getTimestamp(findColumn(columnLabel));
+    }
+    
+    public InputStream getAsciiStream(String columnLabel)
+        throws SQLException {
+        
+        throw unsupported("getAsciiStream");
+    }
+    
+    public InputStream getUnicodeStream(String columnLabel)
+        throws SQLException {
+        
+        throw unsupported("getUnicodeStream");
+    }
+    
+    public InputStream getBinaryStream(String columnLabel)
+        throws SQLException {
+        
+        throw unsupported("getBinaryStream");
+    }
+    
+    public SQLWarning getWarnings()
+        throws SQLException {
+        
+        return null;
+    }
+    
+    public void clearWarnings()
+        throws SQLException {
+        
+        /* Nothing to do */
+    }
+    
+    public String getCursorName()
+        throws SQLException {
+        
+        throw unsupported("getCursorName");
+    }
+    
+    public ResultSetMetaData getMetaData()
+        throws SQLException {
+        
+        return metaData;
+    }
+    
+    public Object getObject(int columnIndex)
+        throws SQLException {
+        
+        return value(columnIndex);
+    }
+    
+    public Object getObject(String columnLabel)
+        throws SQLException {
+        
+        return getObject(findColumn(columnLabel));
+    }
+    
+    public int findColumn(String columnLabel)
+        throws SQLException {
+        
+        for (int i = 0; i < columns.length; i++) {
+            
+            if (columns[i].getName().equalsIgnoreCase(columnLabel)) {
+                
+                return i + 1;
+            }
+        }
+        
+        throw new SQLException("Column '" + columnLabel + "' not found");
+    }
+    
+    public Reader getCharacterStream(int columnIndex)
+        throws SQLException {
+        
+        throw unsupported("getCharacterStream");
+    }
+    
+    public Reader getCharacterStream(String columnLabel)
+        throws SQLException {
+        
+        throw unsupported("getCharacterStream");
+    }
+    
+    public BigDecimal getBigDecimal(int columnIndex)
+        throws SQLException {
+        
+        Object value = value(columnIndex);
+        if (value == null || value instanceof BigDecimal) {
+            
+            return (BigDecimal) value;
+        }
+        return new BigDecimal(value.toString());
+    }
+    
+    public BigDecimal getBigDecimal(String columnLabel)
+        throws SQLException {
+        
+        return getBigDecimal(findColumn(columnLabel));
+    }
+    
+    public boolean isBeforeFirst()
+        throws SQLException {
+        
+        return row < 0 && rows.length > 0;
+    }
+    
+    public boolean isAfterLast()
+        throws SQLException {
+        
+        return row >= rows.length && rows.length > 0;
+    }
+    
+    public boolean isFirst()
+        throws SQLException {
+        
+        return row == 0 && rows.length > 0;
+    }
+    
+    public boolean isLast()
+        throws SQLException {
+        
+        return row == rows.length - 1;
+    }
+    
+    public void beforeFirst()
+        throws SQLException {
+        
+        row = -1;
+    }
+    
+    public void afterLast()
+        throws SQLException {
+        
+        throw unsupported("afterLast");
+    }
+    
+    public boolean first()
+        throws SQLException {
+        
+        throw unsupported("first");
+    }
+    
+    public boolean last()
+        throws SQLException {
+        
+        throw unsupported("last");
+    }
+    
+    public int getRow()
+        throws SQLException {
+        
+        return (row >= 0 && row < rows.length) ? row + 1 : 0;
+    }
+    
+    public boolean absolute(int row)
+        throws SQLException {
+        
+        throw unsupported("absolute");
+    }
+    
+    public boolean relative(int rows)
+        throws SQLException {
+        
+        throw unsupported("relative");
+    }
+    
+    public boolean previous()
+        throws SQLException {
+        
+        throw unsupported("previous");
+    }
+    
+    public void setFetchDirection(int direction)
+        throws SQLException {
+        
+        /* Ignored */
+    }
+    
+    public int getFetchDirection()
+        throws SQLException {
+        
+        return FETCH_FORWARD;
+    }
+    
+    public void setFetchSize(int rows)
+        throws SQLException {
+        
+        /* Ignored */
+    }
+    
+    public int getFetchSize()
+        throws SQLException {
+        
+        return rows.length;
+    }
+    
+    public int getType()
+        throws SQLException {
+        
+        return TYPE_FORWARD_ONLY;
+    }
+    
+    public int getConcurrency()
+        throws SQLException {
+        
+        return CONCUR_READ_ONLY;
+    }
+    
+    public boolean rowUpdated()
+        throws SQLException {
+        
+        throw unsupported("rowUpdated");
+    }
+    
+    public boolean rowInserted()
+        throws SQLException {
+        
+        throw unsupported("rowInserted");
+    }
+    
+    public boolean rowDeleted()
+        throws SQLException {
+        
+        throw unsupported("rowDeleted");
+    }
+    
+    public void updateNull(int columnIndex)
+        throws SQLException {
+        
+        throw unsupported("updateNull");
+    }
+    
+    public void updateBoolean(int columnIndex, boolean x)
+        throws SQLException {
+        
+        throw unsupported("updateBoolean");
+    }
+    
+    public void updateByte(int columnIndex, byte x)
+        throws SQLException {
+        
+        throw unsupported("updateByte");
+    }
+    
+    public void updateShort(int columnIndex, short x)
+        throws SQLException {
+        
+        throw unsupported("updateShort");
+    }
+    
+    public void updateInt(int columnIndex, int x)
+        throws SQLException {
+        
+        throw unsupported("updateInt");
+    }
+    
+    public void updateLong(int columnIndex, long x)
+        throws SQLException {
+        
+        throw unsupported("updateLong");
+    }
+    
+    public void updateFloat(int columnIndex, float x)
+        throws SQLException {
+        
+        throw unsupported("updateFloat");
+    }
+    
+    public void updateDouble(int columnIndex, double x)
+        throws SQLException {
+        
+        throw unsupported("updateDouble");
+    }
+    
+    public void updateBigDecimal(int columnIndex, BigDecimal x)
+        throws SQLException {
+        
+        throw unsupported("updateBigDecimal");
+    }
+    
+    public void updateString(int columnIndex, String x)
+        throws SQLException {
+        
+        throw unsupported("updateString");
+    }
+    
+    public void updateBytes(int columnIndex, byte[] x)
+        throws SQLException {
+        
+        throw unsupported("updateBytes");
+    }
+    
+    public void updateDate(int columnIndex, Date x)
+        throws SQLException {
+        
+        throw unsupported("updateDate");
+    }
+    
+    public void updateTime(int columnIndex, Time x)
+        throws SQLException {
+        
+        throw unsupported("updateTime");
+    }
+    
+    public void updateTimestamp(int columnIndex, Timestamp x)
+        throws SQLException {
+        
+        throw unsupported("updateTimestamp");
+    }
+    
+    public void updateAsciiStream(int columnIndex, InputStream x, int length)
+        throws SQLException {
+        
+        throw unsupported("updateAsciiStream");
+    }
+    
+    public void updateBinaryStream(int columnIndex, InputStream x, int length)
+        throws SQLException {
+        
+        throw unsupported("updateBinaryStream");
+    }
+    
+    public void updateCharacterStream(int columnIndex, Reader x, int length)
+        throws SQLException {
+        
+        throw unsupported("updateCharacterStream");
+    }
+    
+    public void updateObject(int columnIndex, Object x, int scaleOrLength)
+        throws SQLException {
+        
+        throw unsupported("updateObject");
+    }
+    
+    public void updateObject(int columnIndex, Object x)
+        throws SQLException {
+        
+        throw unsupported("updateObject");
+    }
+    
+    public void updateNull(String columnLabel)
+        throws SQLException {
+        
+        throw unsupported("updateNull");
+    }
+    
+    public void updateBoolean(String columnLabel, boolean x)
+        throws SQLException {
+        
+        throw unsupported("updateBoolean");
+    }
+    
+    public void updateByte(String columnLabel, byte x)
+        throws SQLException {
+        
+        throw unsupported("updateByte");
+    }
+    
+    public void updateShort(String columnLabel, short x)
+        throws SQLException {
+        
+        throw unsupported("updateShort");
+    }
+    
+    public void updateInt(String columnLabel, int x)
+        throws SQLException {
+        
+        throw unsupported("updateInt");
+    }
+    
+    public void updateLong(String columnLabel, long x)
+        throws SQLException {
+        
+        throw unsupported("updateLong");
+    }
+    
+    public void updateFloat(String columnLabel, float x)
+        throws SQLException {
+        
+        throw unsupported("updateFloat");
+    }
+    
+    public void updateDouble(String columnLabel, double x)
+        throws SQLException {
+        
+        throw unsupported("updateDouble");
+    }
+    
+    public void updateBigDecimal(String columnLabel, BigDecimal x)
+        throws SQLException {
+        
+        throw unsupported("updateBigDecimal");
+    }
+    
+    public void updateString(String columnLabel, String x)
+        throws SQLException {
+        
+        throw unsupported("updateString");
+    }
+    
+    public void updateBytes(String columnLabel, byte[] x)
+        throws SQLException {
+        
+        throw unsupported("updateBytes");
+    }
+    
+    public void updateDate(String columnLabel, Date x)
+        throws SQLException {
+        
+        throw unsupported("updateDate");
+    }
+    
+    public void updateTime(String columnLabel, Time x)
+        throws SQLException {
+        
+        throw unsupported("updateTime");
+    }
+    
+    public void updateTimestamp(String columnLabel, Timestamp x)
+        throws SQLException {
+        
+        throw unsupported("updateTimestamp");
+    }
+    
+    public void updateAsciiStream(String columnLabel, InputStream x, int length)
+        throws SQLException {
+        
+        throw unsupported("updateAsciiStream");
+    }
+    
+    public void updateBinaryStream(String columnLabel, InputStream x, int length)
+        throws SQLException {
+        
+        throw unsupported("updateBinaryStream");
+    }
+    
+    public void updateCharacterStream(String columnLabel, Reader x, int length)
+        throws SQLException {
+        
+        throw unsupported("updateCharacterStream");
+    }
+    
+    public void updateObject(String columnLabel, Object x, int scaleOrLength)
+        throws SQLException {
+        
+        throw unsupported("updateObject");
+    }
+    
+    public void updateObject(String columnLabel, Object x)
+        throws SQLException {
+        
+        throw unsupported("updateObject");
+    }
+    
+    public void insertRow()
+        throws SQLException {
+        
+        throw unsupported("insertRow");
+    }
+    
+    public void updateRow()
+        throws SQLException {
+        
+        throw unsupported("updateRow");
+    }
+    
+    public void deleteRow()
+        throws SQLException {
+        
+        throw unsupported("deleteRow");
+    }
+    
+    public void refreshRow()
+        throws SQLException {
+        
+        throw unsupported("refreshRow");
+    }
+    
+    public void cancelRowUpdates()
+        throws SQLException {
+        
+        throw unsupported("cancelRowUpdates");
+    }
+    
+    public void moveToInsertRow()
+        throws SQLException {
+        
+        throw unsupported("moveToInsertRow");
+    }
+    
+    public void moveToCurrentRow()
+        throws SQLException {
+        
+        throw unsupported("moveToCurrentRow");
+    }
+    
+    public Statement getStatement()
+        throws SQLException {
+        
+        return null;
+    }
+    
+    public Object getObject(int columnIndex, Map<String, Class<?>> map)
+        throws SQLException {
+        
+        return getObject(columnIndex);
+    }
+    
+    public Ref getRef(int columnIndex)
+        throws SQLException {
+        
+        throw unsupported("getRef");
+    }
+    
+    public Blob getBlob(int columnIndex)
+        throws SQLException {
+        
+        return (Blob) value(columnIndex);
+    }
+    
+    public Clob getClob(int columnIndex)
+        throws SQLException {
+        
+        return (Clob) value(columnIndex);
+    }
+    
+    public Array getArray(int columnIndex)
+        throws SQLException {
+        
+        return (Array) value(columnIndex);
+    }
+    
+    public Object getObject(String columnLabel, Map<String, Class<?>> map)
+        throws SQLException {
+        
+        return getObject(findColumn(columnLabel), map);
+    }
+    
+    public Ref getRef(String columnLabel)
+        throws SQLException {
+        
+        throw unsupported("getRef");
+    }
+    
+    public Blob getBlob(String columnLabel)
+        throws SQLException {
+        
+        return getBlob(findColumn(columnLabel));
+    }
+    
+    public Clob getClob(String columnLabel)
+        throws SQLException {
+        
+        return getClob(findColumn(columnLabel));
+    }
+    
+    public Array getArray(String columnLabel)
+        throws SQLException {
+        
+        return getArray(findColumn(columnLabel));
+    }
+    
+    public Date getDate(int columnIndex, Calendar cal)
+        throws SQLException {
+        
+        return getDate(columnIndex);
+    }
+    
+    public Date getDate(String columnLabel, Calendar cal)
+        throws SQLException {
+        
+        return getDate(findColumn(columnLabel), cal);
+    }
+    
+    public Time getTime(int columnIndex, Calendar cal)
+        throws SQLException {
+        
+        return getTime(columnIndex);
+    }
+    
+    public Time getTime(String columnLabel, Calendar cal)
+        throws SQLException {
+        
+        return getTime(findColumn(columnLabel), cal);
+    }
+    
+    public Timestamp getTimestamp(int columnIndex, Calendar cal)
+        throws SQLException {
+        
+        return getTimestamp(columnIndex);
+    }
+    
+    public Timestamp getTimestamp(String columnLabel, Calendar cal)
+        throws SQLException {
+        
+        return getTimestamp(findColumn(columnLabel), cal);
+    }
+    
+    public URL getURL(int columnIndex)
+        throws SQLException {
+        
+        throw unsupported("getURL");
+    }
+    
+    public URL getURL(String columnLabel)
+        throws SQLException {
+        
+        throw unsupported("getURL");
+    }
+    
+    public void updateRef(int columnIndex, Ref x)
+        throws SQLException {
+        
+        throw unsupported("updateRef");
+    }
+    
+    public void updateRef(String columnLabel, Ref x)
+        throws SQLException {
+        
+        throw unsupported("updateRef");
+    }
+    
+    public void updateBlob(int columnIndex, Blob x)
+        throws SQLException {
+        
+        throw unsupported("updateBlob");
+    }
+    
+    public void updateBlob(String columnLabel, Blob x)
+        throws SQLException {
+        
+        throw unsupported("updateBlob");
+    }
+    
+    public void updateClob(int columnIndex, Clob x)
+        throws SQLException {
+        
+        throw unsupported("updateClob");
+    }
+    
+    public void updateClob(String columnLabel, Clob x)
+        throws SQLException {
+        
+        throw unsupported("updateClob");
+    }
+    
+    public void updateArray(int columnIndex, Array x)
+        throws SQLException {
+        
+        throw unsupported("updateArray");
+    }
+    
+    public void updateArray(String columnLabel, Array x)
+        throws SQLException {
+        
+        throw unsupported("updateArray");
+    }
+    
+    public RowId getRowId(int columnIndex)
+        throws SQLException {
+        
+        throw unsupported("getRowId");
+    }
+    
+    public RowId getRowId(String columnLabel)
+        throws SQLException {
+        
+        throw unsupported("getRowId");
+    }
+    
+    public void updateRowId(int columnIndex, RowId x)
+        throws SQLException {
+        
+        throw unsupported("updateRowId");
+    }
+    
+    public void updateRowId(String columnLabel, RowId x)
+        throws SQLException {
+        
+        throw unsupported("updateRowId");
+    }
+    
+    public int getHoldability()
+        throws SQLException {
+        
+        return CLOSE_CURSORS_AT_COMMIT;
+    }
+    
+    public boolean isClosed()
+        throws SQLException {
+        
+        return closed;
+    }
+    
+    public void updateNString(int columnIndex, String x)
+        throws SQLException {
+        
+        throw unsupported("updateNString");
+    }
+    
+    public void updateNString(String columnLabel, String x)
+        throws SQLException {
+        
+        throw unsupported("updateNString");
+    }
+    
+    public void updateNClob(int columnIndex, NClob x)
+        throws SQLException {
+        
+        throw unsupported("updateNClob");
+    }
+    
+    public void updateNClob(String columnLabel, NClob x)
+        throws SQLException {
+        
+        throw unsupported("updateNClob");
+    }
+    
+    public NClob getNClob(int columnIndex)
+        throws SQLException {
+        
+        return (NClob) value(columnIndex);
+    }
+    
+    public NClob getNClob(String columnLabel)
+        throws SQLException {
+        
+        return getNClob(findColumn(columnLabel));
+    }
+    
+    public SQLXML getSQLXML(int columnIndex)
+        throws SQLException {
+        
+        return (SQLXML) value(columnIndex);
+    }
+    
+    public SQLXML getSQLXML(String columnLabel)
+        throws SQLException {
+        
+        return getSQLXML(findColumn(columnLabel));
+    }
+    
+    public void updateSQLXML(int columnIndex, SQLXML x)
+        throws SQLException {
+        
+        throw unsupported("updateSQLXML");
+    }
+    
+    public void updateSQLXML(String columnLabel, SQLXML x)
+        throws SQLException {
+        
+        throw unsupported("updateSQLXML");
+    }
+    
+    public String getNString(int columnIndex)
+        throws SQLException {
+        
+        return getString(columnIndex);
+    }
+    
+    public String getNString(String columnLabel)
+        throws SQLException {
+        
+        return getNString(findColumn(columnLabel));
+    }
+    
+    public Reader getNCharacterStream(int columnIndex)
+        throws SQLException {
+        
+        throw unsupported("getNCharacterStream");
+    }
+    
+    public Reader getNCharacterStream(String columnLabel)
+        throws SQLException {
+        
+        throw unsupported("getNCharacterStream");
+    }
+    
+    public void updateNCharacterStream(int columnIndex, Reader x, long length)
+        throws SQLException {
+        
+        throw unsupported("updateNCharacterStream");
+    }
+    
+    public void updateNCharacterStream(String columnLabel, Reader x, long length)
+        throws SQLException {
+        
+        throw unsupported("updateNCharacterStream");
+    }
+    
+    public void updateAsciiStream(int columnIndex, InputStream x, long length)
+        throws SQLException {
+        
+        throw unsupported("updateAsciiStream");
+    }
+    
+    public void updateBinaryStream(int columnIndex, InputStream x, long length)
+        throws SQLException {
+        
+        throw unsupported("updateBinaryStream");
+    }
+    
+    public void updateCharacterStream(int columnIndex, Reader x, long length)
+        throws SQLException {
+        
+        throw unsupported("updateCharacterStream");
+    }
+    
+    public void updateAsciiStream(String columnLabel, InputStream x, long length)
+        throws SQLException {
+        
+        throw unsupported("updateAsciiStream");
+    }
+    
+    public void updateBinaryStream(String columnLabel, InputStream x, long length)
+        throws SQLException {
+        
+        throw unsupported("updateBinaryStream");
+    }
+    
+    public void updateCharacterStream(String columnLabel, Reader x, long length)
+        throws SQLException {
+        
+        throw unsupported("updateCharacterStream");
+    }
+    
+    public void updateBlob(int columnIndex, InputStream x, long length)
+        throws SQLException {
+        
+        throw unsupported("updateBlob");
+    }
+    
+    public void updateBlob(String columnLabel, InputStream x, long length)
+        throws SQLException {
+        
+        throw unsupported("updateBlob");
+    }
+    
+    public void updateClob(int columnIndex, Reader x, long length)
+        throws SQLException {
+        
+        throw unsupported("updateClob");
+    }
+    
+    public void updateClob(String columnLabel, Reader x, long length)
+        throws SQLException {
+        
+        throw unsupported("updateClob");
+    }
+    
+    public void updateNClob(int columnIndex, Reader x, long length)
+        throws SQLException {
+        
+        throw unsupported("updateNClob");
+    }
+    
+    public void updateNClob(String columnLabel, Reader x, long length)
+        throws SQLException {
+        
+        throw unsupported("updateNClob");
+    }
+    
+    public void updateNCharacterStream(int columnIndex, Reader x)
+        throws SQLException {
+        
+        throw unsupported("updateNCharacterStream");
+    }
+    
+    public void updateNCharacterStream(String columnLabel, Reader x)
+        throws SQLException {
+        
+        throw unsupported("updateNCharacterStream");
+    }
+    
+    public void updateAsciiStream(int columnIndex, InputStream x)
+        throws SQLException {
+        
+        throw unsupported("updateAsciiStream");
+    }
+    
+    public void updateBinaryStream(int columnIndex, InputStream x)
+        throws SQLException {
+        
+        throw unsupported("updateBinaryStream");
+    }
+    
+    public void updateCharacterStream(int columnIndex, Reader x)
+        throws SQLException {
+        
+        throw unsupported("updateCharacterStream");
+    }
+    
+    public void updateAsciiStream(String columnLabel, InputStream x)
+        throws SQLException {
+        
+        throw unsupported("updateAsciiStream");
+    }
+    
+    public void updateBinaryStream(String columnLabel, InputStream x)
+        throws SQLException {
+        
+        throw unsupported("updateBinaryStream");
+    }
+    
+    public void updateCharacterStream(String columnLabel, Reader x)
+        throws SQLException {
+        
+        throw unsupported("updateCharacterStream");
+    }
+    
+    public void updateBlob(int columnIndex, InputStream x)
+        throws SQLException {
+        
+        throw unsupported("updateBlob");
+    }
+    
+    public void updateBlob(String columnLabel, InputStream x)
+        throws SQLException {
+        
+        throw unsupported("updateBlob");
+    }
+    
+    public void updateClob(int columnIndex, Reader x)
+        throws SQLException {
+        
+        throw unsupported("updateClob");
+    }
+    
+    public void updateClob(String columnLabel, Reader x)
+        throws SQLException {
+        
+        throw unsupported("updateClob");
+    }
+    
+    public void updateNClob(int columnIndex, Reader x)
+        throws SQLException {
+        
+        throw unsupported("updateNClob");
+    }
+    
+    public void updateNClob(String columnLabel, Reader x)
+        throws SQLException {
+        
+        throw unsupported("updateNClob");
+    }
+    
+    public <T> T getObject(int columnIndex, Class<T> type)
+        throws SQLException {
+        
+        return type.cast(getObject(columnIndex));
+    }
+    
+    public <T> T getObject(String columnLabel, Class<T> type)
+        throws SQLException {
+        
+        return getObject(findColumn(columnLabel), type);
+    }
+    
+    public boolean isWrapperFor(Class<?> iface)
+        throws SQLException {
+        
+        return iface.isInstance(this);
+    }
+    
+    public <T> T unwrap(Class<T> iface)
+        throws SQLException {
+        
+        return iface.cast(this);
+    }
+}
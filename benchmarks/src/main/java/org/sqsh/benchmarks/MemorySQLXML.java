@@ -0,0 +1,105 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.UnsupportedEncodingException;
+import java.io.Writer;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLXML;
+
+import javax.xml.transform.Result;
+import javax.xml.transform.Source;
+
+/**
+ * A read-only {@link SQLXML} value held in a string.
+ */
+public class MemorySQLXML
+    implements SQLXML {
+    
+    private String xml;
+    
+    public MemorySQLXML (String xml) {
+        
+        this.xml = xml;
+    }
+    
+    public void free()
+        throws SQLException {
+        
+        /* Nothing to free */
+    }
+    
+    public InputStream getBinaryStream()
+        throws SQLException {
+        
+        try {
+            
+            return new ByteArrayInputStream(xml.getBytes("UTF-8"));
+        }
+        catch (UnsupportedEncodingException e) {
+            
+            throw new SQLException(e.getMessage(), e);
+        }
+    }
+    
+    public Reader getCharacterStream()
+        throws SQLException {
+        
+        return new StringReader(xml);
+    }
+    
+    public String getString()
+        throws SQLException {
+        
+        return xml;
+    }
+    
+    public OutputStream setBinaryStream()
+        throws SQLException {
+        
+        throw new SQLFeatureNotSupportedException("Read-only");
+    }
+    
+    public Writer setCharacterStream()
+        throws SQLException {
+        
+        throw new SQLFeatureNotSupportedException("Read-only");
+    }
+    
+    public void setString(String value)
+        throws SQLException {
+        
+        throw new SQLFeatureNotSupportedException("Read-only");
+    }
+    
+    public <T extends Source> T getSource(Class<T> sourceClass)
+        throws SQLException {
+        
+        throw new SQLFeatureNotSupportedException("getSource");
+    }
+    
+    public <T extends Result> T setResult(Class<T> resultClass)
+        throws SQLException {
+        
+        throw new SQLFeatureNotSupportedException("Read-only");
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.benchmarks;
+
+import java.io.PrintStream;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.sqsh.Renderer;
+import org.sqsh.SQLRenderer;
+import org.sqsh.Session;
+import org.sqsh.SqshContext;
+
+/**
+ * Measures the end-to-end cost of displaying a result set with each of
+ * the display styles: fetching from the result set, formatting each value
+ * and rendering the rows to an output stream that discards them. Scores
+ * are in rows per second; run with "-prof gc" and look at 
+ * gc.alloc.rate.norm for the bytes allocated per row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RendererBenchmark {
+    
+    /**
+     * The number of rows in each result set displayed.
+     */
+    public static final int ROWS = 10000;
+    
+    @Param({ "csv", "json", "pretty", "perfect", "vertical", "isql",
+        "insert", "discard" })
+    public String style;
+    
+    @Param({ "NARROW", "ORDERS", "LOBS" })
+    public ColumnMix mix;
+    
+    @Param({ "false", "true" })
+    public boolean pipelined;
+    
+    private SqshContext context;
+    private Session session;
+    private SQLRenderer sqlRenderer;
+    private CountingOutputStream out;
+    private MemoryResultSet resultSet;
+    
+    @Setup(Level.Trial)
+    public void setup() {
+        
+        context = new SqshContext();
+        context.setScreenWidth(120);
+        
+        session = context.newSession(false);
+        out = new CountingOutputStream();
+        session.setOut(new PrintStream(out, false), false);
+        session.setErr(new PrintStream(new CountingOutputStream(), false),
+            false);
+        
+        sqlRenderer = session.getSQLRenderer();
+        sqlRenderer.setMaxRows(0);
+        sqlRenderer.setPipelined(pipelined);
+        
+        resultSet = mix.newResultSet(ROWS, 42L);
+    }
+    
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        
+        context.close();
+    }
+    
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public long render()
+        throws SQLException {
+        
+        resultSet.reset();
+        
+        Renderer renderer = 
+            context.getRendererManager().getRenderer(session, style);
+        sqlRenderer.displayResults(renderer, session, resultSet, null);
+        
+        session.out.flush();
+        return out.getCount();
+    }
+}
@@ -47,6 +47,12 @@ public class DataFormatter {
     private int maxTimeWidth = -1;;
     private boolean byteStringFormat = false;
     
+    /*
+     * The maximum number of characters of a CLOB, or bytes of a BLOB,
+     * that are displayed.
+     */
+    private int lobLimit = 65536;
+    
     /*
      * Number of decimal places of precision to use when displaying
      * floating point values (except for BigDecimal).
@@ -136,6 +142,8 @@ public class DataFormatter {
      *                              TIME
      * ==================================================================== */
     
+    private DateFormatter timeFormatter = null;
+    
     /**
      * @return the timeFormat
      */
@@ -150,6 +158,7 @@ public class DataFormatter {
     public void setTimeFormat (String timeFormat) {
     
         this.timeFormat = timeFormat;
+        this.timeFormatter = null;
         maxTimeWidth = -1;
     }
     
@@ -160,7 +169,12 @@ public class DataFormatter {
             maxTimeWidth = getMaxDateWidth(timeFormat);
         }
         
-        return new DateFormatter(timeFormat, maxTimeWidth);
+        if (timeFormatter == null) {
+            
+            timeFormatter = new DateFormatter(timeFormat, maxTimeWidth);
+        }
+        
+        return timeFormatter;
     }
     
     /* ====================================================================
@@ -379,7 +393,19 @@ public class DataFormatter {
      */
     public Formatter getClobFormatter() {
         
-        return new ClobFormatter();
+        return getClobFormatter(lobLimit);
+    }
+    
+    /**
+     * Returns a formatter for formatting CLOBs.
+     * 
+     * @param maxChars The maximum number of characters to display, or a
+     *   value less than 1 if there is no limit.
+     * @return The formatter.
+     */
+    public Formatter getClobFormatter(int maxChars) {
+        
+        return new ClobFormatter(maxChars);
     }
     
     /**
@@ -392,6 +418,19 @@ public class DataFormatter {
         return new XMLFormatter();
     }
         
+    /**
+     * Returns a formatter for formatting XML that is to be displayed in a
+     * column of limited width.
+     * 
+     * @param maxWidth The maximum width of the column, 0 or less if
+     *   there is no limit.
+     * @return a new formatter.
+     */
+    public Formatter getXMLFormatter(int maxWidth) {
+        
+        return new XMLFormatter(maxWidth);
+    }
+    
     /* ====================================================================
      *                             BOOLEAN
      * ==================================================================== */
@@ -411,7 +450,41 @@ public class DataFormatter {
      */
     public Formatter getBlobFormatter() {
         
-        return new BlobFormatter();
+        return getBlobFormatter(lobLimit);
+    }
+    
+    /**
+     * Returns a formatter for formatting blobs.
+     * 
+     * @param maxBytes The maximum number of bytes to display, or a value
+     *   less than 1 if there is no limit.
+     * @return The formatter.
+     */
+    public Formatter getBlobFormatter(int maxBytes) {
+        
+        return new BlobFormatter(maxBytes, byteStringFormat);
+    }
+    
+    /**
+     * Sets the maximum number of characters of a CLOB, or bytes of a
+     * BLOB, that are displayed. Anything beyond that is not read, and
+     * is shown as a count of what was left out.
+     * 
+     * @param lobLimit The limit, or a value less than 1 if there is
+     *   no limit.
+     */
+    public void setLobLimit(int lobLimit) {
+        
+        this.lobLimit = lobLimit;
+    }
+    
+    /**
+     * @return The maximum number of characters of a CLOB, or bytes of a
+     *   BLOB, that are displayed.
+     */
+    public int getLobLimit() {
+        
+        return lobLimit;
     }
     
     /* ====================================================================
@@ -0,0 +1,657 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Set;
+
+import org.sqsh.format.NumberFormatter;
+
+/**
+ * A fetch plan is built once per result set and describes how each of
+ * the columns that are to be displayed is to be retrieved from the
+ * {@link ResultSet} and turned into a string. Fetching and formatting are
+ * kept as two separate steps: {@link #fetch(ResultSet, Row, int)} pulls
+ * the raw (and, where possible, primitive) values of the current row into
+ * a re-usable {@link Row}, and {@link #format(Row, String[])} turns those
+ * values into strings suitable for a {@link Renderer}.
+ *
+ * <p>A plan is not thread safe, as the formatters it uses are not. The
+ * one exception to this is when {@link #setEagerLocators(boolean)} is
+ * enabled, in which case {@link #fetch(ResultSet, Row, int)} may be called
+ * from one thread while {@link #format(Row, String[])} is called from 
+ * another (see {@link RowPipeline}).
+ */
+public class FetchPlan {
+    
+    /**
+     * The value is fetched with {@link ResultSet#getObject(int)}.
+     */
+    public static final int FETCH_OBJECT    = 0;
+    
+    /**
+     * The value is fetched with {@link ResultSet#getLong(int)}.
+     */
+    public static final int FETCH_LONG      = 1;
+    
+    /**
+     * The value is fetched with {@link ResultSet#getDouble(int)}.
+     */
+    public static final int FETCH_DOUBLE    = 2;
+    
+    /**
+     * The value is fetched with {@link ResultSet#getTimestamp(int)}.
+     */
+    public static final int FETCH_TIMESTAMP = 3;
+    
+    private Session session;
+    private ColumnDescription []columns;
+    private int []projection;
+    private int []fetchTypes;
+    private int []primitiveTypes;
+    private Formatter []formatters;
+    private NumberFormatter []numberFormatters;
+    private String nullString;
+    
+    /**
+     * For each column, true if the value returned by the driver is only
+     * valid while the result set is positioned on the row (LOBs and the
+     * like).
+     */
+    private boolean []locators;
+    private boolean eagerLocators = false;
+    private boolean pipelineSafe = true;
+    
+    /**
+     * For each column whose values may repeat, a dictionary of the
+     * values that have already been formatted (null for other columns),
+     * and the width of the value most recently formatted through one.
+     */
+    private ValueDictionary []dictionaries;
+    private int valueWidth = -1;
+    
+    /**
+     * Used to format values before they are turned into strings.
+     */
+    private StringBuilder buffer = new StringBuilder(64);
+    
+    /**
+     * Used to format locator values as they are fetched.
+     */
+    private StringBuilder fetchBuffer = new StringBuilder(64);
+    
+    /**
+     * Holds the values fetched for a single row. A row is intended to be
+     * re-used for every row of the result set, so no per-row allocation
+     * takes place for primitive values.
+     */
+    public static class Row {
+        
+        private long []longs;
+        private double []doubles;
+        private Object []objects;
+        private boolean []nulls;
+        private boolean []formatted;
+        private int rowNumber;
+        
+        private Row (int nCols) {
+            
+            longs = new long[nCols];
+            doubles = new double[nCols];
+            objects = new Object[nCols];
+            nulls = new boolean[nCols];
+            formatted = new boolean[nCols];
+        }
+        
+        /**
+         * @return The row number (starting at 1) of the row that was last
+         *   fetched into this holder.
+         */
+        public int getRowNumber() {
+            
+            return rowNumber;
+        }
+        
+        /**
+         * @param idx The index of the displayed column (starting at 0)
+         * @return true if the column's value is NULL
+         */
+        public boolean isNull(int idx) {
+            
+            return nulls[idx];
+        }
+        
+        /**
+         * Releases any object references held by the row so that they can
+         * be garbage collected.
+         */
+        public void clear() {
+            
+            for (int i = 0; i < objects.length; i++) {
+                
+                objects[i] = null;
+            }
+        }
+    }
+    
+    /**
+     * Creates a plan.
+     *
+     * @param session The session, used to report oddities in the values
+     *   returned by the driver.
+     * @param columns Description of the columns to be displayed
+     * @param projection For each column to be displayed, the index
+     *   (starting at 1) of the result set column it is fetched from.
+     */
+    public FetchPlan (Session session, ColumnDescription []columns,
+            int []projection) {
+        
+        int nCols = columns.length;
+        
+        this.session = session;
+        this.columns = columns;
+        this.projection = projection;
+        this.nullString = session.getDataFormatter().getNull();
+        this.fetchTypes = new int[nCols];
+        this.formatters = new Formatter[nCols];
+        this.numberFormatters = new NumberFormatter[nCols];
+        this.locators = new boolean[nCols];
+        this.dictionaries = new ValueDictionary[nCols];
+        
+        for (int i = 0; i < nCols; i++) {
+            
+            ColumnDescription col = columns[i];
+            Formatter formatter = col.getFormatter();
+            
+            formatters[i] = formatter;
+            fetchTypes[i] = FETCH_OBJECT;
+            
+            if (formatter instanceof NumberFormatter) {
+                
+                numberFormatters[i] = (NumberFormatter) formatter;
+            }
+            
+            switch (col.getNativeType()) {
+                
+                /*
+                 * Integer types are all fetched as longs. Some drivers
+                 * (MySQL, for example) report unsigned INTEGER columns
+                 * as INTEGER, so getInt() could overflow.
+                 */
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                    if (numberFormatters[i] != null) {
+                        
+                        fetchTypes[i] = FETCH_LONG;
+                    }
+                    break;
+                
+                /*
+                 * Note that REAL is deliberately left out of this, since
+                 * the driver returns it as a Float and widening it to a
+                 * double changes its string representation.
+                 */
+                case Types.DOUBLE:
+                case Types.FLOAT:
+                    if (numberFormatters[i] != null) {
+                        
+                        fetchTypes[i] = FETCH_DOUBLE;
+                    }
+                    break;
+                
+                /*
+                 * This is silly (I'd use stronger language, but I
+                 * think I'm mellowing in my old age). For an oracle
+                 * TIMESTAMP column, when I ask the driver for the
+                 * datatype it reports java.sql.Timestamp. However,
+                 * when I call the driver's ResultSet.getObject() it
+                 * returns some sort of native internal representation
+                 * of a TIMESTAMP column that is  *not* a
+                 * java.sql.Timestamp and thus jsqsh blows up when it
+                 * trys to format it as one.  So, instead I do a special
+                 * case to force the driver to return it to me as a
+                 * timestamp.
+                 */
+                case Types.TIMESTAMP:
+                    fetchTypes[i] = FETCH_TIMESTAMP;
+                    break;
+                
+                default:
+                    break;
+            }
+            
+            switch (col.getNativeType()) {
+                
+                case Types.BLOB:
+                case Types.CLOB:
+                case Types.NCLOB:
+                case Types.SQLXML:
+                case Types.STRUCT:
+                case Types.REF:
+                case Types.OTHER:
+                    locators[i] = true;
+                    break;
+                
+                /*
+                 * Arrays are read through their own result set and their
+                 * elements may be formatted with formatters that are
+                 * shared with other columns, so they cannot be formatted
+                 * away from the other columns.
+                 */
+                case Types.ARRAY:
+                    locators[i] = true;
+                    pipelineSafe = false;
+                    break;
+                
+                /*
+                 * Short values, which in many a column only take on a
+                 * handful of distinct values.
+                 */
+                case Types.BIT:
+                case Types.BOOLEAN:
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                case Types.CHAR:
+                case Types.VARCHAR:
+                case Types.NCHAR:
+                case Types.NVARCHAR:
+                case Types.DATE:
+                case Types.TIME:
+                case Types.TIMESTAMP:
+                    dictionaries[i] = new ValueDictionary();
+                    break;
+                
+                default:
+                    break;
+            }
+        }
+        
+        this.primitiveTypes = fetchTypes.clone();
+    }
+    
+    /**
+     * Creates a plan for a result set.
+     *
+     * @param session The session
+     * @param columns Description of the columns to be displayed
+     * @param nCols The number of columns in the result set
+     * @param displayCols If non-null, the set of result set column numbers
+     *   that are to be displayed.
+     * @return The plan
+     */
+    public static FetchPlan create(Session session,
+            ColumnDescription []columns, int nCols, Set<Integer> displayCols) {
+        
+        int []projection = new int[columns.length];
+        int idx = 0;
+        
+        for (int i = 1; i <= nCols; i++) {
+            
+            if (displayCols == null || displayCols.contains(i)) {
+                
+                projection[idx++] = i;
+            }
+        }
+        
+        return new FetchPlan(session, columns, projection);
+    }
+    
+    /**
+     * @return The columns being displayed.
+     */
+    public ColumnDescription[] getColumns() {
+        
+        return columns;
+    }
+    
+    /**
+     * @return The number of columns being displayed.
+     */
+    public int getColumnCount() {
+        
+        return columns.length;
+    }
+    
+    /**
+     * @return For each column being displayed, the result set column
+     *   that it is fetched from.
+     */
+    public int[] getProjection() {
+        
+        return projection;
+    }
+    
+    /**
+     * @param idx The index of the displayed column
+     * @return How the column is fetched (e.g. {@link #FETCH_LONG}).
+     */
+    public int getFetchType(int idx) {
+        
+        return fetchTypes[idx];
+    }
+    
+    /**
+     * @return true if the values fetched by this plan may be formatted
+     *   on a different thread than the one that fetched them, provided
+     *   {@link #setEagerLocators(boolean)} is enabled.
+     */
+    public boolean isPipelineSafe() {
+        
+        return pipelineSafe;
+    }
+    
+    /**
+     * Values such as LOBs are usually only valid while the result set is
+     * positioned on the row that they came from. When eager locators are
+     * enabled, these values are formatted as they are fetched rather than
+     * when {@link #format(Row, String[])} is called, so that fetching may
+     * run ahead of formatting.
+     * 
+     * @param eagerLocators true to format locator values during the fetch
+     */
+    public void setEagerLocators(boolean eagerLocators) {
+        
+        this.eagerLocators = eagerLocators;
+    }
+    
+    /**
+     * @return A new holder for fetched values.
+     */
+    public Row newRow() {
+        
+        return new Row(columns.length);
+    }
+    
+    /**
+     * Fetches the values of the current row of a result set.
+     *
+     * @param resultSet The result set, which must be positioned on a row.
+     * @param row The holder to fetch into.
+     * @param rowNumber The number of the current row (used for messages).
+     * @throws SQLException Thrown if the driver fails to return a value.
+     */
+    public void fetch(ResultSet resultSet, Row row, int rowNumber)
+        throws SQLException {
+        
+        row.rowNumber = rowNumber;
+        
+        for (int i = 0; i < projection.length; i++) {
+            
+            int col = projection[i];
+            Object value = null;
+            
+            switch (fetchTypes[i]) {
+                
+                case FETCH_LONG:
+                    try {
+                        
+                        row.longs[i] = resultSet.getLong(col);
+                        row.objects[i] = null;
+                        row.nulls[i] = resultSet.wasNull();
+                        continue;
+                    }
+                    catch (SQLException e) {
+                        
+                        /*
+                         * The value doesn't fit in a long (e.g. an
+                         * unsigned BIGINT). Fall back to objects for the
+                         * rest of the result set.
+                         */
+                        fetchTypes[i] = FETCH_OBJECT;
+                        value = resultSet.getObject(col);
+                    }
+                    break;
+                
+                case FETCH_DOUBLE:
+                    row.doubles[i] = resultSet.getDouble(col);
+                    row.objects[i] = null;
+                    row.nulls[i] = resultSet.wasNull();
+                    continue;
+                
+                case FETCH_TIMESTAMP:
+                    value = resultSet.getTimestamp(col);
+                    break;
+                
+                default:
+                    value = resultSet.getObject(col);
+                    break;
+            }
+            
+            row.objects[i] = value;
+            row.nulls[i] = resultSet.wasNull();
+            row.formatted[i] = false;
+            
+            if (value == null && !row.nulls[i]) {
+                
+                session.err.println("WARNING: Row #"
+                    + rowNumber + ", column " + col + ", driver indicated "
+                    + "a value present, but returned NULL");
+                row.nulls[i] = true;
+            }
+            
+            if (eagerLocators && locators[i] && !row.nulls[i]) {
+                
+                fetchBuffer.setLength(0);
+                formatters[i].format(fetchBuffer, value);
+                row.objects[i] = fetchBuffer.toString();
+                row.formatted[i] = true;
+            }
+        }
+    }
+    
+    /**
+     * Formats a single fetched value, appending it to a buffer.
+     *
+     * @param row The fetched row
+     * @param idx The index of the displayed column
+     * @param sb The buffer to append to
+     */
+    public void format(Row row, int idx, StringBuilder sb) {
+        
+        if (row.nulls[idx]) {
+            
+            sb.append(nullString);
+            return;
+        }
+        
+        Object value = row.objects[idx];
+        
+        /*
+         * A non-null value without an object can only have come from
+         * one of the primitive getters.
+         */
+        if (value == null) {
+            
+            if (primitiveTypes[idx] == FETCH_DOUBLE) {
+                
+                numberFormatters[idx].format(sb, row.doubles[idx]);
+            }
+            else {
+                
+                numberFormatters[idx].format(sb, row.longs[idx]);
+            }
+        }
+        else if (row.formatted[idx]) {
+            
+            sb.append((String) value);
+        }
+        else {
+            
+            formatters[idx].format(sb, value);
+        }
+    }
+    
+    /**
+     * Formats a fetched row into strings.
+     *
+     * @param row The fetched row
+     * @param out The array to receive the formatted values. It must be
+     *   at least {@link #getColumnCount()} elements long.
+     */
+    public void format(Row row, String []out) {
+        
+        for (int i = 0; i < projection.length; i++) {
+            
+            if (row.nulls[i]) {
+                
+                out[i] = nullString;
+            }
+            else {
+                
+                out[i] = formatValue(row, i);
+            }
+        }
+    }
+    
+    /**
+     * Formats a fetched row, adding it to the end of a batch.
+     *
+     * @param row The fetched row
+     * @param batch The batch to add the row to. It must not be full.
+     */
+    public void format(Row row, RowBatch batch) {
+        
+        int idx = batch.addRow(row.rowNumber);
+        
+        for (int i = 0; i < projection.length; i++) {
+            
+            if (row.nulls[i]) {
+                
+                batch.set(idx, i, nullString, true);
+            }
+            else {
+                
+                String value = formatValue(row, i);
+                batch.set(idx, i, value, false, valueWidth);
+            }
+        }
+    }
+    
+    /**
+     * Formats a single non-NULL value into a string, going through the
+     * column's dictionary if it has one.
+     *
+     * @param row The fetched row
+     * @param idx The index of the displayed column
+     * @return The formatted value. If it came from (or went into) the
+     *   dictionary, its width is left in valueWidth, otherwise valueWidth
+     *   is -1.
+     */
+    private String formatValue(Row row, int idx) {
+        
+        ValueDictionary dictionary = dictionaries[idx];
+        Object value = row.objects[idx];
+        
+        valueWidth = -1;
+        if (dictionary == null || row.formatted[idx]) {
+            
+            buffer.setLength(0);
+            format(row, idx, buffer);
+            return buffer.toString();
+        }
+        
+        long bits = 0L;
+        int slot;
+        
+        if (value != null) {
+            
+            slot = dictionary.find(value);
+        }
+        else {
+            
+            bits = (primitiveTypes[idx] == FETCH_DOUBLE
+                ? Double.doubleToLongBits(row.doubles[idx]) : row.longs[idx]);
+            slot = dictionary.find(bits);
+        }
+        
+        if (slot < 0) {
+            
+            buffer.setLength(0);
+            format(row, idx, buffer);
+            String str = buffer.toString();
+            
+            if (dictionary.isEnabled()) {
+                
+                slot = (value != null ? dictionary.add(value, str)
+                    : dictionary.add(bits, str));
+            }
+            
+            if (slot < 0) {
+                
+                return str;
+            }
+        }
+        
+        valueWidth = dictionary.getWidth(slot);
+        return dictionary.getText(slot);
+    }
+    
+    /**
+     * @return The number of values that were looked up in the column
+     *   dictionaries.
+     */
+    public long getDictionaryLookups() {
+        
+        long n = 0L;
+        for (int i = 0; i < dictionaries.length; i++) {
+            
+            if (dictionaries[i] != null) {
+                
+                n += dictionaries[i].getLookups();
+            }
+        }
+        
+        return n;
+    }
+    
+    /**
+     * @return The number of values that were found in the column
+     *   dictionaries, and so did not need to be formatted.
+     */
+    public long getDictionaryHits() {
+        
+        long n = 0L;
+        for (int i = 0; i < dictionaries.length; i++) {
+            
+            if (dictionaries[i] != null) {
+                
+                n += dictionaries[i].getHits();
+            }
+        }
+        
+        return n;
+    }
+    
+    /**
+     * @param capacity The number of rows the batch is to hold.
+     * @return A new batch suitable for {@link #format(Row, RowBatch)}.
+     */
+    public RowBatch newBatch(int capacity) {
+        
+        return new RowBatch(columns.length, capacity);
+    }
+}
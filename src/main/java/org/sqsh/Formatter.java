@@ -37,4 +37,16 @@ public interface Formatter {
      * @throws FormatError If the formatter fails to format a value
      */
     String format(Object value);
+    
+    /**
+     * Formats a value, appending the result to a caller supplied buffer
+     * rather than producing a new string. This allows callers that are
+     * formatting large numbers of values to avoid creating intermediate
+     * objects for each value.
+     * 
+     * @param buffer The buffer to append the formatted value to.
+     * @param value The value to be formatted.
+     * @throws FormatError If the formatter fails to format a value
+     */
+    void format(StringBuilder buffer, Object value);
 }
@@ -16,6 +16,7 @@
 package org.sqsh;
 
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * A LineIterator is responsible for iterating over a block of text, 
@@ -26,6 +27,13 @@ import java.util.Iterator;
  *   <li> Removing un-displayable strings.
  *   <li> Expanding tabs to spaces.
  * </ul>
+ * 
+ * <p>Lines are located as ranges of indexes over the original string
+ * (see {@link #nextLine()}), so that a caller that only needs to measure
+ * or copy a line (see {@link #getLineWidth()} and 
+ * {@link #getLine(char[], int)}) never needs a String to be created for
+ * it. The {@link Iterator} methods are provided on top of this for 
+ * callers that do want Strings.
  */
 public abstract class LineIterator
     implements Iterator<String> {
@@ -34,6 +42,19 @@ public abstract class LineIterator
     protected String str;
     protected int strLength;
     
+    /**
+     * The range of the string that makes up the current line, which is
+     * set by {@link #advance()}.
+     */
+    protected int lineStart = 0;
+    protected int lineEnd = 0;
+    
+    /*
+     * Set when hasNext() has located a line that has not yet been
+     * returned.
+     */
+    private boolean pending = false;
+    
     public LineIterator (String str) {
         
         this.str = str;
@@ -54,6 +75,7 @@ public abstract class LineIterator
     public void reset(String str) {
         
         this.str = str;
+        this.pending = false;
         this.strLength = str.length();;
         while (strLength > 0 
                 && Character.isWhitespace(str.charAt(strLength - 1))) {
@@ -61,6 +83,143 @@ public abstract class LineIterator
             --strLength;
         }
     }
+    
+    /**
+     * Locates the next line, setting {@link #lineStart} and 
+     * {@link #lineEnd} to its range within the string.
+     * 
+     * @return false if there are no more lines.
+     */
+    protected abstract boolean advance();
+    
+    public boolean hasNext () {
+        
+        if (!pending) {
+            
+            pending = advance();
+        }
+        
+        return pending;
+    }
+    
+    public String next () {
+        
+        if (!nextLine()) {
+            
+            throw new NoSuchElementException();
+        }
+        
+        char []buf = new char[getLineWidth()];
+        getLine(buf, 0);
+        return new String(buf);
+    }
+    
+    public void remove () {
+    
+    }
+    
+    /**
+     * Moves to the next line, which may then be retrieved with 
+     * {@link #getLine(char[], int)}. Note that calling {@link #hasNext()}
+     * moves on to the following line, so the current line must be
+     * retrieved first.
+     * 
+     * @return false if there are no more lines.
+     */
+    public boolean nextLine() {
+        
+        if (!hasNext()) {
+            
+            return false;
+        }
+        
+        pending = false;
+        return true;
+    }
+    
+    /**
+     * @return The number of characters that the current line takes up
+     *   once tabs have been expanded and undisplayable characters have
+     *   been removed.
+     */
+    public int getLineWidth() {
+        
+        int width = 0;
+        for (int i = lineStart; i < lineEnd; i++) {
+            
+            width += displayLength(str.charAt(i));
+        }
+        
+        return width;
+    }
+    
+    /**
+     * Copies the current line into a buffer, expanding tabs and removing
+     * undisplayable characters.
+     * 
+     * @param buf The buffer, which must have room for 
+     *   {@link #getLineWidth()} characters.
+     * @param off The offset at which to place the line.
+     * @return The offset just past the end of the line.
+     */
+    public int getLine(char []buf, int off) {
+        
+        for (int i = lineStart; i < lineEnd; i++) {
+            
+            char ch = str.charAt(i);
+            if (ch == '\t') {
+                
+                for (int j = 0; j < tabExpansion; j++) {
+                    
+                    buf[off++] = ' ';
+                }
+            }
+            else if (displayLength(ch) > 0) {
+                
+                buf[off++] = ch;
+            }
+        }
+        
+        return off;
+    }
+    
+    /**
+     * Determines the length of the longest line in a string, as it would
+     * be displayed by a {@link TruncatingLineIterator} that does not 
+     * truncate, without creating any objects.
+     * 
+     * @param str The string.
+     * @return The length of its longest line.
+     */
+    public static int getMaxLineWidth(String str) {
+        
+        int len = str.length();
+        while (len > 0 && Character.isWhitespace(str.charAt(len - 1))) {
+            
+            --len;
+        }
+        
+        int maxWidth = 0;
+        int width = 0;
+        for (int i = 0; i < len; i++) {
+            
+            char ch = str.charAt(i);
+            if (ch == '\n') {
+                
+                width = 0;
+            }
+            else {
+                
+                width += displayLength(ch, 8);
+                if (width > maxWidth) {
+                    
+                    maxWidth = width;
+                }
+            }
+        }
+        
+        return maxWidth;
+    }
 
     /**
      * @return The number of spaces that will be used when rendering a tab.
@@ -90,6 +249,11 @@ public abstract class LineIterator
      */
     protected final int displayLength(char ch) {
         
+        return displayLength(ch, tabExpansion);
+    }
+    
+    private static int displayLength(char ch, int tabExpansion) {
+        
         if (ch == '\t')  {
             
             return tabExpansion;
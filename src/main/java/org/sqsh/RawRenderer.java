@@ -0,0 +1,62 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh;
+
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Implemented by a {@link Renderer} that can read values directly from
+ * the result set, rather than being handed them as formatted strings.
+ * While {@link #isRaw()} is true, a raw renderer is described each result
+ * set with {@link #header(ResultSetMetaData, int[])} and is handed each
+ * row with {@link #row(ResultSet)}, after which {@link Renderer#flush()}
+ * is called as usual. This allows a renderer that writes values in a form
+ * other than text to avoid formatting them at all.
+ */
+public interface RawRenderer {
+    
+    /**
+     * @return true if the renderer is currently to be handed result sets
+     *   rather than formatted rows.
+     */
+    boolean isRaw();
+    
+    /**
+     * Called before {@link #row(ResultSet)} to describe the result set
+     * that is about to come.
+     * 
+     * @param meta Description of the result set.
+     * @param projection The indexes (starting at 1) of the columns of the
+     *   result set that are to be displayed.
+     * @throws SQLException If the description cannot be retrieved.
+     */
+    void header (ResultSetMetaData meta, int []projection)
+        throws SQLException;
+    
+    /**
+     * Called to process the current row of a result set.
+     * 
+     * @param resultSet The result set, positioned on the row.
+     * @return true if the row was successfully processed, false if the
+     *   renderer cannot accept any more rows (see
+     *   {@link Renderer#row(String[])}).
+     * @throws SQLException If the values of the row cannot be retrieved.
+     */
+    boolean row (ResultSet resultSet)
+        throws SQLException;
+}
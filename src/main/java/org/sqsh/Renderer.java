@@ -72,6 +72,12 @@ public abstract class Renderer {
      */
     private String nullRepresentation;
     
+    /**
+     * Row array used by {@link #rows(RowBatch)} to pass rows to 
+     * renderers that do not retain them.
+     */
+    private String []batchRow = null;
+    
     /**
      * Creates a renderer.
      * 
@@ -100,6 +106,46 @@ public abstract class Renderer {
         return false;
     }
     
+    /**
+     * Indicates whether or not this renderer holds on to the array that is
+     * passed to {@link #row(String[])} after the call returns (for example,
+     * to buffer up rows until {@link #flush()} is called). Renderers that
+     * are done with the array as soon as the call returns should return
+     * false, which allows the caller to re-use the same array for every
+     * row rather than allocating a new one.
+     * 
+     * @return true if the renderer retains the rows it is passed.
+     */
+    public boolean retainsRows() {
+        
+        return true;
+    }
+    
+    /**
+     * Returns the widest that this renderer will display a column. Values
+     * that are laid out over several lines, such as XML, are indented so
+     * as to fit within it.
+     * 
+     * @return The maximum width of a column, or 0 if columns are
+     *   displayed at whatever width their values need.
+     */
+    public int getMaxColumnWidth() {
+        
+        return 0;
+    }
+    
+    /**
+     * Returns whether CLOBs and BLOBs are cut short at the data
+     * formatter's limit when this renderer displays them. Renderers that
+     * extract data, rather than display it, write values in full.
+     * 
+     * @return true if CLOBs and BLOBs are limited.
+     */
+    public boolean isLobLimited() {
+        
+        return true;
+    }
+    
     /**
      * This is a helper method to display a string representing a 
      * single line of text to the session's output stream. This value
@@ -128,6 +174,27 @@ public abstract class Renderer {
         }
     }
     
+    /**
+     * Writes a region of a character array to the sessions stdout. When
+     * the output has been redirected to a file the characters are written
+     * without first being copied into a String.
+     * 
+     * @param buf The characters.
+     * @param off The offset of the first character to write.
+     * @param len The number of characters to write.
+     */
+    protected void write(char[] buf, int off, int len) {
+        
+        if (session.out instanceof SessionPrintStream) {
+            
+            ((SessionPrintStream) session.out).print(buf, off, len);
+        }
+        else {
+            
+            session.out.print(new String(buf, off, len));
+        }
+    }
+    
     /**
      * Writes N spaces to the sessions stdout
      * @param n The number of spaces to write
@@ -221,19 +288,7 @@ public abstract class Renderer {
      */
     protected int getMaxLineWidth(ColumnDescription column, String str) {
         
-        LineIterator iter =  new TruncatingLineIterator(str, -1);
-        int maxWidth = 0;
-        
-        while (iter.hasNext()) {
-            
-            int len = iter.next().length();
-            if (len > maxWidth) {
-                
-                maxWidth = len;
-            }
-        }
-        
-        return maxWidth;
+        return LineIterator.getMaxLineWidth(str);
     }
     
     /**
@@ -276,6 +331,44 @@ public abstract class Renderer {
      */
     public abstract boolean row (String []row);
     
+    /**
+     * Processes a batch of rows. The batch belongs to the caller and will
+     * be cleared and re-filled as soon as this method returns, so it must
+     * not be retained.
+     * 
+     * <p>The default implementation simply hands each row of the batch,
+     * in turn, to {@link #row(String[])}. Renderers that can do something
+     * smarter with a whole block of rows at once (such as producing all of
+     * the output in a single write) should override this.
+     * 
+     * @param batch The rows to be displayed.
+     * @return true if the rows were successfully added to the renderer,
+     *   false indicates that the renderer cannot accept any more rows 
+     *   (see {@link #row(String[])}).
+     */
+    public boolean rows (RowBatch batch) {
+        
+        boolean retain = retainsRows();
+        int nRows = batch.size();
+        
+        for (int r = 0; r < nRows; r++) {
+            
+            if (batchRow == null || retain
+                    || batchRow.length != batch.getColumnCount()) {
+                
+                batchRow = new String[batch.getColumnCount()];
+            }
+            
+            batch.getRow(r, batchRow);
+            if (row(batchRow) == false) {
+                
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
     /**
      * Called when all of the available data for the current result set
      * has been passed to the renderer.
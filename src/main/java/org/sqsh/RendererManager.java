@@ -21,6 +21,7 @@ import java.util.Map;
 import java.util.logging.Logger;
 
 import org.sqsh.renderers.PerfectPrettyRenderer;
+import org.sqsh.util.CSVDialect;
 
 /**
  * The renderer manager is responsible for doling out renderers as needed.
@@ -36,6 +37,9 @@ public class RendererManager {
     private boolean showFooters = true;
     private int maxColumnWidth = 35;
     private int perfectSampleSize = 500;
+    private int perfectMaxMemory = 64;
+    private boolean dumpCompressed = false;
+    private CSVDialect csvDialect = CSVDialect.forName(CSVDialect.CSV);
     private String defaultRenderer = "perfect";
     
     private Map<String, Class<? extends Renderer>> renderers = 
@@ -77,6 +81,10 @@ public class RendererManager {
             org.sqsh.renderers.VerticalRenderer.class);
         renderers.put("json",
             org.sqsh.renderers.JsonRenderer.class);
+        renderers.put("ndjson",
+            org.sqsh.renderers.JsonLinesRenderer.class);
+        renderers.put("dump",
+            org.sqsh.renderers.DumpRenderer.class);
     }
     
     /**
@@ -224,4 +232,71 @@ public class RendererManager {
     
         this.perfectSampleSize = perfectSampleSize;
     }
+    
+    /**
+     * @return The number of megabytes of memory that "perfect" rendering
+     *    may use to hold sampled rows before they are spilled to a
+     *    temporary file. A value <= 0 indicates that there is no limit.
+     */
+    public int getPerfectMaxMemory() {
+        
+        return perfectMaxMemory;
+    }
+    
+    /**
+     * @param perfectMaxMemory The number of megabytes of memory that
+     *    "perfect" rendering may use to hold sampled rows before they are
+     *    spilled to a temporary file. A value <= 0 indicates that there is
+     *    no limit.
+     */
+    public void setPerfectMaxMemory(int perfectMaxMemory) {
+        
+        this.perfectMaxMemory = perfectMaxMemory;
+    }
+    
+    /**
+     * @return true if blocks of rows written by the "dump" display style
+     *    are compressed.
+     */
+    public boolean isDumpCompressed() {
+        
+        return dumpCompressed;
+    }
+    
+    /**
+     * @param dumpCompressed Whether or not blocks of rows written by the
+     *    "dump" display style are compressed.
+     */
+    public void setDumpCompressed(boolean dumpCompressed) {
+        
+        this.dumpCompressed = dumpCompressed;
+    }
+    
+    /**
+     * @return The dialect written by the "csv" display style. Its
+     *    properties may be changed directly.
+     */
+    public CSVDialect getCsvDialect() {
+        
+        return csvDialect;
+    }
+    
+    /**
+     * @return The name of the dialect that the "csv" display style 
+     *    started out as.
+     */
+    public String getCsvDialectName() {
+        
+        return csvDialect.getName();
+    }
+    
+    /**
+     * @param name The name of the dialect to be written by the "csv"
+     *    display style (see {@link CSVDialect#forName(String)}). Any
+     *    changes made to the properties of the previous dialect are lost.
+     */
+    public void setCsvDialectName(String name) {
+        
+        this.csvDialect = CSVDialect.forName(name);
+    }
 }
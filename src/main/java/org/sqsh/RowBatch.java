@@ -0,0 +1,248 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh;
+
+/**
+ * A re-usable, columnar block of formatted rows that is handed to a
+ * {@link Renderer} via {@link Renderer#rows(RowBatch)}. Values are held
+ * per-column, and each column carries a bitmap indicating which of its
+ * values are actually NULL, so renderers no longer have to compare values
+ * against the current null representation to find out.
+ *
+ * <p>A batch is filled by the {@link SQLRenderer}, handed to the renderer,
+ * and then {@link #clear() cleared} and filled again, so a renderer must
+ * not hold on to a batch (or the arrays returned by {@link #getColumn(int)})
+ * after {@link Renderer#rows(RowBatch)} returns.
+ */
+public class RowBatch {
+    
+    private int capacity;
+    private int nCols;
+    private int size = 0;
+    
+    /*
+     * values[col][row] and a bitmap of nulls, 64 rows per long, for
+     * each column.
+     */
+    private String [][]values;
+    private long [][]nulls;
+    
+    /*
+     * widths[col][row] is the width of the widest line of the value, if
+     * it was already known when the value was set, or -1.
+     */
+    private int [][]widths;
+    private int []rowNumbers;
+    
+    /**
+     * Creates a batch.
+     *
+     * @param nCols The number of columns in each row.
+     * @param capacity The maximum number of rows the batch may hold.
+     */
+    public RowBatch (int nCols, int capacity) {
+        
+        if (capacity < 1) {
+            
+            capacity = 1;
+        }
+        
+        this.nCols = nCols;
+        this.capacity = capacity;
+        this.values = new String[nCols][capacity];
+        this.nulls = new long[nCols][(capacity + 63) >>> 6];
+        this.widths = new int[nCols][capacity];
+        this.rowNumbers = new int[capacity];
+    }
+    
+    /**
+     * @return The maximum number of rows the batch may hold.
+     */
+    public int getCapacity() {
+        
+        return capacity;
+    }
+    
+    /**
+     * @return The number of columns in each row.
+     */
+    public int getColumnCount() {
+        
+        return nCols;
+    }
+    
+    /**
+     * @return The number of rows currently in the batch.
+     */
+    public int size() {
+        
+        return size;
+    }
+    
+    /**
+     * @return true if the batch contains no rows.
+     */
+    public boolean isEmpty() {
+        
+        return size == 0;
+    }
+    
+    /**
+     * @return true if no more rows may be added to the batch.
+     */
+    public boolean isFull() {
+        
+        return size == capacity;
+    }
+    
+    /**
+     * Empties the batch so that it may be filled again.
+     */
+    public void clear() {
+        
+        size = 0;
+    }
+    
+    /**
+     * Adds a new row to the end of the batch. The values of the row must
+     * then be populated with {@link #set(int, int, String, boolean)}.
+     *
+     * @param rowNumber The number of the row within the result set (the
+     *   first row is 1).
+     * @return The index of the new row within the batch.
+     * @throws IllegalStateException If the batch is full.
+     */
+    public int addRow(int rowNumber) {
+        
+        if (size == capacity) {
+            
+            throw new IllegalStateException("Row batch is full ("
+                + capacity + " rows)");
+        }
+        
+        rowNumbers[size] = rowNumber;
+        return size++;
+    }
+    
+    /**
+     * Sets a value in the batch.
+     *
+     * @param row The index of the row within the batch.
+     * @param col The index of the column.
+     * @param value The formatted value. For a NULL this should be the
+     *   current null representation of the {@link DataFormatter}.
+     * @param isNull true if the value is NULL.
+     */
+    public void set(int row, int col, String value, boolean isNull) {
+        
+        set(row, col, value, isNull, -1);
+    }
+    
+    /**
+     * Sets a value in the batch, along with its width.
+     *
+     * @param row The index of the row within the batch.
+     * @param col The index of the column.
+     * @param value The formatted value.
+     * @param isNull true if the value is NULL.
+     * @param width The width of the widest line of the value, as
+     *   {@link LineIterator#getMaxLineWidth(String)} would calculate it, or
+     *   -1 if it is not known.
+     */
+    public void set(int row, int col, String value, boolean isNull,
+            int width) {
+        
+        values[col][row] = value;
+        widths[col][row] = width;
+        
+        long []bits = nulls[col];
+        if (isNull) {
+            
+            bits[row >>> 6] |= (1L << row);
+        }
+        else {
+            
+            bits[row >>> 6] &= ~(1L << row);
+        }
+    }
+    
+    /**
+     * @param row The index of the row within the batch.
+     * @param col The index of the column.
+     * @return The formatted value.
+     */
+    public String get(int row, int col) {
+        
+        return values[col][row];
+    }
+    
+    /**
+     * @param row The index of the row within the batch.
+     * @param col The index of the column.
+     * @return The width of the widest line of the value, or -1 if it was
+     *   not known when the value was set.
+     */
+    public int getWidth(int row, int col) {
+        
+        return widths[col][row];
+    }
+    
+    /**
+     * @param row The index of the row within the batch.
+     * @param col The index of the column.
+     * @return true if the value is NULL.
+     */
+    public boolean isNull(int row, int col) {
+        
+        return (nulls[col][row >>> 6] & (1L << row)) != 0L;
+    }
+    
+    /**
+     * Returns the values of a column. Only the first {@link #size()}
+     * entries of the array are valid.
+     *
+     * @param col The index of the column.
+     * @return The values for the column.
+     */
+    public String[] getColumn(int col) {
+        
+        return values[col];
+    }
+    
+    /**
+     * @param row The index of the row within the batch.
+     * @return The number of the row within the result set.
+     */
+    public int getRowNumber(int row) {
+        
+        return rowNumbers[row];
+    }
+    
+    /**
+     * Copies a row out of the batch.
+     *
+     * @param row The index of the row within the batch.
+     * @param out The array to copy the values into. It must be at least
+     *   {@link #getColumnCount()} in length.
+     */
+    public void getRow(int row, String []out) {
+        
+        for (int i = 0; i < nCols; i++) {
+            
+            out[i] = values[i][row];
+        }
+    }
+}
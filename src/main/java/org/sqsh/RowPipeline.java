@@ -0,0 +1,433 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.logging.Logger;
+
+/**
+ * Used by the {@link SQLRenderer} to overlap the fetching of rows from the
+ * database with the formatting and rendering of those rows. A background
+ * thread drains the result set into a fixed size ring of re-usable
+ * {@link FetchPlan.Row} slots, while the calling thread formats the rows
+ * and hands them to the renderer. When the ring is full the fetching thread
+ * waits for the renderer to catch up.
+ *
+ * <p>The row limiting rules (see {@link SQLRenderer#setMaxRows(int)}) are
+ * enforced by the fetching thread exactly as they are when rows are
+ * processed serially. Cancellation works as it always has: a cancel of the
+ * statement causes the fetching thread to receive an exception from the
+ * driver, which is passed back to, and thrown from, the calling thread.
+ */
+public class RowPipeline {
+    
+    private static final Logger LOG =
+        Logger.getLogger(RowPipeline.class.getName());
+    
+    private FetchPlan plan;
+    private FetchPlan.Row []slots;
+    private int maxRows = 0;
+    private int rowLimitMethod = SQLRenderer.LIMIT_DISCARD;
+    private StatementTimer timer = null;
+    
+    /*
+     * The ring is managed by two ever increasing counters. The slot for
+     * a given counter value is counter % slots.length.
+     */
+    private long head = 0;
+    private long tail = 0;
+    private boolean done = false;
+    private boolean aborted = false;
+    private Throwable error = null;
+    private boolean interrupted = false;
+    
+    private int rowCount = 0;
+    private long firstRowTime = 0L;
+    
+    /**
+     * Creates a pipeline.
+     *
+     * @param plan The plan used to fetch and format rows.
+     * @param size The number of rows that may be fetched ahead of the
+     *   renderer.
+     */
+    public RowPipeline (FetchPlan plan, int size) {
+        
+        if (size < 2) {
+            
+            size = 2;
+        }
+        
+        this.plan = plan;
+        this.slots = new FetchPlan.Row[size];
+        for (int i = 0; i < size; i++) {
+            
+            slots[i] = plan.newRow();
+        }
+        
+        plan.setEagerLocators(true);
+    }
+    
+    /**
+     * Sets the row limiting rules to apply.
+     *
+     * @param maxRows The maximum number of rows to render, <= 0 is unlimited
+     * @param rowLimitMethod How the rows are limited.
+     */
+    public void setRowLimit(int maxRows, int rowLimitMethod) {
+        
+        this.maxRows = maxRows;
+        this.rowLimitMethod = rowLimitMethod;
+    }
+    
+    /**
+     * Sets a timer to charge the time spent to. As the fetching happens
+     * in the background, the time charged to {@link StatementTimer#FETCH}
+     * is the time spent waiting for the fetching thread to produce rows.
+     * 
+     * @param timer The timer.
+     */
+    public void setTimer(StatementTimer timer) {
+        
+        this.timer = timer;
+    }
+    
+    /**
+     * @return The time (in milliseconds) that the first row was fetched,
+     *   or 0 if no rows were fetched.
+     */
+    public long getFirstRowTime() {
+        
+        return firstRowTime;
+    }
+    
+    /**
+     * Fetches, formats and renders all of the rows of a result set. The
+     * renderer's header must have already been sent.
+     *
+     * @param session The session
+     * @param resultSet The result set to process
+     * @param renderer The renderer to send the rows to
+     * @param batch An empty batch used to hand rows to the renderer
+     * @return The number of rows processed (including any that were
+     *   discarded due to row limits), or -1 if the renderer refused to
+     *   accept a row or the calling thread was interrupted before all of
+     *   the rows were processed.
+     * @throws SQLException Thrown if fetching failed.
+     */
+    public int run(Session session, ResultSet resultSet, Renderer renderer,
+            RowBatch batch)
+        throws SQLException {
+        
+        Fetcher fetcher = new Fetcher(session, resultSet);
+        boolean ok = true;
+        
+        fetcher.start();
+        
+        try {
+            
+            /*
+             * Rows are handed to the renderer when the batch fills up, or
+             * as soon as we have caught up with the fetching thread, so
+             * that a slow query doesn't hold back rows it has already
+             * produced.
+             */
+            long start = System.nanoTime();
+            FetchPlan.Row slot = take();
+            start = charge(StatementTimer.FETCH, start);
+            
+            while (slot != null) {
+                
+                plan.format(slot, batch);
+                release(slot);
+                start = charge(StatementTimer.FORMAT, start);
+                
+                slot = poll();
+                if (slot == null || batch.isFull()) {
+                    
+                    if (renderer.rows(batch) == false) {
+                        
+                        ok = false;
+                        break;
+                    }
+                    
+                    batch.clear();
+                    start = charge(StatementTimer.RENDER, start);
+                    
+                    if (slot == null) {
+                        
+                        slot = take();
+                        start = charge(StatementTimer.FETCH, start);
+                    }
+                }
+            }
+        }
+        finally {
+            
+            abort();
+            
+            /*
+             * The fetcher has to be completely finished with the result
+             * set before we hand control back to the caller, who is going
+             * to close it.
+             */
+            while (fetcher.isAlive()) {
+                
+                try {
+                    
+                    fetcher.join();
+                }
+                catch (InterruptedException e) {
+                    
+                    interrupted = true;
+                }
+            }
+            
+            if (interrupted) {
+                
+                Thread.currentThread().interrupt();
+            }
+        }
+        
+        if (error != null) {
+            
+            if (error instanceof SQLException) {
+                
+                throw (SQLException) error;
+            }
+            if (error instanceof RuntimeException) {
+                
+                throw (RuntimeException) error;
+            }
+            if (error instanceof Error) {
+                
+                throw (Error) error;
+            }
+            
+            throw new SQLException("Failed to fetch row: "
+                + error.getMessage(), error);
+        }
+        
+        /*
+         * An interrupt leaves the rows only partially processed, which
+         * has to be reported as such rather than as the end of results.
+         */
+        return (ok && !interrupted) ? rowCount : -1;
+    }
+    
+    /**
+     * Charges time to the timer, if there is one.
+     * 
+     * @param phase The phase to charge
+     * @param start When the phase started
+     * @return The current time, which is when the next phase starts.
+     */
+    private long charge(int phase, long start) {
+        
+        long now = System.nanoTime();
+        if (timer != null) {
+            
+            timer.add(phase, now - start);
+        }
+        
+        return now;
+    }
+    
+    /**
+     * Called by the renderering thread to get the next fetched row.
+     *
+     * @return The next row or null if there are no more rows or the
+     *   calling thread was interrupted.
+     */
+    private synchronized FetchPlan.Row take() {
+        
+        while (head == tail && !done) {
+            
+            try {
+                
+                wait();
+            }
+            catch (InterruptedException e) {
+                
+                /*
+                 * An interrupt means the user wants us to stop. The
+                 * interrupt is re-asserted once the fetcher has gone away.
+                 */
+                aborted = true;
+                interrupted = true;
+                notifyAll();
+                return null;
+            }
+        }
+        
+        if (head == tail) {
+            
+            return null;
+        }
+        
+        return slots[(int) (head % slots.length)];
+    }
+    
+    /**
+     * Called by the renderering thread to get the next fetched row, if
+     * one is available without waiting.
+     * 
+     * @return The next row or null if no row is available right now.
+     */
+    private synchronized FetchPlan.Row poll() {
+        
+        if (head == tail) {
+            
+            return null;
+        }
+        
+        return slots[(int) (head % slots.length)];
+    }
+    
+    /**
+     * Called by the renderering thread to give a slot back to the
+     * fetching thread.
+     */
+    private synchronized void release(FetchPlan.Row slot) {
+        
+        slot.clear();
+        ++head;
+        notifyAll();
+    }
+    
+    /**
+     * Called by the fetching thread to get an empty slot to fetch into.
+     *
+     * @return The slot, or null if the pipeline has been aborted.
+     */
+    private synchronized FetchPlan.Row acquire()
+        throws InterruptedException {
+        
+        while (tail - head >= slots.length && !aborted) {
+            
+            wait();
+        }
+        
+        if (aborted) {
+            
+            return null;
+        }
+        
+        return slots[(int) (tail % slots.length)];
+    }
+    
+    /**
+     * Called by the fetching thread to make a fetched slot available.
+     */
+    private synchronized void publish() {
+        
+        ++tail;
+        notifyAll();
+    }
+    
+    private synchronized boolean isAborted() {
+        
+        return aborted;
+    }
+    
+    private synchronized void abort() {
+        
+        aborted = true;
+        notifyAll();
+    }
+    
+    private synchronized void finish(int count, Throwable e) {
+        
+        rowCount = count;
+        error = e;
+        done = true;
+        notifyAll();
+    }
+    
+    /**
+     * The thread that drains the result set.
+     */
+    private class Fetcher
+        extends Thread {
+        
+        private Session session;
+        private ResultSet resultSet;
+        
+        public Fetcher (Session session, ResultSet resultSet) {
+            
+            super("jsqsh-fetch-" + session.getId());
+            setDaemon(true);
+            
+            this.session = session;
+            this.resultSet = resultSet;
+        }
+        
+        public void run() {
+            
+            int count = 0;
+            Throwable failure = null;
+            
+            try {
+                
+                while (!isAborted() && resultSet.next()) {
+                    
+                    SQLTools.printWarnings(session, resultSet);
+                    
+                    ++count;
+                    if (count == 1) {
+                        
+                        firstRowTime = System.currentTimeMillis();
+                    }
+                    
+                    if (maxRows > 0 && count > maxRows) {
+                        
+                        if (rowLimitMethod == SQLRenderer.LIMIT_CANCEL) {
+                            
+                            resultSet.getStatement().cancel();
+                            break;
+                        }
+                        else if (rowLimitMethod == SQLRenderer.LIMIT_DISCARD) {
+                            
+                            continue;
+                        }
+                    }
+                    
+                    FetchPlan.Row slot = acquire();
+                    if (slot == null) {
+                        
+                        break;
+                    }
+                    
+                    plan.fetch(resultSet, slot, count);
+                    publish();
+                }
+            }
+            catch (InterruptedException e) {
+                
+                LOG.fine("Fetch thread interrupted");
+            }
+            catch (Throwable e) {
+                
+                failure = e;
+            }
+            finally {
+                
+                finish(count, failure);
+            }
+        }
+    }
+}
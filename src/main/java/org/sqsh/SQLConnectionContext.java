@@ -16,8 +16,10 @@
 package org.sqsh;
 
 import java.lang.reflect.Method;
+import java.sql.CallableStatement;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
@@ -81,6 +83,16 @@ public class SQLConnectionContext
      */
     private Statement statement;
     
+    /**
+     * Set if the current statement has been canceled.
+     */
+    private boolean isCanceled = false;
+    
+    /**
+     * The statements that have been prepared on the connection.
+     */
+    private StatementCache statementCache;
+    
     /**
      * The properties that were used to establish the connection.
      */
@@ -120,6 +132,8 @@ public class SQLConnectionContext
         this.url = url;
         this.normalizer = normalizer;
         this.currentSchemaQuery = currentSchemaQuery;
+        this.statementCache = new StatementCache(
+            session.getContext().getStatementCacheSize());
     }
     
     
@@ -217,6 +231,7 @@ public class SQLConnectionContext
         
         if (statement != null) {
             
+            isCanceled = true;
             statement.cancel();
         }
     }
@@ -229,6 +244,7 @@ public class SQLConnectionContext
     public synchronized void setStatement(Statement statement) {
         
         this.statement = statement;
+        this.isCanceled = false;
         
         /*
          * If a timeout was requested and it isn't going to be assisted by
@@ -269,6 +285,74 @@ public class SQLConnectionContext
         this.statement = null;
     }
 
+    /**
+     * Returns a prepared statement for some SQL from the connection's
+     * statement cache, preparing it if it isn't there. It must be handed
+     * back with {@link #releaseStatement(PreparedStatement, boolean)}
+     * rather than closed.
+     * 
+     * @param sql The SQL to prepare.
+     * @return The statement.
+     * @throws SQLException If the statement cannot be prepared.
+     */
+    public PreparedStatement prepareStatement(String sql)
+        throws SQLException {
+        
+        statementCache.setMaxSize(session.getContext().getStatementCacheSize());
+        return statementCache.prepareStatement(connection, sql);
+    }
+    
+    /**
+     * Returns a callable statement for some SQL from the connection's
+     * statement cache, preparing it if it isn't there. It must be handed
+     * back with {@link #releaseStatement(PreparedStatement, boolean)}
+     * rather than closed.
+     * 
+     * @param sql The SQL to prepare.
+     * @return The statement.
+     * @throws SQLException If the statement cannot be prepared.
+     */
+    public CallableStatement prepareCall(String sql)
+        throws SQLException {
+        
+        statementCache.setMaxSize(session.getContext().getStatementCacheSize());
+        return statementCache.prepareCall(connection, sql);
+    }
+    
+    /**
+     * Hands back a statement that was returned by
+     * {@link #prepareStatement(String)} or {@link #prepareCall(String)}.
+     * The statement is kept for re-use unless its execution did not
+     * complete or was canceled, in which case it is closed.
+     * 
+     * @param statement The statement (may be null).
+     * @param isComplete true if the execution of the statement, and the
+     *   processing of its results, completed normally.
+     */
+    public synchronized void releaseStatement(PreparedStatement statement,
+        boolean isComplete) {
+        
+        statementCache.release(statement, isComplete && !isCanceled);
+    }
+    
+    /**
+     * @return The number of statements that were found in the
+     *   connection's statement cache rather than being prepared.
+     */
+    public long getStatementCacheHits() {
+        
+        return statementCache.getHits();
+    }
+    
+    /**
+     * @return The number of statements that had to be prepared because
+     *   they were not in the connection's statement cache.
+     */
+    public long getStatementCacheMisses() {
+        
+        return statementCache.getMisses();
+    }
+    
     /**
      * @return the connection
      */
@@ -282,6 +366,7 @@ public class SQLConnectionContext
      */
     public void setConnection (Connection connection) {
     
+        statementCache.clear();
         this.connection = connection;
     }
 
@@ -525,6 +610,8 @@ public class SQLConnectionContext
     @Override
     public void close() {
         
+        statementCache.clear();
+        
         try {
             
             connection.close();
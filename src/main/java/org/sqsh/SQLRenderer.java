@@ -101,6 +101,12 @@ public class SQLRenderer {
      */
     private boolean showTimings = true;
     
+    /**
+     * When true (and {@link #showTimings} is true) the footer includes a
+     * breakdown of where the time for the statement was spent.
+     */
+    private boolean showTimingDetail = false;
+    
     /**
      * This is to support buggy drivers (umm, the Apache Hive driver. Wow
      * does it have a lot of boogs) that do not return a proper -1 updateCount()
@@ -110,10 +116,36 @@ public class SQLRenderer {
      */
     private int maxUpdateCount = 0;
     
+    /**
+     * When true, rows are fetched from the database by a background
+     * thread while they are being formatted and displayed.
+     */
+    private boolean pipelined = false;
+    
+    /**
+     * The number of rows that the background fetching thread may get
+     * ahead of the renderer when {@link #pipelined} is enabled.
+     */
+    private int pipelineSlots = 256;
+    
+    /**
+     * The number of rows that are gathered together before being handed
+     * to the renderer in a single {@link RowBatch}.
+     */
+    private int batchRows = 64;
+    
     private long startTime;
     private long firstRowTime;
     private long endTime;
     
+    /*
+     * Nanosecond timings of the phases of the current statement. The
+     * phaseStart is when the phase currently being timed started.
+     */
+    private StatementTimer timer = new StatementTimer();
+    private long statementStart;
+    private long phaseStart;
+    
     /**
      * Creates a renderer.
      */
@@ -200,6 +232,36 @@ public class SQLRenderer {
     
         this.showTimings = showTimings;
     }
+    
+    /**
+     * @return Whether or not the footer includes a breakdown of the time
+     *   spent in each phase of the statement.
+     */
+    public boolean isShowTimingDetail () {
+    
+        return showTimingDetail;
+    }
+    
+    /**
+     * Sets whether or not the footer includes a breakdown of the time 
+     * spent in each phase of the statement (see {@link StatementTimer}).
+     * This only has an effect if timings are being shown at all.
+     * 
+     * @param showTimingDetail true if the breakdown is to be shown.
+     */
+    public void setShowTimingDetail (boolean showTimingDetail) {
+    
+        this.showTimingDetail = showTimingDetail;
+    }
+    
+    /**
+     * @return The phase timings of the statement that is executing, or 
+     *   was most recently executed.
+     */
+    public StatementTimer getStatementTimer () {
+    
+        return timer;
+    }
 
     /**
      * Returns the maximum number of rows that will be displayed. A value
@@ -222,6 +284,68 @@ public class SQLRenderer {
         this.maxRows = maxRows;
     }
     
+    /**
+     * @return Whether or not rows are fetched by a background thread
+     *   while they are being displayed.
+     */
+    public boolean isPipelined () {
+    
+        return pipelined;
+    }
+    
+    /**
+     * Sets whether or not rows are fetched by a background thread while
+     * they are being displayed. This can help when both the network and
+     * the display of the rows are slow, as the two overlap.
+     * 
+     * @param pipelined true if fetching is to be pipelined.
+     */
+    public void setPipelined (boolean pipelined) {
+    
+        this.pipelined = pipelined;
+    }
+    
+    /**
+     * @return The number of rows that may be fetched ahead of the
+     *   renderer when pipelining is enabled.
+     */
+    public int getPipelineSlots () {
+    
+        return pipelineSlots;
+    }
+    
+    /**
+     * @param pipelineSlots The number of rows that may be fetched ahead of
+     *   the renderer when pipelining is enabled.
+     */
+    public void setPipelineSlots (int pipelineSlots) {
+    
+        this.pipelineSlots = pipelineSlots;
+    }
+    
+    /**
+     * @return The number of rows that are gathered together before being
+     *   handed to the renderer.
+     */
+    public int getBatchRows () {
+    
+        return batchRows;
+    }
+    
+    /**
+     * Sets the number of rows that are gathered together before being
+     * handed to the renderer. Larger batches reduce the per-row cost of
+     * rendering, at the cost of rows appearing in bursts. A value of 1
+     * hands each row to the renderer as soon as it is fetched, as is
+     * always done for rows fetched serially in an interactive session.
+     * 
+     * @param batchRows The number of rows per batch.
+     */
+    public void setBatchRows (int batchRows) {
+    
+        this.batchRows = batchRows;
+    }
+    
     /**
      * @return Whether or not empty update counts are displayed.
      */
@@ -369,6 +493,7 @@ public class SQLRenderer {
         
         SQLConnectionContext sqlContext = 
             (SQLConnectionContext) session.getConnectionContext();
+        boolean isComplete = false;
         
         try {
             
@@ -378,6 +503,7 @@ public class SQLRenderer {
              * or when the first row has been received.
              */
             session.startVisualTimer();
+            beginStatement();
             
             /*
              * Cannot pass by reference, so fake it with an array
@@ -393,7 +519,8 @@ public class SQLRenderer {
             sql = getInoutParameterValues(sql, inoutParameterValues, hasReturnMarker);
             int inoutParamIdx = 0;
             
-            statement = conn.prepareCall(sql);
+            statement = sqlContext.prepareCall(sql);
+            initStatement(sqlContext, session, statement);
             
             /*
              * Fetch information for the parameters.  Any out or inout parameter
@@ -451,7 +578,6 @@ public class SQLRenderer {
                                     + " JDBC standard, so every driver is different). If you would"
                                     + " like this fixed, please send an e-mail to scottgray1-at-gmail.com"
                                     + " with the details of which JDBC driver you are using");
-                                SQLTools.close(statement);
                                 return false;
                             }
                         }
@@ -478,7 +604,6 @@ public class SQLRenderer {
                         session.err.println("Parameter #" + i + "is an INOUT "
                             + "parameters and must specify a value with the "
                             + "syntax '?=<value>'");
-                        SQLTools.close(statement);
                         return false;
                     }
                     
@@ -489,9 +614,11 @@ public class SQLRenderer {
             sigHandler = new CancelingSignalHandler(statement);
             sigMan.push(sigHandler);
             
+            endPhase(StatementTimer.PREPARE);
             startTime = System.currentTimeMillis();
             
             boolean hasResults = statement.execute();
+            endPhase(StatementTimer.EXECUTE);
             
             session.stopVisualTimer();
             
@@ -560,17 +687,21 @@ public class SQLRenderer {
                 renderer.row(row);
                 renderer.flush();
             }
+            
+            isComplete = true;
         }
         finally {
             
             session.stopVisualTimer();
+            sqlContext.clearStatement();
             
             if (sigHandler != null) {
                 
                 sigMan.pop();
             }
             
-            SQLTools.close(statement);
+            sqlContext.releaseStatement(statement,
+                isComplete && !sigHandler.isTriggered());
         }
         
         return ok;
@@ -748,6 +879,10 @@ public class SQLRenderer {
             throw new SQLException("No database connection has been established");
         }
         
+        SQLConnectionContext sqlContext = 
+            (SQLConnectionContext) session.getConnectionContext();
+        boolean isComplete = false;
+        
         try {
             
             /*
@@ -756,16 +891,20 @@ public class SQLRenderer {
              * or when the first row has been received.
              */
             session.startVisualTimer();
+            beginStatement();
             
-            statement = conn.prepareCall(sql);
+            statement = sqlContext.prepareCall(sql);
+            initStatement(sqlContext, session, statement);
             bindParameters(statement, params);
             
             sigHandler = new CancelingSignalHandler(statement);
             sigMan.push(sigHandler);
             
+            endPhase(StatementTimer.PREPARE);
             startTime = System.currentTimeMillis();
             
             boolean hasResults = statement.execute();
+            endPhase(StatementTimer.EXECUTE);
             
             session.stopVisualTimer();
             
@@ -797,17 +936,21 @@ public class SQLRenderer {
                     }
                 }
             }
+            
+            isComplete = true;
         }
         finally {
             
             session.stopVisualTimer();
+            sqlContext.clearStatement();
             
             if (sigHandler != null) {
                 
                 sigMan.pop();
             }
             
-            SQLTools.close(statement);
+            sqlContext.releaseStatement(statement,
+                isComplete && !sigHandler.isTriggered());
         }
         
         return ok;
@@ -844,34 +987,45 @@ public class SQLRenderer {
             throw new SQLException("No database connection has been established");
         }
         
+        SQLConnectionContext sqlContext = 
+            (SQLConnectionContext) session.getConnectionContext();
+        boolean isComplete = false;
+        
         try {
             
             session.startVisualTimer();
+            beginStatement();
             
-            statement = conn.prepareStatement(sql);
+            statement = sqlContext.prepareStatement(sql);
+            initStatement(sqlContext, session, statement);
             bindParameters(statement, params);
             
             sigHandler = new CancelingSignalHandler(statement);
             sigMan.push(sigHandler);
             
+            endPhase(StatementTimer.PREPARE);
             startTime = System.currentTimeMillis();
             
             boolean hasResults = statement.execute();
+            endPhase(StatementTimer.EXECUTE);
             
             session.stopVisualTimer();
             
             ok = execute(renderer, session, statement, hasResults);
+            isComplete = true;
         }
         finally {
             
             session.stopVisualTimer();
+            sqlContext.clearStatement();
             
             if (sigHandler != null) {
                 
                 sigMan.pop();
             }
             
-            SQLTools.close(statement);
+            sqlContext.releaseStatement(statement,
+                isComplete && !sigHandler.isTriggered());
         }
         
         return ok;
@@ -889,7 +1043,8 @@ public class SQLRenderer {
      * 
      * @return true if the SQL executed without error (warnings do not
      *   count towards errors), false if there was at least one error
-     *   raised during the execution of the SQL.
+     *   raised during the execution of the SQL, the renderer did not
+     *   accept all of the results or the statement was cancelled.
      *   
      * @throws SQLException Thrown if there is an issue.
      */
@@ -919,23 +1074,27 @@ public class SQLRenderer {
          */
         SQLConnectionContext ctx = 
             (SQLConnectionContext) session.getConnectionContext();
+        boolean isComplete = false;
         
         try {
             
             session.startVisualTimer();
+            beginStatement();
             
             if (ctx.getExecutionMode() == SQLConnectionContext.EXEC_PREPARE) {
 
-                statement = conn.prepareStatement(sql);
+                statement = ctx.prepareStatement(sql);
                 
                 initStatement(ctx, session, statement);
                 
                 sigHandler = new CancelingSignalHandler(statement);
                 sigMan.push(sigHandler);
                 
+                endPhase(StatementTimer.PREPARE);
                 startTime = System.currentTimeMillis();
                 
                 boolean hasResults = ((PreparedStatement) statement).execute();
+                endPhase(StatementTimer.EXECUTE);
                 
                 session.stopVisualTimer();
                 
@@ -950,14 +1109,18 @@ public class SQLRenderer {
                 sigHandler = new CancelingSignalHandler(statement);
                 sigMan.push(sigHandler);
                 
+                endPhase(StatementTimer.PREPARE);
                 startTime = System.currentTimeMillis();
                 
                 boolean hasResults = statement.execute(sql);
+                endPhase(StatementTimer.EXECUTE);
                 
                 session.stopVisualTimer();
                 
                 ok = execute(renderer, session, statement, hasResults);
             }
+            
+            isComplete = true;
         }
         finally {
             
@@ -973,10 +1136,48 @@ public class SQLRenderer {
                 sigMan.pop();
             }
             
-            SQLTools.close(statement);
+            /*
+             * Prepared statements go back to the connection's cache.
+             */
+            if (statement instanceof PreparedStatement) {
+                
+                ctx.releaseStatement((PreparedStatement) statement,
+                    isComplete && !sigHandler.isTriggered());
+            }
+            else {
+                
+                SQLTools.close(statement);
+            }
         }
         
-        return ok;
+        /*
+         * Not every driver throws when its statement is cancelled, some
+         * just stop returning rows.
+         */
+        return ok && !sigHandler.isTriggered();
+    }
+    
+    /**
+     * Called as a new statement is about to be prepared to reset the 
+     * phase timers.
+     */
+    private void beginStatement() {
+        
+        timer.reset();
+        statementStart = System.nanoTime();
+        phaseStart = statementStart;
+    }
+    
+    /**
+     * Charges the time since the end of the last phase to a phase.
+     * 
+     * @param phase The phase that just completed.
+     */
+    private void endPhase(int phase) {
+        
+        long now = System.nanoTime();
+        timer.add(phase, now - phaseStart);
+        phaseStart = now;
     }
     
     /**
@@ -1018,7 +1219,7 @@ public class SQLRenderer {
      * @param params The parameters to bind
      * @throws SQLException Thrown if something goes wrong.
      */
-    private void bindParameters (PreparedStatement statement,
+    public void bindParameters (PreparedStatement statement,
             CallParameter []params)
         throws SQLException {
         
@@ -1207,12 +1408,13 @@ public class SQLRenderer {
                     
                     /*
                      * A negative value here indicates that the results
-                     * were not properly displayed to the caller, so we
-                     * are bailing.
+                     * were not properly displayed to the caller (the
+                     * renderer refused them or we were interrupted), so
+                     * we are bailing.
                      */
                     if (nRows < 0) {
                         
-                        return ok;
+                        return false;
                     }
                     
                     footer.append(nRows);
@@ -1273,7 +1475,9 @@ public class SQLRenderer {
                  */
                 try {
                     
+                    phaseStart = System.nanoTime();
                     hasResults = statement.getMoreResults();
+                    endPhase(StatementTimer.EXECUTE);
                     SQLTools.printWarnings(session, statement);
                     
                     if (hasResults) {
@@ -1339,15 +1543,33 @@ public class SQLRenderer {
                         footer.append("(total: "
                             +  TimeUtils.millisToDurationString(endTime - startTime) + ")");
                     }
+                    
+                    if (showTimingDetail) {
+                        
+                        footer.append(" [").append(timer.toString()).append(']');
+                    }
                 }
                 
                 if (footer.length() > 0) {
                     
+                    phaseStart = System.nanoTime();
                     renderer.footer(footer.toString());
+                    endPhase(StatementTimer.FLUSH);
                     footer.setLength(0);
                 }
             }
             while (!done);
+            
+            /*
+             * Output that is redirected to a file is buffered, so the end
+             * of the statement is where it is pushed out.
+             */
+            phaseStart = System.nanoTime();
+            session.out.flush();
+            endPhase(StatementTimer.FLUSH);
+            
+            timer.setElapsed(System.nanoTime() - statementStart);
+            StatementStatistics.getInstance(session).record(timer);
         }
         finally {
             
@@ -1409,6 +1631,32 @@ public class SQLRenderer {
         return rowCount;
     }
     
+    /**
+     * Replaces the formatters of the CLOB and BLOB columns of a result
+     * with ones that write values in their entirety, for renderers that
+     * extract data rather than display it.
+     * 
+     * @param columns The description of the result.
+     */
+    public void setUnlimitedLobs(ColumnDescription []columns) {
+        
+        DataFormatter formatter = sqshContext.getDataFormatter();
+        for (ColumnDescription col : columns) {
+            
+            switch (col.getNativeType()) {
+                
+                case Types.BLOB:
+                    col.setFormatter(formatter.getBlobFormatter(0));
+                    break;
+                
+                case Types.CLOB:
+                case Types.NCLOB:
+                    col.setFormatter(formatter.getClobFormatter(0));
+                    break;
+            }
+        }
+    }
+    
     /**
      * Displays a result set.
      * @param session The session used for output.
@@ -1422,17 +1670,92 @@ public class SQLRenderer {
             ResultSet resultSet, Set<Integer>displayCols)
         throws SQLException {
         
+        phaseStart = System.nanoTime();
         SQLTools.printWarnings(session, resultSet);
         
-        DataFormatter formatter = sqshContext.getDataFormatter();
+        if (renderer instanceof RawRenderer
+                && ((RawRenderer) renderer).isRaw()) {
+            
+            return rawResults(renderer, session, resultSet, displayCols);
+        }
+        
         ColumnDescription []columns = getDescription(resultSet, displayCols);
         int nCols = resultSet.getMetaData().getColumnCount();
         int rowCount = 0;
         
+        /*
+         * XML is indented to fit the columns of renderers that limit
+         * their width.
+         */
+        int maxWidth = renderer.getMaxColumnWidth();
+        if (maxWidth > 0) {
+            
+            for (ColumnDescription col : columns) {
+                
+                if (col.getNativeType() == Types.SQLXML) {
+                    
+                    col.setFormatter(sqshContext.getDataFormatter()
+                        .getXMLFormatter(maxWidth));
+                }
+            }
+        }
+        
+        if (!renderer.isLobLimited()) {
+            
+            setUnlimitedLobs(columns);
+        }
+        
+        /*
+         * Work out, once, how each column is going to be fetched and
+         * formatted. Formatted rows are gathered into a batch which is
+         * handed to the renderer whenever it fills up. When fetching
+         * serially we cannot tell whether the next row is on its way or
+         * the server is still working on it, so in an interactive session
+         * each row is handed over as soon as it is fetched, rather than
+         * leaving a slow query looking as though it has hung.
+         */
+        FetchPlan plan = FetchPlan.create(session, columns, nCols, displayCols);
+        FetchPlan.Row fetched = plan.newRow();
+        boolean isSerial = !(pipelined && plan.isPipelineSafe());
+        RowBatch batch = plan.newBatch(
+            isSerial && session.isInteractive() ? 1 : batchRows);
+        endPhase(StatementTimer.FETCH);
+        
         /*
          * Display the header
          */
         renderer.header(columns);
+        endPhase(StatementTimer.RENDER);
+        
+        /*
+         * If requested, hand the work off to a pipeline, which fetches
+         * in the background. Columns whose formatters cannot safely be
+         * used from another thread force us to fetch serially.
+         */
+        if (!isSerial) {
+            
+            RowPipeline pipeline = new RowPipeline(plan, pipelineSlots);
+            pipeline.setRowLimit(maxRows, rowLimitMethod);
+            pipeline.setTimer(timer);
+            
+            rowCount = pipeline.run(session, resultSet, renderer, batch);
+            if (firstRowTime == 0L) {
+                
+                firstRowTime = pipeline.getFirstRowTime();
+            }
+            
+            phaseStart = System.nanoTime();
+            if (rowCount < 0 || renderer.flush() == false) {
+                
+                return -1;
+            }
+            
+            endPhase(StatementTimer.FLUSH);
+            timer.addRows(rowCount);
+            timer.addDictionary(plan.getDictionaryLookups(),
+                plan.getDictionaryHits());
+            return rowCount;
+        }
         
         while (resultSet.next()) {
             
@@ -1461,70 +1784,113 @@ public class SQLRenderer {
                 }
             }
             
-            String row[] = new String[columns.length];
-            int idx = 0;
-            for (int i = 1; i <= nCols; i++) {
+            plan.fetch(resultSet, fetched, rowCount);
+            endPhase(StatementTimer.FETCH);
+            
+            plan.format(fetched, batch);
+            endPhase(StatementTimer.FORMAT);
+            
+            if (batch.isFull()) {
                 
-                if (displayCols == null || displayCols.contains(i)) {
-                    
-                    Object value;
+                if (renderer.rows(batch) == false) {
                     
-                    /*
-                     * This is silly (I'd use stronger language, but I
-                     * think I'm mellowing in my old age). For an oracle
-                     * TIMESTAMP column, when I ask the driver for the
-                     * datatype it reports java.sql.Timestamp. However, 
-                     * when I call the driver's ResultSet.getObject() it
-                     * returns some sort of native internal representation
-                     * of a TIMESTAMP column that is  *not* a 
-                     * java.sql.Timestamp and thus jsqsh blows up when it
-                     * trys to format it as one.  So, instead I do a special
-                     * case to force the driver to return it to me as a 
-                     * timestamp.
-                     */
-                    if (columns[idx].getNativeType() == Types.TIMESTAMP) {
-                        
-                        value = resultSet.getTimestamp(i);
-                    }
-                    else {
-                        
-                        value = resultSet.getObject(i);
-                    }
+                    return -1;
+                }
+                
+                batch.clear();
+                endPhase(StatementTimer.RENDER);
+            }
+        }
+        
+        endPhase(StatementTimer.FETCH);
+        
+        if (!batch.isEmpty() && renderer.rows(batch) == false) {
+            
+            return -1;
+        }
+        
+        endPhase(StatementTimer.RENDER);
+        
+        if (renderer.flush() == false) {
+            
+            return -1;
+        }
+        
+        endPhase(StatementTimer.FLUSH);
+        timer.addRows(rowCount);
+        timer.addDictionary(plan.getDictionaryLookups(),
+            plan.getDictionaryHits());
+        return rowCount;
+    }
+    
+    /**
+     * Hands the rows of a result set directly to a renderer that reads
+     * its own values (see {@link RawRenderer}).
+     * 
+     * @return The number of rows rendered, or -1 if the renderer could
+     *   not accept all of them.
+     */
+    private int rawResults(Renderer renderer, Session session,
+            ResultSet resultSet, Set<Integer>displayCols)
+        throws SQLException {
+        
+        RawRenderer raw = (RawRenderer) renderer;
+        ResultSetMetaData meta = resultSet.getMetaData();
+        int nCols = meta.getColumnCount();
+        int []projection = new int[displayCols == null 
+            ? nCols : displayCols.size()];
+        int idx = 0;
+        int rowCount = 0;
+        
+        for (int i = 1; i <= nCols && idx < projection.length; i++) {
+            
+            if (displayCols == null || displayCols.contains(i)) {
+                
+                projection[idx++] = i;
+            }
+        }
+        
+        raw.header(meta, projection);
+        endPhase(StatementTimer.FETCH);
+        
+        while (resultSet.next()) {
+            
+            SQLTools.printWarnings(session, resultSet);
+            
+            ++rowCount;
+            if (firstRowTime == 0L && rowCount == 1) {
+                
+                firstRowTime = System.currentTimeMillis();
+            }
+            
+            if (maxRows > 0 && rowCount > maxRows) {
+                
+                if (rowLimitMethod == LIMIT_CANCEL) {
                     
-                    if (resultSet.wasNull()) {
-                        
-                        row[idx] = formatter.getNull();
-                    }
-                    else {
-                        
-                        if (value == null)
-                        {
-                            session.err.println("WARNING: Row #" 
-                                + rowCount + ", column " + i + ", driver indicated "
-                                + "a value present, but returned NULL");
-                            row[idx] = formatter.getNull();
-                        }
-                        else
-                        {
-                            row[idx] = columns[idx].getFormatter().format(value);
-                        }
-                    }
+                    resultSet.getStatement().cancel();
+                    break;
+                }
+                else if (rowLimitMethod == LIMIT_DISCARD) {
                     
-                    ++idx;
+                    continue;
                 }
             }
             
-            if (renderer.row(row) == false) {
+            if (raw.row(resultSet) == false) {
                 
                 return -1;
             }
         }
         
+        endPhase(StatementTimer.RENDER);
+        
         if (renderer.flush() == false) {
             
             return -1;
         }
         
+        endPhase(StatementTimer.FLUSH);
+        timer.addRows(rowCount);
         return rowCount;
     }
     
@@ -17,7 +17,6 @@ package org.sqsh;
 
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.PrintStream;
@@ -1492,8 +1491,7 @@ public class Session
                     + sessionId + " to " + tmpFile.toString());
             }
             
-            PrintStream out = new PrintStream(
-                new FileOutputStream(tmpFile, false));
+            PrintStream out = sqshContext.openOutputFile(tmpFile, false);
             
             /*
              * If we are supposed to be processing the output of a shell,
@@ -1597,8 +1595,8 @@ public class Session
         
         try {
             
-            PrintStream newStream = new PrintStream(
-                new FileOutputStream(token.getFilename(), token.isAppend()));
+            PrintStream newStream = sqshContext.openOutputFile(
+                new File(token.getFilename()), token.isAppend());
             
             if (token.getFd() == 1) {
                 
@@ -1699,7 +1697,11 @@ public class Session
                 /* IGNORED */
             }
             
-            out.flush();
+            /*
+             * The stream belongs to this thread, and closing it is what
+             * writes out whatever is still buffered.
+             */
+            out.close();
             if (LOG.isLoggable(Level.FINE)) {
 
                 LOG.fine("Relayed " + count + " characters");
@@ -0,0 +1,303 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * A PrintStream used when the output of a session is sent to a file.
+ * Unlike a plain PrintStream it never flushes on its own (output is
+ * flushed when a statement completes or the stream is closed), and it
+ * can write regions of character arrays, buffers and builders without
+ * first turning them into strings.
+ */
+public class SessionPrintStream
+    extends PrintStream {
+    
+    /*
+     * Characters of strings and builders are copied through this array
+     * in order to be encoded.
+     */
+    private char []chars = new char[8192];
+    private ByteBuffer bytes = ByteBuffer.allocate(8192 * 4);
+    private CharsetEncoder encoder;
+    private volatile boolean error = false;
+    
+    /**
+     * Creates a stream that encodes characters using the platform's
+     * default character set.
+     *
+     * @param out The stream to write to.
+     */
+    public SessionPrintStream (OutputStream out) {
+        
+        super(out, false);
+        encoder = Charset.defaultCharset().newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+    
+    /**
+     * Prints a region of a character array.
+     *
+     * @param buf The characters.
+     * @param off The offset of the first character to print.
+     * @param len The number of characters to print.
+     */
+    public synchronized void print (char[] buf, int off, int len) {
+        
+        encode(CharBuffer.wrap(buf, off, len));
+    }
+    
+    /**
+     * Prints the remaining characters of a buffer. The position of the
+     * buffer is moved to its limit.
+     *
+     * @param buf The characters to print.
+     */
+    public synchronized void print (CharBuffer buf) {
+        
+        if (buf.hasArray()) {
+            
+            encode(buf);
+        }
+        else {
+            
+            append(buf, buf.position(), buf.limit());
+            buf.position(buf.limit());
+        }
+    }
+    
+    @Override
+    public PrintStream append (CharSequence csq) {
+        
+        if (csq == null) {
+            
+            print("null");
+            return this;
+        }
+        
+        return append(csq, 0, csq.length());
+    }
+    
+    @Override
+    public synchronized PrintStream append (CharSequence csq,
+            int start, int end) {
+        
+        if (csq == null) {
+            
+            return super.append(csq, start, end);
+        }
+        
+        if (csq instanceof CharBuffer && ((CharBuffer) csq).hasArray()) {
+            
+            CharBuffer cb = ((CharBuffer) csq).duplicate();
+            cb.limit(cb.position() + end).position(cb.position() + start);
+            encode(cb);
+            return this;
+        }
+        
+        while (start < end) {
+            
+            int n = Math.min(end - start, chars.length);
+            if (csq instanceof String) {
+                
+                ((String) csq).getChars(start, start + n, chars, 0);
+            }
+            else if (csq instanceof StringBuilder) {
+                
+                ((StringBuilder) csq).getChars(start, start + n, chars, 0);
+            }
+            else {
+                
+                for (int i = 0; i < n; i++) {
+                    
+                    chars[i] = csq.charAt(start + i);
+                }
+            }
+            
+            encode(CharBuffer.wrap(chars, 0, n));
+            start += n;
+        }
+        
+        return this;
+    }
+    
+    /*
+     * Every write, including those of the print methods inherited from
+     * PrintStream (which encode through write(byte[], int, int)), goes
+     * through these so that a failure is recorded where checkError()
+     * can see it without having to flush.
+     */
+    @Override
+    public void write (int b) {
+        
+        try {
+            
+            synchronized (this) {
+                
+                ensureOpen();
+                out.write(b);
+            }
+        }
+        catch (InterruptedIOException e) {
+            
+            Thread.currentThread().interrupt();
+        }
+        catch (IOException e) {
+            
+            setError();
+        }
+    }
+    
+    @Override
+    public void write (byte[] buf, int off, int len) {
+        
+        try {
+            
+            synchronized (this) {
+                
+                ensureOpen();
+                out.write(buf, off, len);
+            }
+        }
+        catch (InterruptedIOException e) {
+            
+            Thread.currentThread().interrupt();
+        }
+        catch (IOException e) {
+            
+            setError();
+        }
+    }
+    
+    @Override
+    public void flush () {
+        
+        try {
+            
+            synchronized (this) {
+                
+                ensureOpen();
+                out.flush();
+            }
+        }
+        catch (InterruptedIOException e) {
+            
+            Thread.currentThread().interrupt();
+        }
+        catch (IOException e) {
+            
+            setError();
+        }
+    }
+    
+    /**
+     * Reports whether an error has occurred. Unlike that of a plain
+     * PrintStream this does not flush the stream, so renderers may check
+     * for errors after every write without defeating the buffering.
+     */
+    @Override
+    public boolean checkError () {
+        
+        /*
+         * Once closed there is nothing left to flush, and PrintStream's
+         * own record covers the writes it refused.
+         */
+        return error || (out == null && super.checkError());
+    }
+    
+    @Override
+    protected void setError () {
+        
+        error = true;
+        super.setError();
+    }
+    
+    @Override
+    protected void clearError () {
+        
+        error = false;
+        super.clearError();
+    }
+    
+    /**
+     * Encodes characters and writes the bytes to the underlying stream.
+     *
+     * @param cb The characters to write.
+     */
+    private void encode (CharBuffer cb) {
+        
+        try {
+            
+            encoder.reset();
+            CoderResult result;
+            do {
+                
+                result = encoder.encode(cb, bytes, true);
+                if (result.isOverflow()) {
+                    
+                    drain();
+                }
+            }
+            while (result.isOverflow());
+            
+            while (encoder.flush(bytes).isOverflow()) {
+                
+                drain();
+            }
+            
+            drain();
+        }
+        catch (InterruptedIOException e) {
+            
+            Thread.currentThread().interrupt();
+        }
+        catch (IOException e) {
+            
+            setError();
+        }
+    }
+    
+    private void ensureOpen ()
+        throws IOException {
+        
+        if (out == null) {
+            
+            throw new IOException("Stream closed");
+        }
+    }
+    
+    private void drain ()
+        throws IOException {
+        
+        ensureOpen();
+        if (bytes.position() > 0) {
+            
+            out.write(bytes.array(), 0, bytes.position());
+            bytes.clear();
+        }
+    }
+}
@@ -33,6 +33,7 @@ import java.util.logging.Level;
 
 import org.sqsh.input.ConsoleLineReader;
 import org.sqsh.jni.ShellManager;
+import org.sqsh.util.ChannelOutputStream;
 
 /**
  * The SqshContext is the master container of all things jsqsh. Its primary
@@ -230,6 +231,22 @@ public class SqshContext {
      */
     private int queryTimeout = 0;
     
+    /**
+     * The number of prepared statements each connection holds on to.
+     */
+    private int statementCacheSize = 32;
+    
+    /**
+     * The size of the buffer used when output is redirected to a file.
+     */
+    private int outputBufferSize = ChannelOutputStream.DEFAULT_BUFFER_SIZE;
+    
+    /**
+     * If true, output that is redirected to a file is written by a
+     * background thread.
+     */
+    private boolean outputAsync = false;
+    
     /**
      * Controls how much detail is displayed in exceptions.
      */
@@ -364,6 +381,96 @@ public class SqshContext {
         return queryTimeout;
     }
     
+    /**
+     * Sets the number of prepared statements that each connection holds
+     * on to, so that they don't have to be prepared again the next time
+     * the same SQL is executed.
+     * 
+     * @param size The number of statements, or 0 to disable caching.
+     */
+    public void setStatementCacheSize(int size) {
+        
+        if (size < 0) {
+            
+            throw new IllegalArgumentException(
+                "The statement cache size cannot be negative");
+        }
+        
+        this.statementCacheSize = size;
+    }
+    
+    /**
+     * @return The number of prepared statements that each connection
+     *   holds on to.
+     */
+    public int getStatementCacheSize() {
+        
+        return statementCacheSize;
+    }
+    
+    /**
+     * Sets the size of the buffer used when the output of a session
+     * is redirected to a file (only takes effect for redirections that
+     * are performed afterward).
+     * 
+     * @param size The buffer size in bytes.
+     */
+    public void setOutputBufferSize(int size) {
+        
+        if (size < 1024) {
+            
+            throw new IllegalArgumentException(
+                "The output buffer size must be at least 1024 bytes");
+        }
+        
+        this.outputBufferSize = size;
+    }
+    
+    /**
+     * @return The size of the buffer used when the output of a session
+     *   is redirected to a file.
+     */
+    public int getOutputBufferSize() {
+        
+        return outputBufferSize;
+    }
+    
+    /**
+     * @param async If true, output that is redirected to a file is
+     *   written to the file by a background thread.
+     */
+    public void setOutputAsync(boolean async) {
+        
+        this.outputAsync = async;
+    }
+    
+    /**
+     * @return true if output that is redirected to a file is written to
+     *   the file by a background thread.
+     */
+    public boolean isOutputAsync() {
+        
+        return outputAsync;
+    }
+    
+    /**
+     * Opens a file to receive the output of a session. The stream that
+     * is returned buffers its output according to the output buffer
+     * size and asynchronous output settings.
+     * 
+     * @param file The file to write to.
+     * @param append If true, output is appended to the file.
+     * @return The stream.
+     * @throws IOException If the file cannot be opened.
+     */
+    public PrintStream openOutputFile(File file, boolean append)
+        throws IOException {
+        
+        FileOutputStream out = new FileOutputStream(file, append);
+        return new SessionPrintStream(new ChannelOutputStream(
+            out.getChannel(), outputBufferSize, outputAsync));
+    }
+    
     /**
      * Enables or disables the displaying of a visual timer that is shown
      * in interactive mode for long running queries. This feature is off
@@ -0,0 +1,305 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh;
+
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Holds on to the statements that have been prepared on a connection,
+ * keyed by their SQL text, so that a statement that is executed over and
+ * over again is only prepared (parsed and planned by the server) once.
+ * When the cache is full, the statement that was least recently used is
+ * closed to make room.
+ *
+ * <p>A statement is taken out of the cache while it is in use and is
+ * only put back once it has been {@link #release released}, so a
+ * statement is never handed out twice at the same time (two executions
+ * of the same SQL that are underway at once simply get statements of
+ * their own). Statements whose execution failed or was canceled are
+ * closed rather than put back, as the driver may no longer consider them
+ * to be in a usable state.
+ *
+ * <p>The cache is not thread safe. It belongs to a single connection,
+ * which is only used by one thread at a time.
+ */
+public class StatementCache {
+    
+    /*
+     * The statements that are not in use, least recently used first.
+     * Prepared and callable statements for the same text are kept apart
+     * by the first character of the key.
+     */
+    private final LinkedHashMap<String, PreparedStatement> idle =
+        new LinkedHashMap<String, PreparedStatement>();
+    
+    /*
+     * The statements that have been handed out and not yet released,
+     * along with their keys.
+     */
+    private final Map<PreparedStatement, String> inUse =
+        new IdentityHashMap<PreparedStatement, String>();
+    
+    private int maxSize;
+    private long hits = 0L;
+    private long misses = 0L;
+    
+    /**
+     * Creates a cache.
+     *
+     * @param maxSize The number of statements that may be held, or 0 if
+     *   statements are not to be cached.
+     */
+    public StatementCache (int maxSize) {
+        
+        this.maxSize = maxSize;
+    }
+    
+    /**
+     * @return The number of statements that may be held.
+     */
+    public int getMaxSize() {
+        
+        return maxSize;
+    }
+    
+    /**
+     * Changes the number of statements that may be held, closing the
+     * least recently used ones if there are now too many.
+     *
+     * @param maxSize The number of statements that may be held, or 0 if
+     *   statements are not to be cached.
+     */
+    public void setMaxSize(int maxSize) {
+        
+        this.maxSize = maxSize;
+        trim(maxSize);
+    }
+    
+    /**
+     * @return The number of statements that were found in the cache.
+     */
+    public long getHits() {
+        
+        return hits;
+    }
+    
+    /**
+     * @return The number of statements that had to be prepared.
+     */
+    public long getMisses() {
+        
+        return misses;
+    }
+    
+    /**
+     * @return The number of statements held that are not in use.
+     */
+    public int size() {
+        
+        return idle.size();
+    }
+    
+    /**
+     * Returns a prepared statement for some SQL, preparing it if there
+     * isn't one in the cache. The statement must be handed back with
+     * {@link #release(PreparedStatement, boolean)} once it is done with.
+     *
+     * @param conn The connection the cache belongs to.
+     * @param sql The SQL.
+     * @return The statement, with its parameters cleared.
+     * @throws SQLException If the statement could not be prepared.
+     */
+    public PreparedStatement prepareStatement(Connection conn, String sql)
+        throws SQLException {
+        
+        String key = "P" + sql;
+        PreparedStatement statement = checkOut(key);
+        if (statement == null) {
+            
+            statement = conn.prepareStatement(sql);
+            checkedOut(statement, key);
+        }
+        
+        return statement;
+    }
+    
+    /**
+     * Returns a callable statement for some SQL, preparing it if there
+     * isn't one in the cache. The statement must be handed back with
+     * {@link #release(PreparedStatement, boolean)} once it is done with.
+     *
+     * @param conn The connection the cache belongs to.
+     * @param sql The SQL.
+     * @return The statement, with its parameters cleared.
+     * @throws SQLException If the statement could not be prepared.
+     */
+    public CallableStatement prepareCall(Connection conn, String sql)
+        throws SQLException {
+        
+        String key = "C" + sql;
+        CallableStatement statement = (CallableStatement) checkOut(key);
+        if (statement == null) {
+            
+            statement = conn.prepareCall(sql);
+            checkedOut(statement, key);
+        }
+        
+        return statement;
+    }
+    
+    /**
+     * Hands back a statement that came from the cache. It is put back in
+     * the cache if it may be used again, otherwise it is closed.
+     *
+     * @param statement The statement (null is ignored).
+     * @param isReusable false if the execution of the statement failed
+     *   or was canceled, in which case it is closed.
+     */
+    public void release(PreparedStatement statement, boolean isReusable) {
+        
+        if (statement == null) {
+            
+            return;
+        }
+        
+        String key = inUse.remove(statement);
+        if (key == null || !isReusable || maxSize <= 0
+            || idle.containsKey(key)) {
+            
+            SQLTools.close(statement);
+            return;
+        }
+        
+        try {
+            
+            statement.clearWarnings();
+        }
+        catch (SQLException e) {
+            
+            SQLTools.close(statement);
+            return;
+        }
+        
+        trim(maxSize - 1);
+        idle.put(key, statement);
+    }
+    
+    /**
+     * Closes all of the statements held. Statements that are in use are
+     * closed when they are released.
+     */
+    public void clear() {
+        
+        trim(0);
+        inUse.clear();
+    }
+    
+    /*
+     * Takes a statement out of the cache, readying it to be executed
+     * again. Settings made on it for its last execution that may not be
+     * made again are put back to their defaults.
+     */
+    private PreparedStatement checkOut(String key)
+        throws SQLException {
+        
+        if (maxSize <= 0) {
+            
+            ++misses;
+            return null;
+        }
+        
+        PreparedStatement statement = idle.remove(key);
+        if (statement == null) {
+            
+            ++misses;
+            return null;
+        }
+        
+        try {
+            
+            statement.clearParameters();
+            clearBatch(statement);
+            if (statement.getMaxRows() != 0) {
+                
+                statement.setMaxRows(0);
+            }
+            if (statement.getQueryTimeout() != 0) {
+                
+                statement.setQueryTimeout(0);
+            }
+        }
+        catch (SQLException e) {
+            
+            /*
+             * The statement is no good (perhaps the server has dropped
+             * it), so prepare a new one.
+             */
+            SQLTools.close(statement);
+            ++misses;
+            return null;
+        }
+        
+        ++hits;
+        inUse.put(statement, key);
+        return statement;
+    }
+    
+    /*
+     * Discards any lines left in the statement's batch by an execution
+     * that did not get as far as running it. A driver that does not
+     * support batches cannot have any.
+     */
+    private static void clearBatch(PreparedStatement statement) {
+        
+        try {
+            
+            statement.clearBatch();
+        }
+        catch (SQLException e) {
+            
+            /* IGNORED */
+        }
+    }
+    
+    private void checkedOut(PreparedStatement statement, String key) {
+        
+        if (maxSize > 0) {
+            
+            inUse.put(statement, key);
+        }
+    }
+    
+    /*
+     * Closes the least recently used statements until no more than
+     * the given number are held.
+     */
+    private void trim(int size) {
+        
+        Iterator<PreparedStatement> iter = idle.values().iterator();
+        while (idle.size() > Math.max(size, 0) && iter.hasNext()) {
+            
+            SQLTools.close(iter.next());
+            iter.remove();
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh;
+
+import java.util.Arrays;
+
+/**
+ * Per-session aggregate of the {@link StatementTimer}s of the statements
+ * that the session has executed. Totals are kept for every statement, and
+ * the timings of the most recent statements are retained so that
+ * percentiles can be calculated. This is attached to the session as a
+ * {@link SessionObject} and is displayed by the \stats command.
+ */
+public class StatementStatistics
+    extends SessionObject {
+    
+    /**
+     * The name under which the statistics are attached to the session.
+     */
+    public static final String SESSION_OBJECT = "statement_stats";
+    
+    /**
+     * The index used for the overall elapsed time in the history.
+     */
+    public static final int ELAPSED = StatementTimer.PHASES;
+    
+    private static final int DEFAULT_HISTORY = 1000;
+    
+    private long count = 0L;
+    private long rows = 0L;
+    private long dictionaryLookups = 0L;
+    private long dictionaryHits = 0L;
+    private long []totals = new long[StatementTimer.PHASES + 1];
+    
+    /*
+     * history[phase][n % history size] holds the timing for the n'th
+     * statement.
+     */
+    private long [][]history;
+    
+    /**
+     * Creates an empty set of statistics.
+     */
+    public StatementStatistics () {
+        
+        this(DEFAULT_HISTORY);
+    }
+    
+    /**
+     * Creates an empty set of statistics.
+     *
+     * @param historySize The number of recent statements retained to
+     *   calculate percentiles.
+     */
+    public StatementStatistics (int historySize) {
+        
+        history = new long[StatementTimer.PHASES + 1][historySize];
+    }
+    
+    /**
+     * Returns the statistics for a session, creating them if this is the
+     * first time they have been asked for.
+     *
+     * @param session The session
+     * @return The statistics for the session
+     */
+    public static StatementStatistics getInstance(Session session) {
+        
+        StatementStatistics stats =
+            (StatementStatistics) session.getObject(SESSION_OBJECT);
+        if (stats == null) {
+            
+            stats = new StatementStatistics();
+            session.addObject(SESSION_OBJECT, stats);
+        }
+        
+        return stats;
+    }
+    
+    /**
+     * Records the timings of a completed statement.
+     *
+     * @param timer The timings of the statement
+     */
+    public void record(StatementTimer timer) {
+        
+        int slot = (int) (count % history[0].length);
+        
+        for (int i = 0; i < StatementTimer.PHASES; i++) {
+            
+            totals[i] += timer.get(i);
+            history[i][slot] = timer.get(i);
+        }
+        
+        totals[ELAPSED] += timer.getElapsed();
+        history[ELAPSED][slot] = timer.getElapsed();
+        
+        rows += timer.getRows();
+        dictionaryLookups += timer.getDictionaryLookups();
+        dictionaryHits += timer.getDictionaryHits();
+        ++count;
+    }
+    
+    /**
+     * Discards all statistics.
+     */
+    public void reset() {
+        
+        count = 0L;
+        rows = 0L;
+        dictionaryLookups = 0L;
+        dictionaryHits = 0L;
+        Arrays.fill(totals, 0L);
+    }
+    
+    /**
+     * @return The number of statements recorded.
+     */
+    public long getCount() {
+        
+        return count;
+    }
+    
+    /**
+     * @return The total number of rows fetched by all statements.
+     */
+    public long getRows() {
+        
+        return rows;
+    }
+    
+    /**
+     * @return The total number of values looked up in column
+     *   dictionaries by all statements.
+     */
+    public long getDictionaryLookups() {
+        
+        return dictionaryLookups;
+    }
+    
+    /**
+     * @return The total number of values found in column dictionaries by
+     *   all statements.
+     */
+    public long getDictionaryHits() {
+        
+        return dictionaryHits;
+    }
+    
+    /**
+     * @return The number of recent statements for which individual
+     *   timings are available.
+     */
+    public int getHistoryCount() {
+        
+        return (int) Math.min(count, history[0].length);
+    }
+    
+    /**
+     * @param phase The phase (see {@link StatementTimer}) or
+     *   {@link #ELAPSED}
+     * @return The total nanoseconds spent in the phase across all
+     *   statements
+     */
+    public long getTotal(int phase) {
+        
+        return totals[phase];
+    }
+    
+    /**
+     * Returns the recent timings for a phase, in ascending order.
+     *
+     * @param phase The phase (see {@link StatementTimer}) or
+     *   {@link #ELAPSED}
+     * @return The sorted timings
+     */
+    public long[] getSorted(int phase) {
+        
+        long []sorted = Arrays.copyOf(history[phase], getHistoryCount());
+        Arrays.sort(sorted);
+        return sorted;
+    }
+    
+    /**
+     * Picks a percentile out of a set of sorted timings (nearest rank).
+     *
+     * @param sorted Timings as returned by {@link #getSorted(int)}
+     * @param pct The percentile (0 to 100)
+     * @return The value at the percentile, or 0 if there are no timings
+     */
+    public static long percentile(long []sorted, double pct) {
+        
+        if (sorted.length == 0) {
+            
+            return 0L;
+        }
+        
+        int rank = (int) Math.ceil((pct / 100.0) * sorted.length);
+        if (rank < 1) {
+            
+            rank = 1;
+        }
+        
+        return sorted[Math.min(rank, sorted.length) - 1];
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh;
+
+import org.sqsh.util.TimeUtils;
+
+/**
+ * Accumulates the time, in nanoseconds, spent in each phase of executing
+ * a statement and displaying its results. This allows time spent in the
+ * database (prepare and execute), time spent pulling rows across the wire
+ * (fetch) and time spent on the client (format, render, flush) to be told
+ * apart.
+ */
+public class StatementTimer {
+    
+    /**
+     * Creating and preparing the statement, and binding its parameters.
+     */
+    public static final int PREPARE = 0;
+    
+    /**
+     * Executing the statement and moving between its results.
+     */
+    public static final int EXECUTE = 1;
+    
+    /**
+     * Moving to each row ({@link java.sql.ResultSet#next()}) and
+     * retrieving its values.
+     */
+    public static final int FETCH   = 2;
+    
+    /**
+     * Turning the retrieved values into strings.
+     */
+    public static final int FORMAT  = 3;
+    
+    /**
+     * Handing rows to the {@link Renderer}.
+     */
+    public static final int RENDER  = 4;
+    
+    /**
+     * Flushing the renderer and displaying the footer.
+     */
+    public static final int FLUSH   = 5;
+    
+    /**
+     * The number of phases.
+     */
+    public static final int PHASES  = 6;
+    
+    private static final String []PHASE_NAMES = {
+        "prepare", "execute", "fetch", "format", "render", "flush"
+    };
+    
+    private long []nanos = new long[PHASES];
+    private long rows = 0L;
+    private long elapsed = 0L;
+    private long dictionaryLookups = 0L;
+    private long dictionaryHits = 0L;
+    
+    /**
+     * @param phase The phase
+     * @return The display name of the phase
+     */
+    public static String getPhaseName(int phase) {
+        
+        return PHASE_NAMES[phase];
+    }
+    
+    /**
+     * Resets all of the timers for a new statement.
+     */
+    public void reset() {
+        
+        for (int i = 0; i < PHASES; i++) {
+            
+            nanos[i] = 0L;
+        }
+        
+        rows = 0L;
+        elapsed = 0L;
+        dictionaryLookups = 0L;
+        dictionaryHits = 0L;
+    }
+    
+    /**
+     * Adds time to a phase.
+     *
+     * @param phase The phase
+     * @param elapsedNanos The number of nanoseconds to add
+     */
+    public void add(int phase, long elapsedNanos) {
+        
+        nanos[phase] += elapsedNanos;
+    }
+    
+    /**
+     * @param phase The phase
+     * @return The number of nanoseconds spent in the phase
+     */
+    public long get(int phase) {
+        
+        return nanos[phase];
+    }
+    
+    /**
+     * @param rows Adds to the number of rows fetched
+     */
+    public void addRows(long rows) {
+        
+        this.rows += rows;
+    }
+    
+    /**
+     * @return The number of rows fetched.
+     */
+    public long getRows() {
+        
+        return rows;
+    }
+    
+    /**
+     * Records the use of the column dictionaries (see
+     * {@link ValueDictionary}) while formatting a set of results.
+     *
+     * @param lookups The number of values looked up
+     * @param hits The number of values that were found, and so did not
+     *   need to be formatted
+     */
+    public void addDictionary(long lookups, long hits) {
+        
+        dictionaryLookups += lookups;
+        dictionaryHits += hits;
+    }
+    
+    /**
+     * @return The number of values looked up in column dictionaries.
+     */
+    public long getDictionaryLookups() {
+        
+        return dictionaryLookups;
+    }
+    
+    /**
+     * @return The number of values found in column dictionaries.
+     */
+    public long getDictionaryHits() {
+        
+        return dictionaryHits;
+    }
+    
+    /**
+     * @param elapsedNanos The total (wall clock) time the statement took,
+     *   which may be more than the sum of the phases.
+     */
+    public void setElapsed(long elapsedNanos) {
+        
+        this.elapsed = elapsedNanos;
+    }
+    
+    /**
+     * @return The total (wall clock) time the statement took.
+     */
+    public long getElapsed() {
+        
+        return elapsed;
+    }
+    
+    /**
+     * @return A one-line breakdown of the time spent in each phase,
+     *   followed by the hit rate of the column dictionaries, if any were
+     *   used.
+     */
+    @Override
+    public String toString() {
+        
+        StringBuilder sb = new StringBuilder();
+        
+        for (int i = 0; i < PHASES; i++) {
+            
+            if (i > 0) {
+                
+                sb.append(", ");
+            }
+            
+            sb.append(PHASE_NAMES[i])
+              .append(' ')
+              .append(TimeUtils.nanosToDurationString(nanos[i]));
+        }
+        
+        if (dictionaryLookups > 0L) {
+            
+            sb.append("; dictionary ")
+              .append(hitRate(dictionaryHits, dictionaryLookups))
+              .append(" hits");
+        }
+        
+        return sb.toString();
+    }
+    
+    /**
+     * @param hits A number of hits
+     * @param lookups The number of lookups
+     * @return The percentage of lookups that were hits, as a string
+     *   with one decimal place
+     */
+    public static String hitRate(long hits, long lookups) {
+        
+        long tenths = (lookups == 0L ? 0L : (hits * 1000L) / lookups);
+        return (tenths / 10) + "." + (tenths % 10) + "%";
+    }
+}
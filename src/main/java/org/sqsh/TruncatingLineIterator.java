@@ -15,8 +15,6 @@
  */
 package org.sqsh;
 
-import java.util.NoSuchElementException;
-
 /**
  * This iterator is used to iterate over column text that is about to be
  * displayed to the user. It will choose to truncate long lines (greater
@@ -29,8 +27,6 @@ public class TruncatingLineIterator
     private int idx;
     private int width;
     
-    private String segment = null;
-    
     /**
      * Creates a line iterator to iterate over the lines contained in 
      * the provided string, truncating each line to width characters.
@@ -51,46 +47,13 @@ public class TruncatingLineIterator
         
         super.reset(str);
         this.idx = 0;
-        this.segment = null;
     }
     
-    public boolean hasNext () {
-        
-        if (segment == null) {
-            
-            segment = getSegment();
-        }
-        
-        return segment != null;
-    }
-
-    public String next () {
-        
-        String str = segment;
-        if (str != null) {
-            
-            segment = null;
-            return str;
-        }
-        
-        str = getSegment();
-        if (str == null) {
-            
-            throw new NoSuchElementException();
-        }
-        
-        return str;
-    }
-
-    public void remove () {
-
-    }
-    
-    private String getSegment() {
+    protected boolean advance() {
         
         if (idx == strLength) {
             
-            return null;
+            return false;
         }
         
         /*
@@ -103,23 +66,21 @@ public class TruncatingLineIterator
             ++idx;
         }
         
-        StringBuilder sb = new StringBuilder();
+        lineStart = idx;
+        
+        int len = 0;
         char ch = str.charAt(idx);
         boolean done = false;
         while (!done
                 && idx < strLength
-                && (width <= 0 || sb.length() <  width)
+                && (width <= 0 || len <  width)
                 && ch != '\n') {
             
             if (ch == '\t') {
                 
-                if (width < 0 || (sb.length() + tabExpansion) <= width) {
-                    
-                    for (int i = 0; i < tabExpansion; i++) {
-                        
-                        sb.append(' ');
-                    }
+                if (width < 0 || (len + tabExpansion) <= width) {
                     
+                    len += tabExpansion;
                     ++idx;
                 }
                 else {
@@ -133,7 +94,7 @@ public class TruncatingLineIterator
             }
             else {
                 
-                sb.append(ch);
+                ++len;
                 ++idx;
             }
             
@@ -143,6 +104,8 @@ public class TruncatingLineIterator
             }
         }
         
+        lineEnd = idx;
+        
         /*
          * If we reached our maximum width, then we need to truncate up to
          * the next new-line.
@@ -153,6 +116,6 @@ public class TruncatingLineIterator
             ++idx;
         }
         
-        return sb.toString();
+        return true;
     }
 }
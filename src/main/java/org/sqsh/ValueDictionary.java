@@ -0,0 +1,265 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh;
+
+/**
+ * Remembers the formatted (and measured) form of the values of a single
+ * column, so that columns that only ever contain a handful of distinct
+ * values, such as status codes, currencies or flags, are formatted once
+ * per distinct value rather than once per row.
+ *
+ * <p>The dictionary is adaptive. While the first {@link #SAMPLE_ROWS}
+ * values are looked up it remembers every value it is given. From then
+ * on, if fewer than half of the lookups have found their value, the
+ * column is not considered to be worth it and the dictionary turns
+ * itself off. It also turns itself off whenever it would have to hold
+ * more than {@link #MAX_ENTRIES} values. Once off, lookups fail
+ * immediately and the memory it used is released.
+ *
+ * <p>Values are looked up either as objects, using their
+ * <code>equals()</code> method, or, for values that were fetched as
+ * primitives, as the bits of a long. A dictionary is not thread safe.
+ */
+public class ValueDictionary {
+    
+    /**
+     * The number of lookups after which the dictionary decides whether
+     * or not it is worth keeping.
+     */
+    public static final int SAMPLE_ROWS = 1024;
+    
+    /**
+     * The maximum number of distinct values held.
+     */
+    public static final int MAX_ENTRIES = 256;
+    
+    /*
+     * An open addressed hash table with twice as many slots as there may
+     * be entries. A slot is in use if it has text. A slot with text but
+     * without an object key holds a long key.
+     */
+    private static final int SLOTS = MAX_ENTRIES * 2;
+    
+    private Object []keys = new Object[SLOTS];
+    private long []longKeys = new long[SLOTS];
+    private String []texts = new String[SLOTS];
+    private int []widths = new int[SLOTS];
+    private int size = 0;
+    private boolean enabled = true;
+    
+    private long lookups = 0L;
+    private long hits = 0L;
+    
+    /**
+     * @return true if the dictionary is still in use.
+     */
+    public boolean isEnabled() {
+        
+        return enabled;
+    }
+    
+    /**
+     * @return The number of values that have been looked up, including
+     *   those looked up after the dictionary turned itself off.
+     */
+    public long getLookups() {
+        
+        return lookups;
+    }
+    
+    /**
+     * @return The number of lookups that found their value.
+     */
+    public long getHits() {
+        
+        return hits;
+    }
+    
+    /**
+     * Looks up a value.
+     *
+     * @param value The value, which may not be null.
+     * @return The slot holding the value, for use with
+     *   {@link #getText(int)} and {@link #getWidth(int)}, or -1 if the
+     *   value is not in the dictionary.
+     */
+    public int find(Object value) {
+        
+        ++lookups;
+        if (!enabled) {
+            
+            return -1;
+        }
+        
+        int slot = hash(value);
+        while (texts[slot] != null) {
+            
+            Object key = keys[slot];
+            if (key != null && key.equals(value)) {
+                
+                ++hits;
+                return slot;
+            }
+            
+            slot = (slot + 1) & (SLOTS - 1);
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Looks up a value that was fetched as a primitive.
+     *
+     * @param value The value (for a double, its bits).
+     * @return The slot holding the value, or -1 if the value is not in the
+     *   dictionary.
+     */
+    public int find(long value) {
+        
+        ++lookups;
+        if (!enabled) {
+            
+            return -1;
+        }
+        
+        int slot = hash(value);
+        while (texts[slot] != null) {
+            
+            if (keys[slot] == null && longKeys[slot] == value) {
+                
+                ++hits;
+                return slot;
+            }
+            
+            slot = (slot + 1) & (SLOTS - 1);
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Adds a value that was not found by {@link #find(Object)}.
+     *
+     * @param value The value.
+     * @param text The formatted value.
+     * @return The slot the value was placed in, or -1 if the dictionary
+     *   has turned itself off.
+     */
+    public int add(Object value, String text) {
+        
+        if (!keep()) {
+            
+            return -1;
+        }
+        
+        int slot = hash(value);
+        while (texts[slot] != null) {
+            
+            slot = (slot + 1) & (SLOTS - 1);
+        }
+        
+        keys[slot] = value;
+        return put(slot, text);
+    }
+    
+    /**
+     * Adds a value that was not found by {@link #find(long)}.
+     *
+     * @param value The value (for a double, its bits).
+     * @param text The formatted value.
+     * @return The slot the value was placed in, or -1 if the dictionary
+     *   has turned itself off.
+     */
+    public int add(long value, String text) {
+        
+        if (!keep()) {
+            
+            return -1;
+        }
+        
+        int slot = hash(value);
+        while (texts[slot] != null) {
+            
+            slot = (slot + 1) & (SLOTS - 1);
+        }
+        
+        longKeys[slot] = value;
+        return put(slot, text);
+    }
+    
+    /**
+     * @param slot A slot returned by a lookup.
+     * @return The formatted value.
+     */
+    public String getText(int slot) {
+        
+        return texts[slot];
+    }
+    
+    /**
+     * @param slot A slot returned by a lookup.
+     * @return The width of the widest line of the formatted value.
+     */
+    public int getWidth(int slot) {
+        
+        return widths[slot];
+    }
+    
+    private int put(int slot, String text) {
+        
+        texts[slot] = text;
+        widths[slot] = LineIterator.getMaxLineWidth(text);
+        ++size;
+        return slot;
+    }
+    
+    /*
+     * Decides whether another value may be added, turning the dictionary
+     * off if the column looks to have too many distinct values.
+     */
+    private boolean keep() {
+        
+        if (!enabled) {
+            
+            return false;
+        }
+        
+        if (size == MAX_ENTRIES
+            || (lookups >= SAMPLE_ROWS && hits < lookups / 2)) {
+            
+            enabled = false;
+            keys = null;
+            longKeys = null;
+            texts = null;
+            widths = null;
+            return false;
+        }
+        
+        return true;
+    }
+    
+    private static int hash(Object value) {
+        
+        int h = value.hashCode();
+        return (h ^ (h >>> 16)) & (SLOTS - 1);
+    }
+    
+    private static int hash(long value) {
+        
+        long h = value * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (SLOTS - 1);
+    }
+}
@@ -15,8 +15,6 @@
  */
 package org.sqsh;
 
-import java.util.NoSuchElementException;
-
 /**
  * Iterator to iterate over the lines in a string, performing word wrapping
  * where necessary.  Tabs are expanded to 8 spaces, by default, but this
@@ -28,9 +26,13 @@ public class WordWrapLineIterator
     Position pos;
     private int width;
     
-    private boolean isBeginningOfLine = true;
+    /*
+     * Used when backing up to the previous word.
+     */
+    private Position end;
     
-    String segment = null;
+    private boolean isBeginningOfLine = true;
+    private boolean hasSegment = false;
     
     /**
      * Creates a word wrapper.
@@ -42,56 +44,24 @@ public class WordWrapLineIterator
         super(str);
         
         pos = new Position();
+        end = new Position();
         this.width = width;
     }
     
     public void reset(String str) {
         
         super.reset(str);
-        pos = new Position();
-        segment = null;
+        pos.clear();
     }
     
-    public boolean hasNext () {
-
-        if (segment == null) {
-            
-            segment = nextSegment();
-        }
-        
-        return (segment != null);
-    }
-
-    public String next() {
-        
-        String str = segment;
-        if (str != null) {
-            
-            segment = null;
-            return str;
-        }
-        
-        str = nextSegment();
-        if (str == null) {
-            
-            throw new NoSuchElementException();
-        }
-        
-        return str;
-    }
-
-    public void remove () {
+    protected boolean advance() {
 
-    }
-    
-    private String nextSegment() {
-        
-        String str = null;
         int ch = pos.next();
+        hasSegment = false;
         
         if (pos.isEOL()) {
             
-            return null;
+            return false;
         }
         
         /*
@@ -136,7 +106,7 @@ public class WordWrapLineIterator
                     && (nextCh == '\n' || nextCh == -1)) {
                 
                 isBeginningOfLine = (nextCh == '\n');
-                str = pos.getSegment();
+                pos.markLine();
                 pos.next();
             }
             else if (pos.getLen() == width
@@ -146,7 +116,7 @@ public class WordWrapLineIterator
                  * Similarly if the next character is a white-space, then
                  * consume it and don't bother backing up.
                  */
-                str = pos.getSegment();
+                pos.markLine();
                 pos.next();
             }
             else if (!Character.isWhitespace(ch)) {
@@ -156,7 +126,7 @@ public class WordWrapLineIterator
                  * need to back up either. But, if we are sitting in this
                  * block, then it is time to back up (if possible).
                  */
-                Position end = (Position) pos.clone();
+                end.copy(pos);
                 ch = end.prev();
                 while (ch != -1 && !Character.isWhitespace(ch)) {
                     
@@ -173,7 +143,7 @@ public class WordWrapLineIterator
                      * We need to "put back" last character we just tested.
                      */
                     end.next();
-                    pos = end;
+                    pos.copy(end);
                 }
                 else {
                     
@@ -183,20 +153,19 @@ public class WordWrapLineIterator
                     }
                 }
                 
-                str = pos.getSegment();
+                pos.markLine();
             }
         }
         else {
             
-            str = pos.getSegment();
+            pos.markLine();
         }
         
         pos.skip();
-        return str;
+        return hasSegment;
     }
     
-    private class Position
-        implements Cloneable {
+    private class Position {
         
         private int startIdx;
         private int endIdx;
@@ -204,11 +173,31 @@ public class WordWrapLineIterator
         
         public Position () {
             
+            clear();
+        }
+        
+        /**
+         * Moves the position back to the start of the string.
+         */
+        public void clear() {
+            
             this.startIdx = 0;
             this.endIdx   = 0;
             this.displayLength = 0;
         }
         
+        /**
+         * Moves the position to where another position is.
+         * 
+         * @param other The other position.
+         */
+        public void copy(Position other) {
+            
+            this.startIdx = other.startIdx;
+            this.endIdx = other.endIdx;
+            this.displayLength = other.displayLength;
+        }
+        
         /**
          * Skips the segment that we have been processing so far.
          */
@@ -224,45 +213,13 @@ public class WordWrapLineIterator
         }
         
         /**
-         * Retrieves the string that is contained within the current
-         * segment.
-         * 
-         * @return the string contained within the current segment.
+         * Makes the current segment the line returned by the iterator.
          */
-        public String getSegment() {
-            
-            StringBuilder sb = new StringBuilder();
-            for (int i = startIdx; i < endIdx; i++) {
-                
-                char ch = str.charAt(i);
-                if (ch == '\t') {
-                    
-                    for (int j = 0; j < tabExpansion; j++) {
-                        
-                        sb.append(' ');
-                    }
-                }
-                else if (displayLength(ch) > 0) {
-                    
-                    sb.append(ch);
-                }
-            }
-            
-            return sb.toString();
-        }
-        
-        public Object clone() {
-            
-            try {
-                
-                return super.clone();
-            }
-            catch (CloneNotSupportedException e) {
-                
-                /* CANNOT HAPPEN */
-            }
+        public void markLine() {
             
-            return null;
+            lineStart = startIdx;
+            lineEnd = endIdx;
+            hasSegment = true;
         }
         
         /**
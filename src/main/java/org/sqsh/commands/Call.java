@@ -18,10 +18,15 @@ package org.sqsh.commands;
 import static org.sqsh.options.ArgumentRequired.REQUIRED;
 import static org.sqsh.options.ArgumentRequired.NONE;
 
+import java.io.BufferedInputStream;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.sql.Types;
 import java.util.ArrayList;
 import java.util.List;
@@ -31,12 +36,15 @@ import org.sqsh.BufferManager;
 import org.sqsh.CallParameter;
 import org.sqsh.Command;
 import org.sqsh.DatabaseCommand;
+import org.sqsh.SQLConnectionContext;
 import org.sqsh.SQLRenderer;
 import org.sqsh.SQLTools;
 import org.sqsh.Session;
 import org.sqsh.SqshOptions;
 import org.sqsh.options.Argv;
 import org.sqsh.options.OptionProperty;
+import org.sqsh.signals.CancelingSignalHandler;
+import org.sqsh.signals.SignalManager;
 import org.sqsh.util.CSVReader;
 
 /**
@@ -59,6 +67,16 @@ public class Call
             description="Ignore headers in input file")
         public boolean hasHeaders = false;
         
+        @OptionProperty(
+            option='b', longOption="batch", arg=REQUIRED, argName="rows",
+            description="Execute rows of the input file in batches")
+        public int batchSize = 0;
+        
+        @OptionProperty(
+            option='c', longOption="commit", arg=REQUIRED, argName="rows",
+            description="Commit after every N rows of a batched input file")
+        public int commitInterval = 0;
+        
         @Argv(program="\\call", min=0)
         public List<String> arguments = new ArrayList<String>();
     }
@@ -115,12 +133,33 @@ public class Call
             }
         }
         
+        if (options.batchSize < 0 || options.commitInterval < 0) {
+            
+            session.err.println("The batch size and commit interval "
+                + "cannot be negative");
+            return 1;
+        }
+        
+        if (options.inputFile == null
+            && (options.batchSize > 0 || options.commitInterval > 0)) {
+            
+            session.err.println("--batch and --commit may only be used "
+                + "with --file");
+            return 1;
+        }
+        
         try {
             
             if (options.inputFile == null) {
                 
                 doNoInputFile(session, sql, params);
             }
+            else if (options.batchSize > 0 || options.commitInterval > 0) {
+                
+                return doBatchedInputFile(session, sql, options.inputFile,
+                    options.hasHeaders, params,
+                    Math.max(options.batchSize, 1), options.commitInterval);
+            }
             else {
                 
                 doInputFile(session, sql, options.inputFile,
@@ -204,23 +243,11 @@ public class Call
         
         try {
             
-            in = new FileInputStream(file);
+            in = new BufferedInputStream(new FileInputStream(file));
             CSVReader reader = new CSVReader(in, hasHeaders);
             
             String row[] = reader.next();
-            
-            /*
-             * If the user passed no parameter description to us, then
-             * we'll create them ourselves based upon the file provided.
-             */
-            if (params.length == 0) {
-                
-                params = new Parameter[row.length];
-                for (int i = 0; i < row.length; i++) {
-                    
-                    params[i] = new Parameter("S:#" + (i+1), i+1);
-                }
-            }
+            params = getFileParameters(params, row);
             
             while (row != null) {
                 
@@ -264,6 +291,280 @@ public class Call
         return rc;
     }
     
+    /**
+     * Called to execute the SQL buffer for each line of an input file,
+     * sending the lines to the server in batches rather than one at a
+     * time. No results are displayed; instead any lines that fail are
+     * reported, followed by a summary of the number of lines executed.
+     * 
+     * @param session The session context.
+     * @param sql The block of SQL to execute.
+     * @param file The input file.
+     * @param hasHeaders True if the first line of the file is a header.
+     * @param params Parameters to the block.
+     * @param batchSize The number of lines to execute at a time.
+     * @param commitInterval If greater than zero, the number of lines
+     *    after which the work is committed (at the end of the batch
+     *    that reaches it), with autocommit turned off until the file
+     *    has been processed.
+     * @return 0 if all of the lines executed, 1 otherwise.
+     * @throws SQLException Thrown if there is an exception other than
+     *    one caused by the execution of the lines.
+     */
+    private int doBatchedInputFile(Session session, String sql, String file,
+            boolean hasHeaders, Parameter []params, int batchSize,
+            int commitInterval)
+        throws SQLException {
+        
+        SQLRenderer sqlRenderer = session.getSQLRenderer();
+        Connection conn = session.getConnection();
+        SignalManager sigMan = SignalManager.getInstance();
+        CancelingSignalHandler sigHandler = null;
+        
+        if (conn == null) {
+            
+            throw new SQLException("No database connection has been established");
+        }
+        
+        SQLConnectionContext sqlContext = 
+            (SQLConnectionContext) session.getConnectionContext();
+        PreparedStatement statement = null;
+        InputStream in = null;
+        boolean restoreAutoCommit = false;
+        boolean isComplete = false;
+        
+        long startTime = System.currentTimeMillis();
+        int line = 0;
+        int batchStart = 1;
+        int batchCount = 0;
+        long executed = 0;
+        long failed = 0;
+        long uncommitted = 0;
+        int rc = 0;
+        
+        try {
+            
+            in = new BufferedInputStream(new FileInputStream(file));
+            CSVReader reader = new CSVReader(in, hasHeaders);
+            
+            String row[] = reader.next();
+            params = getFileParameters(params, row);
+            
+            for (Parameter param : params) {
+                
+                if (param.getDirection() != CallParameter.INPUT) {
+                    
+                    session.err.println("Statements with output "
+                        + "parameters cannot be executed in batches");
+                    return 1;
+                }
+            }
+            
+            if (commitInterval > 0 && conn.getAutoCommit()) {
+                
+                conn.setAutoCommit(false);
+                restoreAutoCommit = true;
+            }
+            
+            statement = (isCall(sql) ? sqlContext.prepareCall(sql)
+                : sqlContext.prepareStatement(sql));
+            sqlContext.setStatement(statement);
+            
+            sigHandler = new CancelingSignalHandler(statement);
+            sigMan.push(sigHandler);
+            
+            while (row != null && !sigHandler.isTriggered()) {
+                
+                ++line;
+                if (setParameters(session, line, row, params)) {
+                    
+                    sqlRenderer.bindParameters(statement, params);
+                    statement.addBatch();
+                    ++batchCount;
+                    
+                    row = reader.next();
+                }
+                else {
+                    
+                    /*
+                     * We stop at a line that cannot be bound, but the
+                     * lines before it are executed, just as they would
+                     * have been had they not been batched.
+                     */
+                    rc = 1;
+                    row = null;
+                }
+                
+                if (batchCount > 0 && (batchCount == batchSize || row == null)) {
+                    
+                    failed += executeBatch(session, statement, batchStart,
+                        batchCount);
+                    executed += batchCount;
+                    uncommitted += batchCount;
+                    batchStart = line + 1;
+                    batchCount = 0;
+                    
+                    if (commitInterval > 0 && uncommitted >= commitInterval) {
+                        
+                        conn.commit();
+                        uncommitted = 0;
+                    }
+                }
+            }
+            
+            if (sigHandler.isTriggered()) {
+                
+                session.err.println("Stopped after line #" + line
+                    + " at user request");
+                rc = 1;
+            }
+            else if (commitInterval > 0 && uncommitted > 0) {
+                
+                conn.commit();
+                uncommitted = 0;
+            }
+            
+            isComplete = true;
+        }
+        catch (IOException e) {
+            
+            session.err.println("I/O error while reading '"
+                + file + "': " + e.getMessage());
+            rc = 1;
+        }
+        finally {
+            
+            sqlContext.clearStatement();
+            
+            if (sigHandler != null) {
+                
+                sigMan.pop();
+            }
+            
+            sqlContext.releaseStatement(statement,
+                isComplete && !sigHandler.isTriggered());
+            
+            if (in != null) {
+                
+                try {
+                    
+                    in.close();
+                }
+                catch (IOException e) {
+                    
+                    /* IGNORED */
+                }
+            }
+            
+            /*
+             * Anything executed since the last commit is rolled back
+             * rather than being committed by the change of autocommit
+             * mode.
+             */
+            if (restoreAutoCommit) {
+                
+                if (uncommitted > 0) {
+                    
+                    session.err.println("Rolling back the "
+                        + uncommitted + " line(s) executed since the last "
+                        + "commit");
+                    try {
+                        
+                        conn.rollback();
+                    }
+                    catch (SQLException e) {
+                        
+                        SQLTools.printException(session, e);
+                    }
+                }
+                
+                conn.setAutoCommit(true);
+            }
+        }
+        
+        long elapsed = Math.max(System.currentTimeMillis() - startTime, 1L);
+        session.out.println(executed + " line(s) processed ("
+            + failed + " failed) in "
+            + String.format("%.3f", elapsed / 1000.0) + "s ("
+            + String.format("%.1f", executed * 1000.0 / elapsed)
+            + " lines/sec)");
+        
+        return (failed > 0 ? 1 : rc);
+    }
+    
+    /*
+     * Executes a batch, reporting each of the lines in it that failed.
+     * Drivers either stop at the first line of a batch that fails, in
+     * which case the lines that follow are not executed, or they carry
+     * on and mark the lines that failed.
+     */
+    private long executeBatch(Session session, PreparedStatement statement,
+            int firstLine, int count)
+        throws SQLException {
+        
+        try {
+            
+            statement.executeBatch();
+            SQLTools.printWarnings(session, statement);
+            return 0;
+        }
+        catch (BatchUpdateException e) {
+            
+            int []counts = e.getUpdateCounts();
+            int done = (counts == null ? 0 : counts.length);
+            long failed = 0;
+            
+            for (int i = 0; i < done; i++) {
+                
+                if (counts[i] == Statement.EXECUTE_FAILED) {
+                    
+                    session.err.println("Line #" + (firstLine + i)
+                        + " failed: " + e.getMessage());
+                    ++failed;
+                }
+            }
+            
+            if (done < count) {
+                
+                session.err.println("Line #" + (firstLine + done)
+                    + " failed: " + e.getMessage());
+                if (done + 2 == count) {
+                    
+                    session.err.println("Line #" + (firstLine + done + 1)
+                        + " was not executed");
+                }
+                else if (done + 2 < count) {
+                    
+                    session.err.println("Lines #" + (firstLine + done + 1)
+                        + " through #" + (firstLine + count - 1)
+                        + " were not executed");
+                }
+                failed += count - done;
+            }
+            
+            statement.clearBatch();
+            return failed;
+        }
+    }
+    
+    /*
+     * If the user passed no parameter description to us, then we'll
+     * create them ourselves based upon the first row of the file.
+     */
+    private Parameter[] getFileParameters(Parameter []params, String []row) {
+        
+        if (params.length == 0 && row != null) {
+            
+            params = new Parameter[row.length];
+            for (int i = 0; i < row.length; i++) {
+                
+                params[i] = new Parameter("S:#" + (i+1), i+1);
+            }
+        }
+        
+        return params;
+    }
+    
     private boolean setParameters(Session session, int line, String []row,
             Parameter []params)
         throws SQLException {
@@ -0,0 +1,470 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.commands;
+
+import static org.sqsh.options.ArgumentRequired.NONE;
+import static org.sqsh.options.ArgumentRequired.REQUIRED;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sqsh.BufferManager;
+import org.sqsh.Command;
+import org.sqsh.SQLRenderer;
+import org.sqsh.SQLTools;
+import org.sqsh.Session;
+import org.sqsh.SqshOptions;
+import org.sqsh.export.ExportOutput;
+import org.sqsh.export.ExportRenderer;
+import org.sqsh.export.PartitionedExport;
+import org.sqsh.options.Argv;
+import org.sqsh.options.OptionProperty;
+import org.sqsh.util.TimeUtils;
+
+/**
+ * Implements the \export command, which executes the current buffer and
+ * writes its results directly to one or more files.
+ */
+public class Export
+    extends Command {
+    
+    private static final int DEFAULT_PARTITIONS = 4;
+    
+    private static class Options
+        extends SqshOptions {
+        
+        @OptionProperty(
+            option='f', longOption="format", arg=REQUIRED, argName="format",
+            description="Format of the files (csv, tsv or json)")
+        public String format = "csv";
+        
+        @OptionProperty(
+            option='z', longOption="gzip", arg=NONE,
+            description="Compresses the files with gzip")
+        public boolean gzip = false;
+        
+        @OptionProperty(
+            option='r', longOption="max-rows", arg=REQUIRED, argName="rows",
+            description="Starts a new file after this many rows")
+        public long maxRows = 0L;
+        
+        @OptionProperty(
+            option='b', longOption="max-bytes", arg=REQUIRED, argName="size",
+            description="Starts a new file after this many bytes (e.g. 512M)")
+        public String maxBytes = null;
+        
+        @OptionProperty(
+            option='e', longOption="encoding", arg=REQUIRED, argName="charset",
+            description="Character set of the files (default UTF-8)")
+        public String encoding = "UTF-8";
+        
+        @OptionProperty(
+            option='H', longOption="no-headers", arg=NONE,
+            description="Omits the line of column names from CSV and TSV files")
+        public boolean noHeaders = false;
+        
+        @OptionProperty(
+            option='p', longOption="pipeline", arg=NONE,
+            description="Fetches rows in the background while they are written")
+        public boolean pipeline = false;
+        
+        @OptionProperty(
+            option='P', longOption="partition-by", arg=REQUIRED, argName="column",
+            description="Exports in parallel, partitioned by the values of column")
+        public String partitionBy = null;
+        
+        @OptionProperty(
+            option='n', longOption="partitions", arg=REQUIRED, argName="count",
+            description="Number of partitions, split between the column's MIN and MAX")
+        public int partitions = 0;
+        
+        @OptionProperty(
+            option='B', longOption="bounds", arg=REQUIRED, argName="values",
+            description="Comma separated boundaries between partitions")
+        public String bounds = null;
+        
+        @OptionProperty(
+            option='M', longOption="merge", arg=NONE,
+            description="Writes all partitions to the same file(s)")
+        public boolean merge = false;
+        
+        @Argv(program="\\export", min=1, max=1,
+            usage="[-f format] [-z] [-r rows] [-b size] [-e charset] [-H] [-p] "
+                + "[-P column [-n count | -B values] [-M]] file")
+        public List<String> arguments = new ArrayList<String>();
+    }
+    
+    @Override
+    public SqshOptions getOptions() {
+        
+        return new Options();
+    }
+    
+    @Override
+    public int execute (Session session, SqshOptions opts)
+        throws Exception {
+        
+        Options options = (Options) opts;
+        
+        if (session.getConnection() == null) {
+            
+            session.err.println("You are not currently connected to a "
+                + "database. Type 'help \\connect' for details");
+            return 1;
+        }
+        
+        ExportRenderer.Format format;
+        try {
+            
+            format = ExportRenderer.Format.valueOf(
+                options.format.toUpperCase());
+        }
+        catch (IllegalArgumentException e) {
+            
+            session.err.println("Invalid export format '" + options.format
+                + "'. Valid formats are csv, tsv and json");
+            return 1;
+        }
+        
+        long maxBytes = 0L;
+        if (options.maxBytes != null) {
+            
+            maxBytes = parseSize(options.maxBytes);
+            if (maxBytes <= 0) {
+                
+                session.err.println("Invalid size '" + options.maxBytes
+                    + "'. Sizes are a number of bytes, optionally followed "
+                    + "by K, M or G");
+                return 1;
+            }
+        }
+        
+        Charset charset;
+        try {
+            
+            charset = Charset.forName(options.encoding);
+        }
+        catch (IllegalArgumentException e) {
+            
+            session.err.println("Unsupported character set '"
+                + options.encoding + "'");
+            return 1;
+        }
+        
+        BufferManager bufferMan = session.getBufferManager();
+        String sql = bufferMan.getCurrent().toString();
+        String filename = options.arguments.get(0);
+        List<ExportOutput> outputs = new ArrayList<ExportOutput>();
+        List<ExportRenderer> renderers = new ArrayList<ExportRenderer>();
+        int returnCode = 0;
+        long start = System.nanoTime();
+        
+        try {
+            
+            if (options.partitionBy == null) {
+                
+                ExportOutput output = new ExportOutput(filename, charset,
+                    options.gzip, options.maxRows, maxBytes);
+                ExportRenderer renderer = new ExportRenderer(session,
+                    session.getRendererManager(), output, format,
+                    !options.noHeaders);
+                
+                outputs.add(output);
+                renderers.add(renderer);
+                returnCode = export(session, sql, renderer, options.pipeline);
+            }
+            else {
+            
+                returnCode = exportPartitioned(session, sql, options,
+                    format, charset, maxBytes, outputs, renderers);
+            }
+        }
+        finally {
+            
+            for (ExportOutput output : outputs) {
+            
+                try {
+                
+                    output.close();
+                }
+                catch (IOException e) {
+                    
+                    session.err.println("Failed to write export: "
+                        + e.getMessage());
+                    returnCode = 1;
+                }
+            }
+            
+            if (session.isInteractive()) {
+                
+                bufferMan.newBuffer();
+            }
+            else {
+                
+                bufferMan.getCurrent().clear();
+            }
+        }
+        
+        for (ExportRenderer renderer : renderers) {
+            
+            if (renderer.getError() != null) {
+                
+                session.err.println("Failed to write export: "
+                    + renderer.getError().getMessage());
+                returnCode = 1;
+                break;
+            }
+        }
+        
+        if (!outputs.isEmpty()) {
+            
+            report(session, outputs, System.nanoTime() - start);
+        }
+        
+        return returnCode;
+    }
+    
+    /**
+     * Exports the results of a query using the session's connection.
+     */
+    private int export(Session session, String sql, ExportRenderer renderer,
+            boolean pipeline) {
+        
+        SQLRenderer sqlRenderer = session.getSQLRenderer();
+        
+        /*
+         * An export is of all of the rows, regardless of how many would
+         * be displayed.
+         */
+        int origMaxRows = sqlRenderer.getMaxRows();
+        boolean origPipelined = sqlRenderer.isPipelined();
+        
+        sqlRenderer.setMaxRows(0);
+        if (pipeline) {
+            
+            sqlRenderer.setPipelined(true);
+        }
+        
+        try {
+            
+            return (sqlRenderer.execute(renderer, session, sql) ? 0 : 1);
+        }
+        catch (SQLException e) {
+            
+            SQLTools.printException(session, e);
+            return 1;
+        }
+        finally {
+            
+            sqlRenderer.setMaxRows(origMaxRows);
+            sqlRenderer.setPipelined(origPipelined);
+        }
+    }
+    
+    /**
+     * Exports the results of a query in partitions, each fetched through
+     * a connection of its own.
+     */
+    private int exportPartitioned(final Session session, String sql,
+            final Options options, final ExportRenderer.Format format,
+            final Charset charset, final long maxBytes,
+            final List<ExportOutput> outputs,
+            final List<ExportRenderer> renderers) {
+        
+        PartitionedExport export = new PartitionedExport(session, sql,
+            options.partitionBy);
+        
+        try {
+            
+            if (options.bounds != null) {
+                
+                List<String> bounds = new ArrayList<String>();
+                for (String bound : options.bounds.split(",")) {
+                    
+                    bounds.add(bound.trim());
+                }
+                
+                export.setBounds(bounds);
+            }
+            else {
+                
+                export.computeBounds(options.partitions > 0
+                    ? options.partitions : DEFAULT_PARTITIONS);
+            }
+        }
+        catch (SQLException e) {
+            
+            SQLTools.printException(session, e);
+            return 1;
+        }
+        
+        final String filename = options.arguments.get(0);
+        final int nParts = export.getPartitionCount();
+        if (options.merge) {
+            
+            outputs.add(new ExportOutput(filename, charset, options.gzip,
+                options.maxRows, maxBytes));
+        }
+        
+        PartitionedExport.RendererFactory factory =
+            new PartitionedExport.RendererFactory() {
+                
+                public ExportRenderer create(int partition) {
+                    
+                    ExportOutput output;
+                    if (options.merge) {
+                        
+                        output = outputs.get(0);
+                    }
+                    else {
+                        
+                        output = new ExportOutput(
+                            ExportOutput.insertBeforeExtension(filename,
+                                String.format(".p%0" + (nParts < 100 ? 2 : 3)
+                                    + "d", partition + 1)),
+                            charset, options.gzip, options.maxRows, maxBytes);
+                        outputs.add(output);
+                    }
+                    
+                    ExportRenderer renderer = new ExportRenderer(session,
+                        session.getRendererManager(), output, format,
+                        !options.noHeaders);
+                    renderers.add(renderer);
+                    return renderer;
+                }
+            };
+        
+        try {
+            
+            if (!export.run(factory)) {
+                
+                return 1;
+            }
+        }
+        catch (SQLException e) {
+            
+            SQLTools.printException(session, e);
+            return 1;
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Displays how much was exported, and how quickly.
+     */
+    private void report(Session session, List<ExportOutput> outputs,
+            long nanos) {
+        
+        double secs = Math.max(nanos, 1L) / 1000000000.0;
+        long rows = 0L;
+        long bytes = 0L;
+        long fileBytes = 0L;
+        List<File> files = new ArrayList<File>();
+        
+        for (ExportOutput output : outputs) {
+            
+            rows += output.getRows();
+            bytes += output.getBytes();
+            fileBytes += output.getFileBytes();
+            files.addAll(output.getFiles());
+        }
+        
+        StringBuilder sb = new StringBuilder();
+        sb.append(rows).append(" rows (")
+            .append(sizeString(bytes)).append(") exported to ")
+            .append(files.size() == 1 ? files.get(0).getPath()
+                : files.size() + " files")
+            .append(" in ")
+            .append(TimeUtils.nanosToDurationString(nanos))
+            .append(": ")
+            .append((long) (rows / secs)).append(" rows/sec, ")
+            .append(sizeString((long) (bytes / secs)))
+            .append("/sec");
+        
+        if (fileBytes != bytes) {
+            
+            sb.append(" (").append(sizeString(fileBytes))
+                .append(" on disk)");
+        }
+        
+        session.out.println(sb);
+    }
+    
+    /**
+     * Parses a size such as "1000", "64K", "512M" or "2G".
+     *
+     * @return The size in bytes, or -1 if it is not valid.
+     */
+    private static long parseSize(String str) {
+        
+        str = str.trim().toUpperCase();
+        if (str.endsWith("B")) {
+            
+            str = str.substring(0, str.length() - 1);
+        }
+        
+        long multiplier = 1L;
+        if (str.endsWith("K")) {
+            
+            multiplier = 1024L;
+        }
+        else if (str.endsWith("M")) {
+            
+            multiplier = 1024L * 1024L;
+        }
+        else if (str.endsWith("G")) {
+            
+            multiplier = 1024L * 1024L * 1024L;
+        }
+        
+        if (multiplier > 1L) {
+            
+            str = str.substring(0, str.length() - 1);
+        }
+        
+        try {
+            
+            return Long.parseLong(str.trim()) * multiplier;
+        }
+        catch (NumberFormatException e) {
+            
+            return -1L;
+        }
+    }
+    
+    private static String sizeString(long bytes) {
+        
+        if (bytes < 1024L) {
+            
+            return bytes + " bytes";
+        }
+        if (bytes < 1024L * 1024L) {
+            
+            return String.format("%.1fKB", bytes / 1024.0);
+        }
+        if (bytes < 1024L * 1024L * 1024L) {
+            
+            return String.format("%.1fMB", bytes / (1024.0 * 1024.0));
+        }
+        
+        return String.format("%.2fGB", bytes / (1024.0 * 1024.0 * 1024.0));
+    }
+}
@@ -75,8 +75,13 @@ public class Go
             description="Specifies number of seconds before the query should timeout")
         public int queryTimeout = 0;
         
+        @OptionProperty(
+            option='p', longOption="pipeline", arg=NONE,
+            description="Fetches rows in the background while they are displayed")
+        public boolean pipeline = false;
+        
         @Argv(program="\\go", min=0, max=0,
-            usage="[-m style] [-i table] [-H] [-F]")
+            usage="[-m style] [-i table] [-H] [-F] [-p]")
         public List<String> arguments = new ArrayList<String>();
     }
     
@@ -141,6 +146,7 @@ public class Go
         boolean origHeaders = renderMan.isShowHeaders();
         boolean origFooters = renderMan.isShowFooters();
         int origTimeout = conn.getQueryTimeout();
+        boolean origPipelined = sqlRenderer.isPipelined();
         
         if (options.toggleFooters) {
             
@@ -150,6 +156,10 @@ public class Go
             
             renderMan.setShowHeaders(!origHeaders);
         }
+        if (options.pipeline) {
+            
+            sqlRenderer.setPipelined(true);
+        }
 
         long startTime = 0;
         if (options.repeat > 1) {
@@ -224,6 +234,7 @@ public class Go
             
             renderMan.setShowHeaders(origHeaders);
             renderMan.setShowFooters(origFooters);
+            sqlRenderer.setPipelined(origPipelined);
         }
 
         if (options.repeat > 1) {
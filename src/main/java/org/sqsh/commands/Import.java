@@ -0,0 +1,266 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.commands;
+
+import static org.sqsh.options.ArgumentRequired.NONE;
+import static org.sqsh.options.ArgumentRequired.REQUIRED;
+
+import java.io.BufferedInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sqsh.Command;
+import org.sqsh.SQLTools;
+import org.sqsh.Session;
+import org.sqsh.SqshOptions;
+import org.sqsh.export.DumpReader;
+import org.sqsh.options.Argv;
+import org.sqsh.options.OptionProperty;
+import org.sqsh.signals.CancelingSignalHandler;
+import org.sqsh.signals.SignalManager;
+import org.sqsh.util.TimeUtils;
+
+/**
+ * Implements the \import command, which loads a dump written with the
+ * "dump" display style into a table, binding each value with its native
+ * type.
+ */
+public class Import
+    extends Command {
+    
+    private static class Options
+        extends SqshOptions {
+        
+        @OptionProperty(
+            option='s', longOption="target-session", arg=REQUIRED, argName="id",
+            description="Session in which the rows are inserted")
+        public int sessionId = -1;
+        
+        @OptionProperty(
+            option='b', longOption="batch-size", arg=REQUIRED, argName="rows",
+            description="Number of rows sent to the server at a time")
+        public int batchSize = 1000;
+        
+        @OptionProperty(
+            option='n', longOption="names", arg=NONE,
+            description="Names the columns being inserted, using the "
+                + "names in the dump")
+        public boolean useNames = false;
+        
+        @Argv(program="\\import", min=2, max=2,
+            usage="[-s target-session] [-b batch-size] [-n] file table_name")
+        public List<String> arguments = new ArrayList<String>();
+    }
+    
+    @Override
+    public SqshOptions getOptions() {
+        
+        return new Options();
+    }
+    
+    @Override
+    public int execute (Session session, SqshOptions opts)
+        throws Exception {
+        
+        Options options = (Options) opts;
+        String filename = options.arguments.get(0);
+        String table = options.arguments.get(1);
+        Session targetSession = session;
+        
+        if (options.sessionId > 0) {
+            
+            targetSession = session.getContext().getSession(
+                options.sessionId);
+            if (targetSession == null) {
+                
+                session.err.println("The provided session id '"
+                    + options.sessionId + "' is not valid. Use \\session "
+                    + "to view valid session ids");
+                return 1;
+            }
+        }
+        
+        Connection conn = targetSession.getConnection();
+        if (conn == null) {
+            
+            session.err.println("Session " + targetSession.getId()
+                + " is not currently connected to a server.");
+            return 1;
+        }
+        
+        if (options.batchSize < 1) {
+            
+            session.err.println("The batch size must be at least 1");
+            return 1;
+        }
+        
+        InputStream in = null;
+        long start = System.nanoTime();
+        long rows = 0L;
+        
+        try {
+            
+            in = new BufferedInputStream(new FileInputStream(filename),
+                64 * 1024);
+            DumpReader reader = new DumpReader(in);
+            
+            while (reader.nextResult()) {
+                
+                long count = load(session, conn, reader, table,
+                    options.batchSize, options.useNames);
+                if (count < 0) {
+                    
+                    session.err.println("Import cancelled after "
+                        + (rows - 1 - count) + " rows");
+                    return 1;
+                }
+                
+                rows += count;
+            }
+        }
+        catch (IOException e) {
+            
+            session.err.println("Failed to read '" + filename + "': "
+                + e.getMessage());
+            return 1;
+        }
+        catch (SQLException e) {
+            
+            SQLTools.printException(session, e);
+            return 1;
+        }
+        finally {
+            
+            if (in != null) {
+                
+                try {
+                    
+                    in.close();
+                }
+                catch (IOException e) {
+                    
+                    /* IGNORED */
+                }
+            }
+        }
+        
+        long nanos = System.nanoTime() - start;
+        double secs = Math.max(nanos, 1L) / 1000000000.0;
+        
+        session.out.println(rows + " row" + (rows == 1 ? "" : "s")
+            + " imported into " + table + " in "
+            + TimeUtils.nanosToDurationString(nanos) + ": "
+            + (long) (rows / secs) + " rows/sec");
+        
+        return 0;
+    }
+    
+    /**
+     * Inserts the rows of the current result set of a dump.
+     *
+     * @return The number of rows inserted or, if the import was
+     *   cancelled, -1 minus the number of rows inserted.
+     */
+    private long load(Session session, Connection conn, DumpReader reader,
+            String table, int batchSize, boolean useNames)
+        throws SQLException, IOException {
+        
+        int nCols = reader.getColumnCount();
+        StringBuilder sql = new StringBuilder();
+        
+        sql.append("INSERT INTO ").append(table);
+        if (useNames) {
+            
+            sql.append(" (");
+            for (int i = 0; i < nCols; i++) {
+                
+                if (i > 0) {
+                    
+                    sql.append(", ");
+                }
+                sql.append(SQLTools.quoteIdentifier(reader.getColumnName(i)));
+            }
+            sql.append(")");
+        }
+        
+        sql.append(" VALUES (");
+        for (int i = 0; i < nCols; i++) {
+            
+            sql.append(i > 0 ? ", ?" : "?");
+        }
+        sql.append(")");
+        
+        PreparedStatement statement = conn.prepareStatement(sql.toString());
+        SignalManager sigMan = SignalManager.getInstance();
+        CancelingSignalHandler sigHandler =
+            new CancelingSignalHandler(statement);
+        long rows = 0L;
+        int batched = 0;
+        
+        sigMan.push(sigHandler);
+        
+        try {
+            
+            while (reader.next()) {
+                
+                reader.bind(statement, 1);
+                statement.addBatch();
+                
+                if (++batched == batchSize) {
+                    
+                    statement.executeBatch();
+                    rows += batched;
+                    batched = 0;
+                    
+                    if (sigHandler.isTriggered()) {
+                        
+                        return -1L - rows;
+                    }
+                }
+            }
+            
+            if (batched > 0) {
+                
+                statement.executeBatch();
+                rows += batched;
+            }
+            
+            SQLTools.printWarnings(session, statement);
+        }
+        catch (SQLException e) {
+            
+            if (sigHandler.isTriggered()) {
+                
+                return -1L - rows;
+            }
+            
+            throw e;
+        }
+        finally {
+            
+            sigMan.pop();
+            SQLTools.close(statement);
+        }
+        
+        return rows;
+    }
+}
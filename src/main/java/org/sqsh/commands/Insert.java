@@ -53,6 +53,12 @@ public class Insert
             description="Number of rows per batch")
          public int batchSize = 50;
 
+        @OptionProperty(
+            option='c', longOption="commit", arg=REQUIRED, argName="rows",
+            description="Commit every so many rows inserted in the "
+                + "target session")
+        public int commitInterval = 0;
+        
         @OptionProperty(
             option='t', longOption="terminator", arg=REQUIRED, 
             argName="terminator", 
@@ -66,8 +72,8 @@ public class Insert
          public boolean multiRowInsert = false;
         
         @Argv(program="\\insert", min=1, max=1,
-            usage="[-s target-session] [-b batch-size] [-t terminator] "
-                  + "table_name")
+            usage="[-s target-session] [-b batch-size] [-c rows] "
+                  + "[-t terminator] table_name")
         public List<String> arguments = new ArrayList<String>();
     }
     
@@ -93,6 +99,12 @@ public class Insert
             return 1;
         }
         
+        if (options.batchSize < 1) {
+            
+            session.err.println("The batch size must be at least 1");
+            return 1;
+        }
+        
         String table = options.arguments.get(0);
         Connection targetConnection = null;
         
@@ -130,6 +142,7 @@ public class Insert
         
         renderer.setTable(table);
         renderer.setBatchSize(options.batchSize);
+        renderer.setCommitInterval(options.commitInterval);
         renderer.setConnection(targetConnection);
         renderer.setBatchTerminator(options.batchTerminator);
         renderer.setMultiRowInsert(options.multiRowInsert);
@@ -155,14 +168,19 @@ public class Insert
             bufferMan.getCurrent().clear();
         }
         
+        boolean isComplete = false;
         try {
             
-            sqlRenderer.execute(renderer, session, sql);
+            isComplete = sqlRenderer.execute(renderer, session, sql);
         }
         catch (SQLException e) {
             
             SQLTools.printException(session, e);
         }
+        finally {
+            
+            renderer.finish(isComplete);
+        }
         
         return 0;
     }
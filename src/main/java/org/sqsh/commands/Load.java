@@ -0,0 +1,1237 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.commands;
+
+import static org.sqsh.options.ArgumentRequired.NONE;
+import static org.sqsh.options.ArgumentRequired.REQUIRED;
+
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.Charset;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.sqsh.CannotSetValueError;
+import org.sqsh.Command;
+import org.sqsh.ConnectionContext;
+import org.sqsh.ConnectionDescriptor;
+import org.sqsh.DatabaseCommand;
+import org.sqsh.SQLConnectionContext;
+import org.sqsh.SQLTools;
+import org.sqsh.Session;
+import org.sqsh.SqshOptions;
+import org.sqsh.export.DumpFormat;
+import org.sqsh.options.Argv;
+import org.sqsh.options.OptionProperty;
+import org.sqsh.signals.FlaggingSignalHandler;
+import org.sqsh.signals.Sig;
+import org.sqsh.signals.SignalManager;
+import org.sqsh.util.CSVDialect;
+import org.sqsh.util.CSVReader;
+import org.sqsh.util.CSVWriter;
+import org.sqsh.util.TimeUtils;
+
+/**
+ * Implements the \load command, which loads a file of delimited values
+ * into a table. The file is parsed on the thread running the command,
+ * and its rows are handed, a batch at a time, to one or more loaders,
+ * each of which converts the text of the values to the types of the
+ * columns of the table and inserts them over a connection of its own
+ * with a batched prepared INSERT. Rows that cannot be inserted are
+ * rejected (and, optionally, written to a file) rather than stopping
+ * the load.
+ */
+public class Load
+    extends Command
+    implements DatabaseCommand {
+    
+    /*
+     * How often, in milliseconds, progress is displayed.
+     */
+    private static final long PROGRESS_INTERVAL = 1000L;
+    
+    /*
+     * The number of rejected rows whose reason is displayed.
+     */
+    private static final int MAX_SHOWN = 10;
+    
+    /*
+     * How many consecutive rows the server may refuse, for a reason
+     * other than the data in them, before the load fails.
+     */
+    private static final int MAX_REFUSED = 100;
+    
+    private static class Options
+        extends SqshOptions {
+        
+        @OptionProperty(
+            option='H', longOption="no-headers", arg=NONE,
+            description="The file has no line of column names")
+        public boolean noHeaders = false;
+        
+        @OptionProperty(
+            option='d', longOption="delimiter", arg=REQUIRED, argName="char",
+            description="Character between fields (default ',')")
+        public String delimiter = ",";
+        
+        @OptionProperty(
+            option='e', longOption="encoding", arg=REQUIRED, argName="charset",
+            description="Character set of the file (default UTF-8)")
+        public String encoding = "UTF-8";
+        
+        @OptionProperty(
+            option='b', longOption="batch-size", arg=REQUIRED, argName="rows",
+            description="Number of rows sent to the server at a time")
+        public int batchSize = 1000;
+        
+        @OptionProperty(
+            option='c', longOption="commit", arg=REQUIRED, argName="rows",
+            description="Commit every so many rows")
+        public int commitInterval = 0;
+        
+        @OptionProperty(
+            option='n', longOption="connections", arg=REQUIRED, argName="count",
+            description="Number of connections to load over in parallel")
+        public int connections = 1;
+        
+        @OptionProperty(
+            option='r', longOption="reject-file", arg=REQUIRED, argName="file",
+            description="File to which rejected rows are written")
+        public String rejectFile = null;
+        
+        @Argv(program="\\load", min=2, max=2,
+            usage="[-H] [-d delimiter] [-e charset] [-b batch-size] "
+                + "[-c rows] [-n connections] [-r reject-file] file table_name")
+        public List<String> arguments = new ArrayList<String>();
+    }
+    
+    @Override
+    public SqshOptions getOptions() {
+        
+        return new Options();
+    }
+    
+    @Override
+    public int execute (Session session, SqshOptions opts)
+        throws Exception {
+        
+        Options options = (Options) opts;
+        String filename = options.arguments.get(0);
+        String table = options.arguments.get(1);
+        
+        if (options.batchSize < 1) {
+            
+            session.err.println("The batch size must be at least 1");
+            return 1;
+        }
+        
+        if (options.connections < 1) {
+            
+            session.err.println("The number of connections must be at "
+                + "least 1");
+            return 1;
+        }
+        
+        CSVDialect dialect = CSVDialect.forName(CSVDialect.CSV);
+        try {
+            
+            dialect.setDelimiter(options.delimiter);
+        }
+        catch (CannotSetValueError e) {
+            
+            session.err.println(e.getMessage());
+            return 1;
+        }
+        
+        Charset charset;
+        try {
+            
+            charset = Charset.forName(options.encoding);
+        }
+        catch (IllegalArgumentException e) {
+            
+            session.err.println("Unsupported character set '"
+                + options.encoding + "'");
+            return 1;
+        }
+        
+        ConnectionDescriptor connDesc = null;
+        if (options.connections > 1) {
+            
+            ConnectionContext ctx = session.getConnectionContext();
+            if (ctx instanceof SQLConnectionContext) {
+                
+                connDesc = ((SQLConnectionContext) ctx)
+                    .getConnectionDescriptor();
+            }
+            
+            if (connDesc == null) {
+                
+                session.err.println("The session's connection cannot be "
+                    + "duplicated to load in parallel");
+                return 1;
+            }
+        }
+        
+        Reader in = null;
+        Loader loader = new Loader(session, table, options.batchSize,
+            options.commitInterval);
+        
+        try {
+            
+            in = new InputStreamReader(new FileInputStream(filename),
+                charset);
+            CSVReader reader = new CSVReader(in, !options.noHeaders,
+                dialect.getDelimiterChar());
+            
+            if (options.rejectFile != null) {
+                
+                loader.openRejects(options.rejectFile, charset, dialect,
+                    reader.getHeaders());
+            }
+            
+            return loader.run(reader, options.connections, connDesc);
+        }
+        catch (IOException e) {
+            
+            session.err.println("Failed to read '" + filename + "': "
+                + e.getMessage());
+            return 1;
+        }
+        catch (SQLException e) {
+            
+            SQLTools.printException(session, e);
+            return 1;
+        }
+        finally {
+            
+            loader.closeRejects();
+            
+            if (in != null) {
+                
+                try {
+                    
+                    in.close();
+                }
+                catch (IOException e) {
+                    
+                    /* IGNORED */
+                }
+            }
+        }
+    }
+    
+    /**
+     * Converts the text of a value to the type of the parameter it is
+     * bound to, and binds it.
+     *
+     * @throws IllegalArgumentException If the text is not a value of
+     *   the type.
+     */
+    private static void bind(PreparedStatement statement, int param,
+            int type, int kind, String text)
+        throws SQLException {
+        
+        if (text == null) {
+            
+            statement.setNull(param, type);
+            return;
+        }
+        
+        switch (kind) {
+            
+            case DumpFormat.KIND_BOOLEAN:
+                statement.setBoolean(param, parseBoolean(text.trim()));
+                break;
+            
+            case DumpFormat.KIND_LONG:
+                statement.setLong(param, Long.parseLong(text.trim()));
+                break;
+            
+            case DumpFormat.KIND_FLOAT:
+                statement.setFloat(param, Float.parseFloat(text));
+                break;
+            
+            case DumpFormat.KIND_DOUBLE:
+                statement.setDouble(param, Double.parseDouble(text));
+                break;
+            
+            case DumpFormat.KIND_DECIMAL:
+                statement.setBigDecimal(param, new BigDecimal(text.trim()));
+                break;
+            
+            case DumpFormat.KIND_DATE:
+                statement.setDate(param, Date.valueOf(text.trim()));
+                break;
+            
+            case DumpFormat.KIND_TIME:
+                statement.setTime(param, Time.valueOf(text.trim()));
+                break;
+            
+            case DumpFormat.KIND_TIMESTAMP:
+                statement.setTimestamp(param, parseTimestamp(text.trim()));
+                break;
+            
+            case DumpFormat.KIND_BYTES:
+                statement.setBytes(param, parseHex(text.trim()));
+                break;
+            
+            default:
+                statement.setString(param, text);
+                break;
+        }
+    }
+    
+    private static boolean parseBoolean(String text) {
+        
+        if (text.equalsIgnoreCase("true") || text.equals("1")
+            || text.equalsIgnoreCase("t") || text.equalsIgnoreCase("yes")
+            || text.equalsIgnoreCase("y")) {
+            
+            return true;
+        }
+        
+        if (text.equalsIgnoreCase("false") || text.equals("0")
+            || text.equalsIgnoreCase("f") || text.equalsIgnoreCase("no")
+            || text.equalsIgnoreCase("n")) {
+            
+            return false;
+        }
+        
+        throw new IllegalArgumentException();
+    }
+    
+    /*
+     * Accepts a date on its own, and a 'T' between the date and the time,
+     * as well as the JDBC escape format.
+     */
+    private static Timestamp parseTimestamp(String text) {
+        
+        if (text.length() == 10) {
+            
+            text = text + " 00:00:00";
+        }
+        else if (text.length() > 10 && text.charAt(10) == 'T') {
+            
+            text = text.substring(0, 10) + ' ' + text.substring(11);
+        }
+        
+        return Timestamp.valueOf(text);
+    }
+    
+    /*
+     * Binary values are written as hex digits, optionally following 0x.
+     */
+    private static byte[] parseHex(String text) {
+        
+        int start = (text.startsWith("0x") || text.startsWith("0X") ? 2 : 0);
+        int len = text.length() - start;
+        if ((len & 1) != 0) {
+            
+            throw new IllegalArgumentException();
+        }
+        
+        byte []bytes = new byte[len / 2];
+        for (int i = 0; i < bytes.length; i++) {
+            
+            int hi = Character.digit(text.charAt(start + i * 2), 16);
+            int lo = Character.digit(text.charAt(start + i * 2 + 1), 16);
+            if (hi < 0 || lo < 0) {
+                
+                throw new IllegalArgumentException();
+            }
+            
+            bytes[i] = (byte) ((hi << 4) | lo);
+        }
+        
+        return bytes;
+    }
+    
+    /**
+     * The rows of the file handed to a worker at a time.
+     */
+    private static class Batch {
+        
+        private final String [][]rows;
+        private final long firstLine;
+        private int count = 0;
+        
+        public Batch (int size, long firstLine) {
+            
+            this.rows = new String[size][];
+            this.firstLine = firstLine;
+        }
+    }
+    
+    /*
+     * Handed to a worker to tell it that there are no more batches.
+     */
+    private static final Batch END = new Batch(0, 0L);
+    
+    /**
+     * The state of one execution of the command.
+     */
+    private static class Loader {
+        
+        private final Session session;
+        private final String table;
+        private final int batchSize;
+        private final int commitInterval;
+        
+        /*
+         * The columns being inserted, and their types.
+         */
+        private String []names;
+        private int []types;
+        private int []kinds;
+        private String sql;
+        
+        private BlockingQueue<Batch> queue;
+        private Worker []workers;
+        
+        private final AtomicLong loaded = new AtomicLong();
+        private long rejected = 0L;
+        private List<String> shown = new ArrayList<String>();
+        private Writer rejectOut = null;
+        private CSVWriter rejectCsv = null;
+        
+        private volatile boolean cancelled = false;
+        private volatile Throwable failure = null;
+        
+        public Loader (Session session, String table, int batchSize,
+                int commitInterval) {
+            
+            this.session = session;
+            this.table = table;
+            this.batchSize = batchSize;
+            this.commitInterval = commitInterval;
+        }
+        
+        /**
+         * Opens the file to which rejected rows are written, in the same
+         * form as the file being loaded.
+         */
+        public void openRejects(String filename, Charset charset,
+                CSVDialect dialect, String []headers)
+            throws IOException {
+            
+            rejectOut = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(filename), charset), 64 * 1024);
+            rejectCsv = new CSVWriter(dialect);
+            
+            if (headers != null) {
+                
+                writeReject(headers);
+            }
+        }
+        
+        public void closeRejects() {
+            
+            if (rejectOut != null) {
+                
+                try {
+                    
+                    rejectOut.close();
+                }
+                catch (IOException e) {
+                    
+                    session.err.println("Failed to write rejected rows: "
+                        + e.getMessage());
+                }
+                
+                rejectOut = null;
+            }
+        }
+        
+        /**
+         * Loads the file.
+         *
+         * @param reader The file.
+         * @param nConnections The number of connections to load over.
+         * @param connDesc Describes the connections after the first,
+         *   which is the session's own.
+         * @return 0 if every row was loaded, 1 otherwise.
+         */
+        public int run(CSVReader reader, int nConnections,
+                ConnectionDescriptor connDesc)
+            throws SQLException, IOException {
+            
+            long start = System.nanoTime();
+            long line = (reader.getHeaders() == null ? 1L : 2L);
+            String []row = reader.next();
+            
+            describe(session.getConnection(), reader.getHeaders(), row);
+            
+            queue = new ArrayBlockingQueue<Batch>(nConnections * 2);
+            workers = new Worker[nConnections];
+            
+            /*
+             * Connecting can prompt for input, so is done one at a time
+             * before anything else starts.
+             */
+            try {
+                
+                for (int i = 0; i < nConnections; i++) {
+                    
+                    SQLConnectionContext ctx = (i == 0 ? null
+                        : session.getDriverManager().connect(session, connDesc));
+                    workers[i] = new Worker(i, ctx,
+                        (ctx == null ? session.getConnection()
+                            : ctx.getConnection()));
+                }
+            }
+            catch (SQLException e) {
+                
+                close();
+                throw e;
+            }
+            
+            SignalManager sigMan = SignalManager.getInstance();
+            CancelHandler sigHandler = new CancelHandler();
+            boolean progress = session.isInteractive();
+            boolean isShown = false;
+            long lastProgress = System.currentTimeMillis();
+            IOException readError = null;
+            
+            sigMan.push(sigHandler);
+            
+            try {
+                
+                for (Worker worker : workers) {
+                    
+                    worker.start();
+                }
+                
+                try {
+                    
+                    Batch batch = new Batch(batchSize, line);
+                    while (row != null && !isStopped()) {
+                        
+                        batch.rows[batch.count++] = row;
+                        ++line;
+                        
+                        if (batch.count == batchSize) {
+                            
+                            queue.put(batch);
+                            batch = new Batch(batchSize, line);
+                            
+                            long now = System.currentTimeMillis();
+                            if (progress
+                                && now - lastProgress >= PROGRESS_INTERVAL) {
+                                
+                                showProgress();
+                                isShown = true;
+                                lastProgress = now;
+                            }
+                        }
+                        
+                        row = reader.next();
+                    }
+                    
+                    if (batch.count > 0 && !isStopped()) {
+                        
+                        queue.put(batch);
+                    }
+                }
+                catch (IOException e) {
+                    
+                    readError = e;
+                    cancel();
+                }
+                
+                for (int i = 0; i < workers.length; i++) {
+                    
+                    queue.put(END);
+                }
+                
+                for (Worker worker : workers) {
+                    
+                    while (worker.isAlive()) {
+                        
+                        worker.join(PROGRESS_INTERVAL);
+                        if (progress && worker.isAlive()) {
+                            
+                            showProgress();
+                            isShown = true;
+                        }
+                    }
+                }
+            }
+            catch (InterruptedException e) {
+                
+                cancel();
+            }
+            finally {
+                
+                sigMan.pop();
+                close();
+                
+                if (isShown) {
+                    
+                    session.err.println();
+                }
+            }
+            
+            if (readError != null) {
+                
+                throw readError;
+            }
+            
+            for (String message : shown) {
+                
+                session.err.println(message);
+            }
+            if (rejected > shown.size()) {
+                
+                session.err.println("(" + (rejected - shown.size())
+                    + " more rejected rows are not shown)");
+            }
+            
+            if (failure != null) {
+                
+                if (failure instanceof SQLException) {
+                    
+                    SQLTools.printException(session, (SQLException) failure);
+                }
+                else {
+                    
+                    session.err.println("Load failed: " + failure.getMessage());
+                }
+            }
+            
+            long rows = loaded.get();
+            long nanos = System.nanoTime() - start;
+            double secs = Math.max(nanos, 1L) / 1000000000.0;
+            
+            session.out.println(rows + " row" + (rows == 1 ? "" : "s")
+                + " loaded into " + table + " (" + rejected + " rejected) in "
+                + TimeUtils.nanosToDurationString(nanos) + ": "
+                + (long) (rows / secs) + " rows/sec");
+            
+            return (isStopped() || rejected > 0 ? 1 : 0);
+        }
+        
+        /*
+         * Works out the columns being inserted and their types. The types
+         * come from the description of the table, if the driver can
+         * provide one, and otherwise from the description of the
+         * parameters of the INSERT.
+         */
+        private void describe(Connection conn, String []headers,
+                String []firstRow)
+            throws SQLException {
+            
+            List<String> tableNames = new ArrayList<String>();
+            List<Integer> tableTypes = new ArrayList<Integer>();
+            getColumns(conn, tableNames, tableTypes);
+            
+            int nCols;
+            if (headers != null) {
+                
+                nCols = headers.length;
+            }
+            else if (firstRow != null) {
+                
+                nCols = firstRow.length;
+            }
+            else {
+                
+                nCols = tableNames.size();
+            }
+            
+            names = new String[nCols];
+            types = new int[nCols];
+            kinds = new int[nCols];
+            
+            for (int i = 0; i < nCols; i++) {
+                
+                int idx = -1;
+                if (headers != null) {
+                    
+                    if (headers[i] == null) {
+                        
+                        throw new SQLException("Column " + (i + 1)
+                            + " of the file has no name");
+                    }
+                    
+                    for (int j = 0; idx < 0 && j < tableNames.size(); j++) {
+                        
+                        if (tableNames.get(j).equalsIgnoreCase(headers[i])) {
+                            
+                            idx = j;
+                        }
+                    }
+                    
+                    if (idx < 0 && !tableNames.isEmpty()) {
+                        
+                        throw new SQLException("Column '" + headers[i]
+                            + "' of the file is not a column of " + table);
+                    }
+                    
+                    names[i] = (idx < 0 ? headers[i] : tableNames.get(idx));
+                }
+                else if (!tableNames.isEmpty()) {
+                    
+                    if (i >= tableNames.size()) {
+                        
+                        throw new SQLException("The file has " + nCols
+                            + " columns, but " + table + " only has "
+                            + tableNames.size());
+                    }
+                    
+                    idx = i;
+                    names[i] = tableNames.get(i);
+                }
+                
+                types[i] = (idx < 0 ? Types.NULL : tableTypes.get(idx));
+            }
+            
+            StringBuilder sb = new StringBuilder();
+            sb.append("INSERT INTO ").append(table);
+            if (names.length > 0 && names[0] != null) {
+                
+                sb.append(" (");
+                for (int i = 0; i < nCols; i++) {
+                    
+                    sb.append(i > 0 ? ", " : "")
+                      .append(SQLTools.quoteIdentifier(names[i]));
+                }
+                sb.append(")");
+            }
+            
+            sb.append(" VALUES (");
+            for (int i = 0; i < nCols; i++) {
+                
+                sb.append(i > 0 ? ", ?" : "?");
+            }
+            sb.append(")");
+            sql = sb.toString();
+            
+            if (tableNames.isEmpty()) {
+                
+                describeParameters(conn);
+            }
+            
+            for (int i = 0; i < nCols; i++) {
+                
+                if (names[i] == null) {
+                    
+                    names[i] = "#" + (i + 1);
+                }
+                kinds[i] = DumpFormat.getKind(types[i]);
+            }
+        }
+        
+        /*
+         * Fetches the names and types of the columns of the table, in
+         * order, trying the name as it was given, then in upper case and
+         * then in lower case. Nothing is fetched if the driver cannot
+         * describe the table.
+         */
+        private void getColumns(Connection conn, List<String> names,
+                List<Integer> types) {
+            
+            String []parts = table.replace("\"", "").split("\\.");
+            String name = parts[parts.length - 1];
+            String schema = (parts.length > 1 ? parts[parts.length - 2] : null);
+            String catalog = (parts.length > 2 ? parts[parts.length - 3] : null);
+            ResultSet results = null;
+            
+            try {
+                
+                DatabaseMetaData meta = conn.getMetaData();
+                for (int attempt = 0; names.isEmpty() && attempt < 3; attempt++) {
+                    
+                    String n = name;
+                    String s = schema;
+                    if (attempt == 1) {
+                        
+                        n = name.toUpperCase();
+                        s = (schema == null ? null : schema.toUpperCase());
+                    }
+                    else if (attempt == 2) {
+                        
+                        n = name.toLowerCase();
+                        s = (schema == null ? null : schema.toLowerCase());
+                    }
+                    
+                    results = meta.getColumns(catalog, s, n, null);
+                    while (results.next()) {
+                        
+                        names.add(results.getString(4));
+                        types.add(results.getInt(5));
+                    }
+                    
+                    SQLTools.close(results);
+                    results = null;
+                }
+            }
+            catch (SQLException e) {
+                
+                names.clear();
+                types.clear();
+            }
+            catch (AbstractMethodError e) {
+                
+                names.clear();
+                types.clear();
+            }
+            finally {
+                
+                SQLTools.close(results);
+            }
+        }
+        
+        /*
+         * Fills in the types of the columns from the description of the
+         * parameters of the INSERT, treating those it cannot describe as
+         * VARCHAR.
+         */
+        private void describeParameters(Connection conn)
+            throws SQLException {
+            
+            PreparedStatement statement = conn.prepareStatement(sql);
+            try {
+                
+                ParameterMetaData meta = statement.getParameterMetaData();
+                for (int i = 0; i < types.length; i++) {
+                    
+                    types[i] = meta.getParameterType(i + 1);
+                }
+            }
+            catch (SQLException e) {
+                
+                for (int i = 0; i < types.length; i++) {
+                    
+                    types[i] = Types.VARCHAR;
+                }
+            }
+            finally {
+                
+                SQLTools.close(statement);
+            }
+        }
+        
+        private void showProgress() {
+            
+            session.err.print("\r" + loaded.get() + " rows loaded, "
+                + rejected() + " rejected ");
+            session.err.flush();
+        }
+        
+        private synchronized long rejected() {
+            
+            return rejected;
+        }
+        
+        /*
+         * Records a row that could not be loaded.
+         */
+        private synchronized void reject(long line, String []row,
+                String reason)
+            throws IOException {
+            
+            ++rejected;
+            if (shown.size() < MAX_SHOWN) {
+                
+                shown.add("Line #" + line + " rejected: " + reason);
+            }
+            
+            if (rejectOut != null) {
+                
+                writeReject(row);
+            }
+        }
+        
+        private void writeReject(String []row)
+            throws IOException {
+            
+            rejectCsv.clear();
+            for (String field : row) {
+                
+                rejectCsv.field(field);
+            }
+            rejectCsv.endLine();
+            rejectOut.write(rejectCsv.getBuffer(), 0, rejectCsv.length());
+        }
+        
+        private boolean isStopped() {
+            
+            return cancelled || failure != null;
+        }
+        
+        private void fail(Throwable e) {
+            
+            synchronized (this) {
+                
+                if (failure == null && !cancelled) {
+                    
+                    failure = e;
+                }
+            }
+            
+            cancel();
+        }
+        
+        /*
+         * Stops all of the workers.
+         */
+        private void cancel() {
+            
+            cancelled = true;
+            for (Worker worker : workers) {
+                
+                if (worker != null && worker.statement != null) {
+                    
+                    try {
+                        
+                        worker.statement.cancel();
+                    }
+                    catch (SQLException e) {
+                        
+                        /* IGNORED */
+                    }
+                }
+            }
+        }
+        
+        private void close() {
+            
+            for (Worker worker : workers) {
+                
+                if (worker != null && worker.ctx != null) {
+                    
+                    worker.ctx.close();
+                }
+            }
+        }
+        
+        /**
+         * Cancels the load when CTRL-C is hit.
+         */
+        private class CancelHandler
+            extends FlaggingSignalHandler {
+            
+            @Override
+            public void signal (Sig sig) {
+                
+                System.err.println("^C");
+                triggered = true;
+                cancel();
+            }
+        }
+        
+        /**
+         * Inserts batches of rows over one connection.
+         */
+        private class Worker
+            extends Thread {
+            
+            private SQLConnectionContext ctx;
+            private Connection conn;
+            private volatile PreparedStatement statement = null;
+            private boolean commitEveryBatch = false;
+            private long uncommitted = 0L;
+            private int refused = 0;
+            
+            /**
+             * @param ctx The connection opened for the worker, or null if
+             *   it uses the session's connection.
+             * @param conn The connection.
+             */
+            public Worker (int idx, SQLConnectionContext ctx,
+                    Connection conn) {
+                
+                super("jsqsh-load-" + (idx + 1));
+                setDaemon(true);
+                
+                this.ctx = ctx;
+                this.conn = conn;
+            }
+            
+            @Override
+            public void run() {
+                
+                boolean restoreAutoCommit = false;
+                
+                /*
+                 * Once something has gone wrong the worker carries on
+                 * taking batches, without loading them, so that the
+                 * reading of the file is never left waiting for room
+                 * in the queue.
+                 */
+                try {
+                    
+                    try {
+                        
+                        commitEveryBatch = !conn.getAutoCommit();
+                        if (commitInterval > 0 && !commitEveryBatch) {
+                            
+                            conn.setAutoCommit(false);
+                            restoreAutoCommit = true;
+                        }
+                        
+                        statement = conn.prepareStatement(sql);
+                    }
+                    catch (SQLException e) {
+                        
+                        fail(e);
+                    }
+                    
+                    Batch batch;
+                    while ((batch = queue.take()) != END) {
+                        
+                        if (!isStopped()) {
+                            
+                            try {
+                                
+                                load(batch);
+                            }
+                            catch (Throwable e) {
+                                
+                                if (!cancelled) {
+                                    
+                                    fail(e);
+                                }
+                            }
+                        }
+                    }
+                    
+                    if (commitInterval > 0 && uncommitted > 0
+                        && !isStopped()) {
+                        
+                        conn.commit();
+                        uncommitted = 0L;
+                    }
+                }
+                catch (InterruptedException e) {
+                    
+                    /* GIVE UP */
+                }
+                catch (SQLException e) {
+                    
+                    fail(e);
+                }
+                finally {
+                    
+                    SQLTools.close(statement);
+                    
+                    /*
+                     * Anything inserted since the last commit is rolled
+                     * back rather than being committed by the change of
+                     * autocommit mode.
+                     */
+                    if (restoreAutoCommit) {
+                        
+                        try {
+                            
+                            if (uncommitted > 0) {
+                                
+                                conn.rollback();
+                                loaded.addAndGet(-uncommitted);
+                            }
+                            
+                            conn.setAutoCommit(true);
+                        }
+                        catch (SQLException e) {
+                            
+                            /* IGNORED */
+                        }
+                    }
+                }
+            }
+            
+            /*
+             * Inserts the rows of a batch. Rows whose values cannot be
+             * converted are rejected before the batch is sent, and rows
+             * that the server refuses are rejected afterwards. Drivers
+             * either stop at the first row of a batch that fails, in
+             * which case the rows after it are sent again, or they carry
+             * on and mark the rows that failed. A lost connection fails
+             * the load, as does a run of MAX_REFUSED rows refused for a
+             * reason other than their data (such as a missing privilege),
+             * but rows that break a constraint or hold a bad value are
+             * always rejected.
+             */
+            private void load(Batch batch)
+                throws SQLException, IOException {
+                
+                int []pending = new int[batch.count];
+                int nPending = 0;
+                
+                for (int i = 0; i < batch.count; i++) {
+                    
+                    String reason = bindRow(batch.rows[i]);
+                    if (reason != null) {
+                        
+                        reject(batch.firstLine + i, batch.rows[i], reason);
+                    }
+                    else {
+                        
+                        statement.addBatch();
+                        pending[nPending++] = i;
+                    }
+                }
+                
+                int start = 0;
+                while (start < nPending) {
+                    
+                    try {
+                        
+                        statement.executeBatch();
+                        loaded.addAndGet(nPending - start);
+                        uncommitted += nPending - start;
+                        start = nPending;
+                        refused = 0;
+                    }
+                    catch (BatchUpdateException e) {
+                        
+                        int []counts = e.getUpdateCounts();
+                        int done = (counts == null ? 0 : counts.length);
+                        int n = Math.min(done, nPending - start);
+                        String state = e.getSQLState();
+                        
+                        if (state != null && state.startsWith("08")) {
+                            
+                            statement.clearBatch();
+                            throw e;
+                        }
+                        
+                        for (int i = 0; i < n; i++) {
+                            
+                            int r = pending[start + i];
+                            if (counts[i] == Statement.EXECUTE_FAILED) {
+                                
+                                reject(batch.firstLine + r, batch.rows[r],
+                                    e.getMessage());
+                                refuse(state);
+                            }
+                            else {
+                                
+                                loaded.incrementAndGet();
+                                ++uncommitted;
+                                refused = 0;
+                            }
+                        }
+                        
+                        start += n;
+                        statement.clearBatch();
+                        
+                        if (refused >= MAX_REFUSED) {
+                            
+                            throw e;
+                        }
+                        
+                        if (start < nPending) {
+                            
+                            int r = pending[start++];
+                            reject(batch.firstLine + r, batch.rows[r],
+                                e.getMessage());
+                            refuse(state);
+                            if (refused >= MAX_REFUSED) {
+                                
+                                throw e;
+                            }
+                            
+                            for (int i = start; i < nPending; i++) {
+                                
+                                bindRow(batch.rows[pending[i]]);
+                                statement.addBatch();
+                            }
+                        }
+                    }
+                }
+                
+                if (commitInterval > 0
+                    ? uncommitted >= commitInterval : commitEveryBatch) {
+                    
+                    conn.commit();
+                    uncommitted = 0L;
+                }
+            }
+            
+            /*
+             * Counts a row refused by the server towards the run that
+             * fails the load, unless it was refused for its data (SQLState
+             * class 22) or for breaking a constraint (class 23), which
+             * ends the run.
+             */
+            private void refuse(String state) {
+                
+                if (state != null
+                    && (state.startsWith("22") || state.startsWith("23"))) {
+                    
+                    refused = 0;
+                }
+                else {
+                    
+                    ++refused;
+                }
+            }
+            
+            /*
+             * Binds the values of a row, returning why it could not be
+             * if it could not be.
+             */
+            private String bindRow(String []row)
+                throws SQLException {
+                
+                if (row.length != names.length) {
+                    
+                    return "Expected " + names.length + " fields, found "
+                        + row.length;
+                }
+                
+                for (int i = 0; i < row.length; i++) {
+                    
+                    try {
+                        
+                        bind(statement, i + 1, types[i], kinds[i], row[i]);
+                    }
+                    catch (IllegalArgumentException e) {
+                        
+                        return "Invalid value '" + row[i] + "' for column "
+                            + names[i];
+                    }
+                }
+                
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.commands;
+
+import static org.sqsh.options.ArgumentRequired.NONE;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sqsh.ColumnDescription;
+import org.sqsh.Command;
+import org.sqsh.Renderer;
+import org.sqsh.Session;
+import org.sqsh.SqshOptions;
+import org.sqsh.StatementStatistics;
+import org.sqsh.StatementTimer;
+import org.sqsh.options.Argv;
+import org.sqsh.options.OptionProperty;
+import org.sqsh.util.TimeUtils;
+
+/**
+ * Implements the \stats command, which displays where the time went for
+ * the statements executed by the session.
+ */
+public class Stats
+    extends Command {
+    
+    /*
+     * Upper bounds (in nanoseconds) of the buckets of the histogram.
+     */
+    private static final long []BUCKETS = {
+        100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+        10000000000L, Long.MAX_VALUE
+    };
+    
+    private static final String []BUCKET_NAMES = {
+        "< 100us", "< 1ms", "< 10ms", "< 100ms", "< 1s", "< 10s", ">= 10s"
+    };
+    
+    private static final int BAR_WIDTH = 40;
+    
+    private static class Options
+        extends SqshOptions {
+        
+        @OptionProperty(
+            option='r', longOption="reset", arg=NONE,
+            description="Discards all statistics gathered so far")
+        public boolean reset = false;
+        
+        @OptionProperty(
+            option='H', longOption="histogram", arg=NONE,
+            description="Displays a histogram of recent statement times")
+        public boolean histogram = false;
+        
+        @Argv(program="\\stats", min=0, max=0, usage="[-r] [-H]")
+        public List<String> arguments = new ArrayList<String>();
+    }
+    
+    @Override
+    public SqshOptions getOptions() {
+        
+        return new Options();
+    }
+    
+    @Override
+    public int execute (Session session, SqshOptions opts)
+        throws Exception {
+        
+        Options options = (Options) opts;
+        StatementStatistics stats = StatementStatistics.getInstance(session);
+        
+        if (options.reset) {
+            
+            stats.reset();
+            return 0;
+        }
+        
+        if (stats.getCount() == 0) {
+            
+            session.out.println("No statements have been executed");
+            return 0;
+        }
+        
+        session.out.println(stats.getCount() + " statements, "
+            + stats.getRows() + " rows fetched; percentiles are over the last "
+            + stats.getHistoryCount() + " statements");
+        
+        if (options.histogram) {
+            
+            histogram(session, stats);
+        }
+        else {
+            
+            summary(session, stats);
+            
+            if (stats.getDictionaryLookups() > 0L) {
+                
+                session.out.println("Column dictionaries: "
+                    + stats.getDictionaryHits() + " of "
+                    + stats.getDictionaryLookups()
+                    + " values were already formatted ("
+                    + StatementTimer.hitRate(stats.getDictionaryHits(),
+                        stats.getDictionaryLookups()) + ")");
+            }
+        }
+        
+        return 0;
+    }
+    
+    /**
+     * Displays the totals and percentiles for each phase.
+     */
+    private void summary(Session session, StatementStatistics stats) {
+        
+        ColumnDescription []columns = new ColumnDescription[7];
+        columns[0] = new ColumnDescription("Phase", -1);
+        columns[1] = numberColumn("Total");
+        columns[2] = numberColumn("Avg");
+        columns[3] = numberColumn("p50");
+        columns[4] = numberColumn("p90");
+        columns[5] = numberColumn("p99");
+        columns[6] = numberColumn("Max");
+        
+        Renderer renderer =
+            session.getRendererManager().getCommandRenderer(session);
+        renderer.header(columns);
+        
+        for (int i = 0; i <= StatementTimer.PHASES; i++) {
+            
+            long []sorted = stats.getSorted(i);
+            long total = stats.getTotal(i);
+            String []row = new String[7];
+            
+            row[0] = (i == StatementStatistics.ELAPSED
+                ? "elapsed" : StatementTimer.getPhaseName(i));
+            row[1] = TimeUtils.nanosToDurationString(total);
+            row[2] = TimeUtils.nanosToDurationString(total / stats.getCount());
+            row[3] = TimeUtils.nanosToDurationString(
+                StatementStatistics.percentile(sorted, 50.0));
+            row[4] = TimeUtils.nanosToDurationString(
+                StatementStatistics.percentile(sorted, 90.0));
+            row[5] = TimeUtils.nanosToDurationString(
+                StatementStatistics.percentile(sorted, 99.0));
+            row[6] = TimeUtils.nanosToDurationString(
+                StatementStatistics.percentile(sorted, 100.0));
+            
+            renderer.row(row);
+        }
+        
+        renderer.flush();
+    }
+    
+    /**
+     * Displays a histogram of the elapsed time of recent statements.
+     */
+    private void histogram(Session session, StatementStatistics stats) {
+        
+        long []sorted = stats.getSorted(StatementStatistics.ELAPSED);
+        int []counts = new int[BUCKETS.length];
+        int max = 0;
+        int bucket = 0;
+        
+        for (int i = 0; i < sorted.length; i++) {
+            
+            while (sorted[i] >= BUCKETS[bucket]) {
+                
+                ++bucket;
+            }
+            
+            ++counts[bucket];
+            if (counts[bucket] > max) {
+                
+                max = counts[bucket];
+            }
+        }
+        
+        ColumnDescription []columns = new ColumnDescription[3];
+        columns[0] = new ColumnDescription("Elapsed", -1);
+        columns[1] = numberColumn("Count");
+        columns[2] = new ColumnDescription("", -1);
+        
+        Renderer renderer =
+            session.getRendererManager().getCommandRenderer(session);
+        renderer.header(columns);
+        
+        for (int i = 0; i < BUCKETS.length; i++) {
+            
+            StringBuilder bar = new StringBuilder();
+            int len = (max == 0 ? 0 : (counts[i] * BAR_WIDTH + max - 1) / max);
+            for (int j = 0; j < len; j++) {
+                
+                bar.append('#');
+            }
+            
+            String []row = new String[3];
+            row[0] = BUCKET_NAMES[i];
+            row[1] = Integer.toString(counts[i]);
+            row[2] = bar.toString();
+            
+            renderer.row(row);
+        }
+        
+        renderer.flush();
+    }
+    
+    private static ColumnDescription numberColumn(String name) {
+        
+        return new ColumnDescription(name, -1,
+            ColumnDescription.Alignment.RIGHT,
+            ColumnDescription.OverflowBehavior.WRAP);
+    }
+}
@@ -0,0 +1,192 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.export;
+
+import java.sql.Types;
+
+/**
+ * Describes the binary dump format written by {@link DumpWriter} and read
+ * by {@link DumpReader}. A dump holds the rows of one or more result sets
+ * with each value stored in its native form, so that copying rows from
+ * one database to another never turns them into text. Each result set is
+ * written as:
+ *
+ * <pre>
+ *   result  := MAGIC version header block* END rows
+ *   header  := count column*
+ *   column  := name jdbc-type type-name precision scale nullable kind
+ *   block   := BLOCK flags rows raw-length stored-length byte*
+ *   row     := null-bitmap value*
+ * </pre>
+ *
+ * <p>Counts, lengths and integer values are written as variable length
+ * integers (seven bits per byte, least significant first), with signed
+ * values zig-zag encoded so that small negative numbers stay small.
+ * Strings are UTF-8, preceded by their length in bytes. Rows are
+ * gathered into blocks of roughly {@link #BLOCK_SIZE} bytes which may be
+ * compressed with deflate. Every row starts with a bitmap with a bit set
+ * for each column that is NULL, and only the columns that are not NULL
+ * have a value, stored according to the column's kind (e.g.
+ * {@link #KIND_LONG}).
+ *
+ * <p>Since each result set starts with its own header, dumps may simply
+ * be concatenated (e.g. by appending to a file).
+ */
+public final class DumpFormat {
+    
+    /**
+     * The bytes that start each result set.
+     */
+    public static final byte []MAGIC = {
+        'J', 'S', 'Q', 'S', 'H', 'D', 'M', 'P' };
+    
+    /**
+     * The version of the format.
+     */
+    public static final int VERSION = 1;
+    
+    /**
+     * Marks the start of a block of rows.
+     */
+    public static final int BLOCK = 'B';
+    
+    /**
+     * Marks the end of a result set. It is followed by the number of rows
+     * in the result set.
+     */
+    public static final int END = 'E';
+    
+    /**
+     * Block flag indicating that the block is compressed with deflate.
+     */
+    public static final int FLAG_DEFLATE = 0x01;
+    
+    /**
+     * The size of the rows that are gathered into a block before it is
+     * written.
+     */
+    public static final int BLOCK_SIZE = 64 * 1024;
+    
+    /**
+     * A boolean, stored as a single byte.
+     */
+    public static final int KIND_BOOLEAN   = 1;
+    
+    /**
+     * An integer of up to 64 bits, stored as a zig-zag variable length
+     * integer.
+     */
+    public static final int KIND_LONG      = 2;
+    
+    /**
+     * A single precision float, stored as four bytes.
+     */
+    public static final int KIND_FLOAT     = 3;
+    
+    /**
+     * A double precision float, stored as eight bytes.
+     */
+    public static final int KIND_DOUBLE    = 4;
+    
+    /**
+     * A decimal, stored as its scale followed by the two's complement
+     * bytes of its unscaled value.
+     */
+    public static final int KIND_DECIMAL   = 5;
+    
+    /**
+     * A date, stored as milliseconds since the epoch.
+     */
+    public static final int KIND_DATE      = 6;
+    
+    /**
+     * A time, stored as milliseconds since the epoch.
+     */
+    public static final int KIND_TIME      = 7;
+    
+    /**
+     * A timestamp, stored as milliseconds since the epoch followed by
+     * the nanoseconds of the second.
+     */
+    public static final int KIND_TIMESTAMP = 8;
+    
+    /**
+     * A character string, stored as UTF-8.
+     */
+    public static final int KIND_STRING    = 9;
+    
+    /**
+     * A binary string.
+     */
+    public static final int KIND_BYTES     = 10;
+    
+    private DumpFormat() {
+        
+        /* NOT INSTANTIATED */
+    }
+    
+    /**
+     * Returns how values of a JDBC type are stored. Types that have no
+     * more specific representation are stored as strings.
+     *
+     * @param type The type (see {@link java.sql.Types}).
+     * @return The kind of value (e.g. {@link #KIND_LONG}).
+     */
+    public static int getKind(int type) {
+        
+        switch (type) {
+            
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return KIND_BOOLEAN;
+            
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+                return KIND_LONG;
+            
+            case Types.REAL:
+                return KIND_FLOAT;
+            
+            case Types.FLOAT:
+            case Types.DOUBLE:
+                return KIND_DOUBLE;
+            
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return KIND_DECIMAL;
+            
+            case Types.DATE:
+                return KIND_DATE;
+            
+            case Types.TIME:
+                return KIND_TIME;
+            
+            case Types.TIMESTAMP:
+                return KIND_TIMESTAMP;
+            
+            case Types.BINARY:
+            case Types.VARBINARY:
+            case Types.LONGVARBINARY:
+            case Types.BLOB:
+                return KIND_BYTES;
+            
+            default:
+                return KIND_STRING;
+        }
+    }
+}
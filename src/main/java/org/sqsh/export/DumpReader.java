@@ -0,0 +1,616 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.export;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Reads a dump written by {@link DumpWriter} (see {@link DumpFormat}).
+ * Each call to {@link #nextResult()} reads the description of the next
+ * result set in the dump, after which {@link #next()} steps through its
+ * rows. The values of the current row can be bound, with their native
+ * types, directly to the parameters of a {@link PreparedStatement}.
+ */
+public class DumpReader {
+    
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+    
+    private InputStream in;
+    
+    /*
+     * The current block, the position of the next row within it, and the
+     * number of rows in it that have not been read.
+     */
+    private byte []buf = new byte[DumpFormat.BLOCK_SIZE + 1024];
+    private byte []stored = null;
+    private int pos = 0;
+    private int blockRows = 0;
+    private Inflater inflater = null;
+    
+    /*
+     * The description of the current result set.
+     */
+    private String []names = null;
+    private int []types = null;
+    private String []typeNames = null;
+    private int []precisions = null;
+    private int []scales = null;
+    private boolean []nullable = null;
+    private int []kinds = null;
+    private boolean inResult = false;
+    
+    /*
+     * The values of the current row.
+     */
+    private boolean []nulls = null;
+    private long []longs = null;
+    private double []doubles = null;
+    private Object []objects = null;
+    
+    private long rows = 0L;
+    
+    /**
+     * Creates a reader. Rows are read a block at a time, but the markers
+     * between blocks are read a byte at a time, so the stream should be
+     * buffered.
+     *
+     * @param in The stream to read.
+     */
+    public DumpReader (InputStream in) {
+        
+        this.in = in;
+    }
+    
+    /**
+     * Reads the description of the next result set in the dump. Any rows
+     * of the current result set that have not been read are skipped.
+     *
+     * @return true if there was another result set, false if the end
+     *   of the dump was reached.
+     * @throws IOException If the dump cannot be read or is not valid.
+     */
+    public boolean nextResult ()
+        throws IOException {
+        
+        while (inResult) {
+            
+            next();
+        }
+        
+        int ch = in.read();
+        if (ch < 0) {
+            
+            return false;
+        }
+        
+        byte []magic = new byte[DumpFormat.MAGIC.length];
+        magic[0] = (byte) ch;
+        readFully(magic, 1, magic.length - 1);
+        for (int i = 0; i < magic.length; i++) {
+            
+            if (magic[i] != DumpFormat.MAGIC[i]) {
+                
+                throw new IOException("Not a jsqsh dump");
+            }
+        }
+        
+        int version = readByte();
+        if (version != DumpFormat.VERSION) {
+            
+            throw new IOException("Unsupported dump version " + version);
+        }
+        
+        int nCols = (int) readVarLong();
+        names = new String[nCols];
+        types = new int[nCols];
+        typeNames = new String[nCols];
+        precisions = new int[nCols];
+        scales = new int[nCols];
+        nullable = new boolean[nCols];
+        kinds = new int[nCols];
+        
+        for (int i = 0; i < nCols; i++) {
+            
+            names[i] = readString();
+            types[i] = (int) zigZag(readVarLong());
+            typeNames[i] = readString();
+            precisions[i] = (int) readVarLong();
+            scales[i] = (int) zigZag(readVarLong());
+            nullable[i] = (readByte() != 0);
+            kinds[i] = readByte();
+        }
+        
+        nulls = new boolean[nCols];
+        longs = new long[nCols];
+        doubles = new double[nCols];
+        objects = new Object[nCols];
+        inResult = true;
+        blockRows = 0;
+        
+        return true;
+    }
+    
+    /**
+     * @return The number of columns in the current result set.
+     */
+    public int getColumnCount() {
+        
+        return names.length;
+    }
+    
+    /**
+     * @param idx The index of the column (starting at 0).
+     * @return The name of the column.
+     */
+    public String getColumnName(int idx) {
+        
+        return names[idx];
+    }
+    
+    /**
+     * @param idx The index of the column (starting at 0).
+     * @return The JDBC type (see {@link java.sql.Types}) of the column.
+     */
+    public int getColumnType(int idx) {
+        
+        return types[idx];
+    }
+    
+    /**
+     * @param idx The index of the column (starting at 0).
+     * @return The database specific name of the type of the column.
+     */
+    public String getColumnTypeName(int idx) {
+        
+        return typeNames[idx];
+    }
+    
+    /**
+     * @param idx The index of the column (starting at 0).
+     * @return The precision of the column.
+     */
+    public int getPrecision(int idx) {
+        
+        return precisions[idx];
+    }
+    
+    /**
+     * @param idx The index of the column (starting at 0).
+     * @return The scale of the column.
+     */
+    public int getScale(int idx) {
+        
+        return scales[idx];
+    }
+    
+    /**
+     * @param idx The index of the column (starting at 0).
+     * @return false if the column was known to never be NULL.
+     */
+    public boolean isNullable(int idx) {
+        
+        return nullable[idx];
+    }
+    
+    /**
+     * @return The number of rows read, over all result sets.
+     */
+    public long getRows() {
+        
+        return rows;
+    }
+    
+    /**
+     * Moves to the next row of the current result set.
+     *
+     * @return true if there was another row, false if the end of the
+     *   result set has been reached.
+     * @throws IOException If the dump cannot be read or is not valid.
+     */
+    public boolean next ()
+        throws IOException {
+        
+        if (!inResult) {
+            
+            return false;
+        }
+        
+        if (blockRows == 0 && !readBlock()) {
+            
+            inResult = false;
+            return false;
+        }
+        
+        try {
+            
+            readRow();
+        }
+        catch (ArrayIndexOutOfBoundsException e) {
+            
+            throw new IOException("Dump is corrupt: row overruns its block");
+        }
+        
+        --blockRows;
+        ++rows;
+        return true;
+    }
+    
+    /**
+     * @param idx The index of the column (starting at 0).
+     * @return true if the column of the current row is NULL.
+     */
+    public boolean isNull(int idx) {
+        
+        return nulls[idx];
+    }
+    
+    /**
+     * Returns the value of a column of the current row as an object of
+     * the class that JDBC would normally use for the column's type.
+     *
+     * @param idx The index of the column (starting at 0).
+     * @return The value, or null if it is NULL.
+     */
+    public Object getObject(int idx) {
+        
+        if (nulls[idx]) {
+            
+            return null;
+        }
+        
+        switch (kinds[idx]) {
+            
+            case DumpFormat.KIND_BOOLEAN:
+                return Boolean.valueOf(longs[idx] != 0L);
+            
+            case DumpFormat.KIND_LONG:
+                return Long.valueOf(longs[idx]);
+            
+            case DumpFormat.KIND_FLOAT:
+                return Float.valueOf((float) doubles[idx]);
+            
+            case DumpFormat.KIND_DOUBLE:
+                return Double.valueOf(doubles[idx]);
+            
+            default:
+                return objects[idx];
+        }
+    }
+    
+    /**
+     * Binds the values of the current row to the parameters of a
+     * statement, using the setter that matches the type of each column.
+     *
+     * @param statement The statement.
+     * @param firstParameter The parameter (starting at 1) to bind the
+     *   first column to. The remaining columns are bound to the
+     *   parameters following it.
+     * @throws SQLException If a value cannot be bound.
+     */
+    public void bind(PreparedStatement statement, int firstParameter)
+        throws SQLException {
+        
+        for (int i = 0; i < kinds.length; i++) {
+            
+            int param = firstParameter + i;
+            
+            if (nulls[i]) {
+                
+                statement.setNull(param, types[i]);
+                continue;
+            }
+            
+            switch (kinds[i]) {
+                
+                case DumpFormat.KIND_BOOLEAN:
+                    statement.setBoolean(param, longs[i] != 0L);
+                    break;
+                
+                case DumpFormat.KIND_LONG:
+                    statement.setLong(param, longs[i]);
+                    break;
+                
+                case DumpFormat.KIND_FLOAT:
+                    statement.setFloat(param, (float) doubles[i]);
+                    break;
+                
+                case DumpFormat.KIND_DOUBLE:
+                    statement.setDouble(param, doubles[i]);
+                    break;
+                
+                case DumpFormat.KIND_DECIMAL:
+                    statement.setBigDecimal(param, (BigDecimal) objects[i]);
+                    break;
+                
+                case DumpFormat.KIND_DATE:
+                    statement.setDate(param, (Date) objects[i]);
+                    break;
+                
+                case DumpFormat.KIND_TIME:
+                    statement.setTime(param, (Time) objects[i]);
+                    break;
+                
+                case DumpFormat.KIND_TIMESTAMP:
+                    statement.setTimestamp(param, (Timestamp) objects[i]);
+                    break;
+                
+                case DumpFormat.KIND_BYTES:
+                    statement.setBytes(param, (byte[]) objects[i]);
+                    break;
+                
+                default:
+                    statement.setString(param, (String) objects[i]);
+                    break;
+            }
+        }
+    }
+    
+    private void readRow () {
+        
+        int nCols = kinds.length;
+        int bitmap = pos;
+        
+        pos += (nCols + 7) / 8;
+        for (int i = 0; i < nCols; i++) {
+            
+            nulls[i] = (buf[bitmap + (i >> 3)] & (1 << (i & 7))) != 0;
+            objects[i] = null;
+            if (nulls[i]) {
+                
+                continue;
+            }
+            
+            switch (kinds[i]) {
+                
+                case DumpFormat.KIND_BOOLEAN:
+                    longs[i] = buf[pos++];
+                    break;
+                
+                case DumpFormat.KIND_LONG:
+                    longs[i] = zigZag(varLong());
+                    break;
+                
+                case DumpFormat.KIND_FLOAT:
+                    doubles[i] = Float.intBitsToFloat(int32());
+                    break;
+                
+                case DumpFormat.KIND_DOUBLE:
+                    doubles[i] = Double.longBitsToDouble(
+                        ((long) int32() << 32) | (int32() & 0xffffffffL));
+                    break;
+                
+                case DumpFormat.KIND_DECIMAL:
+                    int scale = (int) zigZag(varLong());
+                    objects[i] = new BigDecimal(new BigInteger(bytes()), scale);
+                    break;
+                
+                case DumpFormat.KIND_DATE:
+                    objects[i] = new Date(zigZag(varLong()));
+                    break;
+                
+                case DumpFormat.KIND_TIME:
+                    objects[i] = new Time(zigZag(varLong()));
+                    break;
+                
+                case DumpFormat.KIND_TIMESTAMP:
+                    Timestamp ts = new Timestamp(zigZag(varLong()));
+                    ts.setNanos((int) varLong());
+                    objects[i] = ts;
+                    break;
+                
+                case DumpFormat.KIND_BYTES:
+                    objects[i] = bytes();
+                    break;
+                
+                default:
+                    int n = (int) varLong();
+                    objects[i] = new String(buf, pos, n, UTF8);
+                    pos += n;
+                    break;
+            }
+        }
+    }
+    
+    /*
+     * Reads the next block of rows into the buffer, returning false if
+     * the end of the result set was reached instead.
+     */
+    private boolean readBlock ()
+        throws IOException {
+        
+        int marker = readByte();
+        if (marker == DumpFormat.END) {
+            
+            readVarLong();
+            return false;
+        }
+        
+        if (marker != DumpFormat.BLOCK) {
+            
+            throw new IOException("Dump is corrupt: unexpected block type "
+                + marker);
+        }
+        
+        int flags = readByte();
+        int nRows = (int) readVarLong();
+        int rawLen = (int) readVarLong();
+        int storedLen = (int) readVarLong();
+        
+        if (buf.length < rawLen) {
+            
+            buf = new byte[rawLen];
+        }
+        
+        if ((flags & DumpFormat.FLAG_DEFLATE) == 0) {
+            
+            readFully(buf, 0, rawLen);
+        }
+        else {
+            
+            if (stored == null || stored.length < storedLen) {
+                
+                stored = new byte[Math.max(storedLen, buf.length)];
+            }
+            if (inflater == null) {
+                
+                inflater = new Inflater();
+            }
+            
+            readFully(stored, 0, storedLen);
+            inflater.reset();
+            inflater.setInput(stored, 0, storedLen);
+            
+            try {
+                
+                int n = 0;
+                while (n < rawLen && !inflater.finished()) {
+                    
+                    int count = inflater.inflate(buf, n, rawLen - n);
+                    if (count == 0 && inflater.needsInput()) {
+                        
+                        break;
+                    }
+                    n += count;
+                }
+                
+                if (n != rawLen) {
+                    
+                    throw new IOException("Dump is corrupt: block is "
+                        + n + " bytes, expected " + rawLen);
+                }
+            }
+            catch (DataFormatException e) {
+                
+                throw new IOException("Dump is corrupt: " + e.getMessage());
+            }
+        }
+        
+        pos = 0;
+        blockRows = nRows;
+        
+        return true;
+    }
+    
+    private int int32 () {
+        
+        int v = ((buf[pos] & 0xff) << 24)
+            | ((buf[pos + 1] & 0xff) << 16)
+            | ((buf[pos + 2] & 0xff) << 8)
+            | (buf[pos + 3] & 0xff);
+        pos += 4;
+        
+        return v;
+    }
+    
+    private long varLong () {
+        
+        long v = 0L;
+        int shift = 0;
+        byte b;
+        
+        do {
+            
+            b = buf[pos++];
+            v |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+        
+        return v;
+    }
+    
+    private byte[] bytes () {
+        
+        int n = (int) varLong();
+        byte []value = new byte[n];
+        System.arraycopy(buf, pos, value, 0, n);
+        pos += n;
+        
+        return value;
+    }
+    
+    private static long zigZag (long v) {
+        
+        return (v >>> 1) ^ -(v & 1);
+    }
+    
+    private int readByte ()
+        throws IOException {
+        
+        int ch = in.read();
+        if (ch < 0) {
+            
+            throw new EOFException("Unexpected end of dump");
+        }
+        
+        return ch;
+    }
+    
+    private long readVarLong ()
+        throws IOException {
+        
+        long v = 0L;
+        int shift = 0;
+        int b;
+        
+        do {
+            
+            b = readByte();
+            v |= (long) (b & 0x7f) << shift;
+            shift += 7;
+        }
+        while ((b & 0x80) != 0);
+        
+        return v;
+    }
+    
+    private String readString ()
+        throws IOException {
+        
+        byte []str = new byte[(int) readVarLong()];
+        readFully(str, 0, str.length);
+        
+        return new String(str, UTF8);
+    }
+    
+    private void readFully (byte []dest, int off, int n)
+        throws IOException {
+        
+        while (n > 0) {
+            
+            int count = in.read(dest, off, n);
+            if (count < 0) {
+                
+                throw new EOFException("Unexpected end of dump");
+            }
+            
+            off += count;
+            n -= count;
+        }
+    }
+}
@@ -0,0 +1,581 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.export;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.zip.Deflater;
+
+/**
+ * Writes result sets in the binary dump format described by
+ * {@link DumpFormat}. Values are read from the {@link ResultSet} with
+ * the getter that matches their type and are written without ever being
+ * turned into strings (other than for types that have no better
+ * representation).
+ *
+ * <p>A writer is re-used for every result set written to the same
+ * stream: {@link #start(ResultSetMetaData, int[])} begins a result set,
+ * {@link #write(ResultSet)} is called for each row and {@link #finish()}
+ * completes it.
+ */
+public class DumpWriter {
+    
+    private OutputStream out;
+    private boolean compress;
+    
+    /*
+     * The block being built, and the number of rows in it.
+     */
+    private byte []buf = new byte[DumpFormat.BLOCK_SIZE + 1024];
+    private int len = 0;
+    private int blockRows = 0;
+    
+    private Deflater deflater = null;
+    private byte []deflated = null;
+    private byte []scratch = new byte[32];
+    
+    /*
+     * The result set currently being written.
+     */
+    private int []projection = null;
+    private int []kinds = null;
+    private int nullBytes = 0;
+    private long rows = 0L;
+    
+    private long totalRows = 0L;
+    private long bytes = 0L;
+    
+    /**
+     * Creates a writer.
+     *
+     * @param out The stream to write to.
+     * @param compress If true, blocks of rows are compressed.
+     */
+    public DumpWriter (OutputStream out, boolean compress) {
+        
+        this.out = out;
+        this.compress = compress;
+    }
+    
+    /**
+     * @return The number of rows written, over all result sets.
+     */
+    public long getRows() {
+        
+        return totalRows;
+    }
+    
+    /**
+     * @return The number of bytes written to the stream.
+     */
+    public long getBytes() {
+        
+        return bytes;
+    }
+    
+    /**
+     * Starts a result set, writing the description of its columns.
+     *
+     * @param meta Description of the result set.
+     * @param projection If non-null, the indexes (starting at 1) of the
+     *   columns of the result set that are to be written.
+     * @throws SQLException If the description cannot be retrieved.
+     * @throws IOException If the description cannot be written.
+     */
+    public void start (ResultSetMetaData meta, int []projection)
+        throws SQLException, IOException {
+        
+        if (projection == null) {
+            
+            projection = new int[meta.getColumnCount()];
+            for (int i = 0; i < projection.length; i++) {
+                
+                projection[i] = i + 1;
+            }
+        }
+        
+        int nCols = projection.length;
+        String []names = new String[nCols];
+        int []types = new int[nCols];
+        String []typeNames = new String[nCols];
+        int []precisions = new int[nCols];
+        int []scales = new int[nCols];
+        boolean []nullable = new boolean[nCols];
+        
+        for (int i = 0; i < nCols; i++) {
+            
+            int col = projection[i];
+            
+            names[i] = meta.getColumnLabel(col);
+            types[i] = meta.getColumnType(col);
+            typeNames[i] = meta.getColumnTypeName(col);
+            precisions[i] = meta.getPrecision(col);
+            scales[i] = meta.getScale(col);
+            nullable[i] =
+                (meta.isNullable(col) != ResultSetMetaData.columnNoNulls);
+        }
+        
+        start(projection, names, types, typeNames, precisions, scales,
+            nullable);
+    }
+    
+    /**
+     * Starts a result set whose values are all strings, as is the case
+     * when a result has already been formatted.
+     *
+     * @param names The names of the columns.
+     * @throws IOException If the description cannot be written.
+     */
+    public void start (String []names)
+        throws IOException {
+        
+        int nCols = names.length;
+        int []types = new int[nCols];
+        String []typeNames = new String[nCols];
+        boolean []nullable = new boolean[nCols];
+        
+        for (int i = 0; i < nCols; i++) {
+            
+            types[i] = Types.VARCHAR;
+            typeNames[i] = "VARCHAR";
+            nullable[i] = true;
+        }
+        
+        start(null, names, types, typeNames, new int[nCols], new int[nCols],
+            nullable);
+    }
+    
+    private void start (int []projection, String []names, int []types,
+            String []typeNames, int []precisions, int []scales,
+            boolean []nullable)
+        throws IOException {
+        
+        int nCols = names.length;
+        
+        this.projection = projection;
+        this.kinds = new int[nCols];
+        this.nullBytes = (nCols + 7) / 8;
+        this.rows = 0L;
+        
+        len = 0;
+        blockRows = 0;
+        
+        ensure(DumpFormat.MAGIC.length + 1);
+        System.arraycopy(DumpFormat.MAGIC, 0, buf, 0, DumpFormat.MAGIC.length);
+        len = DumpFormat.MAGIC.length;
+        buf[len++] = (byte) DumpFormat.VERSION;
+        writeVarLong(nCols);
+        
+        for (int i = 0; i < nCols; i++) {
+            
+            kinds[i] = DumpFormat.getKind(types[i]);
+            
+            writeString(names[i] == null ? "" : names[i]);
+            writeZigZag(types[i]);
+            writeString(typeNames[i] == null ? "" : typeNames[i]);
+            writeVarLong(Math.max(precisions[i], 0));
+            writeZigZag(scales[i]);
+            
+            ensure(2);
+            buf[len++] = (byte) (nullable[i] ? 1 : 0);
+            buf[len++] = (byte) kinds[i];
+        }
+        
+        out.write(buf, 0, len);
+        bytes += len;
+        len = 0;
+    }
+    
+    /**
+     * Writes the current row of a result set.
+     *
+     * @param resultSet The result set, positioned on the row to write.
+     * @throws SQLException If a value cannot be retrieved.
+     * @throws IOException If the row cannot be written.
+     */
+    public void write (ResultSet resultSet)
+        throws SQLException, IOException {
+        
+        int nCols = kinds.length;
+        int bitmap = len;
+        
+        ensure(nullBytes);
+        for (int i = 0; i < nullBytes; i++) {
+            
+            buf[len++] = 0;
+        }
+        
+        for (int i = 0; i < nCols; i++) {
+            
+            int col = projection[i];
+            int start = len;
+            boolean isNull;
+            
+            switch (kinds[i]) {
+                
+                case DumpFormat.KIND_BOOLEAN:
+                    boolean b = resultSet.getBoolean(col);
+                    isNull = resultSet.wasNull();
+                    ensure(1);
+                    buf[len++] = (byte) (b ? 1 : 0);
+                    break;
+                
+                case DumpFormat.KIND_LONG:
+                    writeZigZag(resultSet.getLong(col));
+                    isNull = resultSet.wasNull();
+                    break;
+                
+                case DumpFormat.KIND_FLOAT:
+                    writeInt(Float.floatToRawIntBits(resultSet.getFloat(col)));
+                    isNull = resultSet.wasNull();
+                    break;
+                
+                case DumpFormat.KIND_DOUBLE:
+                    writeLong(Double.doubleToRawLongBits(
+                        resultSet.getDouble(col)));
+                    isNull = resultSet.wasNull();
+                    break;
+                
+                case DumpFormat.KIND_DECIMAL:
+                    BigDecimal dec = resultSet.getBigDecimal(col);
+                    isNull = (dec == null);
+                    if (!isNull) {
+                        
+                        writeZigZag(dec.scale());
+                        writeBytes(dec.unscaledValue().toByteArray());
+                    }
+                    break;
+                
+                case DumpFormat.KIND_DATE:
+                    Date date = resultSet.getDate(col);
+                    isNull = (date == null);
+                    if (!isNull) {
+                        
+                        writeZigZag(date.getTime());
+                    }
+                    break;
+                
+                case DumpFormat.KIND_TIME:
+                    Time time = resultSet.getTime(col);
+                    isNull = (time == null);
+                    if (!isNull) {
+                        
+                        writeZigZag(time.getTime());
+                    }
+                    break;
+                
+                case DumpFormat.KIND_TIMESTAMP:
+                    Timestamp ts = resultSet.getTimestamp(col);
+                    isNull = (ts == null);
+                    if (!isNull) {
+                        
+                        writeZigZag(ts.getTime());
+                        writeVarLong(ts.getNanos());
+                    }
+                    break;
+                
+                case DumpFormat.KIND_BYTES:
+                    byte []value = resultSet.getBytes(col);
+                    isNull = (value == null);
+                    if (!isNull) {
+                        
+                        writeBytes(value);
+                    }
+                    break;
+                
+                default:
+                    String str = resultSet.getString(col);
+                    isNull = (str == null);
+                    if (!isNull) {
+                        
+                        writeString(str);
+                    }
+                    break;
+            }
+            
+            if (isNull) {
+                
+                len = start;
+                buf[bitmap + (i >> 3)] |= (byte) (1 << (i & 7));
+            }
+        }
+        
+        endRow();
+    }
+    
+    /**
+     * Writes a row of a result set started with {@link #start(String[])}.
+     *
+     * @param row The values of the row, with NULLs as null.
+     * @throws IOException If the row cannot be written.
+     */
+    public void write (String []row)
+        throws IOException {
+        
+        int bitmap = len;
+        
+        ensure(nullBytes);
+        for (int i = 0; i < nullBytes; i++) {
+            
+            buf[len++] = 0;
+        }
+        
+        for (int i = 0; i < row.length; i++) {
+            
+            if (row[i] == null) {
+                
+                buf[bitmap + (i >> 3)] |= (byte) (1 << (i & 7));
+            }
+            else {
+                
+                writeString(row[i]);
+            }
+        }
+        
+        endRow();
+    }
+    
+    /**
+     * Completes the current result set, writing any rows that are still
+     * buffered.
+     *
+     * @throws IOException If the rows cannot be written.
+     */
+    public void finish ()
+        throws IOException {
+        
+        if (kinds == null) {
+            
+            return;
+        }
+        
+        writeBlock();
+        
+        out.write(DumpFormat.END);
+        int n = varLong(scratch, 0, rows);
+        out.write(scratch, 0, n);
+        bytes += n + 1;
+        
+        kinds = null;
+        projection = null;
+    }
+    
+    private void endRow ()
+        throws IOException {
+        
+        ++blockRows;
+        ++rows;
+        ++totalRows;
+        
+        if (len >= DumpFormat.BLOCK_SIZE) {
+            
+            writeBlock();
+        }
+    }
+    
+    /*
+     * Writes the rows gathered so far as a block.
+     */
+    private void writeBlock ()
+        throws IOException {
+        
+        if (blockRows == 0) {
+            
+            return;
+        }
+        
+        byte []data = buf;
+        int dataLen = len;
+        int flags = 0;
+        
+        if (compress) {
+            
+            if (deflater == null) {
+                
+                deflater = new Deflater(Deflater.BEST_SPEED);
+                deflated = new byte[buf.length];
+            }
+            
+            deflater.reset();
+            deflater.setInput(buf, 0, len);
+            deflater.finish();
+            
+            int n = 0;
+            while (!deflater.finished() && n < deflated.length) {
+                
+                n += deflater.deflate(deflated, n, deflated.length - n);
+            }
+            
+            /*
+             * If the block didn't shrink it is written as it is.
+             */
+            if (deflater.finished() && n < len) {
+                
+                data = deflated;
+                dataLen = n;
+                flags |= DumpFormat.FLAG_DEFLATE;
+            }
+        }
+        
+        int n = 0;
+        scratch[n++] = (byte) DumpFormat.BLOCK;
+        scratch[n++] = (byte) flags;
+        n = varLong(scratch, n, blockRows);
+        n = varLong(scratch, n, len);
+        n = varLong(scratch, n, dataLen);
+        
+        out.write(scratch, 0, n);
+        out.write(data, 0, dataLen);
+        bytes += n + dataLen;
+        
+        len = 0;
+        blockRows = 0;
+    }
+    
+    private void ensure (int n) {
+        
+        if (len + n > buf.length) {
+            
+            byte []newBuf = new byte[Math.max(buf.length * 2, len + n)];
+            System.arraycopy(buf, 0, newBuf, 0, len);
+            buf = newBuf;
+            
+            if (deflated != null) {
+                
+                deflated = new byte[buf.length];
+            }
+        }
+    }
+    
+    private void writeInt (int v) {
+        
+        ensure(4);
+        buf[len++] = (byte) (v >>> 24);
+        buf[len++] = (byte) (v >>> 16);
+        buf[len++] = (byte) (v >>> 8);
+        buf[len++] = (byte) v;
+    }
+    
+    private void writeLong (long v) {
+        
+        writeInt((int) (v >>> 32));
+        writeInt((int) v);
+    }
+    
+    private void writeZigZag (long v) {
+        
+        writeVarLong((v << 1) ^ (v >> 63));
+    }
+    
+    private void writeVarLong (long v) {
+        
+        ensure(10);
+        len = varLong(buf, len, v);
+    }
+    
+    private void writeBytes (byte []value) {
+        
+        writeVarLong(value.length);
+        ensure(value.length);
+        System.arraycopy(value, 0, buf, len, value.length);
+        len += value.length;
+    }
+    
+    /*
+     * Encodes a string as UTF-8 directly into the block, avoiding the
+     * copy that String.getBytes() would make.
+     */
+    private void writeString (String str) {
+        
+        int strLen = str.length();
+        int utfLen = strLen;
+        
+        for (int i = 0; i < strLen; i++) {
+            
+            char ch = str.charAt(i);
+            if (ch >= 0x80) {
+                
+                utfLen += (ch < 0x800 ? 1 : 2);
+                if (Character.isHighSurrogate(ch) && i + 1 < strLen
+                        && Character.isLowSurrogate(str.charAt(i + 1))) {
+                    
+                    /*
+                     * A pair takes four bytes, so its second half adds
+                     * nothing more.
+                     */
+                    ++i;
+                }
+            }
+        }
+        
+        writeVarLong(utfLen);
+        ensure(utfLen);
+        
+        for (int i = 0; i < strLen; i++) {
+            
+            char ch = str.charAt(i);
+            if (ch < 0x80) {
+                
+                buf[len++] = (byte) ch;
+            }
+            else if (ch < 0x800) {
+                
+                buf[len++] = (byte) (0xc0 | (ch >> 6));
+                buf[len++] = (byte) (0x80 | (ch & 0x3f));
+            }
+            else if (Character.isHighSurrogate(ch) && i + 1 < strLen
+                    && Character.isLowSurrogate(str.charAt(i + 1))) {
+                
+                int cp = Character.toCodePoint(ch, str.charAt(++i));
+                buf[len++] = (byte) (0xf0 | (cp >> 18));
+                buf[len++] = (byte) (0x80 | ((cp >> 12) & 0x3f));
+                buf[len++] = (byte) (0x80 | ((cp >> 6) & 0x3f));
+                buf[len++] = (byte) (0x80 | (cp & 0x3f));
+            }
+            else {
+                
+                buf[len++] = (byte) (0xe0 | (ch >> 12));
+                buf[len++] = (byte) (0x80 | ((ch >> 6) & 0x3f));
+                buf[len++] = (byte) (0x80 | (ch & 0x3f));
+            }
+        }
+    }
+    
+    /**
+     * Writes a variable length integer into an array.
+     *
+     * @return The offset following the integer.
+     */
+    static int varLong (byte []dest, int off, long v) {
+        
+        while ((v & ~0x7fL) != 0L) {
+            
+            dest[off++] = (byte) ((v & 0x7f) | 0x80);
+            v >>>= 7;
+        }
+        dest[off++] = (byte) v;
+        
+        return off;
+    }
+}
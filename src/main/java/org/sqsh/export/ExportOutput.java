@@ -0,0 +1,432 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.export;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPOutputStream;
+
+import org.sqsh.util.BackgroundOutputStream;
+import org.sqsh.util.ChannelOutputStream;
+
+/**
+ * The destination of an export: a file, or a series of files when the
+ * output is rolled over to a new file after a number of rows or bytes.
+ * Rows are handed over as complete lines of text, which are encoded and
+ * written through a buffer, and optionally compressed with gzip, on a
+ * background thread.
+ *
+ * <p>When the output is rolled over, the files are numbered by
+ * inserting a sequence number before the extension of the name given,
+ * so that "out.csv" is written as "out.0001.csv", "out.0002.csv" and
+ * so on.
+ *
+ * <p>Rows may be written from several threads at once, in which case
+ * each row is written whole.
+ */
+public class ExportOutput {
+    
+    private static final int BUFFER_SIZE = 256 * 1024;
+    
+    private String filename;
+    private boolean compress;
+    private long maxRows;
+    private long maxBytes;
+    
+    private CharsetEncoder encoder;
+    private char []chars = new char[8192];
+    private ByteBuffer bytes = ByteBuffer.allocate(8192 * 4);
+    
+    private CharSequence header = null;
+    
+    /*
+     * The file currently being written, and what has been written to it.
+     */
+    private OutputStream out = null;
+    private long fileRows = 0L;
+    private long fileBytes = 0L;
+    
+    private List<File> files = new ArrayList<File>();
+    private long rows = 0L;
+    private long totalBytes = 0L;
+    
+    /**
+     * Creates the output. No file is created until something is written.
+     *
+     * @param filename The name of the file to write.
+     * @param charset The character set to encode the output with.
+     * @param compress If true, the output is compressed with gzip and
+     *   ".gz" is appended to the file name if it does not already end
+     *   with it.
+     * @param maxRows If greater than zero, the number of rows after which
+     *   the output is rolled over to a new file.
+     * @param maxBytes If greater than zero, the number of (uncompressed)
+     *   bytes after which the output is rolled over to a new file. Files
+     *   are only rolled over between rows, so a file can exceed this by
+     *   up to one row.
+     */
+    public ExportOutput (String filename, Charset charset, boolean compress,
+            long maxRows, long maxBytes) {
+        
+        this.compress = compress;
+        this.maxRows = maxRows;
+        this.maxBytes = maxBytes;
+        
+        if (compress && !filename.endsWith(".gz")) {
+            
+            filename = filename + ".gz";
+        }
+        this.filename = filename;
+        
+        encoder = charset.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    }
+    
+    /**
+     * Sets the header, such as the column names of a CSV file, that
+     * starts each file. If a file is currently being written and the
+     * header differs from the current one, it is also written to the
+     * file immediately (as happens when a statement produces more than
+     * one set of results).
+     *
+     * @param header The complete header, including its line ending, or
+     *   null if the files have no header.
+     * @throws IOException If the header cannot be written.
+     */
+    public synchronized void setHeader (CharSequence header)
+        throws IOException {
+        
+        /*
+         * When several results (or several threads) share the output,
+         * a header that is the same as the current one is not repeated.
+         */
+        if (header == null || (this.header != null
+                && this.header.toString().equals(header.toString()))) {
+            
+            this.header = header;
+            return;
+        }
+        
+        this.header = header;
+        
+        if (out == null) {
+            
+            open();
+        }
+        else {
+            
+            fileBytes += encode(header);
+        }
+    }
+    
+    /**
+     * Writes a row, rolling over to a new file afterward if the file has
+     * reached its limit.
+     *
+     * @param row The complete row, including its line ending.
+     * @throws IOException If the row cannot be written.
+     */
+    public synchronized void writeRow (CharSequence row)
+        throws IOException {
+        
+        if (out == null) {
+            
+            open();
+        }
+        
+        fileBytes += encode(row);
+        endRow();
+    }
+        
+    /**
+     * Writes a row held in a region of a character array, rolling over to
+     * a new file afterward if the file has reached its limit.
+     *
+     * @param row The characters of the row, including its line ending.
+     * @param off The offset of the first character of the row.
+     * @param len The number of characters in the row.
+     * @throws IOException If the row cannot be written.
+     */
+    public synchronized void writeRow (char []row, int off, int len)
+        throws IOException {
+            
+        if (out == null) {
+            
+            open();
+        }
+        
+        encoder.reset();
+        fileBytes += encode(CharBuffer.wrap(row, off, len), true);
+        endRow();
+    }
+    
+    /**
+     * Completes the output. If nothing was ever written an empty file
+     * (containing only the header, if there is one) is still created.
+     *
+     * @throws IOException If the output could not be completed.
+     */
+    public synchronized void close ()
+        throws IOException {
+        
+        if (out == null && files.isEmpty()) {
+            
+            open();
+        }
+        
+        closeFile();
+    }
+    
+    /**
+     * @return The number of rows written.
+     */
+    public long getRows() {
+        
+        return rows;
+    }
+    
+    /**
+     * @return The number of bytes written, before compression.
+     */
+    public long getBytes() {
+        
+        return totalBytes + fileBytes;
+    }
+    
+    /**
+     * @return The files that have been created.
+     */
+    public List<File> getFiles() {
+        
+        return files;
+    }
+    
+    /**
+     * @return The total size of the files created, which is only accurate
+     *   once the output has been closed.
+     */
+    public long getFileBytes() {
+        
+        long total = 0L;
+        for (File file : files) {
+            
+            total += file.length();
+        }
+        
+        return total;
+    }
+    
+    private void endRow ()
+        throws IOException {
+        
+        ++fileRows;
+        ++rows;
+        
+        if ((maxRows > 0 && fileRows >= maxRows)
+                || (maxBytes > 0 && fileBytes >= maxBytes)) {
+            
+            closeFile();
+        }
+    }
+    
+    private void open ()
+        throws IOException {
+        
+        File file = new File(nextFilename());
+        FileOutputStream fileOut = new FileOutputStream(file);
+        
+        if (compress) {
+            
+            /*
+             * Compression is the expensive part of writing, so it is
+             * given its own thread. The compressed output is small, and
+             * is written by that same thread.
+             */
+            out = new BackgroundOutputStream(
+                new GZIPOutputStream(new ChannelOutputStream(
+                    fileOut.getChannel(), BUFFER_SIZE, false), 65536),
+                BUFFER_SIZE, "jsqsh-export-gzip");
+        }
+        else {
+            
+            out = new ChannelOutputStream(fileOut.getChannel(),
+                BUFFER_SIZE, true);
+        }
+        
+        files.add(file);
+        fileRows = 0L;
+        fileBytes = 0L;
+        
+        if (header != null) {
+            
+            fileBytes += encode(header);
+        }
+    }
+    
+    private void closeFile ()
+        throws IOException {
+        
+        if (out != null) {
+            
+            OutputStream toClose = out;
+            out = null;
+            totalBytes += fileBytes;
+            fileBytes = 0L;
+            toClose.close();
+        }
+    }
+    
+    /*
+     * Works out the name of the next file to create.
+     */
+    private String nextFilename() {
+        
+        if (maxRows <= 0 && maxBytes <= 0) {
+            
+            return filename;
+        }
+        
+        return insertBeforeExtension(filename,
+            String.format(".%04d", files.size() + 1));
+    }
+    
+    /**
+     * Inserts text into a file name just before its extension, ignoring
+     * any ".gz" that ends the name, so that inserting ".p01" into
+     * "out.csv.gz" produces "out.p01.csv.gz". A dot that is part of the
+     * name of a directory is not taken to be an extension.
+     * 
+     * @param filename The file name.
+     * @param insert The text to insert.
+     * @return The new file name.
+     */
+    public static String insertBeforeExtension(String filename,
+            String insert) {
+        
+        String base = filename;
+        String suffix = "";
+        if (filename.endsWith(".gz")) {
+            
+            base = filename.substring(0, filename.length() - 3);
+            suffix = ".gz";
+        }
+        
+        int dot = base.lastIndexOf('.');
+        if (dot <= base.lastIndexOf(File.separatorChar) + 1) {
+            
+            dot = base.length();
+        }
+        
+        return base.substring(0, dot) + insert + base.substring(dot) + suffix;
+    }
+    
+    /*
+     * Encodes text and writes it to the current file, returning the
+     * number of bytes written.
+     */
+    private long encode (CharSequence text)
+        throws IOException {
+        
+        long written = 0L;
+        int len = text.length();
+        int start = 0;
+        
+        encoder.reset();
+        while (start < len) {
+            
+            int n = Math.min(len - start, chars.length);
+            if (text instanceof StringBuilder) {
+                
+                ((StringBuilder) text).getChars(start, start + n, chars, 0);
+            }
+            else {
+                
+                text.toString().getChars(start, start + n, chars, 0);
+            }
+            
+            /*
+             * Leave a surrogate that ends the chunk for the next one.
+             */
+            if (start + n < len && Character.isHighSurrogate(chars[n - 1])) {
+                
+                --n;
+            }
+            
+            written += encode(CharBuffer.wrap(chars, 0, n), start + n == len);
+            start += n;
+        }
+        
+        return written;
+    }
+    
+    /*
+     * Encodes a buffer of characters, returning the number of bytes
+     * written. If this is the last of the text being encoded, the
+     * encoder is flushed along with everything that has been buffered.
+     */
+    private long encode (CharBuffer cb, boolean last)
+        throws IOException {
+        
+        long written = 0L;
+        CoderResult result;
+        
+        do {
+            
+            result = encoder.encode(cb, bytes, last);
+            if (result.isOverflow()) {
+                
+                written += drain();
+            }
+        }
+        while (result.isOverflow());
+        
+        if (last) {
+            
+            while (encoder.flush(bytes).isOverflow()) {
+                
+                written += drain();
+            }
+            
+            written += drain();
+        }
+        
+        return written;
+    }
+    
+    private int drain ()
+        throws IOException {
+        
+        int n = bytes.position();
+        if (n > 0) {
+            
+            out.write(bytes.array(), 0, n);
+            bytes.clear();
+        }
+        
+        return n;
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.export;
+
+import java.io.IOException;
+
+import org.sqsh.ColumnDescription;
+import org.sqsh.Renderer;
+import org.sqsh.RendererManager;
+import org.sqsh.RowBatch;
+import org.sqsh.Session;
+import org.sqsh.util.CSVDialect;
+import org.sqsh.util.CSVWriter;
+import org.sqsh.util.JSONWriter;
+
+/**
+ * A renderer that writes rows to an {@link ExportOutput} rather than to
+ * the session, used by the \export command. Each row is formatted into
+ * a single buffer which is handed to the output in one call.
+ */
+public class ExportRenderer
+    extends Renderer {
+    
+    /**
+     * The formats that rows may be exported in.
+     */
+    public static enum Format {
+        
+        /**
+         * Comma separated values. Fields containing commas, quotes or
+         * line breaks, or starting or ending with white space, are
+         * quoted. NULLs are empty fields.
+         */
+        CSV,
+        
+        /**
+         * Tab separated values. Tabs, line breaks and backslashes within
+         * fields are written as \t, \n, \r and \\. NULLs are empty fields.
+         */
+        TSV,
+        
+        /**
+         * JSON lines: one JSON object per row, with a member for each
+         * column.
+         */
+        JSON
+    };
+    
+    private static final String LINE_SEPARATOR =
+        System.getProperty("line.separator");
+    
+    private ExportOutput output;
+    private Format format;
+    private boolean showHeaders;
+    
+    /*
+     * Column names, quoted and escaped, for JSON lines, and whether each
+     * column holds values that can be written without quotes.
+     */
+    private char [][]names = null;
+    private boolean []unquoted = null;
+    
+    /*
+     * CSV and TSV lines are built by the CSV writer, JSON lines by the
+     * JSON writer.
+     */
+    private CSVWriter writer = null;
+    private JSONWriter json = null;
+    private IOException error = null;
+    
+    /**
+     * Creates the renderer.
+     *
+     * @param session The session.
+     * @param manager The renderer manager.
+     * @param output Where the rows are to be written.
+     * @param format The format of the rows.
+     * @param showHeaders If true, CSV and TSV files start with a line of
+     *   column names.
+     */
+    public ExportRenderer(Session session, RendererManager manager,
+            ExportOutput output, Format format, boolean showHeaders) {
+        
+        super(session, manager);
+        this.output = output;
+        this.format = format;
+        this.showHeaders = showHeaders;
+        
+        if (format == Format.CSV) {
+            
+            writer = new CSVWriter(CSVDialect.forName(CSVDialect.CSV));
+        }
+        else if (format == Format.TSV) {
+            
+            writer = new CSVWriter(CSVDialect.forName(CSVDialect.TSV));
+        }
+        else {
+            
+            json = new JSONWriter();
+        }
+    }
+    
+    /**
+     * @return The error that stopped the export, or null if there was
+     *   no error.
+     */
+    public IOException getError() {
+        
+        return error;
+    }
+    
+    @Override
+    public void header (ColumnDescription []columns) {
+        
+        super.header(columns);
+        
+        if (format == Format.JSON) {
+            
+            names = new char[columns.length][];
+            unquoted = new boolean[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                
+                names[i] = JSONWriter.encodeName(columns[i].getName(), null);
+                unquoted[i] = JSONWriter.isUnquoted(
+                    columns[i].getNativeType());
+            }
+            
+            return;
+        }
+        
+        if (showHeaders) {
+            
+            writer.clear();
+            for (int i = 0; i < columns.length; i++) {
+                
+                writer.field(columns[i].getName() == null
+                    ? "" : columns[i].getName());
+            }
+            writer.endLine();
+            
+            try {
+                
+                output.setHeader(new String(writer.getBuffer(), 0,
+                    writer.length()));
+            }
+            catch (IOException e) {
+                
+                error = e;
+            }
+        }
+    }
+    
+    @Override
+    public boolean isLobLimited() {
+        
+        return false;
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public boolean retainsRows() {
+        
+        return false;
+    }
+    
+    @Override
+    public boolean row (String []row) {
+        
+        startLine();
+        for (int i = 0; i < row.length; i++) {
+            
+            appendField(i, row[i], isNull(row[i]));
+        }
+        
+        return writeLine();
+    }
+    
+    @Override
+    public boolean rows (RowBatch batch) {
+        
+        int nRows = batch.size();
+        int nCols = batch.getColumnCount();
+        
+        for (int r = 0; r < nRows; r++) {
+            
+            startLine();
+            for (int i = 0; i < nCols; i++) {
+                
+                appendField(i, batch.get(r, i), batch.isNull(r, i));
+            }
+            
+            if (!writeLine()) {
+                
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    @Override
+    public boolean flush () {
+        
+        return (error == null);
+    }
+    
+    /**
+     * The export reports on itself once it is done, so the usual footer
+     * is not displayed.
+     */
+    @Override
+    public void footer (String footer) {
+        
+        /* NOTHING */
+    }
+    
+    private void startLine () {
+        
+        if (writer != null) {
+            
+            writer.clear();
+        }
+        else {
+            
+            json.clear();
+        }
+    }
+    
+    private boolean writeLine () {
+        
+        if (error != null) {
+            
+            return false;
+        }
+        
+        try {
+            
+            if (writer != null) {
+                
+                writer.endLine();
+                output.writeRow(writer.getBuffer(), 0, writer.length());
+            }
+            else {
+                
+                json.append('}');
+                json.append(LINE_SEPARATOR);
+                output.writeRow(json.getBuffer(), 0, json.length());
+            }
+        }
+        catch (IOException e) {
+            
+            error = e;
+            return false;
+        }
+        
+        return true;
+    }
+    
+    private void appendField (int col, String value, boolean isNull) {
+        
+        if (writer != null) {
+            
+            writer.field(isNull ? null : value);
+            return;
+        }
+        
+        json.append(col == 0 ? '{' : ',');
+        json.append(names[col]);
+        json.value(isNull ? null : value, unquoted[col]);
+    }
+}
@@ -0,0 +1,582 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.export;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.sqsh.ColumnDescription;
+import org.sqsh.ConnectionDescriptor;
+import org.sqsh.DataFormatter;
+import org.sqsh.FetchPlan;
+import org.sqsh.RowBatch;
+import org.sqsh.SQLConnectionContext;
+import org.sqsh.SQLRenderer;
+import org.sqsh.SQLTools;
+import org.sqsh.Session;
+import org.sqsh.signals.FlaggingSignalHandler;
+import org.sqsh.signals.Sig;
+import org.sqsh.signals.SignalManager;
+
+/**
+ * Exports the results of a query over several connections at once. The
+ * query is split into partitions by ranges of the values of one of its
+ * columns, each of which is fetched through its own connection (opened
+ * with the same settings as the session's connection) by its own thread.
+ * Each partition has its own {@link ExportRenderer}, writing either to a
+ * file of its own or, with all of the others, to a single shared
+ * {@link ExportOutput}.
+ */
+public class PartitionedExport {
+    
+    private static final Logger LOG =
+        Logger.getLogger(PartitionedExport.class.getName());
+    
+    /*
+     * How often, in milliseconds, progress is displayed.
+     */
+    private static final long PROGRESS_INTERVAL = 1000L;
+    
+    private Session session;
+    private String sql;
+    private String column;
+    private List<String> predicates = new ArrayList<String>();
+    
+    private Worker []workers = null;
+    
+    private volatile boolean cancelled = false;
+    private volatile Throwable failure = null;
+    
+    /**
+     * Creates the export.
+     *
+     * @param session The session whose connection the partitions'
+     *   connections are modeled on.
+     * @param sql The query to export.
+     * @param column The column (of the results of the query) whose
+     *   values the query is partitioned by.
+     */
+    public PartitionedExport(Session session, String sql, String column) {
+        
+        this.session = session;
+        this.column = column;
+        
+        /*
+         * The query is going to be wrapped in another, so any terminator
+         * that was left on it must go.
+         */
+        sql = sql.trim();
+        while (sql.endsWith(";")) {
+            
+            sql = sql.substring(0, sql.length() - 1).trim();
+        }
+        this.sql = sql;
+    }
+    
+    /**
+     * Partitions the query by explicit boundaries. Given N boundaries
+     * there are N+1 partitions: values less than the first boundary (and
+     * NULLs), values from the first boundary up to the second, and so on
+     * up to values greater than or equal to the last.
+     *
+     * @param bounds The boundaries, as SQL literals, in ascending order.
+     */
+    public void setBounds(List<String> bounds) {
+        
+        predicates.clear();
+        if (bounds.isEmpty()) {
+            
+            predicates.add(null);
+            return;
+        }
+        
+        predicates.add(column + " < " + bounds.get(0)
+            + " or " + column + " is null");
+        for (int i = 1; i < bounds.size(); i++) {
+            
+            predicates.add(column + " >= " + bounds.get(i - 1)
+                + " and " + column + " < " + bounds.get(i));
+        }
+        predicates.add(column + " >= " + bounds.get(bounds.size() - 1));
+    }
+    
+    /**
+     * Partitions the query into ranges of (roughly) equal size between
+     * the minimum and maximum values of the partition column, which must
+     * be numeric. The minimum and maximum are retrieved using the
+     * session's connection.
+     *
+     * @param partitions The number of partitions.
+     * @throws SQLException If the range cannot be determined.
+     */
+    public void computeBounds(int partitions)
+        throws SQLException {
+        
+        Connection conn = session.getConnection();
+        Statement statement = null;
+        ResultSet results = null;
+        BigDecimal min;
+        BigDecimal max;
+        boolean integral;
+        
+        try {
+            
+            statement = conn.createStatement();
+            results = statement.executeQuery("select min(" + column
+                + "), max(" + column + ") from (" + sql + ") jsqsh_range");
+            
+            int type = results.getMetaData().getColumnType(1);
+            switch (type) {
+                
+                case Types.TINYINT:
+                case Types.SMALLINT:
+                case Types.INTEGER:
+                case Types.BIGINT:
+                    integral = true;
+                    break;
+                
+                case Types.REAL:
+                case Types.FLOAT:
+                case Types.DOUBLE:
+                case Types.DECIMAL:
+                case Types.NUMERIC:
+                    integral = false;
+                    break;
+                
+                default:
+                    throw new SQLException("Column '" + column + "' is of type "
+                        + SQLTools.getTypeName(type) + ". Only numeric "
+                        + "columns can be partitioned automatically; "
+                        + "the partition boundaries must be provided");
+            }
+            
+            if (!results.next()) {
+                
+                throw new SQLException("Unable to determine the range of "
+                    + "values of column '" + column + "'");
+            }
+            
+            min = results.getBigDecimal(1);
+            max = results.getBigDecimal(2);
+        }
+        finally {
+            
+            SQLTools.close(results);
+            SQLTools.close(statement);
+        }
+        
+        List<String> bounds = new ArrayList<String>();
+        if (min != null && max != null && partitions > 1) {
+            
+            BigDecimal step = max.subtract(min).divide(
+                BigDecimal.valueOf(partitions), 10, RoundingMode.HALF_UP);
+            
+            for (int i = 1; i < partitions; i++) {
+                
+                BigDecimal bound = min.add(step.multiply(BigDecimal.valueOf(i)));
+                bound = (integral
+                    ? bound.setScale(0, RoundingMode.CEILING)
+                    : bound.stripTrailingZeros());
+                
+                /*
+                 * A narrow range of integers can't be split as many
+                 * ways as requested.
+                 */
+                String str = bound.toPlainString();
+                if (bounds.isEmpty() || !bounds.get(bounds.size() - 1).equals(str)) {
+                    
+                    bounds.add(str);
+                }
+            }
+        }
+        
+        setBounds(bounds);
+    }
+    
+    /**
+     * @return The number of partitions.
+     */
+    public int getPartitionCount() {
+        
+        return predicates.size();
+    }
+    
+    /**
+     * Runs the export, waiting for all of the partitions to complete.
+     * Hitting CTRL-C cancels all of them.
+     *
+     * @param factory Creates the renderer for each partition.
+     * @return true if every partition completed.
+     * @throws SQLException If the connections cannot be established.
+     */
+    public boolean run(RendererFactory factory)
+        throws SQLException {
+        
+        ConnectionDescriptor connDesc = ((SQLConnectionContext)
+            session.getConnectionContext()).getConnectionDescriptor();
+        if (connDesc == null) {
+            
+            throw new SQLException("The session's connection cannot be "
+                + "duplicated to export in parallel");
+        }
+        
+        int nParts = predicates.size();
+        workers = new Worker[nParts];
+        
+        /*
+         * Connecting can prompt for input, so is done one at a time
+         * before anything else starts.
+         */
+        try {
+            
+            for (int i = 0; i < nParts; i++) {
+                
+                SQLConnectionContext ctx =
+                    session.getDriverManager().connect(session, connDesc);
+                workers[i] = new Worker(i, ctx, factory.create(i));
+            }
+        }
+        catch (SQLException e) {
+            
+            closeConnections();
+            throw e;
+        }
+        
+        SignalManager sigMan = SignalManager.getInstance();
+        CancelHandler sigHandler = new CancelHandler();
+        sigMan.push(sigHandler);
+        
+        try {
+            
+            for (Worker worker : workers) {
+                
+                worker.start();
+            }
+            
+            waitForWorkers();
+        }
+        finally {
+            
+            sigMan.pop();
+            closeConnections();
+        }
+        
+        if (failure != null) {
+            
+            if (failure instanceof SQLException) {
+                
+                SQLTools.printException(session, (SQLException) failure);
+            }
+            else {
+                
+                session.err.println("Export failed: " + failure.getMessage());
+            }
+        }
+        
+        return (failure == null && !cancelled);
+    }
+    
+    /**
+     * @return The total number of rows fetched by all partitions.
+     */
+    public long getRows() {
+        
+        long rows = 0L;
+        if (workers != null) {
+            
+            for (Worker worker : workers) {
+                
+                rows += worker.rows.get();
+            }
+        }
+        
+        return rows;
+    }
+    
+    /*
+     * Waits for the workers to complete, displaying their progress as
+     * it goes if the session is interactive.
+     */
+    private void waitForWorkers() {
+        
+        boolean progress = session.isInteractive();
+        boolean shown = false;
+        
+        for (int i = 0; i < workers.length; i++) {
+            
+            while (workers[i].isAlive()) {
+                
+                try {
+                    
+                    workers[i].join(PROGRESS_INTERVAL);
+                }
+                catch (InterruptedException e) {
+                    
+                    cancel();
+                }
+                
+                if (progress && workers[i].isAlive()) {
+                    
+                    int done = 0;
+                    for (Worker worker : workers) {
+                        
+                        if (!worker.isAlive()) {
+                            
+                            ++done;
+                        }
+                    }
+                    
+                    session.err.print("\r" + getRows() + " rows, "
+                        + done + " of " + workers.length
+                        + " partitions complete ");
+                    session.err.flush();
+                    shown = true;
+                }
+            }
+        }
+        
+        if (shown) {
+            
+            session.err.println();
+        }
+    }
+    
+    /*
+     * Stops all of the partitions.
+     */
+    private void cancel() {
+        
+        cancelled = true;
+        for (Worker worker : workers) {
+            
+            Statement statement = worker.statement;
+            if (statement != null) {
+                
+                try {
+                    
+                    statement.cancel();
+                }
+                catch (SQLException e) {
+                    
+                    /* IGNORED */
+                }
+            }
+        }
+    }
+    
+    private void closeConnections() {
+        
+        for (Worker worker : workers) {
+            
+            if (worker != null) {
+                
+                worker.ctx.close();
+            }
+        }
+    }
+    
+    private void fail(Throwable e) {
+        
+        synchronized (this) {
+            
+            if (failure == null && !cancelled) {
+                
+                failure = e;
+            }
+        }
+        
+        cancel();
+    }
+    
+    /**
+     * Creates the renderer used by each partition.
+     */
+    public static interface RendererFactory {
+        
+        /**
+         * @param partition The partition number (starting at 0).
+         * @return The renderer for that partition.
+         */
+        ExportRenderer create(int partition);
+    }
+    
+    /**
+     * Cancels the export when CTRL-C is hit.
+     */
+    private class CancelHandler
+        extends FlaggingSignalHandler {
+        
+        @Override
+        public void signal (Sig sig) {
+            
+            System.err.println("^C");
+            triggered = true;
+            cancel();
+        }
+    }
+    
+    /**
+     * Fetches and writes one partition.
+     */
+    private class Worker
+        extends Thread {
+        
+        private int partition;
+        private SQLConnectionContext ctx;
+        private ExportRenderer renderer;
+        private volatile Statement statement = null;
+        private AtomicLong rows = new AtomicLong();
+        
+        public Worker (int partition, SQLConnectionContext ctx,
+                ExportRenderer renderer) {
+            
+            super("jsqsh-export-" + (partition + 1));
+            setDaemon(true);
+            
+            this.partition = partition;
+            this.ctx = ctx;
+            this.renderer = renderer;
+        }
+        
+        @Override
+        public void run() {
+            
+            String predicate = predicates.get(partition);
+            String query = (predicate == null ? sql
+                : "select * from (" + sql + ") jsqsh_part where " + predicate);
+            ResultSet results = null;
+            
+            if (LOG.isLoggable(Level.FINE)) {
+                
+                LOG.fine("Partition " + (partition + 1) + ": " + query);
+            }
+            
+            try {
+                
+                Statement stmt = ctx.getConnection().createStatement();
+                int fetchSize = session.getFetchSize();
+                if (fetchSize > 0) {
+                    
+                    stmt.setFetchSize(fetchSize);
+                }
+                
+                statement = stmt;
+                if (cancelled) {
+                    
+                    return;
+                }
+                
+                results = stmt.executeQuery(query);
+                export(results);
+            }
+            catch (Throwable e) {
+                
+                if (!cancelled) {
+                    
+                    fail(e);
+                }
+            }
+            finally {
+                
+                SQLTools.close(results);
+                SQLTools.close(statement);
+            }
+        }
+        
+        private void export(ResultSet results)
+            throws SQLException {
+            
+            ColumnDescription []columns = describe(results.getMetaData());
+            int nCols = columns.length;
+            
+            FetchPlan plan = FetchPlan.create(session, columns, nCols, null);
+            FetchPlan.Row fetched = plan.newRow();
+            RowBatch batch = plan.newBatch(
+                Math.max(session.getSQLRenderer().getBatchRows(), 1));
+            int rowCount = 0;
+            
+            renderer.header(columns);
+            
+            while (!cancelled && results.next()) {
+                
+                plan.fetch(results, fetched, ++rowCount);
+                plan.format(fetched, batch);
+                
+                if (batch.isFull()) {
+                    
+                    write(batch);
+                }
+            }
+            
+            if (!cancelled && !batch.isEmpty()) {
+                
+                write(batch);
+            }
+        }
+        
+        private void write(RowBatch batch)
+            throws SQLException {
+            
+            if (!renderer.rows(batch)) {
+                
+                fail(renderer.getError());
+            }
+            
+            rows.addAndGet(batch.size());
+            batch.clear();
+        }
+        
+        /*
+         * Describes the results in the same way as SQLRenderer does. The
+         * formatters are created lazily by the session's DataFormatter,
+         * so it is locked while the description is built.
+         */
+        private ColumnDescription[] describe(ResultSetMetaData meta)
+            throws SQLException {
+            
+            SQLRenderer sqlRenderer = session.getSQLRenderer();
+            DataFormatter formatter = session.getDataFormatter();
+            int nCols = meta.getColumnCount();
+            ColumnDescription []columns = new ColumnDescription[nCols];
+            
+            synchronized (formatter) {
+                
+                for (int i = 0; i < nCols; i++) {
+                    
+                    columns[i] = sqlRenderer.getDescription(meta, i + 1);
+                }
+                
+                if (!renderer.isLobLimited()) {
+                    
+                    sqlRenderer.setUnlimitedLobs(columns);
+                }
+            }
+            
+            return columns;
+        }
+    }
+}
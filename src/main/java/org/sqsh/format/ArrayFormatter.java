@@ -55,10 +55,16 @@ public class ArrayFormatter
     @Override
     public String format(Object value) {
         
+        StringBuilder sb = new StringBuilder();
+        format(sb, value);
+        return sb.toString();
+    }
+
+    @Override
+    public void format(StringBuilder sb, Object value) {
+        
         Array         array = (Array)value;
-        StringBuilder sb    = new StringBuilder();
         int           idx   = 0;
-        String        str   = null;
 
         try  {
             
@@ -78,20 +84,20 @@ public class ArrayFormatter
             while (rs.next()) {
                 
                 Object element = rs.getObject(2);
-                if (!rs.wasNull()) {
+                
+                if (idx > 0) {
                     
-                    str = elementFormatter.format(element);
+                    sb.append(", ");
                 }
-                else {
+                
+                if (!rs.wasNull()) {
                     
-                    str = nullStr;
+                    elementFormatter.format(sb, element);
                 }
-                
-                if (idx > 0) {
+                else {
                     
-                    sb.append(", ");
+                    sb.append(nullStr);
                 }
-                sb.append(str);
                 ++idx;
             }
             
@@ -102,7 +108,5 @@ public class ArrayFormatter
             throw new FormatError("Failed to format array entry #"
                 + idx + ": " + e.getMessage(), e);
         }
-        
-        return sb.toString();
     }
 }
@@ -42,6 +42,12 @@ public class BitFormatter
         
         return "1";
     }
+    
+    @Override
+    public void format (StringBuilder buffer, Object value) {
+        
+        buffer.append(format(value));
+    }
 
     @Override
     public int getMaxWidth () {
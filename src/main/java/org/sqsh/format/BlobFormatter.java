@@ -15,30 +15,152 @@
  */
 package org.sqsh.format;
 
+import java.io.InputStream;
 import java.sql.Blob;
+import java.sql.SQLException;
 
+import org.sqsh.Formatter;
+
+/**
+ * Formats a BLOB as hex. The contents of the BLOB are streamed, so only
+ * as many bytes as are displayed are ever read, and if the BLOB is
+ * longer than the display limit the hex is followed by a marker saying
+ * how many bytes were left out, such as:
+ * 
+ * <pre>
+ *   0x0a1b2c&hellip;(1048570 more bytes)
+ * </pre>
+ * 
+ * The BLOB is freed once it has been formatted.
+ */
 public class BlobFormatter
-    extends ByteFormatter {
+    implements Formatter {
+    
+    private static final int BUFFER_SIZE = 8192;
+    
+    private int maxBytes;
+    private boolean useStringFormat;
+    private byte []buffer = null;
     
+    /**
+     * Creates a formatter that displays all of every BLOB.
+     */
     public BlobFormatter() {
         
-        super(Integer.MAX_VALUE);
+        this(0, false);
+    }
+    
+    /**
+     * Creates a formatter.
+     * 
+     * @param maxBytes The maximum number of bytes of a BLOB to display,
+     *   or a value less than 1 if there is no limit.
+     * @param useStringFormat If true, the hex is displayed as X'abcd'
+     *   rather than 0xabcd.
+     */
+    public BlobFormatter(int maxBytes, boolean useStringFormat) {
+        
+        this.maxBytes = maxBytes;
+        this.useStringFormat = useStringFormat;
     }
 
     public String format (Object value) {
 
+        StringBuilder sb = new StringBuilder();
+        format(sb, value);
+        return sb.toString();
+    }
+    
+    public void format (StringBuilder sb, Object value) {
+        
         Blob blob = (Blob) value;
+        int start = sb.length();
         
         try {
             
-            byte bytes[] = blob.getBytes(0, (int) blob.length());
-            return super.format(bytes);
+            long length = blob.length();
+            long shown = length;
+            if (maxBytes > 0 && length > maxBytes) {
+                
+                shown = maxBytes;
+            }
+            
+            sb.append(useStringFormat ? "X'" : "0x");
+            
+            if (shown > 0) {
+                
+                if (buffer == null) {
+                    
+                    buffer = new byte[BUFFER_SIZE];
+                }
+                
+                InputStream in = blob.getBinaryStream();
+                try {
+                    
+                    long remaining = shown;
+                    while (remaining > 0) {
+                        
+                        int count = in.read(buffer, 0,
+                            (int) Math.min(remaining, buffer.length));
+                        if (count < 0) {
+                            
+                            break;
+                        }
+                        
+                        ByteFormatter.appendHex(sb, buffer, 0, count);
+                        remaining -= count;
+                    }
+                }
+                finally {
+                    
+                    in.close();
+                }
+            }
+            
+            if (useStringFormat) {
+                
+                sb.append('\'');
+            }
+            
+            if (length > shown) {
+                
+                sb.append("\u2026(").append(length - shown)
+                    .append(" more bytes)");
+            }
         }
         catch (Exception e) {
             
-            /* IGNORED */
+            sb.setLength(start);
+            sb.append("*ERROR*");
         }
+        finally {
+            
+            free(blob);
+        }
+    }
+    
+    public int getMaxWidth () {
+        
+        return Integer.MAX_VALUE;
+    }
+    
+    /*
+     * Releases the resources held by the BLOB. Drivers that pre-date
+     * JDBC 4 do not implement free().
+     */
+    private static void free(Blob blob) {
         
-        return "*ERROR*";
+        try {
+            
+            blob.free();
+        }
+        catch (SQLException e) {
+            
+            /* IGNORED */
+        }
+        catch (AbstractMethodError e) {
+            
+            /* IGNORED */
+        }
     }
 }
@@ -35,6 +35,11 @@ public class BooleanFormatter
         
         return "false";
     }
+    
+    public void format (StringBuilder buffer, Object value) {
+        
+        buffer.append(format(value));
+    }
 
     public int getMaxWidth () {
 
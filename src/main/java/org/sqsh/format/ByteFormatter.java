@@ -23,6 +23,21 @@ import org.sqsh.Formatter;
 public class ByteFormatter
     implements Formatter {
     
+    /*
+     * The two hex digits of every byte value, indexed by the value
+     * times two.
+     */
+    private static final char[] HEX = new char[512];
+    static {
+        
+        String digits = "0123456789abcdef";
+        for (int i = 0; i < 256; i++) {
+            
+            HEX[i * 2] = digits.charAt(i >>> 4);
+            HEX[i * 2 + 1] = digits.charAt(i & 0x0F);
+        }
+    }
+    
     private byte[] b = new byte[1];
     private int maxBytes;
     private boolean useStringFormat;
@@ -45,6 +60,25 @@ public class ByteFormatter
 
     public String format (Object value, int len) {
         
+        StringBuilder sb = new StringBuilder();
+        format(sb, value, len);
+        return sb.toString();
+    }
+    
+    public void format (StringBuilder sb, Object value) {
+        
+        format(sb, value, -1);
+    }
+    
+    /**
+     * Formats a byte or byte array, appending the result to a buffer.
+     * 
+     * @param sb The buffer to append to
+     * @param value The value (a Byte or a byte[])
+     * @param len The number of bytes to format, -1 formats all of them
+     */
+    public void format (StringBuilder sb, Object value, int len) {
+        
         byte []bytes;
         
         if (value instanceof Byte) {
@@ -57,40 +91,39 @@ public class ByteFormatter
             bytes = ((byte[]) value);
         }
         
-        StringBuilder sb = new StringBuilder(2 + (bytes.length * 2));
-        byte ch;
-        
         if (useStringFormat)
             sb.append("X'");
         else
             sb.append("0x");
         
-        String hexDigits[] = {
-            "0", "1", "2", "3", "4", "5", "6", "7", "8", "9", 
-            "a", "b", "c", "d", "e", "f"
-        };
-        
         if (len < 0) {
             
             len = bytes.length;
         }
         
-        for (int i = 0; i < len; i++) {
-
-            ch = (byte) (bytes[i] & 0xF0);
-            ch = (byte) (ch >>> 4);
-            ch = (byte) (ch & 0x0F);
-            
-            sb.append(hexDigits[(int) ch]);
-            ch = (byte) (bytes[i] & 0x0F);
-
-            sb.append(hexDigits[(int) ch]);
-        }
+        appendHex(sb, bytes, 0, len);
 
         if (useStringFormat)
             sb.append("'");
+    }
+    
+    /**
+     * Appends bytes to a buffer as hex digits, two per byte.
+     * 
+     * @param sb The buffer to append to
+     * @param bytes The bytes
+     * @param off The offset of the first byte to append
+     * @param len The number of bytes to append
+     */
+    public static void appendHex (StringBuilder sb, byte []bytes,
+        int off, int len) {
         
-        return sb.toString();
+        sb.ensureCapacity(sb.length() + len * 2);
+        for (int i = off, end = off + len; i < end; i++) {
+            
+            int idx = (bytes[i] & 0xFF) << 1;
+            sb.append(HEX[idx]).append(HEX[idx + 1]);
+        }
     }
 
     public int getMaxWidth () {
@@ -17,38 +17,136 @@ package org.sqsh.format;
 
 import java.io.Reader;
 import java.sql.Clob;
+import java.sql.SQLException;
 
 import org.sqsh.Formatter;
 
+/**
+ * Formats a CLOB. The contents of the CLOB are streamed, so only as many
+ * characters as are displayed are ever read, and if the CLOB is longer
+ * than the display limit it is followed by a marker saying how many
+ * characters were left out, such as:
+ * 
+ * <pre>
+ *   Lorem ipsum dolor&hellip;(1048570 more characters)
+ * </pre>
+ * 
+ * The CLOB is freed once it has been formatted.
+ */
 public class ClobFormatter
     implements Formatter {
     
+    private static final int BUFFER_SIZE = 8192;
+    
+    private int maxChars;
+    private char []chars = null;
+    
+    /**
+     * Creates a formatter that displays all of every CLOB.
+     */
+    public ClobFormatter() {
+        
+        this(0);
+    }
+    
+    /**
+     * Creates a formatter.
+     * 
+     * @param maxChars The maximum number of characters of a CLOB to
+     *   display, or a value less than 1 if there is no limit.
+     */
+    public ClobFormatter(int maxChars) {
+        
+        this.maxChars = maxChars;
+    }
+    
     public String format (Object value) {
         
-        Clob clob = (Clob) value;
         StringBuilder sb = new StringBuilder();
-        char []chars = new char[512];
+        format(sb, value);
+        return sb.toString();
+    }
+    
+    public void format (StringBuilder buffer, Object value) {
+        
+        Clob clob = (Clob) value;
+        long shown = 0;
+        
+        if (chars == null) {
+            
+            chars = new char[BUFFER_SIZE];
+        }
         
         try {
             
             Reader in = clob.getCharacterStream();
-            while (in.read(chars) >= 0) {
+            try {
                 
-                sb.append(chars);
+                while (maxChars <= 0 || shown < maxChars) {
+                    
+                    int len = chars.length;
+                    if (maxChars > 0 && maxChars - shown < len) {
+                        
+                        len = (int) (maxChars - shown);
+                    }
+                    
+                    int count = in.read(chars, 0, len);
+                    if (count < 0) {
+                        
+                        break;
+                    }
+                    
+                    buffer.append(chars, 0, count);
+                    shown += count;
+                }
+            }
+            finally {
+                
+                in.close();
             }
             
-            in.close();
+            if (maxChars > 0 && shown >= maxChars) {
+                
+                long more = clob.length() - shown;
+                if (more > 0) {
+                    
+                    buffer.append("\u2026(").append(more)
+                        .append(" more characters)");
+                }
+            }
         }
         catch (Exception e) {
             
             /* IGNORED */
         }
+        finally {
         
-        return sb.toString();
+            free(clob);
+        }
     }
 
     public int getMaxWidth () {
 
         return Integer.MAX_VALUE;
     }
+    
+    /*
+     * Releases the resources held by the CLOB. Drivers that pre-date
+     * JDBC 4 do not implement free().
+     */
+    private static void free(Clob clob) {
+        
+        try {
+            
+            clob.free();
+        }
+        catch (SQLException e) {
+            
+            /* IGNORED */
+        }
+        catch (AbstractMethodError e) {
+            
+            /* IGNORED */
+        }
+    }
 }
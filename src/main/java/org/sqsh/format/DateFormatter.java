@@ -15,31 +15,490 @@
  */
 package org.sqsh.format;
 
-import java.sql.Timestamp;
+import java.text.DateFormatSymbols;
+import java.text.DecimalFormat;
+import java.text.NumberFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.TimeZone;
 
 import org.sqsh.Formatter;
 
+/**
+ * Formats dates, times and timestamps according to a
+ * {@link SimpleDateFormat} pattern, producing exactly the same output as
+ * SimpleDateFormat would.
+ *
+ * <p>Rather than handing each value to a SimpleDateFormat, which is not
+ * thread safe and which works out the fields of every value through a
+ * Calendar, the pattern is broken down once, up front, and the fields of
+ * each value are computed directly from its milliseconds. This makes the
+ * formatter safe to share between threads. Patterns that use anything
+ * other than the common fields (years, months, days, weekdays, hours,
+ * minutes, seconds, milliseconds and AM/PM), values that fall before
+ * the adoption of the Gregorian calendar, and locales that use a different
+ * calendar or different digits, are handed to a SimpleDateFormat that is
+ * kept for each thread.
+ *
+ * <p>Patterns that only display the date are also given a small cache of
+ * the most recently formatted days, since the same dates tend to appear
+ * over and over again in a result set.
+ */
 public class DateFormatter
     implements Formatter {
     
-    private SimpleDateFormat format;
-    private int maxWidth;
+    private static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+    
+    /*
+     * The first instant (with a couple of days to spare for time zones)
+     * at which the default GregorianCalendar switches to the Gregorian
+     * calendar, 15 October 1582. Anything earlier is left to
+     * SimpleDateFormat.
+     */
+    private static final long GREGORIAN_START =
+        -12219292800000L + 2 * MILLIS_PER_DAY;
+    
+    /*
+     * The number of days that are cached (a power of two).
+     */
+    private static final int CACHE_SIZE = 64;
+    
+    /*
+     * The kinds of fields the pattern is broken down into.
+     */
+    private static final int LITERAL     = 0;
+    private static final int YEAR        = 1;
+    private static final int MONTH       = 2;
+    private static final int MONTH_NAME  = 3;
+    private static final int DAY         = 4;
+    private static final int WEEKDAY     = 5;
+    private static final int HOUR_0_23   = 6;
+    private static final int HOUR_1_24   = 7;
+    private static final int HOUR_0_11   = 8;
+    private static final int HOUR_1_12   = 9;
+    private static final int MINUTE      = 10;
+    private static final int SECOND      = 11;
+    private static final int MILLISECOND = 12;
+    private static final int AM_PM       = 13;
+    
+    private final String pattern;
+    private final int maxWidth;
+    private final SimpleDateFormat prototype;
+    private final TimeZone timeZone;
+    
+    /*
+     * The pattern, broken down into fields. For each field, its kind,
+     * the number of pattern letters it was made up of (the width to which
+     * numbers are padded) and, for literals and names, the text. If the
+     * pattern could not be broken down, kinds is null.
+     */
+    private int []kinds = null;
+    private int []counts = null;
+    private String [][]text = null;
+    private boolean dateOnly = true;
+    
+    private final DayEntry []cache = new DayEntry[CACHE_SIZE];
+    
+    /*
+     * Values that cannot be formatted directly are handed to a copy of
+     * the prototype, one per thread.
+     */
+    private final ThreadLocal<SimpleDateFormat> fallback =
+        new ThreadLocal<SimpleDateFormat>() {
+            
+            @Override
+            protected SimpleDateFormat initialValue() {
+                
+                return (SimpleDateFormat) prototype.clone();
+            }
+        };
     
     public DateFormatter (String format, int maxWidth) {
         
-        this.format = new SimpleDateFormat(format);
+        this.pattern = format;
         this.maxWidth = maxWidth;
+        this.prototype = new SimpleDateFormat(format);
+        this.timeZone = prototype.getTimeZone();
+        
+        compile();
     }
 
     public String format (Object value) {
         
-        return format.format(value);
+        if (kinds == null || !(value instanceof Date)) {
+            
+            return fallback.get().format(value);
+        }
+        
+        StringBuilder sb = new StringBuilder(maxWidth > 0 ? maxWidth : 32);
+        format(sb, value);
+        return sb.toString();
+    }
+    
+    public void format (StringBuilder sb, Object value) {
+        
+        if (kinds == null || !(value instanceof Date)) {
+            
+            sb.append(fallback.get().format(value));
+            return;
+        }
+        
+        long millis = ((Date) value).getTime();
+        if (millis < GREGORIAN_START) {
+            
+            sb.append(fallback.get().format(value));
+            return;
+        }
+        
+        long local = millis + timeZone.getOffset(millis);
+        long day = local / MILLIS_PER_DAY;
+        if (local % MILLIS_PER_DAY < 0) {
+            
+            --day;
+        }
+        
+        if (!dateOnly) {
+            
+            append(sb, day, (int) (local - day * MILLIS_PER_DAY));
+            return;
+        }
+        
+        /*
+         * The cache is shared by every thread using the formatter, but
+         * its entries are never changed once they are created, so the
+         * worst that can happen is that a day is formatted twice.
+         */
+        int slot = (int) day & (CACHE_SIZE - 1);
+        DayEntry entry = cache[slot];
+        if (entry != null && entry.day == day) {
+            
+            sb.append(entry.text);
+            return;
+        }
+        
+        int start = sb.length();
+        append(sb, day, 0);
+        cache[slot] = new DayEntry(day, sb.substring(start));
     }
 
     public int getMaxWidth () {
 
         return maxWidth;
     }
+    
+    /*
+     * Appends the fields of a value, given as the day since 1970-01-01
+     * and the milliseconds since the start of that day, in local time.
+     */
+    private void append(StringBuilder sb, long day, int millisOfDay) {
+        
+        /*
+         * Converts the day to a year, month and day of month. See
+         * http://howardhinnant.github.io/date_algorithms.html
+         */
+        long z = day + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        int doe = (int) (z - era * 146097);
+        int yoe = (doe - doe / 1460 + doe / 36524 - doe / 146096) / 365;
+        int doy = doe - (365 * yoe + yoe / 4 - yoe / 100);
+        int mp = (5 * doy + 2) / 153;
+        int dayOfMonth = doy - (153 * mp + 2) / 5 + 1;
+        int month = (mp < 10 ? mp + 3 : mp - 9);
+        int year = (int) (yoe + era * 400) + (month <= 2 ? 1 : 0);
+        int hour = millisOfDay / 3600000;
+        
+        for (int i = 0; i < kinds.length; i++) {
+            
+            int count = counts[i];
+            
+            switch (kinds[i]) {
+                
+                case LITERAL:
+                    sb.append(text[i][0]);
+                    break;
+                
+                case YEAR:
+                    if (count == 2) {
+                        
+                        pad(sb, year % 100, 2);
+                    }
+                    else {
+                        
+                        pad(sb, year, count);
+                    }
+                    break;
+                
+                case MONTH:
+                    pad(sb, month, count);
+                    break;
+                
+                case MONTH_NAME:
+                    sb.append(text[i][month - 1]);
+                    break;
+                
+                case DAY:
+                    pad(sb, dayOfMonth, count);
+                    break;
+                
+                case WEEKDAY:
+                    /*
+                     * 1970-01-01 was a Thursday. The names are indexed by
+                     * the Calendar constants, where Sunday is 1.
+                     */
+                    int dow = (int) ((day + 4) % 7);
+                    sb.append(text[i][(dow < 0 ? dow + 7 : dow) + 1]);
+                    break;
+                
+                case HOUR_0_23:
+                    pad(sb, hour, count);
+                    break;
+                
+                case HOUR_1_24:
+                    pad(sb, (hour == 0 ? 24 : hour), count);
+                    break;
+                
+                case HOUR_0_11:
+                    pad(sb, hour % 12, count);
+                    break;
+                
+                case HOUR_1_12:
+                    pad(sb, (hour % 12 == 0 ? 12 : hour % 12), count);
+                    break;
+                
+                case MINUTE:
+                    pad(sb, (millisOfDay / 60000) % 60, count);
+                    break;
+                
+                case SECOND:
+                    pad(sb, (millisOfDay / 1000) % 60, count);
+                    break;
+                
+                case MILLISECOND:
+                    pad(sb, millisOfDay % 1000, count);
+                    break;
+                
+                case AM_PM:
+                    sb.append(text[i][hour < 12 ? 0 : 1]);
+                    break;
+                
+                default:
+                    break;
+            }
+        }
+    }
+    
+    /*
+     * Appends a non-negative number, padded with zeros to a width.
+     */
+    private static void pad(StringBuilder sb, int value, int width) {
+        
+        int digits = 1;
+        for (int n = value; n >= 10; n /= 10) {
+            
+            ++digits;
+        }
+        
+        for (int i = digits; i < width; i++) {
+            
+            sb.append('0');
+        }
+        
+        sb.append(value);
+    }
+    
+    /*
+     * Breaks the pattern down into fields, following the same rules that
+     * SimpleDateFormat does. If the pattern, or the locale, needs anything
+     * that cannot be handled directly, it is left alone and every value is
+     * handed to SimpleDateFormat.
+     */
+    private void compile() {
+        
+        if (prototype.getCalendar().getClass() != GregorianCalendar.class) {
+            
+            return;
+        }
+        
+        NumberFormat numberFormat = prototype.getNumberFormat();
+        if (!(numberFormat instanceof DecimalFormat)
+            || ((DecimalFormat) numberFormat).getDecimalFormatSymbols()
+                   .getZeroDigit() != '0') {
+            
+            return;
+        }
+        
+        DateFormatSymbols symbols = prototype.getDateFormatSymbols();
+        List<Integer> kindList = new ArrayList<Integer>();
+        List<Integer> countList = new ArrayList<Integer>();
+        List<String[]> textList = new ArrayList<String[]>();
+        StringBuilder literal = new StringBuilder();
+        boolean hasDay = false;
+        boolean hasMonthName = false;
+        int len = pattern.length();
+        int i = 0;
+        
+        while (i < len) {
+            
+            char ch = pattern.charAt(i);
+            
+            if (ch == '\'') {
+                
+                /*
+                 * A pair of quotes is a quote, anything else is quoted
+                 * text, in which a pair of quotes is also a quote.
+                 */
+                if (i + 1 < len && pattern.charAt(i + 1) == '\'') {
+                    
+                    literal.append('\'');
+                    i += 2;
+                    continue;
+                }
+                
+                ++i;
+                while (i < len) {
+                    
+                    ch = pattern.charAt(i);
+                    if (ch == '\'') {
+                        
+                        if (i + 1 < len && pattern.charAt(i + 1) == '\'') {
+                            
+                            literal.append('\'');
+                            i += 2;
+                            continue;
+                        }
+                        
+                        break;
+                    }
+                    
+                    literal.append(ch);
+                    ++i;
+                }
+                
+                ++i;
+                continue;
+            }
+            
+            if (!((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z'))) {
+                
+                literal.append(ch);
+                ++i;
+                continue;
+            }
+            
+            int count = 1;
+            while (i + count < len && pattern.charAt(i + count) == ch) {
+                
+                ++count;
+            }
+            i += count;
+            
+            int kind;
+            String []names = null;
+            
+            switch (ch) {
+                
+                case 'y': kind = YEAR; break;
+                case 'd': kind = DAY; hasDay = true; break;
+                case 'H': kind = HOUR_0_23; break;
+                case 'k': kind = HOUR_1_24; break;
+                case 'K': kind = HOUR_0_11; break;
+                case 'h': kind = HOUR_1_12; break;
+                case 'm': kind = MINUTE; break;
+                case 's': kind = SECOND; break;
+                case 'S': kind = MILLISECOND; break;
+                
+                case 'M':
+                    if (count >= 3) {
+                        
+                        kind = MONTH_NAME;
+                        names = (count >= 4 ? symbols.getMonths()
+                            : symbols.getShortMonths());
+                        hasMonthName = true;
+                    }
+                    else {
+                        
+                        kind = MONTH;
+                    }
+                    break;
+                
+                case 'E':
+                    kind = WEEKDAY;
+                    names = (count >= 4 ? symbols.getWeekdays()
+                        : symbols.getShortWeekdays());
+                    break;
+                
+                case 'a':
+                    kind = AM_PM;
+                    names = symbols.getAmPmStrings();
+                    break;
+                
+                default:
+                    return;
+            }
+            
+            if (literal.length() > 0) {
+                
+                kindList.add(LITERAL);
+                countList.add(0);
+                textList.add(new String[] { literal.toString() });
+                literal.setLength(0);
+            }
+            
+            if (kind >= HOUR_0_23) {
+                
+                dateOnly = false;
+            }
+            
+            kindList.add(kind);
+            countList.add(count);
+            textList.add(names);
+        }
+        
+        /*
+         * Some locales use a different form of the month's name when it
+         * appears without a day, which is only known to SimpleDateFormat.
+         */
+        if (hasMonthName && !hasDay) {
+            
+            return;
+        }
+        
+        if (literal.length() > 0) {
+            
+            kindList.add(LITERAL);
+            countList.add(0);
+            textList.add(new String[] { literal.toString() });
+        }
+        
+        int n = kindList.size();
+        int []k = new int[n];
+        int []c = new int[n];
+        for (int j = 0; j < n; j++) {
+            
+            k[j] = kindList.get(j);
+            c[j] = countList.get(j);
+        }
+        
+        text = textList.toArray(new String[n][]);
+        counts = c;
+        kinds = k;
+    }
+    
+    /*
+     * A formatted day in the cache.
+     */
+    private static final class DayEntry {
+        
+        final long day;
+        final String text;
+        
+        DayEntry (long day, String text) {
+            
+            this.day = day;
+            this.text = text;
+        }
+    }
 }
@@ -16,15 +16,70 @@
 package org.sqsh.format;
 
 import org.sqsh.Formatter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.text.DecimalFormat;
+import java.text.FieldPosition;
 
+/**
+ * Formats numbers. Integers (a scale of zero or less) are displayed as
+ * they are. Numbers with a scale are displayed the way a DecimalFormat of
+ * "#.000..." (with scale zeros) would display them, that is rounded, half
+ * even, to exactly scale decimal places and with no leading zero.
+ *
+ * <p>DecimalFormat is expensive, so as long as the value is small enough
+ * to be held as a long once it has been scaled (that is, it has no more
+ * than 18 digits), the digits are written directly from the scaled value
+ * instead. Only values that are any larger, and doubles that fall too
+ * close to half way between two values to be rounded reliably in
+ * floating point, are left to DecimalFormat.
+ */
 public class NumberFormatter
     implements Formatter {
     
+    /*
+     * The largest number of digits that are written without help.
+     */
+    private static final int MAX_DIGITS = 18;
+    
+    private static final long []POW10 = new long[MAX_DIGITS + 1];
+    static {
+        
+        POW10[0] = 1L;
+        for (int i = 1; i <= MAX_DIGITS; i++) {
+            
+            POW10[i] = POW10[i - 1] * 10L;
+        }
+    }
+    
+    /*
+     * A double is only scaled in floating point if the result is below
+     * this, so that it still fits in a long.
+     */
+    private static final double MAX_SCALED = (double) (1L << 52);
+    
     private int precision;
     private int scale;
     private DecimalFormat format;
     
+    /*
+     * DecimalFormat can only append to a StringBuffer, so we hang on to
+     * one for the append style methods, below.
+     */
+    private StringBuffer buffer = new StringBuffer(32);
+    private FieldPosition pos = new FieldPosition(0);
+    
+    /*
+     * If the digits may be written directly, the prefix DecimalFormat uses
+     * for negative numbers, its decimal separator followed by scale
+     * zeros, and a buffer the digits are written into.
+     */
+    private boolean direct = false;
+    private String negativePrefix;
+    private char []zeroFraction;
+    private char []digits = new char[MAX_DIGITS + 2];
+    
     public NumberFormatter(int precision, int scale) {
         
         this.precision = precision;
@@ -57,7 +112,44 @@ public class NumberFormatter
             }
             
             format = new DecimalFormat(sb.toString());
+            direct = (this.scale <= MAX_DIGITS && initDirect());
+        }
+    }
+    
+    /*
+     * Works out, from what DecimalFormat does with 1 and -1, how the
+     * digits are to be written for the current locale. If the locale uses
+     * anything unusual (digits other than 0-9, for example) the digits
+     * are always left to DecimalFormat.
+     */
+    private boolean initDirect() {
+        
+        if (format.getDecimalFormatSymbols().getZeroDigit() != '0') {
+            
+            return false;
+        }
+        
+        String one = format.format(1L);
+        String minusOne = format.format(-1L);
+        
+        if (one.length() != scale + 2 || one.charAt(0) != '1'
+            || !minusOne.endsWith(one)) {
+            
+            return false;
         }
+        
+        for (int i = 2; i < one.length(); i++) {
+            
+            if (one.charAt(i) != '0') {
+                
+                return false;
+            }
+        }
+        
+        negativePrefix =
+            minusOne.substring(0, minusOne.length() - one.length());
+        zeroFraction = one.substring(1).toCharArray();
+        return true;
     }
 
     @Override
@@ -71,11 +163,220 @@ public class NumberFormatter
         
         if (format != null) {
             
+            if (direct) {
+                
+                StringBuilder sb = new StringBuilder(scale + 8);
+                format(sb, value);
+                return sb.toString();
+            }
+            
             return format.format(value);
         }
         
         return value.toString();
     }
+    
+    @Override
+    public void format (StringBuilder sb, Object value) {
+        
+        if (!(value instanceof Number))
+        {
+            throw new IllegalArgumentException("Cannot format " 
+               + value.getClass().getName() + " as a number");
+        }
+        
+        if (format == null) {
+            
+            sb.append(value);
+        }
+        else if (!direct) {
+            
+            sb.append(decimalFormat(value));
+        }
+        else if (value instanceof BigDecimal) {
+            
+            if (!appendDecimal(sb, (BigDecimal) value)) {
+                
+                sb.append(decimalFormat(value));
+            }
+        }
+        else if (value instanceof Long || value instanceof Integer
+            || value instanceof Short || value instanceof Byte) {
+            
+            format(sb, ((Number) value).longValue());
+        }
+        else if (value instanceof Double || value instanceof Float) {
+            
+            format(sb, ((Number) value).doubleValue());
+        }
+        else {
+            
+            sb.append(decimalFormat(value));
+        }
+    }
+    
+    /**
+     * Formats a primitive integer value, appending it to a buffer. This
+     * produces the same output as {@link #format(Object)} would for the
+     * boxed value, without requiring the value to be boxed.
+     * 
+     * @param sb The buffer to append to
+     * @param value The value to format
+     */
+    public void format (StringBuilder sb, long value) {
+        
+        if (format == null) {
+            
+            sb.append(value);
+        }
+        else if (!direct) {
+            
+            sb.append(decimalFormat(value));
+        }
+        else {
+            
+            if (value < 0L) {
+                
+                sb.append(negativePrefix);
+                if (value == Long.MIN_VALUE) {
+                    
+                    sb.append(Long.toString(value).substring(1));
+                }
+                else {
+                    
+                    sb.append(-value);
+                }
+            }
+            else if (value > 0L) {
+                
+                sb.append(value);
+            }
+            
+            sb.append(zeroFraction);
+        }
+    }
+    
+    /**
+     * Formats a primitive floating point value, appending it to a buffer. 
+     * This produces the same output as {@link #format(Object)} would for 
+     * the boxed value, without requiring the value to be boxed.
+     * 
+     * @param sb The buffer to append to
+     * @param value The value to format
+     */
+    public void format (StringBuilder sb, double value) {
+        
+        if (format == null) {
+            
+            sb.append(value);
+            return;
+        }
+        
+        if (direct) {
+            
+            double scaled = value * POW10[scale];
+            
+            /*
+             * The scaled value is off by no more than half of its ulp and
+             * the double itself is only accurate to about one ulp of the
+             * scaled value, so unless it is within a few ulps of half
+             * way between two values it rounds the same way that
+             * DecimalFormat rounds it. Those that are that close are left
+             * to DecimalFormat, which has its own ideas about ties. This
+             * also weeds out NaN and infinity.
+             */
+            if (Math.abs(scaled) < MAX_SCALED
+                && Math.abs(scaled - Math.floor(scaled) - 0.5)
+                       > 4.0 * Math.ulp(scaled)) {
+                
+                appendScaled(sb, Math.abs((long) Math.rint(scaled)),
+                    value < 0.0 || (value == 0.0 && 1.0 / value < 0.0));
+                return;
+            }
+        }
+        
+        sb.append(decimalFormat(value));
+    }
+    
+    /*
+     * Writes a BigDecimal directly, if it is small enough.
+     *
+     * @return false if it is too large, and has not been written.
+     */
+    private boolean appendDecimal (StringBuilder sb, BigDecimal value) {
+        
+        BigDecimal scaled = value;
+        if (scaled.scale() > scale) {
+            
+            scaled = scaled.setScale(scale, RoundingMode.HALF_EVEN);
+        }
+        
+        int shift = scale - scaled.scale();
+        if (shift > MAX_DIGITS
+            || scaled.precision() + shift > MAX_DIGITS) {
+            
+            return false;
+        }
+        
+        long unscaled = scaled.unscaledValue().longValue() * POW10[shift];
+        appendScaled(sb, Math.abs(unscaled), value.signum() < 0);
+        return true;
+    }
+    
+    /*
+     * Writes a number given as its (positive) value multiplied by
+     * 10^scale, which may have no more than MAX_DIGITS digits. As with
+     * DecimalFormat, there is no leading zero before the decimal
+     * separator.
+     */
+    private void appendScaled (StringBuilder sb, long unscaled,
+            boolean isNegative) {
+        
+        char []buf = digits;
+        int idx = buf.length;
+        long n = unscaled;
+        
+        for (int i = 0; i < scale; i++) {
+            
+            long q = n / 10L;
+            buf[--idx] = (char) ('0' + (int) (n - q * 10L));
+            n = q;
+        }
+        
+        buf[--idx] = zeroFraction[0];
+        
+        while (n > 0L) {
+            
+            long q = n / 10L;
+            buf[--idx] = (char) ('0' + (int) (n - q * 10L));
+            n = q;
+        }
+        
+        if (isNegative) {
+            
+            sb.append(negativePrefix);
+        }
+        
+        sb.append(buf, idx, buf.length - idx);
+    }
+    
+    private StringBuffer decimalFormat (Object value) {
+        
+        buffer.setLength(0);
+        return format.format(value, buffer, pos);
+    }
+    
+    private StringBuffer decimalFormat (long value) {
+        
+        buffer.setLength(0);
+        return format.format(value, buffer, pos);
+    }
+    
+    private StringBuffer decimalFormat (double value) {
+        
+        buffer.setLength(0);
+        return format.format(value, buffer, pos);
+    }
 
     @Override
     public int getMaxWidth () {
@@ -35,6 +35,11 @@ public class Unformatter
 
         return value.toString();
     }
+    
+    public void format (StringBuilder buffer, Object value) {
+        
+        buffer.append(value);
+    }
 
     public int getMaxWidth () {
 
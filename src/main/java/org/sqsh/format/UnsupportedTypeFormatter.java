@@ -35,4 +35,10 @@ public class UnsupportedTypeFormatter
 
         return value.toString();
     }
+
+    @Override
+    public void format(StringBuilder buffer, Object value) {
+
+        buffer.append(value);
+    }
 }
@@ -15,91 +15,390 @@
  */
 package org.sqsh.format;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import java.io.OutputStream;
-import java.io.Reader;
+import java.io.StringReader;
+import java.sql.SQLException;
 import java.sql.SQLXML;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
-import javax.xml.transform.TransformerConfigurationException;
-import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.TransformerFactoryConfigurationError;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 
 import org.sqsh.Formatter;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 
 /**
  * This class is used to format XML content contained in database columns.
- * Note that right now it requires reading in of the entire XML document
- * into memory as the current jsqsh architecture doesn't provide for the
- * streaming of objects as they get displayed.
+ * The document is indented as it is read, in a single pass over a StAX
+ * stream, without ever building a DOM. Elements that only contain text
+ * are displayed on one line, other elements have their content on lines
+ * of its own, each level indented four spaces further than the last,
+ * until half of the maximum width of the column is taken up by
+ * indentation, after which deeper levels are not indented any further.
+ * 
+ * <p>If the value is not well-formed XML it is displayed exactly as it
+ * was retrieved. A formatter keeps no state between values, so it may be
+ * used by more than one thread.
  */
 public class XMLFormatter
     implements Formatter {
     
-   public String format (Object value) {
+    private static final int INDENT = 4;
+        
+    /*
+     * Asks the JDK's parser to hand back CDATA sections as they are,
+     * rather than as plain text, so that they can be displayed as such.
+     */
+    private static final String REPORT_CDATA =
+        "http://java.sun.com/xml/stream/properties/report-cdata-event";
+        
+    /*
+     * Creating a factory means looking up the implementation, so each
+     * thread creates one the first time it formats XML and keeps it.
+     */
+    private static final ThreadLocal<XMLInputFactory> factory =
+        new ThreadLocal<XMLInputFactory>() {
+            
+            @Override
+            protected XMLInputFactory initialValue() {
+            
+                XMLInputFactory f = XMLInputFactory.newInstance();
+                if (f.isPropertySupported(REPORT_CDATA)) {
+            
+                    f.setProperty(REPORT_CDATA, Boolean.TRUE);
+                }
+                f.setProperty(
+                    XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES,
+                    Boolean.FALSE);
+                return f;
+            }
+        };
+            
+    private int maxWidth;
+    private int maxIndent;
+        
+    /**
+     * Creates a formatter with no limit on its width.
+     */
+    public XMLFormatter() {
+        
+        this(Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Creates a formatter.
+     * 
+     * @param maxWidth The maximum width of the column the XML is
+     *   displayed in, 0 or less if there is no limit.
+     */
+    public XMLFormatter(int maxWidth) {
+        
+        this.maxWidth = (maxWidth > 0 ? maxWidth : Integer.MAX_VALUE);
+        this.maxIndent = (this.maxWidth / 2) - ((this.maxWidth / 2) % INDENT);
+    }
+    
+    public String format (Object value) {
+        
+        StringBuilder sb = new StringBuilder();
+        format(sb, value);
+        return sb.toString();
+    }
+
+    public void format (StringBuilder buffer, Object value) {
         
         SQLXML xml = (SQLXML) value;
-        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        String text;
         
         try {
             
-            Reader in = xml.getCharacterStream();
-            prettyPrint(createDOM(in), out);
+            text = xml.getString();
+        }
+        catch (SQLException e) {
             
-            in.close();
-            out.flush();
+            buffer.append("XML retrieval error (")
+                .append(e.getMessage()).append(')');
+            return;
+        }
+        finally {
             
-            return out.toString();
+            free(xml);
         }
-        catch (Exception e) {
+        
+        if (text == null) {
             
-            return "XML parse error (" + e.getMessage() + ")";
+            return;
         }
         
+        int start = buffer.length();
+        try {
+            
+            prettyPrint(text, buffer);
+        }
+        catch (XMLStreamException e) {
+            
+            buffer.setLength(start);
+            buffer.append(text);
+        }
     }
 
     public int getMaxWidth () {
 
-        return Integer.MAX_VALUE;
+        return maxWidth;
     }
     
-    private Element createDOM(Reader in) 
-        throws ParserConfigurationException, SAXException, IOException {
+    /*
+     * Writes the document with each element and each run of text, other
+     * than that which is the only content of an element, on its own
+     * line. The start tag of an element is left open until what follows
+     * it is known, so that an empty element can be written as <a/> and
+     * an element that only holds text as <a>text</a>.
+     */
+    private void prettyPrint(String text, StringBuilder out)
+        throws XMLStreamException {
 
-        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
-        dbf.setValidating(false);
-        DocumentBuilder db = dbf.newDocumentBuilder();
+        XMLStreamReader in =
+            factory.get().createXMLStreamReader(new StringReader(text));
+        StringBuilder pending = new StringBuilder();
+        boolean isStartOpen = false;
+        boolean isFirstLine = true;
+        int depth = 0;
         
-        InputSource sourceXML = new InputSource(in);
-        Document xmlDoc = db.parse(sourceXML);
-        Element e = xmlDoc.getDocumentElement();
-        e.normalize();
+        try {
         
-        return e;
+            while (in.hasNext()) {
+                
+                int event = in.next();
+                
+                /*
+                 * Text is held on to until we know whether it is the
+                 * only thing in its element.
+                 */
+                if (event == XMLStreamConstants.CHARACTERS
+                    || event == XMLStreamConstants.SPACE
+                    || event == XMLStreamConstants.CDATA) {
+                    
+                    if (depth > 0) {
+                        
+                        if (event == XMLStreamConstants.CDATA) {
+                            
+                            pending.append("<![CDATA[")
+                                .append(in.getText()).append("]]>");
+                        }
+                        else {
+                            
+                            escape(pending, in.getText(), false);
+                        }
+                    }
+                    
+                    continue;
+                }
+                
+                if (event == XMLStreamConstants.END_ELEMENT) {
+                    
+                    --depth;
+                    if (isStartOpen) {
+                        
+                        if (pending.length() == 0) {
+                            
+                            out.append("/>");
+                        }
+                        else {
+                            
+                            out.append('>').append(pending);
+                            endTag(out, in);
+                        }
+                        
+                        isStartOpen = false;
+                        pending.setLength(0);
+                        continue;
+                    }
+                }
+                
+                /*
+                 * Anything else goes on a line of its own, so close off
+                 * an open start tag and write out the text before it.
+                 */
+                if (isStartOpen) {
+                    
+                    out.append('>');
+                    isStartOpen = false;
+                }
+                
+                if (pending.length() > 0) {
+                    
+                    int end = pending.length();
+                    int begin = 0;
+                    while (begin < end
+                        && Character.isWhitespace(pending.charAt(begin))) {
+                        
+                        ++begin;
+                    }
+                    while (end > begin
+                        && Character.isWhitespace(pending.charAt(end - 1))) {
+                        
+                        --end;
+                    }
+                    
+                    if (begin < end) {
+                        
+                        /*
+                         * Before an end tag the depth has already been
+                         * stepped back out of the element.
+                         */
+                        newLine(out, (event == XMLStreamConstants.END_ELEMENT
+                            ? depth + 1 : depth));
+                        out.append(pending, begin, end);
+                    }
+                    
+                    pending.setLength(0);
+                }
+                
+                switch (event) {
+                    
+                    case XMLStreamConstants.START_ELEMENT:
+                        if (!isFirstLine) {
+                            
+                            newLine(out, depth);
+                        }
+                        startTag(out, in);
+                        isStartOpen = true;
+                        ++depth;
+                        break;
+                    
+                    case XMLStreamConstants.END_ELEMENT:
+                        newLine(out, depth);
+                        endTag(out, in);
+                        break;
+                    
+                    case XMLStreamConstants.COMMENT:
+                        if (!isFirstLine) {
+                            
+                            newLine(out, depth);
+                        }
+                        out.append("<!--").append(in.getText())
+                            .append("-->");
+                        break;
+                    
+                    case XMLStreamConstants.PROCESSING_INSTRUCTION:
+                        if (!isFirstLine) {
+                            
+                            newLine(out, depth);
+                        }
+                        out.append("<?").append(in.getPITarget());
+                        String data = in.getPIData();
+                        if (data != null && data.length() > 0) {
+                            
+                            out.append(' ').append(data);
+                        }
+                        out.append("?>");
+                        break;
+                    
+                    case XMLStreamConstants.DTD:
+                        if (!isFirstLine) {
+                            
+                            newLine(out, depth);
+                        }
+                        out.append(in.getText());
+                        break;
+                    
+                    default:
+                        continue;
+                }
+                
+                isFirstLine = false;
+            }
+        }
+        finally {
+            
+            in.close();
+        }
     }
     
-    private final void prettyPrint(Node xml, OutputStream out)
-        throws TransformerConfigurationException,
-               TransformerFactoryConfigurationError,
-               TransformerException {
-        
-        Transformer tf = TransformerFactory.newInstance().newTransformer();
-        tf.setOutputProperty(OutputKeys.OMIT_XML_DECLARATION, "yes");
-        tf.setOutputProperty(OutputKeys.ENCODING, "UTF-8");
-        tf.setOutputProperty(OutputKeys.INDENT, "yes");
-        tf.transform(new DOMSource(xml), new StreamResult(out));
+    private void newLine(StringBuilder out, int depth) {
+        
+        out.append('\n');
+        for (int i = Math.min(depth * INDENT, maxIndent); i > 0; i--) {
+            
+            out.append(' ');
+        }
+    }
+    
+    private static void startTag(StringBuilder out, XMLStreamReader in) {
+        
+        out.append('<');
+        name(out, in.getPrefix(), in.getLocalName());
+        
+        for (int i = 0; i < in.getNamespaceCount(); i++) {
+            
+            String prefix = in.getNamespacePrefix(i);
+            out.append(" xmlns");
+            if (prefix != null && prefix.length() > 0) {
+                
+                out.append(':').append(prefix);
+            }
+            out.append("=\"");
+            escape(out, in.getNamespaceURI(i), true);
+            out.append('"');
+        }
+        
+        for (int i = 0; i < in.getAttributeCount(); i++) {
+            
+            out.append(' ');
+            name(out, in.getAttributePrefix(i), in.getAttributeLocalName(i));
+            out.append("=\"");
+            escape(out, in.getAttributeValue(i), true);
+            out.append('"');
+        }
+    }
+    
+    private static void endTag(StringBuilder out, XMLStreamReader in) {
+        
+        out.append("</");
+        name(out, in.getPrefix(), in.getLocalName());
+        out.append('>');
+    }
+    
+    private static void name(StringBuilder out, String prefix,
+        String localName) {
+        
+        if (prefix != null && prefix.length() > 0) {
+            
+            out.append(prefix).append(':');
+        }
+        out.append(localName);
+    }
+    
+    private static void escape(StringBuilder out, String text,
+        boolean isAttribute) {
+        
+        for (int i = 0, len = text.length(); i < len; i++) {
+            
+            char ch = text.charAt(i);
+            switch (ch) {
+                
+                case '&': out.append("&amp;"); break;
+                case '<': out.append("&lt;"); break;
+                case '>': out.append("&gt;"); break;
+                case '"':
+                    out.append(isAttribute ? "&quot;" : "\"");
+                    break;
+                default:
+                    out.append(ch);
+            }
+        }
+    }
+    
+    /*
+     * Releases the resources held by the value.
+     */
+    private static void free(SQLXML xml) {
+        
+        try {
+            
+            xml.free();
+        }
+        catch (SQLException e) {
+            
+            /* IGNORED */
+        }
     }
 }
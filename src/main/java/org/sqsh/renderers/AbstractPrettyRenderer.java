@@ -21,15 +21,31 @@ import org.sqsh.Renderer;
 import org.sqsh.RendererManager;
 import org.sqsh.Session;
 
+/**
+ * Base class for renderers that display results in a text-based grid.
+ * Each physical line of output is laid out in a single character buffer,
+ * with the lines of each value copied straight from the value (see 
+ * {@link LineIterator#getLine(char[], int)}), and is written with one 
+ * call.
+ */
 public abstract class AbstractPrettyRenderer
     extends Renderer {
     
+    private static final String LINE_SEPARATOR =
+        System.getProperty("line.separator");
+    
     /**
      * To save a bajillion object creations we create a set of line iterators
      * that we will re-use throughout the rendering process.
      */
     private LineIterator []iterators = null;
     
+    /*
+     * The line of output being laid out.
+     */
+    private char []line = new char[256];
+    private int lineLen = 0;
+    
     public AbstractPrettyRenderer(Session session, RendererManager renderMan) {
         
         super(session, renderMan);
@@ -102,20 +118,39 @@ public abstract class AbstractPrettyRenderer
         boolean done = false;
         while (!done) {
             
-            session.out.print("| ");
+            lineLen = 0;
+            append("| ");
             
             done = true;
             for (int i = 0; i < columns.length; i++) {
                 
                 if (i > 0) {
                     
-                    session.out.print(" | ");
+                    append(" | ");
                 }
                 
+                ColumnDescription col = columns[i];
                 LineIterator iter = iterators[i];
-                if (iter.hasNext()) {
+                if (iter.nextLine()) {
+                    
+                    int len = iter.getLineWidth();
+                    int padding = col.getWidth() - len;
+                    
+                    ensure(len + Math.max(padding, 0));
+                    if (col.getAlignment() 
+                            == ColumnDescription.Alignment.RIGHT) {
+                        
+                        pad(' ', padding);
+                    }
+                    
+                    lineLen = iter.getLine(line, lineLen);
+                    
+                    if (col.getAlignment() 
+                            == ColumnDescription.Alignment.LEFT) {
+                        
+                        pad(' ', padding);
+                    }
                     
-                    printColumnValue(columns[i], iter.next());
                     if (iter.hasNext()) {
                         
                         done = false;
@@ -123,11 +158,13 @@ public abstract class AbstractPrettyRenderer
                 }
                 else {
                     
-                    printColumnValue(columns[i], " ");
+                    pad(' ', Math.max(col.getWidth(), 1));
                 }
             }
             
-            session.out.println(" |");
+            append(" |");
+            append(LINE_SEPARATOR);
+            write(line, 0, lineLen);
         }
     }
     
@@ -141,19 +178,52 @@ public abstract class AbstractPrettyRenderer
      */
     public void printHorizontalLine() {
         
-        session.out.print("+-");
+        lineLen = 0;
+        append("+-");
         for (int i = 0; i < columns.length; i++) {
             
             if (i > 0) {
                 
-                session.out.print("-+-");
+                append("-+-");
             }
             
             ColumnDescription col = columns[i];
             int width = col.getWidth();
             
-            dashes(width);
+            pad('-', width);
+        }
+        append("-+");
+        append(LINE_SEPARATOR);
+        write(line, 0, lineLen);
+    }
+    
+    private void append(String str) {
+        
+        int len = str.length();
+        ensure(len);
+        str.getChars(0, len, line, lineLen);
+        lineLen += len;
+    }
+    
+    private void pad(char ch, int n) {
+        
+        if (n > 0) {
+            
+            ensure(n);
+            for (int i = 0; i < n; i++) {
+                
+                line[lineLen++] = ch;
+            }
+        }
+    }
+    
+    private void ensure(int n) {
+        
+        if (lineLen + n > line.length) {
+            
+            char []newLine = new char[Math.max(line.length * 2, lineLen + n)];
+            System.arraycopy(line, 0, newLine, 0, lineLen);
+            line = newLine;
         }
-        session.out.println("-+");
     }
 }
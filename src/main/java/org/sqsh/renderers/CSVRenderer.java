@@ -18,21 +18,34 @@ package org.sqsh.renderers;
 import org.sqsh.ColumnDescription;
 import org.sqsh.Renderer;
 import org.sqsh.RendererManager;
+import org.sqsh.RowBatch;
 import org.sqsh.Session;
+import org.sqsh.util.CSVWriter;
 
 /**
- * Outputs results as CSV (comma separated values). This class attempts to
- * adhere to <a href="http://www.creativyst.com/Doc/Articles/CSV/CSV01.htm">
- * http://www.creativyst.com/Doc/Articles/CSV/CSV01.htm</a>.
+ * Outputs results as CSV (comma separated values). By default this class 
+ * attempts to adhere to 
+ * <a href="http://www.creativyst.com/Doc/Articles/CSV/CSV01.htm">
+ * http://www.creativyst.com/Doc/Articles/CSV/CSV01.htm</a>, however the
+ * delimiter, quoting, line endings and representation of NULL are all 
+ * determined by the {@link org.sqsh.util.CSVDialect} of the 
+ * {@link RendererManager}.
  */
 public class CSVRenderer
     extends Renderer {
     
-    private StringBuilder line = new StringBuilder(); 
+    /**
+     * Once this much output has been built up it is written, even if
+     * there are still more rows in the batch.
+     */
+    private static final int WRITE_SIZE = 64 * 1024;
+    
+    private CSVWriter writer;
     
     public CSVRenderer(Session session, RendererManager renderMan) {
         
         super(session, renderMan);
+        writer = new CSVWriter(renderMan.getCsvDialect());
     }
     
     public void header (ColumnDescription []columns) {
@@ -41,20 +54,25 @@ public class CSVRenderer
         
         if (manager.isShowHeaders()) {
             
-            String []row = new String[columns.length];
+            writer.clear();
             for (int i = 0; i < columns.length; i++) {
                 
-                row[i] = columns[i].getName();
-                if (row[i] == null) {
-                    
-                    row[i] = "";
-                }
+                String name = columns[i].getName();
+                writer.field(name == null ? "" : name);
             }
             
-            row(row);
+            writer.endLine();
+            write();
         }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean retainsRows() {
+        
+        return false;
+    }
+    
     /** {@inheritDoc} */
     @Override
     public boolean flush () {
@@ -62,74 +80,51 @@ public class CSVRenderer
         return true;
     }
     
-    private boolean needsQuoting(String str) {
-        
-        final int sz = str.length();
-        
-        if (sz == 0) {
-            
-            return true;
-        }
-        
-        if (Character.isWhitespace(str.charAt(0))
-            || Character.isWhitespace(str.charAt(sz -1))) {
-            
-            return true;
-        }
-        
-        for (int i = 0; i < sz; i++) {
-            
-            char ch = str.charAt(i);
-            if (ch == '"' || ch == '\n' || ch == ',') {
-                
-                return true;
-            }
-        }
-        
-        return false;
-    }
-
     /** {@inheritDoc} */
     @Override
     public boolean row (String[] row) {
 
-        line.setLength(0);
+        writer.clear();
         for (int i = 0; i < row.length; i++) {
             
-            if (i > 0) {
+            writer.field(isNull(row[i]) ? null : row[i]);
+        }
+        
+        writer.endLine();
+        return write();
+    }
+    
+    /**
+     * Renders the whole batch into a single buffer, which is written with
+     * one call. The batch knows which of its values are NULL, so there is
+     * no need to compare them with the representation of NULL.
+     */
+    @Override
+    public boolean rows (RowBatch batch) {
+        
+        int nRows = batch.size();
+        int nCols = batch.getColumnCount();
+        
+        writer.clear();
+        for (int r = 0; r < nRows; r++) {
+            
+            for (int i = 0; i < nCols; i++) {
                 
-                line.append(',');
+                writer.field(batch.isNull(r, i) ? null : batch.get(r, i));
             }
             
-            String field = row[i];
+            writer.endLine();
             
-            if (!isNull(field)) {
+            if (writer.length() >= WRITE_SIZE && r < nRows - 1) {
                 
-                if (!needsQuoting(field)) {
-                    
-                    line.append(field);
-                }
-                else {
-                    
-                    line.append('"');
-                    for (int j = 0; j < field.length(); j++) {
-                        
-                        char ch = field.charAt(j);
-                        if (ch == '"') {
-                            
-                            line.append('"');
-                        }
-                        
-                        line.append(ch);
-                    }
+                if (!write()) {
                     
-                    line.append('"');
+                    return false;
                 }
             }
         }
         
-        session.out.println(line);
-        return (session.out.checkError() == false);
+        return write();
     }
     
     @Override
@@ -139,4 +134,14 @@ public class CSVRenderer
          * This style will never display footer information.
          */
     }
+    
+    /*
+     * Writes out what has been built up in the writer.
+     */
+    private boolean write() {
+        
+        write(writer.getBuffer(), 0, writer.length());
+        writer.clear();
+        return (session.out.checkError() == false);
+    }
 }
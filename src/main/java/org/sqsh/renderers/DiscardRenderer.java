@@ -45,6 +45,13 @@ public class DiscardRenderer
         super.header(columns);
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public boolean retainsRows() {
+        
+        return false;
+    }
+    
     @Override
     public boolean row (String[] row) {
         
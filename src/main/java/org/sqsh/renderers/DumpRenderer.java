@@ -0,0 +1,180 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.renderers;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+import org.sqsh.ColumnDescription;
+import org.sqsh.RawRenderer;
+import org.sqsh.Renderer;
+import org.sqsh.RendererManager;
+import org.sqsh.Session;
+import org.sqsh.export.DumpWriter;
+
+/**
+ * Writes results in jsqsh's binary dump format (see
+ * {@link org.sqsh.export.DumpFormat}), for loading into another
+ * database with the \import command. Values are read directly from the
+ * result set, so they are never formatted. The output is binary and is
+ * only useful when it is redirected to a file or a pipe.
+ */
+public class DumpRenderer
+    extends Renderer
+    implements RawRenderer {
+    
+    private DumpWriter writer;
+    private String []row = null;
+    private IOException error = null;
+    
+    public DumpRenderer(Session session, RendererManager manager) {
+        
+        super(session, manager);
+        writer = new DumpWriter(session.out, manager.isDumpCompressed());
+    }
+    
+    @Override
+    public boolean isRaw() {
+        
+        return true;
+    }
+    
+    @Override
+    public void header (ResultSetMetaData meta, int []projection)
+        throws SQLException {
+        
+        try {
+            
+            writer.start(meta, projection);
+        }
+        catch (IOException e) {
+            
+            error = e;
+        }
+    }
+    
+    @Override
+    public boolean row (ResultSet resultSet)
+        throws SQLException {
+        
+        if (error != null) {
+            
+            return false;
+        }
+        
+        try {
+            
+            writer.write(resultSet);
+        }
+        catch (IOException e) {
+            
+            error = e;
+            return false;
+        }
+        
+        return true;
+    }
+    
+    /**
+     * Results that were not read from a result set (such as the output
+     * parameters of a procedure call) arrive already formatted, and are
+     * written as strings.
+     */
+    @Override
+    public void header (ColumnDescription []columns) {
+        
+        super.header(columns);
+        
+        String []names = new String[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            
+            names[i] = columns[i].getName();
+        }
+        
+        try {
+            
+            writer.start(names);
+        }
+        catch (IOException e) {
+            
+            error = e;
+        }
+    }
+    
+    /** {@inheritDoc} */
+    @Override
+    public boolean retainsRows() {
+        
+        return false;
+    }
+    
+    @Override
+    public boolean row (String []row) {
+        
+        if (error != null) {
+            
+            return false;
+        }
+        
+        if (this.row == null || this.row.length != row.length) {
+            
+            this.row = new String[row.length];
+        }
+        
+        for (int i = 0; i < row.length; i++) {
+            
+            this.row[i] = (isNull(row[i]) ? null : row[i]);
+        }
+        
+        try {
+            
+            writer.write(this.row);
+        }
+        catch (IOException e) {
+            
+            error = e;
+            return false;
+        }
+        
+        return true;
+    }
+    
+    @Override
+    public boolean flush () {
+        
+        if (error == null) {
+            
+            try {
+                
+                writer.finish();
+            }
+            catch (IOException e) {
+                
+                error = e;
+            }
+        }
+        
+        if (error != null) {
+            
+            session.err.println("Failed to write dump: " + error.getMessage());
+            return false;
+        }
+        
+        return !session.out.checkError();
+    }
+}
@@ -17,11 +17,6 @@ package org.sqsh.renderers;
 
 import java.awt.BorderLayout;
 import java.awt.Font;
-import java.awt.event.MouseAdapter;
-import java.awt.event.MouseEvent;
-import java.util.Collections;
-import java.util.Comparator;
-import java.util.Vector;
 
 import javax.swing.JFrame;
 import javax.swing.JLabel;
@@ -29,28 +24,29 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.ScrollPaneConstants;
-import javax.swing.event.TableModelEvent;
-import javax.swing.table.DefaultTableModel;
+import javax.swing.WindowConstants;
 import javax.swing.table.JTableHeader;
-import javax.swing.table.TableColumn;
-import javax.swing.table.TableColumnModel;
 
 import org.sqsh.ColumnDescription;
 import org.sqsh.Renderer;
 import org.sqsh.RendererManager;
+import org.sqsh.RowBatch;
 import org.sqsh.Session;
 import org.sqsh.variables.DimensionVariable;
 import org.sqsh.variables.FontVariable;
 
 /**
  * The GraphicalRenderer displays row results using a swing graphical
- * interface.
+ * interface. Rows are held by a {@link ResultTableModel}, which stores 
+ * them compactly and only produces the values that are on display, and
+ * the window is updated as the rows arrive.
  */
 public class GraphicalRenderer
     extends Renderer {
     
-    private SortableTableModel tableModel;
+    private ResultTableModel tableModel;
     private JPanel topPanel;
+    private boolean []rowNulls = null;
     
     /**
      * Creates the renderer.
@@ -97,6 +93,11 @@ public class GraphicalRenderer
         frame.setSize(width, height);
         frame.setLocationByPlatform(true);
 
+        /*
+         * Release the rows once the window is closed.
+         */
+        frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        
         // Create a panel to hold all other components
         topPanel = new JPanel();
         topPanel.setLayout(new BorderLayout());
@@ -105,8 +106,8 @@ public class GraphicalRenderer
         // Create a new table instance
         JTable table = new JTable();
 
-        tableModel = new SortableTableModel(new String[0][], columns,
-                    session.getDataFormatter().getNull());   
+        tableModel = new ResultTableModel(columns);
+        rowNulls = new boolean[columns.length];
         table.setModel(tableModel);
             
  
@@ -139,6 +140,13 @@ public class GraphicalRenderer
         
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public boolean retainsRows() {
+        
+        return false;
+    }
+    
     /**
      * Adds a row to the panel.
      * 
@@ -147,8 +155,40 @@ public class GraphicalRenderer
     @Override
     public boolean row (String[] row) {
 
-        tableModel.addRow(row);
+        for (int i = 0; i < row.length; i++) {
         
+            rowNulls[i] = isNull(row[i]);
+        }
+        
+        tableModel.addRow(row, rowNulls);
+        tableModel.publish();
+        return true;
+    }
+    
+    /**
+     * Adds a batch of rows to the panel, which is then updated once for
+     * the whole batch.
+     * 
+     * @param batch The rows to add.
+     */
+    @Override
+    public boolean rows (RowBatch batch) {
+        
+        String []row = new String[batch.getColumnCount()];
+        int nRows = batch.size();
+        
+        for (int r = 0; r < nRows; r++) {
+            
+            batch.getRow(r, row);
+            for (int i = 0; i < row.length; i++) {
+                
+                rowNulls[i] = batch.isNull(r, i);
+            }
+            
+            tableModel.addRow(row, rowNulls);
+        }
+        
+        tableModel.publish();
         return true;
     }
     
@@ -175,156 +215,4 @@ public class GraphicalRenderer
 
         return true;
     }
-    
-    private static class SortableTableModel
-        extends DefaultTableModel {
-        
-        private static final long serialVersionUID = 1L;
-        private ColumnDescription []columns;
-        private int sortedColumn = -1;
-        private String nullRepresentation;
-        private boolean isAscending = false;
-        
-        public SortableTableModel(String [][]data,
-                ColumnDescription []columns,
-                String nullRepresentation) {
-            
-            super(data, columns);
-  
-            this.columns = columns;
-            
-            this.nullRepresentation = nullRepresentation;
-        }
- 
-        private class ColumnListener
-            extends MouseAdapter {
-
-            protected JTable table;
-
-            public ColumnListener(JTable t) {
-
-                table = t;
-            }
-
-            public void mouseClicked (MouseEvent e) {
-
-                TableColumnModel colModel = table.getColumnModel();
-                int columnModelIndex = colModel.getColumnIndexAtX(e.getX());
-                int modelIndex = colModel.getColumn(columnModelIndex)
-                        .getModelIndex();
-
-                if (modelIndex < 0) {
-
-                    return;
-                }
-
-                if (sortedColumn == modelIndex) {
-
-                    isAscending = !isAscending;
-                }
-                else {
-
-                    sortedColumn = modelIndex;
-                    isAscending = true;
-                }
-
-                for (int i = 0; i < getColumnCount(); i++) {
-
-                    TableColumn column = colModel.getColumn(i);
-                    column.setHeaderValue(getColumnName(
-                        column.getModelIndex()));
-                }
-
-                table.getTableHeader().repaint();
-
-                ColumnDescription des = columns[modelIndex];
-                
-                Collections.sort(getDataVector(), 
-                        new ColumnComparator(modelIndex,
-                    isAscending,  des, nullRepresentation));
-                
-                table.tableChanged(new TableModelEvent(
-                    SortableTableModel.this));
-                table.repaint();
-            }
-        }
-    }
-    
-    private static class ColumnComparator
-        implements Comparator<Vector<String>> {
-        
-        private int idx;
-        private boolean isAscending;
-        private ColumnDescription columnDescription;
-        String nullRepresentation;
-        
-        public ColumnComparator (int idx,
-                boolean isAscending,
-                ColumnDescription columnDescription,
-                String nullRepresentation) {
-            
-            this.idx = idx;
-            this.isAscending = isAscending;
-            this.columnDescription = columnDescription;
-            this.nullRepresentation = nullRepresentation;
-        }
-
-        public int compare (Vector<String> o1, Vector<String> o2) {
-            
-            Vector<String> row1 = o1;
-            Vector<String> row2 = o2;
-            int r = 0;
-            
-            /*
-             * First handle the case of nulls. We treat null as the
-             * "lowest" sort.
-             */
-            if (nullRepresentation.equals(row1.get(idx))) {
-                
-                if (nullRepresentation.equals(row2.get(idx))) {
-                    
-                    r = 0;
-                }
-                
-                r = -1;
-            }
-            else if (nullRepresentation.equals(row2.get(idx))) {
-                
-                r = 1;
-            }
-            else if (columnDescription.getType()
-                    == ColumnDescription.Type.NUMBER) {
-                
-                double diff =  Double.parseDouble(row2.get(idx))
-                    - Double.parseDouble(row1.get(idx));
-                
-                if (diff < 0) {
-                    
-                    r = -1;
-                }
-                else if (diff > 0) {
-                    
-                    r = 1;
-                }
-                else {
-                
-                    r = 0;
-                }
-            }
-            else {
-                
-                r = row1.get(idx).compareTo(row2.get(idx));
-            }
-            
-            if (r != 0) {
-                
-                if (!isAscending) {
-                    
-                    r = -(r);
-                }
-            }
-            
-            return r;
-        }
-    }
 }
@@ -96,6 +96,13 @@ public class ISQLRenderer
         session.out.println();
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public boolean retainsRows() {
+        
+        return false;
+    }
+    
     /** {@inheritDoc} */
     public boolean row (String[] row) {
         
@@ -15,11 +15,15 @@
  */
 package org.sqsh.renderers;
 
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.sql.Statement;
 
 import org.sqsh.ColumnDescription;
+import org.sqsh.RawRenderer;
 import org.sqsh.Renderer;
 import org.sqsh.RendererManager;
 import org.sqsh.SQLTools;
@@ -27,9 +31,20 @@ import org.sqsh.Session;
 
 /**
  * Renders INSERT statements based upon a result set.
+ * 
+ * <p>When a connection is provided (see {@link #setConnection(Connection)})
+ * the renderer becomes a raw renderer: rather than building the text of
+ * an INSERT for every row, it reads the values of each row with the type
+ * of their column and hands them, a batch at a time, to an
+ * {@link InsertWriter} thread, which binds them to a single prepared 
+ * INSERT and sends them to the server with addBatch()/executeBatch()
+ * while the renderer goes on fetching rows. Once the results have been
+ * rendered {@link #finish(boolean)} must be called to wait for the writer,
+ * commit the work and release the statement.
  */
 public class InsertRenderer
-    extends Renderer {
+    extends Renderer
+    implements RawRenderer {
 
     private String table = "TABLE";
     private String insert = null;
@@ -40,6 +55,25 @@ public class InsertRenderer
     private StringBuilder insertBatch = new StringBuilder();
     
     private int rowCount = 0;
+    
+    /*
+     * How often, in milliseconds, the progress of inserts through a
+     * connection is displayed.
+     */
+    private static final long PROGRESS_INTERVAL = 1000L;
+    
+    /*
+     * Used when the rows are inserted through a prepared statement.
+     */
+    private int commitInterval = 0;
+    private InsertWriter writer = null;
+    private InsertWriter.Target target = null;
+    private InsertWriter.Batch batch = null;
+    private int []projection = null;
+    private long startTime = 0L;
+    private long lastProgress = 0L;
+    private boolean restoreAutoCommit = false;
+    private boolean isProgressShown = false;
 
     public InsertRenderer(Session session, RendererManager manager) {
 
@@ -130,6 +164,30 @@ public class InsertRenderer
         return batchTerminator;
     }
     
+    /**
+     * @return The number of rows after which the inserted rows are 
+     *   committed, or 0 if they are committed after every batch.
+     */
+    public int getCommitInterval() {
+        
+        return commitInterval;
+    }
+    
+    /**
+     * Sets how often the rows inserted through a connection are committed.
+     * When greater than zero, autocommit is turned off until 
+     * {@link #finish(boolean)} is called, and the work is committed at the
+     * end of the batch that reaches the interval. Otherwise, the work is
+     * committed after every batch if the connection is not in autocommit
+     * mode.
+     * 
+     * @param commitInterval The number of rows between commits.
+     */
+    public void setCommitInterval(int commitInterval) {
+        
+        this.commitInterval = commitInterval;
+    }
+    
     /**
      * This method provides a database connection to the renderer that will
      * be used to actually execute the INSERT statements. If no connection
@@ -141,7 +199,323 @@ public class InsertRenderer
     
         this.conn = conn;
     }
-
+    
+    /**
+     * Rows are bound to a prepared INSERT when there is a connection to
+     * insert them through.
+     */
+    @Override
+    public boolean isRaw() {
+        
+        return conn != null;
+    }
+    
+    @Override
+    public void header (ResultSetMetaData meta, int []projection)
+        throws SQLException {
+        
+        int []types = new int[projection.length];
+        StringBuilder sb = new StringBuilder();
+        sb.append("INSERT INTO ")
+          .append(SQLTools.quoteIdentifier(table))
+          .append(" (");
+        
+        for (int i = 0; i < projection.length; i++) {
+            
+            types[i] = meta.getColumnType(projection[i]);
+            
+            String name = meta.getColumnLabel(projection[i]);
+            if (name == null || name.length() == 0) {
+                
+                name = "NONAME";
+            }
+            
+            sb.append(i > 0 ? ", " : "")
+              .append(SQLTools.quoteIdentifier(name));
+        }
+        
+        sb.append(") VALUES (");
+        for (int i = 0; i < projection.length; i++) {
+            
+            sb.append(i > 0 ? ", ?" : "?");
+        }
+        sb.append(")");
+        
+        this.projection = projection;
+        this.target = new InsertWriter.Target(sb.toString(), types);
+            
+        /*
+         * The writer is started with the first result set, and is handed
+         * the rows of all of the result sets that follow.
+         */
+        if (writer == null) {
+                
+            boolean autoCommit = conn.getAutoCommit();
+            if (commitInterval > 0 && autoCommit) {
+                    
+                conn.setAutoCommit(false);
+                restoreAutoCommit = true;
+            }
+            
+            writer = new InsertWriter(conn, batchSize, commitInterval,
+                !autoCommit);
+            startTime = System.currentTimeMillis();
+            lastProgress = startTime;
+            
+            /*
+             * Inserting into the session that the rows are coming from
+             * has to happen on this thread, in between fetches.
+             */
+            if (conn == session.getConnection()) {
+                
+                writer.setInline();
+            }
+            else {
+                
+                writer.start();
+            }
+        }
+        
+        batch = writer.newBatch(target, rowCount + 1);
+    }
+    
+    @Override
+    public boolean row (ResultSet resultSet)
+        throws SQLException {
+        
+        batch.read(resultSet, projection);
+        ++rowCount;
+            
+        if (batch.isFull()) {
+        
+            if (!handOff()) {
+            
+                /*
+                 * There is no point in fetching the rest of the rows.
+                 */
+                try {
+        
+                    resultSet.getStatement().cancel();
+                }
+                catch (SQLException e) {
+            
+                    /* IGNORED */
+                }
+                
+                return false;
+            }
+            
+            batch = writer.newBatch(target, rowCount + 1);
+        }
+        
+        return true;
+    }
+    
+    /*
+     * Hands the current batch to the writer, waiting if it has fallen
+     * behind, and displays the progress of both sides every so often.
+     * Returns false if the writer has failed.
+     */
+    private boolean handOff() {
+        
+        if (batch.getCount() > 0) {
+        
+            try {
+            
+                writer.write(batch);
+                batch = null;
+            }
+            catch (InterruptedException e) {
+                    
+                writer.abort();
+                return false;
+            }
+        }
+                    
+        long now = System.currentTimeMillis();
+        if (session.isInteractive()
+            && now - lastProgress >= PROGRESS_INTERVAL) {
+            
+            showProgress(now);
+            lastProgress = now;
+        }
+                    
+        return writer.getFailure() == null;
+    }
+    
+    private void showProgress(long now) {
+        
+        long written = writer.getWritten();
+        double secs = Math.max(now - startTime, 1L) / 1000.0;
+        
+        session.err.print("\r" + rowCount + " rows read ("
+            + (long) (rowCount / secs) + " rows/sec), " + written
+            + " rows inserted (" + (long) (written / secs) + " rows/sec) ");
+        session.err.flush();
+        isProgressShown = true;
+    }
+    
+    /**
+     * Completes the inserts made through a prepared statement. Waits for
+     * the rows that have been read to be inserted, reports any that could
+     * not be, commits the rows inserted since the last commit if all went
+     * well (or rolls them back if autocommit was turned off to honor the
+     * commit interval), restores autocommit and displays a summary of the
+     * work. This does nothing if no results were inserted through a
+     * prepared statement.
+     * 
+     * @param isComplete True if all of the results were rendered. If
+     *   false, the rows that have not been inserted yet are discarded and
+     *   no further commit is done.
+     */
+    public void finish(boolean isComplete) {
+        
+        if (writer == null) {
+            
+            return;
+        }
+        
+        long readTime = System.currentTimeMillis();
+        if (!isComplete) {
+            
+            writer.abort();
+        }
+        
+        try {
+            
+            while (!writer.finish(PROGRESS_INTERVAL)) {
+            
+                if (session.isInteractive()) {
+            
+                    showProgress(System.currentTimeMillis());
+                }
+            }
+        }
+        catch (InterruptedException e) {
+            
+            /*
+             * Stop waiting; the writer is left to discard what is left.
+             */
+            writer.abort();
+            isComplete = false;
+        }
+        
+        if (isProgressShown) {
+        
+            session.err.println();
+            isProgressShown = false;
+        }
+        
+        long inserted = writer.getWritten();
+        long uncommitted = writer.getUncommitted();
+        long failed = 0;
+    
+        if (writer.getFailure() != null) {
+        
+            long done = reportFailure();
+            inserted += done;
+            uncommitted += done;
+            failed = writer.getFailedCount() - done;
+            isComplete = false;
+        }
+        
+        try {
+            
+            if (restoreAutoCommit) {
+                
+                if (uncommitted > 0) {
+                    
+                    if (isComplete) {
+                        
+                        conn.commit();
+                    }
+                    else {
+                        
+                        session.err.println("Rolling back the "
+                            + uncommitted + " row(s) inserted since the "
+                            + "last commit");
+                        conn.rollback();
+                        inserted -= uncommitted;
+                    }
+                }
+                
+                conn.setAutoCommit(true);
+            }
+        }
+        catch (SQLException e) {
+            
+            SQLTools.printException(session, e);
+        }
+            
+        long endTime = Math.max(writer.getEndTime(), readTime);
+        double readSecs = Math.max(readTime - startTime, 1L) / 1000.0;
+        double writeSecs = Math.max(endTime - startTime, 1L) / 1000.0;
+        
+        session.out.println(rowCount + " row(s) read in "
+            + String.format("%.3f", readSecs) + "s ("
+            + String.format("%.1f", rowCount / readSecs) + " rows/sec), "
+            + inserted + " row(s) inserted (" + failed + " failed) in "
+            + String.format("%.3f", writeSecs) + "s ("
+            + String.format("%.1f", inserted / writeSecs) + " rows/sec)");
+        
+        writer = null;
+        batch = null;
+    }
+    
+    /*
+     * Reports the rows of the batch that failed. Drivers either stop at
+     * the first row of a batch that fails, in which case the rows that
+     * follow are not inserted, or they carry on and mark the rows that
+     * failed. Returns the number of rows of the batch that were inserted.
+     */
+    private long reportFailure() {
+        
+        SQLException failure = writer.getFailure();
+        long firstRow = writer.getFailedFirstRow();
+        int count = writer.getFailedCount();
+        
+        if (!(failure instanceof BatchUpdateException)) {
+            
+            SQLTools.printException(session, failure);
+            return 0;
+        }
+        
+        int []counts = ((BatchUpdateException) failure).getUpdateCounts();
+        int done = (counts == null ? 0 : counts.length);
+        long inserted = 0;
+        
+        for (int i = 0; i < done; i++) {
+            
+            if (counts[i] == Statement.EXECUTE_FAILED) {
+                
+                session.err.println("Row #" + (firstRow + i)
+                    + " failed: " + failure.getMessage());
+            }
+            else {
+                
+                ++inserted;
+            }
+        }
+        
+        if (done < count) {
+            
+            session.err.println("Row #" + (firstRow + done)
+                + " failed: " + failure.getMessage());
+            if (done + 2 == count) {
+                
+                session.err.println("Row #" + (firstRow + done + 1)
+                    + " was not inserted");
+            }
+            else if (done + 2 < count) {
+                
+                session.err.println("Rows #" + (firstRow + done + 1)
+                    + " through #" + (firstRow + count - 1)
+                    + " were not inserted");
+            }
+        }
+        
+        return inserted;
+    }
 
     /* (non-Javadoc)
      * @see org.sqsh.Renderer#header(org.sqsh.ColumnDescription[])
@@ -183,6 +557,13 @@ public class InsertRenderer
         insert = sb.toString();
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public boolean retainsRows() {
+        
+        return false;
+    }
+    
     @Override
     public boolean row (String[] row) {
         
@@ -353,6 +734,11 @@ public class InsertRenderer
     @Override
     public boolean flush () {
 
+        if (writer != null) {
+            
+            return handOff();
+        }
+        
         return true;
     }
 
@@ -0,0 +1,579 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.renderers;
+
+import java.math.BigDecimal;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import org.sqsh.SQLTools;
+import org.sqsh.export.DumpFormat;
+
+/**
+ * The thread that executes the inserts of an {@link InsertRenderer} that
+ * has a connection, so that the rows of the source result set can be
+ * fetched while the rows before them are being sent to the target.
+ *
+ * <p>The renderer reads the values of each row, with the type of their
+ * column, into a {@link Batch}, and hands full batches to the writer
+ * through a queue of {@link #QUEUE_BATCHES} batches. If the writer falls
+ * behind the queue fills up and the renderer waits for room, so no more
+ * than a handful of batches are ever held in memory. Batches are recycled
+ * once written. All use of the target connection while the writer is
+ * running happens on the writer's thread.
+ *
+ * <p>If a batch fails, the failure is recorded (see {@link #getFailure()})
+ * and the batches that follow are discarded, which leaves it to the
+ * renderer to notice and stop reading.
+ *
+ * <p>When the target connection is the one that the rows are being
+ * fetched through, the writer is run inline instead (see
+ * {@link #setInline()}), as most drivers do not allow a connection to be
+ * used by two threads at once.
+ */
+class InsertWriter
+    extends Thread {
+    
+    /**
+     * The number of batches that may be waiting to be written.
+     */
+    public static final int QUEUE_BATCHES = 4;
+    
+    /*
+     * Handed to the writer to tell it that there are no more batches.
+     */
+    private static final Batch END = new Batch(0);
+    
+    private final Connection conn;
+    private final int batchSize;
+    private final int commitInterval;
+    private final boolean commitEveryBatch;
+    
+    private final BlockingQueue<Batch> queue =
+        new ArrayBlockingQueue<Batch>(QUEUE_BATCHES);
+    private final BlockingQueue<Batch> free =
+        new LinkedBlockingQueue<Batch>();
+    
+    private Target target = null;
+    private PreparedStatement statement = null;
+    
+    private volatile long written = 0L;
+    private volatile long uncommitted = 0L;
+    private volatile long endTime = 0L;
+    private volatile boolean isAborted = false;
+    private boolean isFinished = false;
+    private boolean isInline = false;
+    
+    /*
+     * The failure, and the batch that it happened in.
+     */
+    private volatile SQLException failure = null;
+    private long failedFirstRow = 0L;
+    private int failedCount = 0;
+    
+    /**
+     * Creates the writer. It must be started before batches are handed
+     * to it.
+     *
+     * @param conn The connection in which the inserts are executed.
+     * @param batchSize The number of rows per batch.
+     * @param commitInterval If greater than zero, the number of rows
+     *   after which the work is committed (at the end of the batch that
+     *   reaches it).
+     * @param commitEveryBatch If true, and there is no commit interval,
+     *   each batch is committed once it has been executed.
+     */
+    public InsertWriter (Connection conn, int batchSize,
+            int commitInterval, boolean commitEveryBatch) {
+        
+        super("jsqsh-insert");
+        setDaemon(true);
+        
+        this.conn = conn;
+        this.batchSize = batchSize;
+        this.commitInterval = commitInterval;
+        this.commitEveryBatch = commitEveryBatch;
+    }
+    
+    /**
+     * Has each batch written by the thread that hands it to the writer,
+     * as it is handed over, rather than by the writer's own thread, which
+     * must then not be started.
+     */
+    public void setInline() {
+        
+        isInline = true;
+    }
+    
+    /**
+     * Returns an empty batch to fill, re-using one that has already been
+     * written if there is one.
+     *
+     * @param target The statement the rows of the batch are to be
+     *   inserted with.
+     * @param firstRow The number of the first row of the batch.
+     * @return The batch.
+     */
+    public Batch newBatch(Target target, long firstRow) {
+        
+        Batch batch = free.poll();
+        if (batch == null) {
+            
+            batch = new Batch(batchSize);
+        }
+        
+        batch.start(target, firstRow);
+        return batch;
+    }
+    
+    /**
+     * Hands a batch to the writer, waiting for room in the queue if the
+     * writer has fallen behind.
+     *
+     * @param batch The batch.
+     * @throws InterruptedException If the wait is interrupted.
+     */
+    public void write(Batch batch)
+        throws InterruptedException {
+        
+        if (isInline) {
+            
+            process(batch);
+            return;
+        }
+        
+        queue.put(batch);
+    }
+    
+    /**
+     * Tells the writer that there are no more batches and waits for it
+     * to write the ones it has been given.
+     *
+     * @param millis The longest time to wait, or 0 to wait until done.
+     * @return true if the writer is done.
+     * @throws InterruptedException If the wait is interrupted.
+     */
+    public boolean finish(long millis)
+        throws InterruptedException {
+        
+        if (isInline) {
+            
+            if (!isFinished) {
+                
+                close();
+                isFinished = true;
+            }
+            
+            return true;
+        }
+        
+        if (!isFinished) {
+            
+            queue.put(END);
+            isFinished = true;
+        }
+        
+        join(millis);
+        return !isAlive();
+    }
+    
+    /**
+     * Causes the batches that have not yet been written to be discarded.
+     */
+    public void abort() {
+        
+        isAborted = true;
+    }
+    
+    /**
+     * @return The number of rows inserted so far.
+     */
+    public long getWritten() {
+        
+        return written;
+    }
+    
+    /**
+     * @return The number of rows inserted since the last commit.
+     */
+    public long getUncommitted() {
+        
+        return uncommitted;
+    }
+    
+    /**
+     * @return The time, in milliseconds, at which the writer finished,
+     *   or 0 if it is still running.
+     */
+    public long getEndTime() {
+        
+        return endTime;
+    }
+    
+    /**
+     * @return The exception that caused a batch to fail, or null if none
+     *   has.
+     */
+    public SQLException getFailure() {
+        
+        return failure;
+    }
+    
+    /**
+     * @return The number of the first row of the batch that failed.
+     */
+    public long getFailedFirstRow() {
+        
+        return failedFirstRow;
+    }
+    
+    /**
+     * @return The number of rows in the batch that failed.
+     */
+    public int getFailedCount() {
+        
+        return failedCount;
+    }
+    
+    @Override
+    public void run() {
+        
+        try {
+            
+            Batch batch;
+            while ((batch = queue.take()) != END) {
+                
+                process(batch);
+            }
+        }
+        catch (InterruptedException e) {
+            
+            /* GIVE UP */
+        }
+        finally {
+            
+            close();
+        }
+    }
+    
+    /*
+     * Executes a batch, unless a batch has already failed or the writer
+     * has been aborted, and puts it back in the pool.
+     */
+    private void process(Batch batch) {
+        
+        if (failure == null && !isAborted) {
+            
+            try {
+                
+                execute(batch);
+            }
+            catch (SQLException e) {
+                
+                failedFirstRow = batch.firstRow;
+                failedCount = batch.count;
+                failure = e;
+            }
+        }
+        
+        batch.clear();
+        free.offer(batch);
+    }
+    
+    private void close() {
+        
+        SQLTools.close(statement);
+        statement = null;
+        endTime = System.currentTimeMillis();
+    }
+    
+    /*
+     * Binds the rows of a batch to the statement of its target (preparing
+     * it if it has not been already) and sends them to the server.
+     */
+    private void execute(Batch batch)
+        throws SQLException {
+        
+        if (target == null || !target.sql.equals(batch.target.sql)) {
+            
+            SQLTools.close(statement);
+            statement = null;
+            statement = conn.prepareStatement(batch.target.sql);
+        }
+        target = batch.target;
+        
+        int nCols = target.kinds.length;
+        for (int r = 0, idx = 0; r < batch.count; r++) {
+            
+            for (int i = 0; i < nCols; i++, idx++) {
+                
+                batch.bind(statement, i + 1, idx, target.types[i],
+                    target.kinds[i]);
+            }
+            
+            statement.addBatch();
+        }
+        
+        statement.executeBatch();
+        written += batch.count;
+        uncommitted += batch.count;
+        
+        if (commitInterval > 0
+            ? uncommitted >= commitInterval : commitEveryBatch) {
+            
+            conn.commit();
+            uncommitted = 0L;
+        }
+    }
+    
+    /**
+     * The INSERT that a batch is executed with, along with the types of
+     * the values that are bound to it.
+     */
+    public static class Target {
+        
+        private final String sql;
+        private final int []types;
+        private final int []kinds;
+        
+        /**
+         * @param sql The INSERT statement.
+         * @param types The JDBC types of the parameters.
+         */
+        public Target (String sql, int []types) {
+            
+            this.sql = sql;
+            this.types = types;
+            this.kinds = new int[types.length];
+            for (int i = 0; i < types.length; i++) {
+                
+                kinds[i] = DumpFormat.getKind(types[i]);
+            }
+        }
+    }
+    
+    /**
+     * The values of a number of rows, held in the form they were read in:
+     * integers and booleans as longs, floating point numbers as doubles
+     * and everything else as objects.
+     */
+    public static class Batch {
+        
+        private final int capacity;
+        private Target target;
+        private long firstRow;
+        private int count = 0;
+        
+        private long []longs = new long[0];
+        private double []doubles = new double[0];
+        private Object []objects = new Object[0];
+        private boolean []nulls = new boolean[0];
+        
+        private Batch (int capacity) {
+            
+            this.capacity = capacity;
+        }
+        
+        /**
+         * @return true if the batch can hold no more rows.
+         */
+        public boolean isFull() {
+            
+            return count == capacity;
+        }
+        
+        /**
+         * @return The number of rows in the batch.
+         */
+        public int getCount() {
+            
+            return count;
+        }
+        
+        /**
+         * Reads the current row of a result set into the batch.
+         *
+         * @param resultSet The result set.
+         * @param projection The indexes of the columns that are inserted.
+         * @throws SQLException If a value cannot be read.
+         */
+        public void read(ResultSet resultSet, int []projection)
+            throws SQLException {
+            
+            int []kinds = target.kinds;
+            int idx = count * kinds.length;
+            
+            for (int i = 0; i < kinds.length; i++, idx++) {
+                
+                int col = projection[i];
+                boolean isNull;
+                
+                switch (kinds[i]) {
+                    
+                    case DumpFormat.KIND_BOOLEAN:
+                        longs[idx] = (resultSet.getBoolean(col) ? 1L : 0L);
+                        isNull = resultSet.wasNull();
+                        break;
+                    
+                    case DumpFormat.KIND_LONG:
+                        longs[idx] = resultSet.getLong(col);
+                        isNull = resultSet.wasNull();
+                        break;
+                    
+                    case DumpFormat.KIND_FLOAT:
+                        doubles[idx] = resultSet.getFloat(col);
+                        isNull = resultSet.wasNull();
+                        break;
+                    
+                    case DumpFormat.KIND_DOUBLE:
+                        doubles[idx] = resultSet.getDouble(col);
+                        isNull = resultSet.wasNull();
+                        break;
+                    
+                    case DumpFormat.KIND_DECIMAL:
+                        objects[idx] = resultSet.getBigDecimal(col);
+                        isNull = (objects[idx] == null);
+                        break;
+                    
+                    case DumpFormat.KIND_DATE:
+                        objects[idx] = resultSet.getDate(col);
+                        isNull = (objects[idx] == null);
+                        break;
+                    
+                    case DumpFormat.KIND_TIME:
+                        objects[idx] = resultSet.getTime(col);
+                        isNull = (objects[idx] == null);
+                        break;
+                    
+                    case DumpFormat.KIND_TIMESTAMP:
+                        objects[idx] = resultSet.getTimestamp(col);
+                        isNull = (objects[idx] == null);
+                        break;
+                    
+                    case DumpFormat.KIND_BYTES:
+                        objects[idx] = resultSet.getBytes(col);
+                        isNull = (objects[idx] == null);
+                        break;
+                    
+                    default:
+                        objects[idx] = resultSet.getString(col);
+                        isNull = (objects[idx] == null);
+                        break;
+                }
+                
+                nulls[idx] = isNull;
+            }
+            
+            ++count;
+        }
+        
+        private void start(Target target, long firstRow) {
+            
+            int size = capacity * target.kinds.length;
+            if (nulls.length < size) {
+                
+                longs = new long[size];
+                doubles = new double[size];
+                objects = new Object[size];
+                nulls = new boolean[size];
+            }
+            
+            this.target = target;
+            this.firstRow = firstRow;
+            this.count = 0;
+        }
+        
+        /*
+         * Binds a value to a parameter, using the setter for its type.
+         */
+        private void bind(PreparedStatement s, int param, int idx,
+                int type, int kind)
+            throws SQLException {
+            
+            if (nulls[idx]) {
+                
+                s.setNull(param, type);
+                return;
+            }
+            
+            switch (kind) {
+                
+                case DumpFormat.KIND_BOOLEAN:
+                    s.setBoolean(param, longs[idx] != 0L);
+                    break;
+                
+                case DumpFormat.KIND_LONG:
+                    s.setLong(param, longs[idx]);
+                    break;
+                
+                case DumpFormat.KIND_FLOAT:
+                    s.setFloat(param, (float) doubles[idx]);
+                    break;
+                
+                case DumpFormat.KIND_DOUBLE:
+                    s.setDouble(param, doubles[idx]);
+                    break;
+                
+                case DumpFormat.KIND_DECIMAL:
+                    s.setBigDecimal(param, (BigDecimal) objects[idx]);
+                    break;
+                
+                case DumpFormat.KIND_DATE:
+                    s.setDate(param, (Date) objects[idx]);
+                    break;
+                
+                case DumpFormat.KIND_TIME:
+                    s.setTime(param, (Time) objects[idx]);
+                    break;
+                
+                case DumpFormat.KIND_TIMESTAMP:
+                    s.setTimestamp(param, (Timestamp) objects[idx]);
+                    break;
+                
+                case DumpFormat.KIND_BYTES:
+                    s.setBytes(param, (byte[]) objects[idx]);
+                    break;
+                
+                default:
+                    s.setString(param, (String) objects[idx]);
+                    break;
+            }
+        }
+        
+        /*
+         * Lets go of the objects held by the batch.
+         */
+        private void clear() {
+            
+            int n = count * (target == null ? 0 : target.kinds.length);
+            for (int i = 0; i < n; i++) {
+                
+                objects[i] = null;
+            }
+            
+            target = null;
+            count = 0;
+        }
+    }
+}
@@ -18,119 +18,233 @@ package org.sqsh.renderers;
 import org.sqsh.ColumnDescription;
 import org.sqsh.Renderer;
 import org.sqsh.RendererManager;
-import org.sqsh.SQLTools;
+import org.sqsh.RowBatch;
 import org.sqsh.Session;
+import org.sqsh.util.JSONWriter;
 
 /**
- * Displays SQL result sets as JSON values.
+ * Displays SQL result sets as JSON values. Each result set is displayed
+ * as an array with an object for each row (or, if the result set has
+ * only one column, the value of that column), or, in "lines" mode (see
+ * {@link JsonLinesRenderer}) as one object per line with no enclosing
+ * array.
  */
 public class JsonRenderer
     extends Renderer {
     
-    private boolean firstResult = true;
+    private static final String LINE_SEPARATOR =
+        System.getProperty("line.separator");
+    
+    /**
+     * Once this much output has been built up it is written, even if
+     * there are still more rows in the batch.
+     */
+    private static final int WRITE_SIZE = 64 * 1024;
+    
+    private final boolean lines;
     private int nrows = 0;
+    private JSONWriter out = new JSONWriter();
+    
+    /*
+     * The names of the columns, encoded once per result set, and whether
+     * each column's values may be written without quotes.
+     */
+    private char [][]names = null;
+    private boolean []unquoted = null;
     
     public JsonRenderer (Session session, RendererManager renderMan) {
         
+        this(session, renderMan, false);
+    }
+    
+    /**
+     * Creates the renderer.
+     *
+     * @param session The session
+     * @param renderMan The manager of the renderer
+     * @param lines If true, each row is written as an object on a line of
+     *   its own rather than as an element of an array.
+     */
+    protected JsonRenderer (Session session, RendererManager renderMan,
+            boolean lines) {
+        
         super(session, renderMan);
+        this.lines = lines;
     }
     
     @Override
     public void header(ColumnDescription[] columns) {
         
-        if (firstResult) {
+        super.header(columns);
+        
+        names = new char[columns.length][];
+        unquoted = new boolean[columns.length];
+        for (int i = 0; i < columns.length; i++) {
             
-            session.out.println('[');
-            firstResult = false;
+            names[i] = JSONWriter.encodeName(columns[i].getName(),
+                lines ? null : " ");
+            unquoted[i] = JSONWriter.isUnquoted(columns[i].getNativeType());
         }
         
-        super.header(columns);
+        nrows = 0;
+        if (!lines) {
+            
+            session.out.print('[');
+            session.out.print(LINE_SEPARATOR);
+        }
     }
 
+    /** {@inheritDoc} */
+    @Override
+    public boolean retainsRows() {
+        
+        return false;
+    }
+    
     @Override
     public boolean row(String[] row) {
         
-        if (nrows > 0)
-            session.out.println(',');
+        out.clear();
+        appendRow(row, null, 0);
+        return write();
+    }
+    
+    /**
+     * Renders the whole batch into a single buffer, which is written with
+     * one call.
+     */
+    @Override
+    public boolean rows(RowBatch batch) {
         
-        if (row.length > 1) {
+        int nRows = batch.size();
+        
+        out.clear();
+        for (int r = 0; r < nRows; r++) {
+            
+            appendRow(null, batch, r);
             
-            session.out.println("   {");
-            for (int i = 0; i < row.length; i++) {
+            if (out.length() >= WRITE_SIZE && r < nRows - 1) {
                 
-                if (i > 0) {
+                if (!write()) {
                     
-                    session.out.println(',');
+                    return false;
                 }
+            }
+        }
+        
+        return write();
+    }
+    
+    /**
+     * Appends a row to the output buffer. The row comes either from
+     * an array or from a batch.
+     *
+     * @param row The row, or null if the row is in the batch
+     * @param batch The batch containing the row
+     * @param r The index of the row in the batch
+     */
+    private void appendRow(String []row, RowBatch batch, int r) {
+        
+        int nCols = (row != null ? row.length : batch.getColumnCount());
+        
+        if (lines) {
+            
+            out.append('{');
+            for (int i = 0; i < nCols; i++) {
                 
-                ColumnDescription desc = columns[i];
-                
-                session.out.print("      \"");
-                session.out.print(escape(desc.getName()));
-                session.out.print("\": ");
-                
-                if (SQLTools.needsQuotes(desc.getNativeType())) {
-                    
-                    session.out.print('"');
-                    session.out.print(escape(row[i]));
-                    session.out.print('"');
-                }
-                else {
+                if (i > 0) {
                     
-                    session.out.print(row[i]);
+                    out.append(',');
                 }
+                
+                out.append(names[i]);
+                appendValue(row, batch, r, i);
             }
             
-            session.out.println();
-            session.out.print("   }");
+            out.append('}');
+            out.append('\n');
         }
         else {
             
-            session.out.print("   ");
-            session.out.print(row[0]);
+            if (nrows > 0) {
+                
+                out.append(',');
+                out.append(LINE_SEPARATOR);
+            }
+            
+            if (nCols > 1) {
+                
+                out.append("   {");
+                out.append(LINE_SEPARATOR);
+                for (int i = 0; i < nCols; i++) {
+                    
+                    if (i > 0) {
+                        
+                        out.append(',');
+                        out.append(LINE_SEPARATOR);
+                    }
+                    
+                    out.append("      ");
+                    out.append(names[i]);
+                    appendValue(row, batch, r, i);
+                }
+                
+                out.append(LINE_SEPARATOR);
+                out.append("   }");
+            }
+            else {
+                
+                out.append("   ");
+                appendValue(row, batch, r, 0);
+            }
         }
 
         ++nrows;
-        return true;
     }
     
-    /**
-     * Given a string that may contain double quotes, escapes them if they
-     * exist.
-     * 
-     * @param str The string to check
-     * @return The escaped string.
+    /*
+     * Appends a single value, which is either a NULL, a number or boolean
+     * (which are unquoted), or a string.
      */
-    private String escape(String str) {
-        
-        int idx = str.indexOf('"');
-        if (idx < 0)
-            return str;
+    private void appendValue(String []row, RowBatch batch, int r, int col) {
         
-        StringBuilder sb = new StringBuilder(str.length() + 4);
-        sb.append(str, 0, idx);
-        sb.append("\\\"");
-        
-        ++idx;
-        while (idx < str.length()) {
+        String value;
+        if (row != null) {
             
-            int nextIdx = str.indexOf('"', idx);
-            if (nextIdx < 0) {
-                nextIdx = str.length();
-            }
+            value = (isNull(row[col]) ? null : row[col]);
+        }
+        else {
             
-            sb.append(str, idx, nextIdx);
-            idx = nextIdx + 1;
+            value = (batch.isNull(r, col) ? null : batch.get(r, col));
         }
         
-        return sb.toString();
+        out.value(value, unquoted[col]);
+    }
+    
+    /*
+     * Writes out what has been built up in the writer.
+     */
+    private boolean write() {
+        
+        write(out.getBuffer(), 0, out.length());
+        out.clear();
+        return (session.out.checkError() == false);
     }
 
     @Override
     public boolean flush() {
 
-        session.out.println();
-        session.out.println(']');
-        return true;
+        if (!lines) {
+            
+            if (nrows > 0) {
+                
+                session.out.print(LINE_SEPARATOR);
+            }
+            
+            session.out.print(']');
+            session.out.print(LINE_SEPARATOR);
+        }
+        
+        return (session.out.checkError() == false);
     }
 }
@@ -15,17 +15,26 @@
  */
 package org.sqsh.renderers;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
 
 import org.sqsh.ColumnDescription;
 import org.sqsh.RendererManager;
+import org.sqsh.RowBatch;
 import org.sqsh.Session;
+import org.sqsh.util.RowStore;
 
 /**
  * Implements a renderer that is similar to mysql's or henplus's in that it
  * will attempt to analyze all of the available data to perfectly display
  * all columns without wasting too much space.
+ * 
+ * <p>The rows that are held while the widths of the columns are worked
+ * out are kept in a {@link RowStore}, which packs them into a compact
+ * columnar form and, once they take up more than 
+ * {@link RendererManager#getPerfectMaxMemory()} megabytes, spills them
+ * to a temporary file from which they are read back when they are 
+ * displayed. The widths are worked out as the rows arrive, so the rows
+ * do not need to be looked at again until they are displayed.
  */
 public class PerfectPrettyRenderer
     extends AbstractPrettyRenderer {
@@ -33,8 +42,10 @@ public class PerfectPrettyRenderer
     /*
      * The data that has been collected thus far.
      */
-    private List<String[]> rows = new ArrayList<String[]>();
+    private RowStore rows = null;
+    private String []rowBuffer = null;
     private int sampleSize = 0;
+    private long maxMemory = 0L;
     private boolean hasHitSampleLimit = false;
     
     /**
@@ -49,6 +60,7 @@ public class PerfectPrettyRenderer
         
         super(session, renderMan);
         sampleSize = renderMan.getPerfectSampleSize();
+        maxMemory = renderMan.getPerfectMaxMemory() * 1024L * 1024L;
     }
     
     @Override
@@ -59,7 +71,12 @@ public class PerfectPrettyRenderer
         /*
          * We need to throw away the previous result set.
          */
-        rows.clear();
+        if (rows != null) {
+            
+            rows.clear();
+        }
+        rows = new RowStore(columns.length, maxMemory);
+        rowBuffer = new String[columns.length];
         hasHitSampleLimit = false;
         
         for (int i = 0; i < columns.length; i++) {
@@ -76,9 +93,52 @@ public class PerfectPrettyRenderer
         }
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public boolean retainsRows() {
+        
+        /*
+         * Rows are copied into the row store.
+         */
+        return false;
+    }
+    
     @Override
     public boolean row (String[] row) {
         
+        return addRow(row, null, 0);
+    }
+    
+    /**
+     * The values of the batch are copied into the row store, so the 
+     * batch's rows can be handed over without first copying each into 
+     * an array of its own.
+     */
+    @Override
+    public boolean rows (RowBatch batch) {
+        
+        int nRows = batch.size();
+        
+        for (int r = 0; r < nRows; r++) {
+            
+            batch.getRow(r, rowBuffer);
+            if (addRow(rowBuffer, batch, r) == false) {
+                
+                return false;
+            }
+        }
+        
+        return true;
+    }
+    
+    /*
+     * Takes a row, either measuring and holding on to it or, once the
+     * sample is complete, displaying it. Where the row came from a batch,
+     * the widths of values that the batch already knows are used rather
+     * than measuring the values again.
+     */
+    private boolean addRow (String []row, RowBatch batch, int r) {
+        
         if (hasHitSampleLimit) {
             
             printRow(row);
@@ -89,14 +149,9 @@ public class PerfectPrettyRenderer
                 
                 perfectWidth();
                 printHeader();
-                for (int i = 0; i < rows.size(); i++) {
+                if (!printRows()) {
             
-                    if (session.out.checkError() || Thread.interrupted()) {
-                
-                        return false;
-                    }
-            
-                    printRow(rows.get(i));
+                    return false;
                 }
                 printRow(row);
                 
@@ -120,7 +175,13 @@ public class PerfectPrettyRenderer
                     }
                     else {
                     
-                        int lineWidth = getMaxLineWidth(col, row[colIdx]);
+                        int lineWidth = (batch != null
+                            ? batch.getWidth(r, colIdx) : -1);
+                        if (lineWidth < 0) {
+                            
+                            lineWidth = getMaxLineWidth(col, row[colIdx]);
+                        }
+                        
                         if (lineWidth > width) {
                             
                             width = lineWidth;
@@ -129,9 +190,56 @@ public class PerfectPrettyRenderer
                     
                     col.setWidth(width);
                 }
+                
+                try {
+                    
+                    rows.add(row);
+                }
+                catch (IOException e) {
+                    
+                    session.err.println("Unable to hold rows for display: "
+                        + e.getMessage());
+                    return false;
+                }
             }
+        }
+        
+        return true;
+    }
+    
+    /*
+     * Displays the rows held in the row store.
+     */
+    private boolean printRows() {
+        
+        RowStore.Reader reader = null;
+        String []row = new String[columns.length];
+        
+        try {
             
-            rows.add(row);
+            reader = rows.open();
+            while (reader.next(row)) {
+                
+                if (session.out.checkError() || Thread.interrupted()) {
+                    
+                    return false;
+                }
+                
+                printRow(row);
+            }
+        }
+        catch (IOException e) {
+            
+            session.err.println("Unable to read rows for display: "
+                + e.getMessage());
+            return false;
+        }
+        finally {
+            
+            if (reader != null) {
+                
+                reader.close();
+            }
         }
         
         return true;
@@ -224,14 +332,11 @@ public class PerfectPrettyRenderer
             perfectWidth();
             
             printHeader();
-            for (int i = 0; i < rows.size(); i++) {
-                
-                if (session.out.checkError() || Thread.interrupted()) {
-                    
-                    return false;
-                }
+            boolean ok = printRows();
+            rows.clear();
+            if (!ok) {
                 
-                printRow(rows.get(i));
+                return false;
             }
         }
         printFooter();
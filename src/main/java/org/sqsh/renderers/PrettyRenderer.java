@@ -17,6 +17,7 @@ package org.sqsh.renderers;
 
 import org.sqsh.ColumnDescription;
 import org.sqsh.RendererManager;
+import org.sqsh.RowBatch;
 import org.sqsh.Session;
 
 /**
@@ -40,6 +41,15 @@ public class PrettyRenderer
         super(session, renderMan);
     }
     
+    /**
+     * Columns are wrapped at ${maxlen}.
+     */
+    @Override
+    public int getMaxColumnWidth() {
+        
+        return manager.getMaxColumnWidth();
+    }
+    
     public void header (ColumnDescription []columns) {
         
         super.header(columns);
@@ -76,6 +86,13 @@ public class PrettyRenderer
         printHeader();
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public boolean retainsRows() {
+        
+        return false;
+    }
+    
     /**
      * Called when a row needs to be displayed. This renderer will 
      * immediately display the row.
@@ -95,6 +112,34 @@ public class PrettyRenderer
         printRow(row);
         return true;
     }
+    
+    /**
+     * Displays a batch of rows, checking the state of the output stream
+     * once for the whole batch rather than once per row.
+     * 
+     * @param batch The rows to be displayed
+     * 
+     * @return false if the rows cannot be rendered because the output
+     *    stream has been closed.
+     */
+    @Override
+    public boolean rows (RowBatch batch) {
+        
+        if (session.out.checkError())  {
+            
+            return false;
+        }
+        
+        String []row = new String[batch.getColumnCount()];
+        int nRows = batch.size();
+        for (int r = 0; r < nRows; r++) {
+            
+            batch.getRow(r, row);
+            printRow(row);
+        }
+        
+        return true;
+    }
 
     @Override
     public boolean flush () {
@@ -0,0 +1,361 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.renderers;
+
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.JTable;
+import javax.swing.SwingUtilities;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableColumnModel;
+
+import org.sqsh.ColumnDescription;
+import org.sqsh.util.IndexSort;
+import org.sqsh.util.RowStore;
+
+/**
+ * A table model for the {@link GraphicalRenderer} that keeps its rows in
+ * a {@link RowStore}, rather than as a Vector of Vectors, and only
+ * creates Strings for the cells that the table actually asks for (that
+ * is, the ones that are visible).
+ *
+ * <p>Rows are added from the thread that is fetching the results while
+ * the table is displaying the rows it already has, so access to the store
+ * is synchronized on it. The table is told about new rows on the event
+ * dispatch thread, a block at a time. Sorting is done by another thread,
+ * which sorts an array of row indexes using typed comparisons (numbers
+ * as numbers), and the table simply displays the rows through that
+ * array once the sort is complete.
+ */
+class ResultTableModel
+    extends AbstractTableModel {
+    
+    private static final long serialVersionUID = 1L;
+    
+    private final ColumnDescription []columns;
+    private final RowStore store;
+    
+    /*
+     * For each column, a bitmap of the rows that are NULL. Guarded, like
+     * the store, by the store's lock.
+     */
+    private long [][]nulls;
+    
+    /*
+     * The number of rows the table knows about, and the order in which
+     * the first order.length of them are displayed. Only used on the
+     * event dispatch thread.
+     */
+    private int rowCount = 0;
+    private int []order = null;
+    private int sortedColumn = -1;
+    private boolean isAscending = false;
+    
+    private final AtomicBoolean updatePending = new AtomicBoolean(false);
+    private final AtomicBoolean sorting = new AtomicBoolean(false);
+    
+    /**
+     * Creates the model.
+     *
+     * @param columns The columns of the results.
+     */
+    public ResultTableModel (ColumnDescription []columns) {
+        
+        this.columns = columns;
+        this.store = new RowStore(columns.length, 0L);
+        this.nulls = new long[columns.length][16];
+    }
+    
+    /**
+     * Adds a row. This is called from the thread that is fetching the
+     * results, and the table does not see the row until
+     * {@link #publish()} is called.
+     *
+     * @param row The values of the row.
+     * @param isNull For each value, whether it is NULL.
+     */
+    public void addRow(String []row, boolean []isNull) {
+        
+        synchronized (store) {
+            
+            int r = store.size();
+            if ((r >>> 6) == nulls[0].length) {
+                
+                for (int i = 0; i < columns.length; i++) {
+                    
+                    long []bits = new long[nulls[i].length * 2];
+                    System.arraycopy(nulls[i], 0, bits, 0, nulls[i].length);
+                    nulls[i] = bits;
+                }
+            }
+            
+            for (int i = 0; i < columns.length; i++) {
+                
+                if (isNull[i]) {
+                    
+                    nulls[i][r >>> 6] |= (1L << r);
+                }
+            }
+            
+            try {
+                
+                store.add(row);
+            }
+            catch (IOException e) {
+                
+                /* CANNOT HAPPEN: THE STORE NEVER SPILLS */
+            }
+        }
+    }
+    
+    /**
+     * Lets the table know about the rows that have been added. The table
+     * is updated on the event dispatch thread, and calls made while an
+     * update is still waiting to happen are folded into that update.
+     */
+    public void publish() {
+        
+        if (updatePending.compareAndSet(false, true)) {
+            
+            SwingUtilities.invokeLater(new Runnable() {
+                
+                public void run() {
+                    
+                    updatePending.set(false);
+                    
+                    int n;
+                    synchronized (store) {
+                        
+                        n = store.size();
+                    }
+                    
+                    if (n > rowCount) {
+                        
+                        int first = rowCount;
+                        rowCount = n;
+                        fireTableRowsInserted(first, n - 1);
+                    }
+                }
+            });
+        }
+    }
+    
+    public int getRowCount () {
+        
+        return rowCount;
+    }
+    
+    public int getColumnCount () {
+        
+        return columns.length;
+    }
+    
+    @Override
+    public String getColumnName (int column) {
+        
+        String name = columns[column].getName();
+        return (name == null ? "" : name);
+    }
+    
+    public Object getValueAt (int row, int column) {
+        
+        if (order != null && row < order.length) {
+            
+            row = order[row];
+        }
+        
+        synchronized (store) {
+            
+            return store.get(row, column);
+        }
+    }
+    
+    /**
+     * Sorts the rows by a column in the background. Once the sort is
+     * complete the table is updated on the event dispatch thread. Rows
+     * that arrive while the sort is underway are displayed, unsorted,
+     * after the sorted ones. Requests made while a sort is already
+     * underway are ignored.
+     *
+     * @param column The index of the column.
+     * @param ascending Whether to sort in ascending order.
+     */
+    public void sort(final int column, final boolean ascending) {
+        
+        if (!sorting.compareAndSet(false, true)) {
+            
+            return;
+        }
+        
+        Thread thread = new Thread("jsqsh-sort") {
+            
+            public void run() {
+                
+                try {
+                    
+                    final int []idx = sortedOrder(column, ascending);
+                    SwingUtilities.invokeLater(new Runnable() {
+                        
+                        public void run() {
+                            
+                            order = idx;
+                            sortedColumn = column;
+                            isAscending = ascending;
+                            fireTableDataChanged();
+                        }
+                    });
+                }
+                catch (InterruptedException e) {
+                    
+                    /* GIVE UP ON THE SORT */
+                }
+                finally {
+                    
+                    sorting.set(false);
+                }
+            }
+        };
+        
+        thread.setDaemon(true);
+        thread.start();
+    }
+    
+    /*
+     * Works out the order of the rows held so far. Only the number of
+     * rows, the NULLs of the column and a view of its values are taken
+     * while holding the store's lock; the rows covered by them never
+     * change, so the sort itself runs while rows continue to be added
+     * and the table continues to be painted.
+     */
+    private int[] sortedOrder(final int column, final boolean ascending)
+        throws InterruptedException {
+        
+        final int n;
+        final long []colNulls;
+        final RowStore.Column values;
+        
+        synchronized (store) {
+            
+            n = store.size();
+            colNulls = Arrays.copyOf(nulls[column], (n + 63) >>> 6);
+            values = store.getColumn(column);
+        }
+            
+        int []idx = new int[n];
+        double []keys = null;
+                
+        for (int i = 0; i < n; i++) {
+            
+            idx[i] = i;
+        }
+                
+        /*
+         * Numbers are compared as numbers, provided that all of them
+         * can be parsed.
+         */
+        if (columns[column].getType() == ColumnDescription.Type.NUMBER) {
+                    
+            keys = new double[n];
+            for (int i = 0; keys != null && i < n; i++) {
+                        
+                if ((colNulls[i >>> 6] & (1L << i)) == 0L) {
+                            
+                    try {
+                            
+                        keys[i] = Double.parseDouble(values.get(i));
+                    }
+                    catch (NumberFormatException e) {
+                        
+                        keys = null;
+                    }
+                }
+            }
+        }
+            
+        final double []numbers = keys;
+        IndexSort.Comparator cmp = new IndexSort.Comparator() {
+                
+            public int compare (int r1, int r2) {
+                    
+                boolean null1 = (colNulls[r1 >>> 6] & (1L << r1)) != 0L;
+                boolean null2 = (colNulls[r2 >>> 6] & (1L << r2)) != 0L;
+                int r;
+                    
+                /*
+                 * NULLs are the "lowest" values.
+                 */
+                if (null1 || null2) {
+                        
+                    r = (null1 == null2 ? 0 : (null1 ? -1 : 1));
+                }
+                else if (numbers != null) {
+                        
+                    r = Double.compare(numbers[r1], numbers[r2]);
+                }
+                else {
+                        
+                    r = values.compare(r1, r2);
+                }
+                    
+                return (ascending ? r : -r);
+            }
+        };
+            
+        IndexSort.sort(idx, cmp,
+            Runtime.getRuntime().availableProcessors());
+        return idx;
+    }
+    
+    /**
+     * Listens for clicks on the table's header, and sorts by the column
+     * that was clicked on, reversing the order if it was already sorted
+     * by that column.
+     */
+    public class ColumnListener
+        extends MouseAdapter {
+        
+        protected JTable table;
+        
+        public ColumnListener(JTable t) {
+            
+            table = t;
+        }
+        
+        public void mouseClicked (MouseEvent e) {
+            
+            TableColumnModel colModel = table.getColumnModel();
+            int columnModelIndex = colModel.getColumnIndexAtX(e.getX());
+            if (columnModelIndex < 0) {
+                
+                return;
+            }
+            
+            int modelIndex = colModel.getColumn(columnModelIndex)
+                .getModelIndex();
+            if (modelIndex < 0) {
+                
+                return;
+            }
+            
+            sort(modelIndex,
+                (sortedColumn == modelIndex ? !isAscending : true));
+        }
+    }
+}
@@ -67,6 +67,13 @@ public class VerticalRenderer
         }
     }
     
+    /** {@inheritDoc} */
+    @Override
+    public boolean retainsRows() {
+        
+        return false;
+    }
+    
     /** {@inheritDoc} */
     public boolean row (String[] row) {
         
@@ -0,0 +1,359 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.synth;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Random;
+
+import javax.sql.rowset.serial.SerialBlob;
+import javax.sql.rowset.serial.SerialClob;
+
+/**
+ * Describes a column of a synthetic result set and generates its values.
+ * A column is described the way it would be in a CREATE TABLE statement,
+ * such as "int", "varchar(40)" or "decimal(18,4)".
+ */
+public class SynthColumn {
+    
+    /*
+     * Generated dates and times fall within the ten years starting at
+     * 2010-01-01 00:00:00 UTC.
+     */
+    private static final long EPOCH = 1262304000000L;
+    private static final long SPAN = 10L * 365 * 24 * 60 * 60 * 1000;
+    
+    private static final char []ALPHABET =
+        "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 "
+            .toCharArray();
+    
+    private String name;
+    private int type;
+    private String typeName;
+    private int precision;
+    private int scale;
+    
+    /*
+     * For DECIMAL/NUMERIC, the unscaled values are kept below this bound.
+     */
+    private long bound = 0L;
+    
+    private SynthColumn (String name, int type, String typeName,
+            int precision, int scale) {
+        
+        this.name = name;
+        this.type = type;
+        this.typeName = typeName;
+        this.precision = precision;
+        this.scale = scale;
+        
+        if (type == Types.DECIMAL || type == Types.NUMERIC) {
+            
+            bound = BigInteger.TEN.pow(Math.min(precision, 18)).longValue();
+        }
+    }
+    
+    /**
+     * Parses the description of a column.
+     *
+     * @param name The name to give the column
+     * @param spec The description of the column, such as "varchar(40)"
+     * @return The column
+     * @throws SQLException If the type is not recognized or its length
+     *   or precision is invalid.
+     */
+    public static SynthColumn parse(String name, String spec)
+        throws SQLException {
+        
+        String type = spec.trim().toLowerCase();
+        int length = -1;
+        int scale = -1;
+        
+        int paren = type.indexOf('(');
+        if (paren > 0) {
+            
+            if (!type.endsWith(")")) {
+                
+                throw new SQLException("Invalid column type '" + spec + "'");
+            }
+            
+            String args = type.substring(paren + 1, type.length() - 1);
+            type = type.substring(0, paren).trim();
+            
+            try {
+                
+                int comma = args.indexOf(',');
+                if (comma >= 0) {
+                    
+                    length = Integer.parseInt(args.substring(0, comma).trim());
+                    scale = Integer.parseInt(args.substring(comma + 1).trim());
+                }
+                else {
+                    
+                    length = Integer.parseInt(args.trim());
+                }
+            }
+            catch (NumberFormatException e) {
+                
+                throw new SQLException("Invalid length or precision in "
+                    + "column type '" + spec + "'");
+            }
+            
+            if (length < 1 || (scale >= 0 && scale > length)) {
+                
+                throw new SQLException("Invalid length or precision in "
+                    + "column type '" + spec + "'");
+            }
+        }
+        
+        if (type.equals("int") || type.equals("integer")) {
+            
+            return new SynthColumn(name, Types.INTEGER, "INTEGER", 10, 0);
+        }
+        if (type.equals("smallint")) {
+            
+            return new SynthColumn(name, Types.SMALLINT, "SMALLINT", 5, 0);
+        }
+        if (type.equals("tinyint")) {
+            
+            return new SynthColumn(name, Types.TINYINT, "TINYINT", 3, 0);
+        }
+        if (type.equals("bigint")) {
+            
+            return new SynthColumn(name, Types.BIGINT, "BIGINT", 19, 0);
+        }
+        if (type.equals("real")) {
+            
+            return new SynthColumn(name, Types.REAL, "REAL", 7, 0);
+        }
+        if (type.equals("float") || type.equals("double")) {
+            
+            return new SynthColumn(name, Types.DOUBLE, "DOUBLE", 15, 0);
+        }
+        if (type.equals("decimal") || type.equals("numeric")) {
+            
+            return new SynthColumn(name,
+                (type.equals("decimal") ? Types.DECIMAL : Types.NUMERIC),
+                type.toUpperCase(),
+                (length < 0 ? 18 : length), (scale < 0 ? 0 : scale));
+        }
+        if (type.equals("char")) {
+            
+            return new SynthColumn(name, Types.CHAR, "CHAR",
+                (length < 0 ? 1 : length), 0);
+        }
+        if (type.equals("varchar")) {
+            
+            return new SynthColumn(name, Types.VARCHAR, "VARCHAR",
+                (length < 0 ? 30 : length), 0);
+        }
+        if (type.equals("binary")) {
+            
+            return new SynthColumn(name, Types.BINARY, "BINARY",
+                (length < 0 ? 16 : length), 0);
+        }
+        if (type.equals("varbinary")) {
+            
+            return new SynthColumn(name, Types.VARBINARY, "VARBINARY",
+                (length < 0 ? 16 : length), 0);
+        }
+        if (type.equals("date")) {
+            
+            return new SynthColumn(name, Types.DATE, "DATE", 10, 0);
+        }
+        if (type.equals("time")) {
+            
+            return new SynthColumn(name, Types.TIME, "TIME", 8, 0);
+        }
+        if (type.equals("timestamp")) {
+            
+            return new SynthColumn(name, Types.TIMESTAMP, "TIMESTAMP", 23, 3);
+        }
+        if (type.equals("boolean") || type.equals("bit")) {
+            
+            return new SynthColumn(name, Types.BOOLEAN, "BOOLEAN", 1, 0);
+        }
+        if (type.equals("clob")) {
+            
+            return new SynthColumn(name, Types.CLOB, "CLOB",
+                (length < 0 ? 1000 : length), 0);
+        }
+        if (type.equals("blob")) {
+            
+            return new SynthColumn(name, Types.BLOB, "BLOB",
+                (length < 0 ? 1000 : length), 0);
+        }
+        
+        throw new SQLException("Unsupported column type '" + spec + "'. "
+            + "Supported types are int, smallint, tinyint, bigint, real, "
+            + "float, double, decimal(p,s), numeric(p,s), char(n), "
+            + "varchar(n), binary(n), varbinary(n), date, time, "
+            + "timestamp, boolean, clob(n) and blob(n)");
+    }
+    
+    /**
+     * @return The name of the column.
+     */
+    public String getName() {
+        
+        return name;
+    }
+    
+    /**
+     * @return The JDBC type of the column (see {@link Types}).
+     */
+    public int getType() {
+        
+        return type;
+    }
+    
+    /**
+     * @return The SQL name of the type of the column.
+     */
+    public String getTypeName() {
+        
+        return typeName;
+    }
+    
+    /**
+     * @return The precision, or maximum length, of the column.
+     */
+    public int getPrecision() {
+        
+        return precision;
+    }
+    
+    /**
+     * @return The scale of the column.
+     */
+    public int getScale() {
+        
+        return scale;
+    }
+    
+    /**
+     * @return The name of the Java class of the values of the column.
+     */
+    public String getClassName() {
+        
+        switch (type) {
+            
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER: return Integer.class.getName();
+            case Types.BIGINT: return Long.class.getName();
+            case Types.REAL: return Float.class.getName();
+            case Types.DOUBLE: return Double.class.getName();
+            case Types.DECIMAL:
+            case Types.NUMERIC: return BigDecimal.class.getName();
+            case Types.CHAR:
+            case Types.VARCHAR: return String.class.getName();
+            case Types.BINARY:
+            case Types.VARBINARY: return byte[].class.getName();
+            case Types.DATE: return Date.class.getName();
+            case Types.TIME: return Time.class.getName();
+            case Types.TIMESTAMP: return Timestamp.class.getName();
+            case Types.BOOLEAN: return Boolean.class.getName();
+            case Types.CLOB: return java.sql.Clob.class.getName();
+            case Types.BLOB: return java.sql.Blob.class.getName();
+            default: return Object.class.getName();
+        }
+    }
+    
+    /**
+     * Generates a (non-null) value for the column.
+     *
+     * @param random The source of randomness.
+     * @return The value, of the Java type that JDBC maps the column's
+     *   type to.
+     * @throws SQLException If a large object cannot be created.
+     */
+    public Object generate(Random random)
+        throws SQLException {
+        
+        switch (type) {
+            
+            case Types.TINYINT:
+                return Integer.valueOf(random.nextInt(128));
+            case Types.SMALLINT:
+                return Integer.valueOf(random.nextInt(65536) - 32768);
+            case Types.INTEGER:
+                return Integer.valueOf(random.nextInt());
+            case Types.BIGINT:
+                return Long.valueOf(random.nextLong());
+            case Types.REAL:
+                return Float.valueOf((random.nextFloat() - 0.5f) * 100000.0f);
+            case Types.DOUBLE:
+                return Double.valueOf((random.nextDouble() - 0.5) * 1.0e9);
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return BigDecimal.valueOf(
+                    (random.nextLong() & Long.MAX_VALUE) % bound
+                        * (random.nextBoolean() ? 1 : -1), scale);
+            case Types.CHAR:
+                return string(random, precision);
+            case Types.VARCHAR:
+                return string(random, 1 + random.nextInt(precision));
+            case Types.BINARY:
+                return bytes(random, precision);
+            case Types.VARBINARY:
+                return bytes(random, 1 + random.nextInt(precision));
+            case Types.DATE:
+                return new Date(time(random) / 86400000L * 86400000L);
+            case Types.TIME:
+                return new Time(time(random) % 86400000L / 1000L * 1000L);
+            case Types.TIMESTAMP:
+                return new Timestamp(time(random));
+            case Types.BOOLEAN:
+                return Boolean.valueOf(random.nextBoolean());
+            case Types.CLOB:
+                return new SerialClob(
+                    string(random, precision).toCharArray());
+            case Types.BLOB:
+                return new SerialBlob(bytes(random, precision));
+            default:
+                return null;
+        }
+    }
+    
+    private static long time(Random random) {
+        
+        return EPOCH + (random.nextLong() & Long.MAX_VALUE) % SPAN;
+    }
+    
+    private static String string(Random random, int len) {
+        
+        char []chars = new char[len];
+        for (int i = 0; i < len; i++) {
+            
+            chars[i] = ALPHABET[random.nextInt(ALPHABET.length)];
+        }
+        
+        return new String(chars);
+    }
+    
+    private static byte[] bytes(Random random, int len) {
+        
+        byte []bytes = new byte[len];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.synth;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The settings that control what a synthetic statement produces. Settings
+ * are name=value pairs and come first from the connection URL, such as:
+ * <pre>
+ *   jdbc:sqsh-synth:rows=10000;cols=int,varchar(40),timestamp
+ * </pre>
+ * and may then be overridden for an individual statement by name=value
+ * words appearing in the text of the statement, such as:
+ * <pre>
+ *   select rows=10 latency=500
+ * </pre>
+ * The available settings are:
+ * <ul>
+ *   <li><b>rows</b> - The number of rows in each result set (default 10)
+ *   <li><b>cols</b> - Comma separated column types (see
+ *       {@link SynthColumn#parse(String, String)})
+ *   <li><b>results</b> - The number of result sets each statement
+ *       produces (default 1)
+ *   <li><b>updates</b> - The number of update counts each statement
+ *       produces after its result sets (default 0)
+ *   <li><b>warnings</b> - The number of warnings each statement
+ *       produces (default 0)
+ *   <li><b>latency</b> - Microseconds taken to fetch each row (default 0)
+ *   <li><b>exec_latency</b> - Milliseconds taken to execute each
+ *       statement (default 0)
+ *   <li><b>nulls</b> - The percentage of values that are NULL (default 0)
+ *   <li><b>seed</b> - Seed for the random values, so that the same
+ *       settings always produce the same rows (default 0)
+ * </ul>
+ */
+public class SynthConfig
+    implements Cloneable {
+    
+    /**
+     * The names of the available settings.
+     */
+    public static final String []SETTINGS = {
+        "rows", "cols", "results", "updates", "warnings", "latency",
+        "exec_latency", "nulls", "seed"
+    };
+    
+    /**
+     * Descriptions of the settings, in the same order as {@link #SETTINGS}.
+     */
+    public static final String []DESCRIPTIONS = {
+        "Number of rows in each result set",
+        "Comma separated column types, e.g. int,varchar(40),decimal(18,4)",
+        "Number of result sets produced by each statement",
+        "Number of update counts produced by each statement",
+        "Number of warnings produced by each statement",
+        "Microseconds taken to fetch each row",
+        "Milliseconds taken to execute each statement",
+        "Percentage of values that are NULL",
+        "Seed for the generated values"
+    };
+    
+    private long rows = 10L;
+    private String cols = "int,varchar(30)";
+    private int results = 1;
+    private int updates = 0;
+    private int warnings = 0;
+    private long latency = 0L;
+    private long execLatency = 0L;
+    private int nulls = 0;
+    private long seed = 0L;
+    
+    private SynthColumn []columns = null;
+    
+    /**
+     * Applies settings from a connection URL, or from the properties
+     * portion of one.
+     *
+     * @param settings Settings separated by semicolons, such as
+     *   "rows=10;cols=int,varchar(40)"
+     * @throws SQLException If a setting is unknown or invalid.
+     */
+    public void applyUrl(String settings)
+        throws SQLException {
+        
+        for (String setting : settings.split(";")) {
+            
+            setting = setting.trim();
+            if (setting.length() == 0) {
+                
+                continue;
+            }
+            
+            int eq = setting.indexOf('=');
+            if (eq < 0) {
+                
+                throw new SQLException("Invalid setting '" + setting
+                    + "' in URL, expected name=value");
+            }
+            
+            String name = setting.substring(0, eq).trim();
+            if (!isSetting(name)) {
+                
+                throw new SQLException("Unknown setting '" + name
+                    + "' in URL. Valid settings are: " + settingNames());
+            }
+            
+            set(name, setting.substring(eq + 1).trim());
+        }
+    }
+    
+    /**
+     * Applies any settings found in the text of a statement. Words of
+     * the form name=value where name is one of the {@link #SETTINGS} are
+     * applied and all other text is ignored.
+     *
+     * @param sql The text of the statement.
+     * @throws SQLException If a setting has an invalid value.
+     */
+    public void applySql(String sql)
+        throws SQLException {
+        
+        for (String word : sql.split("[\\s;]+")) {
+            
+            int eq = word.indexOf('=');
+            if (eq > 0 && isSetting(word.substring(0, eq))) {
+                
+                set(word.substring(0, eq), unwrap(word.substring(eq + 1)));
+            }
+        }
+    }
+    
+    /*
+     * Removes the closing parentheses left on the end of a value when a
+     * statement has been wrapped in another, as in
+     * "select * from (select rows=10) t", without damaging those that
+     * belong to the value, as in "cols=decimal(18,4)".
+     */
+    private static String unwrap(String value) {
+        
+        int depth = 0;
+        for (int i = 0; i < value.length(); i++) {
+            
+            char ch = value.charAt(i);
+            if (ch == '(') {
+                
+                ++depth;
+            }
+            else if (ch == ')') {
+                
+                if (depth == 0) {
+                    
+                    return value.substring(0, i);
+                }
+                --depth;
+            }
+        }
+        
+        return value;
+    }
+    
+    /**
+     * Changes a setting.
+     *
+     * @param name The name of the setting
+     * @param value The new value
+     * @throws SQLException If the name is unknown or value is invalid.
+     */
+    public void set(String name, String value)
+        throws SQLException {
+        
+        name = name.toLowerCase();
+        try {
+            
+            if (name.equals("rows")) {
+                
+                rows = nonNegative(name, Long.parseLong(value));
+            }
+            else if (name.equals("cols")) {
+                
+                cols = value;
+                columns = null;
+                getColumns();
+            }
+            else if (name.equals("results")) {
+                
+                results = (int) nonNegative(name, Integer.parseInt(value));
+            }
+            else if (name.equals("updates")) {
+                
+                updates = (int) nonNegative(name, Integer.parseInt(value));
+            }
+            else if (name.equals("warnings")) {
+                
+                warnings = (int) nonNegative(name, Integer.parseInt(value));
+            }
+            else if (name.equals("latency")) {
+                
+                latency = nonNegative(name, Long.parseLong(value));
+            }
+            else if (name.equals("exec_latency")) {
+                
+                execLatency = nonNegative(name, Long.parseLong(value));
+            }
+            else if (name.equals("nulls")) {
+                
+                nulls = Integer.parseInt(value);
+                if (nulls < 0 || nulls > 100) {
+                    
+                    throw new SQLException("nulls must be a percentage "
+                        + "between 0 and 100");
+                }
+            }
+            else if (name.equals("seed")) {
+                
+                seed = Long.parseLong(value);
+            }
+            else {
+                
+                throw new SQLException("Unknown setting '" + name + "'");
+            }
+        }
+        catch (NumberFormatException e) {
+            
+            throw new SQLException("Invalid value '" + value
+                + "' for setting '" + name + "'");
+        }
+    }
+    
+    /**
+     * @param name A name
+     * @return true if the name is that of a setting.
+     */
+    public static boolean isSetting(String name) {
+        
+        for (String setting : SETTINGS) {
+            
+            if (setting.equalsIgnoreCase(name)) {
+                
+                return true;
+            }
+        }
+        
+        return false;
+    }
+    
+    private static String settingNames() {
+        
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < SETTINGS.length; i++) {
+            
+            if (i > 0) {
+                
+                sb.append(", ");
+            }
+            sb.append(SETTINGS[i]);
+        }
+        
+        return sb.toString();
+    }
+    
+    private static long nonNegative(String name, long value)
+        throws SQLException {
+        
+        if (value < 0) {
+            
+            throw new SQLException("Setting '" + name
+                + "' may not be negative");
+        }
+        
+        return value;
+    }
+    
+    /**
+     * @return The columns of each result set.
+     * @throws SQLException If the column types are invalid.
+     */
+    public SynthColumn[] getColumns()
+        throws SQLException {
+        
+        if (columns == null) {
+            
+            List<String> types = new ArrayList<String>();
+            int depth = 0;
+            int start = 0;
+            
+            /*
+             * Split on commas, other than those within a type's
+             * parentheses, as in decimal(18,4).
+             */
+            for (int i = 0; i < cols.length(); i++) {
+                
+                char ch = cols.charAt(i);
+                if (ch == '(') {
+                    
+                    ++depth;
+                }
+                else if (ch == ')') {
+                    
+                    --depth;
+                }
+                else if (ch == ',' && depth == 0) {
+                    
+                    types.add(cols.substring(start, i));
+                    start = i + 1;
+                }
+            }
+            types.add(cols.substring(start));
+            
+            SynthColumn []parsed = new SynthColumn[types.size()];
+            for (int i = 0; i < parsed.length; i++) {
+                
+                parsed[i] = SynthColumn.parse("c" + (i + 1), types.get(i));
+            }
+            
+            columns = parsed;
+        }
+        
+        return columns;
+    }
+    
+    /**
+     * @return The number of rows in each result set.
+     */
+    public long getRows() {
+        
+        return rows;
+    }
+    
+    /**
+     * @return The number of result sets produced by each statement.
+     */
+    public int getResults() {
+        
+        return results;
+    }
+    
+    /**
+     * @return The number of update counts produced by each statement.
+     */
+    public int getUpdates() {
+        
+        return updates;
+    }
+    
+    /**
+     * @return The number of warnings produced by each statement.
+     */
+    public int getWarnings() {
+        
+        return warnings;
+    }
+    
+    /**
+     * @return The number of microseconds taken to fetch each row.
+     */
+    public long getLatency() {
+        
+        return latency;
+    }
+    
+    /**
+     * @return The number of milliseconds taken to execute a statement.
+     */
+    public long getExecLatency() {
+        
+        return execLatency;
+    }
+    
+    /**
+     * @return The percentage of values that are NULL.
+     */
+    public int getNulls() {
+        
+        return nulls;
+    }
+    
+    /**
+     * @return The seed for the generated values.
+     */
+    public long getSeed() {
+        
+        return seed;
+    }
+    
+    @Override
+    public SynthConfig clone() {
+        
+        try {
+            
+            return (SynthConfig) super.clone();
+        }
+        catch (CloneNotSupportedException e) {
+            
+            throw new InternalError(e.getMessage());
+        }
+    }
+}
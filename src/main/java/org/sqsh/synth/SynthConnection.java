@@ -0,0 +1,466 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.synth;
+
+import java.sql.Array;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.NClob;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLClientInfoException;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Struct;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Executor;
+
+/**
+ * A connection of the {@link SynthDriver}. There is nothing on the other
+ * end of it: every statement created through the connection produces
+ * results as described by the connection's {@link SynthConfig settings}.
+ * Transactions are accepted (and do nothing), and the connection's
+ * properties, such as its catalog, may be set and read back.
+ */
+public class SynthConnection
+    implements Connection {
+    
+    private String url;
+    private SynthConfig config;
+    private boolean closed = false;
+    private boolean autoCommit = true;
+    private boolean readOnly = false;
+    private String catalog = "synth";
+    private String schema = null;
+    private int isolation = TRANSACTION_READ_COMMITTED;
+    private int holdability = ResultSet.CLOSE_CURSORS_AT_COMMIT;
+    private Map<String, Class<?>> typeMap = new HashMap<String, Class<?>>();
+    private Properties clientInfo = new Properties();
+    
+    /**
+     * Creates a connection.
+     * 
+     * @param url The URL that was used to connect
+     * @param config The settings for the statements of the connection
+     */
+    public SynthConnection (String url, SynthConfig config) {
+        
+        this.url = url;
+        this.config = config;
+    }
+    
+    /**
+     * @return The URL that was used to connect.
+     */
+    public String getUrl() {
+        
+        return url;
+    }
+    
+    /**
+     * @return The settings for the statements of the connection. Statements
+     *   work from a copy of these, so they may be changed at any time.
+     */
+    public SynthConfig getConfig() {
+        
+        return config;
+    }
+    
+    private void checkOpen()
+        throws SQLException {
+        
+        if (closed) {
+            
+            throw new SQLException("Connection is closed", "08003");
+        }
+    }
+    
+    private static void checkCursor(int type, int concurrency)
+        throws SQLException {
+        
+        if (type != ResultSet.TYPE_FORWARD_ONLY
+                || concurrency != ResultSet.CONCUR_READ_ONLY) {
+            
+            throw new SQLFeatureNotSupportedException("Only forward-only, "
+                + "read-only result sets are supported");
+        }
+    }
+    
+    private static SQLException unsupported(String method) {
+        
+        return new SQLFeatureNotSupportedException(
+            "SynthConnection does not support " + method + "()");
+    }
+    
+    public Statement createStatement()
+        throws SQLException {
+        
+        return createStatement(ResultSet.TYPE_FORWARD_ONLY,
+            ResultSet.CONCUR_READ_ONLY);
+    }
+    
+    public PreparedStatement prepareStatement(String sql)
+        throws SQLException {
+        
+        return prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+            ResultSet.CONCUR_READ_ONLY);
+    }
+    
+    public CallableStatement prepareCall(String sql)
+        throws SQLException {
+        
+        return prepareCall(sql, ResultSet.TYPE_FORWARD_ONLY,
+            ResultSet.CONCUR_READ_ONLY);
+    }
+    
+    public String nativeSQL(String sql)
+        throws SQLException {
+        
+        return sql;
+    }
+    
+    public void setAutoCommit(boolean autoCommit)
+        throws SQLException {
+        
+        checkOpen();
+        this.autoCommit = autoCommit;
+    }
+    
+    public boolean getAutoCommit()
+        throws SQLException {
+        
+        checkOpen();
+        return autoCommit;
+    }
+    
+    public void commit()
+        throws SQLException {
+        
+        checkOpen();
+    }
+    
+    public void rollback()
+        throws SQLException {
+        
+        checkOpen();
+    }
+    
+    public void close()
+        throws SQLException {
+        
+        closed = true;
+    }
+    
+    public boolean isClosed()
+        throws SQLException {
+        
+        return closed;
+    }
+    
+    public DatabaseMetaData getMetaData()
+        throws SQLException {
+        
+        throw unsupported("getMetaData");
+    }
+    
+    public void setReadOnly(boolean readOnly)
+        throws SQLException {
+        
+        checkOpen();
+        this.readOnly = readOnly;
+    }
+    
+    public boolean isReadOnly()
+        throws SQLException {
+        
+        checkOpen();
+        return readOnly;
+    }
+    
+    public void setCatalog(String catalog)
+        throws SQLException {
+        
+        checkOpen();
+        this.catalog = catalog;
+    }
+    
+    public String getCatalog()
+        throws SQLException {
+        
+        checkOpen();
+        return catalog;
+    }
+    
+    public void setTransactionIsolation(int level)
+        throws SQLException {
+        
+        checkOpen();
+        this.isolation = level;
+    }
+    
+    public int getTransactionIsolation()
+        throws SQLException {
+        
+        checkOpen();
+        return isolation;
+    }
+    
+    public SQLWarning getWarnings()
+        throws SQLException {
+        
+        checkOpen();
+        return null;
+    }
+    
+    public void clearWarnings()
+        throws SQLException {
+        
+        checkOpen();
+    }
+    
+    public Statement createStatement(int resultSetType, int resultSetConcurrency)
+        throws SQLException {
+        
+        return createStatement(resultSetType, resultSetConcurrency,
+            ResultSet.CLOSE_CURSORS_AT_COMMIT);
+    }
+    
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency)
+        throws SQLException {
+        
+        return prepareStatement(sql, resultSetType, resultSetConcurrency,
+            ResultSet.CLOSE_CURSORS_AT_COMMIT);
+    }
+    
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency)
+        throws SQLException {
+        
+        return prepareCall(sql, resultSetType, resultSetConcurrency,
+            ResultSet.CLOSE_CURSORS_AT_COMMIT);
+    }
+    
+    public Map<String,Class<?>> getTypeMap()
+        throws SQLException {
+        
+        return typeMap;
+    }
+    
+    public void setTypeMap(Map<String,Class<?>> map)
+        throws SQLException {
+        
+        this.typeMap = map;
+    }
+    
+    public void setHoldability(int holdability)
+        throws SQLException {
+        
+        checkOpen();
+        this.holdability = holdability;
+    }
+    
+    public int getHoldability()
+        throws SQLException {
+        
+        checkOpen();
+        return holdability;
+    }
+    
+    public Savepoint setSavepoint()
+        throws SQLException {
+        
+        throw unsupported("setSavepoint");
+    }
+    
+    public Savepoint setSavepoint(String name)
+        throws SQLException {
+        
+        throw unsupported("setSavepoint");
+    }
+    
+    public void rollback(Savepoint savepoint)
+        throws SQLException {
+        
+        throw unsupported("rollback");
+    }
+    
+    public void releaseSavepoint(Savepoint savepoint)
+        throws SQLException {
+        
+        throw unsupported("releaseSavepoint");
+    }
+    
+    public Statement createStatement(int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+        throws SQLException {
+        
+        checkOpen();
+        checkCursor(resultSetType, resultSetConcurrency);
+        return new SynthStatement(this, null);
+    }
+    
+    public PreparedStatement prepareStatement(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+        throws SQLException {
+        
+        checkOpen();
+        checkCursor(resultSetType, resultSetConcurrency);
+        return new SynthStatement(this, sql);
+    }
+    
+    public CallableStatement prepareCall(String sql, int resultSetType, int resultSetConcurrency, int resultSetHoldability)
+        throws SQLException {
+        
+        checkOpen();
+        checkCursor(resultSetType, resultSetConcurrency);
+        return new SynthStatement(this, sql);
+    }
+    
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys)
+        throws SQLException {
+        
+        return prepareStatement(sql);
+    }
+    
+    public PreparedStatement prepareStatement(String sql, int[] columnIndexes)
+        throws SQLException {
+        
+        return prepareStatement(sql);
+    }
+    
+    public PreparedStatement prepareStatement(String sql, String[] columnNames)
+        throws SQLException {
+        
+        return prepareStatement(sql);
+    }
+    
+    public Clob createClob()
+        throws SQLException {
+        
+        throw unsupported("createClob");
+    }
+    
+    public Blob createBlob()
+        throws SQLException {
+        
+        throw unsupported("createBlob");
+    }
+    
+    public NClob createNClob()
+        throws SQLException {
+        
+        throw unsupported("createNClob");
+    }
+    
+    public SQLXML createSQLXML()
+        throws SQLException {
+        
+        throw unsupported("createSQLXML");
+    }
+    
+    public boolean isValid(int timeout)
+        throws SQLException {
+        
+        return !closed;
+    }
+    
+    public void setClientInfo(String name, String value)
+        throws SQLClientInfoException {
+        
+        clientInfo.setProperty(name, value);
+    }
+    
+    public void setClientInfo(Properties properties)
+        throws SQLClientInfoException {
+        
+        clientInfo = new Properties();
+        clientInfo.putAll(properties);
+    }
+    
+    public String getClientInfo(String name)
+        throws SQLException {
+        
+        return clientInfo.getProperty(name);
+    }
+    
+    public Properties getClientInfo()
+        throws SQLException {
+        
+        return clientInfo;
+    }
+    
+    public Array createArrayOf(String typeName, Object[] elements)
+        throws SQLException {
+        
+        throw unsupported("createArrayOf");
+    }
+    
+    public Struct createStruct(String typeName, Object[] attributes)
+        throws SQLException {
+        
+        throw unsupported("createStruct");
+    }
+    
+    public void setSchema(String schema)
+        throws SQLException {
+        
+        checkOpen();
+        this.schema = schema;
+    }
+    
+    public String getSchema()
+        throws SQLException {
+        
+        checkOpen();
+        return schema;
+    }
+    
+    public void abort(Executor executor)
+        throws SQLException {
+        
+        closed = true;
+    }
+    
+    public void setNetworkTimeout(Executor executor, int milliseconds)
+        throws SQLException {
+        
+        checkOpen();
+    }
+    
+    public int getNetworkTimeout()
+        throws SQLException {
+        
+        return 0;
+    }
+    
+    public <T> T unwrap(Class<T> iface)
+        throws SQLException {
+        
+        return iface.cast(this);
+    }
+    
+    public boolean isWrapperFor(Class<?> iface)
+        throws SQLException {
+        
+        return iface.isInstance(this);
+    }
+}
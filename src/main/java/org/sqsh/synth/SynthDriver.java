@@ -0,0 +1,135 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.synth;
+
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * A JDBC driver that needs no database. Every statement executed through
+ * it produces result sets of generated rows, update counts and warnings
+ * as described by its {@link SynthConfig settings}, which makes it
+ * possible to exercise (and profile) all of jsqsh from statement
+ * execution to display without a database or network being involved.
+ * URLs are of the form:
+ * <pre>
+ *   jdbc:sqsh-synth:rows=10000000;cols=int,varchar(40),timestamp,decimal(18,4)
+ * </pre>
+ */
+public class SynthDriver
+    implements Driver {
+    
+    /**
+     * The prefix of the URLs accepted by the driver.
+     */
+    public static final String URL_PREFIX = "jdbc:sqsh-synth:";
+    
+    private static final Logger LOG =
+        Logger.getLogger(SynthDriver.class.getName());
+    
+    static {
+        
+        try {
+            
+            DriverManager.registerDriver(new SynthDriver());
+        }
+        catch (SQLException e) {
+            
+            LOG.warning("Unable to register synthetic driver: "
+                + e.getMessage());
+        }
+    }
+    
+    public boolean acceptsURL(String url)
+        throws SQLException {
+        
+        return url != null && url.startsWith(URL_PREFIX);
+    }
+    
+    public Connection connect(String url, Properties info)
+        throws SQLException {
+        
+        if (!acceptsURL(url)) {
+            
+            return null;
+        }
+        
+        SynthConfig config = new SynthConfig();
+        
+        /*
+         * Settings passed as connection properties are applied first so
+         * that the URL has the final say.
+         */
+        if (info != null) {
+            
+            for (String name : SynthConfig.SETTINGS) {
+                
+                String value = info.getProperty(name);
+                if (value != null) {
+                    
+                    config.set(name, value);
+                }
+            }
+        }
+        
+        config.applyUrl(url.substring(URL_PREFIX.length()));
+        return new SynthConnection(url, config);
+    }
+    
+    public DriverPropertyInfo[] getPropertyInfo(String url, Properties info)
+        throws SQLException {
+        
+        DriverPropertyInfo []props =
+            new DriverPropertyInfo[SynthConfig.SETTINGS.length];
+        
+        for (int i = 0; i < props.length; i++) {
+            
+            props[i] = new DriverPropertyInfo(SynthConfig.SETTINGS[i],
+                (info == null ? null
+                    : info.getProperty(SynthConfig.SETTINGS[i])));
+            props[i].description = SynthConfig.DESCRIPTIONS[i];
+        }
+        
+        return props;
+    }
+    
+    public int getMajorVersion() {
+        
+        return 1;
+    }
+    
+    public int getMinorVersion() {
+        
+        return 0;
+    }
+    
+    public boolean jdbcCompliant() {
+        
+        return false;
+    }
+    
+    public Logger getParentLogger()
+        throws SQLFeatureNotSupportedException {
+        
+        return LOG;
+    }
+}
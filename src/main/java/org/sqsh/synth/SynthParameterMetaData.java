@@ -0,0 +1,118 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.synth;
+
+import java.sql.ParameterMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Parameter metadata for a {@link SynthStatement}. All parameters are
+ * input parameters, and are described as VARCHAR.
+ */
+public class SynthParameterMetaData
+    implements ParameterMetaData {
+    
+    private int count;
+    
+    public SynthParameterMetaData (int count) {
+        
+        this.count = count;
+    }
+    
+    private void check(int param)
+        throws SQLException {
+        
+        if (param < 1 || param > count) {
+            
+            throw new SQLException("Invalid parameter index " + param);
+        }
+    }
+    
+    public int getParameterCount()
+        throws SQLException {
+        
+        return count;
+    }
+    
+    public int isNullable(int param)
+        throws SQLException {
+        
+        check(param);
+        return parameterNullableUnknown;
+    }
+    
+    public boolean isSigned(int param)
+        throws SQLException {
+        
+        check(param);
+        return false;
+    }
+    
+    public int getPrecision(int param)
+        throws SQLException {
+        
+        check(param);
+        return 0;
+    }
+    
+    public int getScale(int param)
+        throws SQLException {
+        
+        check(param);
+        return 0;
+    }
+    
+    public int getParameterType(int param)
+        throws SQLException {
+        
+        check(param);
+        return Types.VARCHAR;
+    }
+    
+    public String getParameterTypeName(int param)
+        throws SQLException {
+        
+        check(param);
+        return "VARCHAR";
+    }
+    
+    public String getParameterClassName(int param)
+        throws SQLException {
+        
+        check(param);
+        return String.class.getName();
+    }
+    
+    public int getParameterMode(int param)
+        throws SQLException {
+        
+        check(param);
+        return parameterModeIn;
+    }
+    
+    public <T> T unwrap(Class<T> iface)
+        throws SQLException {
+        
+        return iface.cast(this);
+    }
+    
+    public boolean isWrapperFor(Class<?> iface)
+        throws SQLException {
+        
+        return iface.isInstance(this);
+    }
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.synth;
+
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Metadata for a {@link SynthResultSet}.
+ */
+public class SynthResultSetMetaData
+    implements ResultSetMetaData {
+    
+    private SynthColumn []columns;
+    
+    public SynthResultSetMetaData (SynthColumn []columns) {
+        
+        this.columns = columns;
+    }
+    
+    private SynthColumn column(int column)
+        throws SQLException {
+        
+        if (column < 1 || column > columns.length) {
+            
+            throw new SQLException("Invalid column index " + column);
+        }
+        
+        return columns[column - 1];
+    }
+    
+    public int getColumnCount()
+        throws SQLException {
+        
+        return columns.length;
+    }
+    
+    public boolean isAutoIncrement(int column)
+        throws SQLException {
+        
+        return false;
+    }
+    
+    public boolean isCaseSensitive(int column)
+        throws SQLException {
+        
+        return true;
+    }
+    
+    public boolean isSearchable(int column)
+        throws SQLException {
+        
+        return true;
+    }
+    
+    public boolean isCurrency(int column)
+        throws SQLException {
+        
+        return false;
+    }
+    
+    public int isNullable(int column)
+        throws SQLException {
+        
+        return columnNullable;
+    }
+    
+    public boolean isSigned(int column)
+        throws SQLException {
+        
+        switch (column(column).getType()) {
+            
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return true;
+            
+            default:
+                return false;
+        }
+    }
+    
+    public int getColumnDisplaySize(int column)
+        throws SQLException {
+        
+        return column(column).getPrecision();
+    }
+    
+    public String getColumnLabel(int column)
+        throws SQLException {
+        
+        return column(column).getName();
+    }
+    
+    public String getColumnName(int column)
+        throws SQLException {
+        
+        return column(column).getName();
+    }
+    
+    public String getSchemaName(int column)
+        throws SQLException {
+        
+        return "";
+    }
+    
+    public int getPrecision(int column)
+        throws SQLException {
+        
+        return column(column).getPrecision();
+    }
+    
+    public int getScale(int column)
+        throws SQLException {
+        
+        return column(column).getScale();
+    }
+    
+    public String getTableName(int column)
+        throws SQLException {
+        
+        return "";
+    }
+    
+    public String getCatalogName(int column)
+        throws SQLException {
+        
+        return "";
+    }
+    
+    public int getColumnType(int column)
+        throws SQLException {
+        
+        return column(column).getType();
+    }
+    
+    public String getColumnTypeName(int column)
+        throws SQLException {
+        
+        return column(column).getTypeName();
+    }
+    
+    public boolean isReadOnly(int column)
+        throws SQLException {
+        
+        return true;
+    }
+    
+    public boolean isWritable(int column)
+        throws SQLException {
+        
+        return false;
+    }
+    
+    public boolean isDefinitelyWritable(int column)
+        throws SQLException {
+        
+        return false;
+    }
+    
+    public String getColumnClassName(int column)
+        throws SQLException {
+        
+        return column(column).getClassName();
+    }
+    
+    public boolean isWrapperFor(Class<?> iface)
+        throws SQLException {
+        
+        return iface.isInstance(this);
+    }
+    
+    public <T> T unwrap(Class<T> iface)
+        throws SQLException {
+        
+        return iface.cast(this);
+    }
+}
@@ -0,0 +1,1662 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.synth;
+
+import java.io.InputStream;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.net.URL;
+import java.sql.Array;
+import java.sql.BatchUpdateException;
+import java.sql.Blob;
+import java.sql.CallableStatement;
+import java.sql.Clob;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.NClob;
+import java.sql.ParameterMetaData;
+import java.sql.Ref;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.RowId;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLWarning;
+import java.sql.SQLXML;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A statement of the {@link SynthConnection}. Each execution produces,
+ * in order, the result sets, update counts and warnings described by the
+ * connection's {@link SynthConfig settings} as overridden by any settings
+ * in the text of the statement. INSERT, UPDATE, DELETE and MERGE
+ * statements instead produce a single update count of 1, so the statement
+ * may also stand in for the target of a load.
+ *
+ * <p>The same class implements plain, prepared and callable statements.
+ * Parameters may be bound (and are otherwise ignored) and statements may
+ * be batched, but output parameters are not supported.
+ */
+public class SynthStatement
+    implements CallableStatement {
+    
+    /*
+     * Sleeps are taken in slices of at most this many nanoseconds so that
+     * cancellation and timeouts are noticed promptly.
+     */
+    private static final long PAUSE_SLICE = 10000000L;
+    
+    private SynthConnection connection;
+    private String sql;
+    private boolean closed = false;
+    private volatile boolean cancelled = false;
+    private int maxRows = 0;
+    private int fetchSize = 0;
+    private int queryTimeout = 0;
+    private long deadline = 0L;
+    private boolean poolable = false;
+    private boolean closeOnCompletion = false;
+    private SQLWarning warnings = null;
+    private List<Object> parameters = new ArrayList<Object>();
+    private List<String> batch = new ArrayList<String>();
+    
+    /*
+     * The state of the current execution.
+     */
+    private SynthConfig config = null;
+    private SynthResultSet resultSet = null;
+    private int updateCount = -1;
+    private int pendingResults = 0;
+    private int pendingUpdates = 0;
+    private int updateValue = 0;
+    private int resultNumber = 0;
+    
+    /**
+     * Creates a statement.
+     * 
+     * @param connection The connection that created the statement
+     * @param sql For a prepared or callable statement, the text of the
+     *   statement, otherwise null
+     */
+    public SynthStatement (SynthConnection connection, String sql) {
+        
+        this.connection = connection;
+        this.sql = sql;
+    }
+    
+    /**
+     * Called by the result sets of the statement before each row is
+     * fetched.
+     * 
+     * @throws SQLException If the statement has been cancelled or the
+     *   query timeout has passed.
+     */
+    void checkCancel()
+        throws SQLException {
+        
+        if (cancelled) {
+            
+            throw new SQLException("Statement was cancelled", "HY008");
+        }
+        
+        if (deadline != 0L && System.nanoTime() > deadline) {
+            
+            throw new SQLTimeoutException("Statement timed out after "
+                + queryTimeout + " seconds", "HYT00");
+        }
+        
+        if (Thread.currentThread().isInterrupted()) {
+            
+            throw new SQLException("Statement was interrupted", "HY008");
+        }
+    }
+    
+    /**
+     * Simulates time spent waiting on the database.
+     * 
+     * @param nanos The number of nanoseconds to wait
+     * @return The number of nanoseconds actually waited
+     * @throws SQLException If the statement is cancelled, or times out,
+     *   while waiting.
+     */
+    long pause(long nanos)
+        throws SQLException {
+        
+        long start = System.nanoTime();
+        long remaining = nanos;
+        
+        while (remaining > 0L) {
+            
+            checkCancel();
+            LockSupport.parkNanos(Math.min(remaining, PAUSE_SLICE));
+            remaining = nanos - (System.nanoTime() - start);
+        }
+        
+        checkCancel();
+        return System.nanoTime() - start;
+    }
+    
+    private void checkOpen()
+        throws SQLException {
+        
+        if (closed) {
+            
+            throw new SQLException("Statement is closed");
+        }
+    }
+    
+    private String prepared()
+        throws SQLException {
+        
+        if (sql == null) {
+            
+            throw new SQLException("The statement was not prepared");
+        }
+        
+        return sql;
+    }
+    
+    private void setParameter(int parameterIndex, Object value)
+        throws SQLException {
+        
+        checkOpen();
+        if (parameterIndex < 1) {
+            
+            throw new SQLException("Invalid parameter index "
+                + parameterIndex);
+        }
+        
+        while (parameters.size() < parameterIndex) {
+            
+            parameters.add(null);
+        }
+        
+        parameters.set(parameterIndex - 1, value);
+    }
+    
+    private static SQLException unsupported(String method) {
+        
+        return new SQLFeatureNotSupportedException(
+            "SynthStatement does not support " + method + "()");
+    }
+    
+    /**
+     * @param sql The text of a statement
+     * @return true if the statement is an INSERT, UPDATE, DELETE or
+     *   MERGE.
+     */
+    private static boolean isUpdate(String sql) {
+        
+        int start = 0;
+        int len = sql.length();
+        
+        while (start < len && !Character.isLetter(sql.charAt(start))) {
+            
+            ++start;
+        }
+        
+        int end = start;
+        while (end < len && Character.isLetter(sql.charAt(end))) {
+            
+            ++end;
+        }
+        
+        String verb = sql.substring(start, end);
+        return verb.equalsIgnoreCase("insert")
+            || verb.equalsIgnoreCase("update")
+            || verb.equalsIgnoreCase("delete")
+            || verb.equalsIgnoreCase("merge");
+    }
+    
+    /**
+     * Executes a statement, leaving the statement positioned on its first
+     * result.
+     * 
+     * @param text The text of the statement
+     * @param first If false, the statement is part of a batch that has
+     *   already started executing and the execution latency is not paid
+     *   again
+     * @return true if the first result is a result set
+     */
+    private boolean run(String text, boolean first)
+        throws SQLException {
+        
+        checkOpen();
+        closeResults();
+        
+        if (first) {
+            
+            cancelled = false;
+            warnings = null;
+            deadline = (queryTimeout > 0
+                ? System.nanoTime() + queryTimeout * 1000000000L : 0L);
+        }
+        
+        config = connection.getConfig().clone();
+        config.applySql(text);
+        
+        if (isUpdate(text)) {
+            
+            pendingResults = 0;
+            pendingUpdates = 1;
+            updateValue = 1;
+        }
+        else {
+            
+            pendingResults = config.getResults();
+            pendingUpdates = config.getUpdates();
+            updateValue = (int) Math.min(config.getRows(), Integer.MAX_VALUE);
+        }
+        
+        for (int i = config.getWarnings(); i > 0; i--) {
+            
+            SQLWarning warning = new SQLWarning("Synthetic warning " + i
+                + " of " + config.getWarnings(), "01000", i);
+            warning.setNextWarning(warnings);
+            warnings = warning;
+        }
+        
+        if (first && config.getExecLatency() > 0L) {
+            
+            pause(config.getExecLatency() * 1000000L);
+        }
+        
+        resultNumber = 0;
+        return nextResult();
+    }
+    
+    private boolean nextResult()
+        throws SQLException {
+        
+        closeResults();
+        
+        if (pendingResults > 0) {
+            
+            --pendingResults;
+            resultSet = new SynthResultSet(this, config, resultNumber++,
+                maxRows);
+            return true;
+        }
+        
+        if (pendingUpdates > 0) {
+            
+            --pendingUpdates;
+            updateCount = updateValue;
+        }
+        
+        return false;
+    }
+    
+    private void closeResults()
+        throws SQLException {
+        
+        if (resultSet != null) {
+            
+            resultSet.close();
+            resultSet = null;
+        }
+        
+        updateCount = -1;
+    }
+    
+    public ResultSet executeQuery(String sql)
+        throws SQLException {
+        
+        if (!run(sql, true)) {
+            
+            throw new SQLException("Statement did not produce a result set");
+        }
+        
+        return resultSet;
+    }
+    
+    public int executeUpdate(String sql)
+        throws SQLException {
+        
+        if (run(sql, true)) {
+            
+            throw new SQLException("Statement produced a result set");
+        }
+        
+        return (updateCount < 0 ? 0 : updateCount);
+    }
+    
+    public void close()
+        throws SQLException {
+        
+        closeResults();
+        closed = true;
+    }
+    
+    public int getMaxFieldSize()
+        throws SQLException {
+        
+        return 0;
+    }
+    
+    public void setMaxFieldSize(int max)
+        throws SQLException {
+        
+        checkOpen();
+    }
+    
+    public int getMaxRows()
+        throws SQLException {
+        
+        return maxRows;
+    }
+    
+    public void setMaxRows(int max)
+        throws SQLException {
+        
+        checkOpen();
+        this.maxRows = max;
+    }
+    
+    public void setEscapeProcessing(boolean enable)
+        throws SQLException {
+        
+        checkOpen();
+    }
+    
+    public int getQueryTimeout()
+        throws SQLException {
+        
+        return queryTimeout;
+    }
+    
+    public void setQueryTimeout(int seconds)
+        throws SQLException {
+        
+        checkOpen();
+        this.queryTimeout = seconds;
+    }
+    
+    public void cancel()
+        throws SQLException {
+        
+        cancelled = true;
+    }
+    
+    public SQLWarning getWarnings()
+        throws SQLException {
+        
+        return warnings;
+    }
+    
+    public void clearWarnings()
+        throws SQLException {
+        
+        warnings = null;
+    }
+    
+    public void setCursorName(String name)
+        throws SQLException {
+        
+        throw unsupported("setCursorName");
+    }
+    
+    public boolean execute(String sql)
+        throws SQLException {
+        
+        return run(sql, true);
+    }
+    
+    public ResultSet getResultSet()
+        throws SQLException {
+        
+        return resultSet;
+    }
+    
+    public int getUpdateCount()
+        throws SQLException {
+        
+        return updateCount;
+    }
+    
+    public boolean getMoreResults()
+        throws SQLException {
+        
+        checkOpen();
+        return nextResult();
+    }
+    
+    public void setFetchDirection(int direction)
+        throws SQLException {
+        
+        checkOpen();
+    }
+    
+    public int getFetchDirection()
+        throws SQLException {
+        
+        return ResultSet.FETCH_FORWARD;
+    }
+    
+    public void setFetchSize(int rows)
+        throws SQLException {
+        
+        checkOpen();
+        this.fetchSize = rows;
+    }
+    
+    public int getFetchSize()
+        throws SQLException {
+        
+        return fetchSize;
+    }
+    
+    public int getResultSetConcurrency()
+        throws SQLException {
+        
+        return ResultSet.CONCUR_READ_ONLY;
+    }
+    
+    public int getResultSetType()
+        throws SQLException {
+        
+        return ResultSet.TYPE_FORWARD_ONLY;
+    }
+    
+    public void addBatch( String sql )
+        throws SQLException {
+        
+        checkOpen();
+        if (this.sql != null) {
+            
+            throw new SQLException("addBatch(String) may not be used with "
+                + "a prepared statement");
+        }
+        
+        batch.add(sql);
+    }
+    
+    public void clearBatch()
+        throws SQLException {
+        
+        checkOpen();
+        batch.clear();
+    }
+    
+    public int[] executeBatch()
+        throws SQLException {
+        
+        checkOpen();
+        
+        int []counts = new int[batch.size()];
+        try {
+            
+            for (int i = 0; i < counts.length; i++) {
+                
+                if (run(batch.get(i), i == 0)) {
+                    
+                    closeResults();
+                    throw new BatchUpdateException("Batched statement #"
+                        + (i + 1) + " produced a result set",
+                        Arrays.copyOf(counts, i));
+                }
+                
+                counts[i] = (updateCount < 0 ? SUCCESS_NO_INFO : updateCount);
+            }
+        }
+        finally {
+            
+            batch.clear();
+            updateCount = -1;
+        }
+        
+        return counts;
+    }
+    
+    public Connection getConnection()
+        throws SQLException {
+        
+        return connection;
+    }
+    
+    public boolean getMoreResults(int current)
+        throws SQLException {
+        
+        return getMoreResults();
+    }
+    
+    public ResultSet getGeneratedKeys()
+        throws SQLException {
+        
+        throw unsupported("getGeneratedKeys");
+    }
+    
+    public int executeUpdate(String sql, int autoGeneratedKeys)
+        throws SQLException {
+        
+        return executeUpdate(sql);
+    }
+    
+    public int executeUpdate(String sql, int[] columnIndexes)
+        throws SQLException {
+        
+        return executeUpdate(sql);
+    }
+    
+    public int executeUpdate(String sql, String[] columnNames)
+        throws SQLException {
+        
+        return executeUpdate(sql);
+    }
+    
+    public boolean execute(String sql, int autoGeneratedKeys)
+        throws SQLException {
+        
+        return execute(sql);
+    }
+    
+    public boolean execute(String sql, int[] columnIndexes)
+        throws SQLException {
+        
+        return execute(sql);
+    }
+    
+    public boolean execute(String sql, String[] columnNames)
+        throws SQLException {
+        
+        return execute(sql);
+    }
+    
+    public int getResultSetHoldability()
+        throws SQLException {
+        
+        return ResultSet.CLOSE_CURSORS_AT_COMMIT;
+    }
+    
+    public boolean isClosed()
+        throws SQLException {
+        
+        return closed;
+    }
+    
+    public void setPoolable(boolean poolable)
+        throws SQLException {
+        
+        checkOpen();
+        this.poolable = poolable;
+    }
+    
+    public boolean isPoolable()
+        throws SQLException {
+        
+        return poolable;
+    }
+    
+    public void closeOnCompletion()
+        throws SQLException {
+        
+        checkOpen();
+        closeOnCompletion = true;
+    }
+    
+    public boolean isCloseOnCompletion()
+        throws SQLException {
+        
+        return closeOnCompletion;
+    }
+    
+    public ResultSet executeQuery()
+        throws SQLException {
+        
+        return executeQuery(prepared());
+    }
+    
+    public int executeUpdate()
+        throws SQLException {
+        
+        return executeUpdate(prepared());
+    }
+    
+    public void setNull(int parameterIndex, int sqlType)
+        throws SQLException {
+        
+        setParameter(parameterIndex, null);
+    }
+    
+    public void setBoolean(int parameterIndex, boolean x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setByte(int parameterIndex, byte x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setShort(int parameterIndex, short x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setInt(int parameterIndex, int x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setLong(int parameterIndex, long x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setFloat(int parameterIndex, float x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setDouble(int parameterIndex, double x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setBigDecimal(int parameterIndex, BigDecimal x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setString(int parameterIndex, String x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setBytes(int parameterIndex, byte[] x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setDate(int parameterIndex, Date x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setTime(int parameterIndex, Time x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setTimestamp(int parameterIndex, Timestamp x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setAsciiStream(int parameterIndex, InputStream x, int length)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setUnicodeStream(int parameterIndex, InputStream x, int length)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setBinaryStream(int parameterIndex, InputStream x, int length)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void clearParameters()
+        throws SQLException {
+        
+        checkOpen();
+        parameters.clear();
+    }
+    
+    public void setObject(int parameterIndex, Object x, int targetSqlType)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setObject(int parameterIndex, Object x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public boolean execute()
+        throws SQLException {
+        
+        return execute(prepared());
+    }
+    
+    public void addBatch()
+        throws SQLException {
+        
+        checkOpen();
+        batch.add(prepared());
+    }
+    
+    public void setCharacterStream(int parameterIndex, Reader reader, int length)
+        throws SQLException {
+        
+        setParameter(parameterIndex, reader);
+    }
+    
+    public void setRef (int parameterIndex, Ref x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setBlob (int parameterIndex, Blob x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setClob (int parameterIndex, Clob x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setArray (int parameterIndex, Array x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public ResultSetMetaData getMetaData()
+        throws SQLException {
+        
+        SynthConfig c = connection.getConfig().clone();
+        c.applySql(prepared());
+        
+        if (isUpdate(sql) || c.getResults() == 0) {
+            
+            return null;
+        }
+        
+        return new SynthResultSetMetaData(c.getColumns());
+    }
+    
+    public void setDate(int parameterIndex, Date x, Calendar cal)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setTime(int parameterIndex, Time x, Calendar cal)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setTimestamp(int parameterIndex, Timestamp x, Calendar cal)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setNull (int parameterIndex, int sqlType, String typeName)
+        throws SQLException {
+        
+        setParameter(parameterIndex, null);
+    }
+    
+    public void setURL(int parameterIndex, URL x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public ParameterMetaData getParameterMetaData()
+        throws SQLException {
+        
+        int count = 0;
+        for (int i = prepared().length() - 1; i >= 0; i--) {
+            
+            if (sql.charAt(i) == '?') {
+                
+                ++count;
+            }
+        }
+        
+        return new SynthParameterMetaData(Math.max(count, parameters.size()));
+    }
+    
+    public void setRowId(int parameterIndex, RowId x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setNString(int parameterIndex, String value)
+        throws SQLException {
+        
+        setParameter(parameterIndex, value);
+    }
+    
+    public void setNCharacterStream(int parameterIndex, Reader value, long length)
+        throws SQLException {
+        
+        setParameter(parameterIndex, value);
+    }
+    
+    public void setNClob(int parameterIndex, NClob value)
+        throws SQLException {
+        
+        setParameter(parameterIndex, value);
+    }
+    
+    public void setClob(int parameterIndex, Reader reader, long length)
+        throws SQLException {
+        
+        setParameter(parameterIndex, reader);
+    }
+    
+    public void setBlob(int parameterIndex, InputStream inputStream, long length)
+        throws SQLException {
+        
+        setParameter(parameterIndex, inputStream);
+    }
+    
+    public void setNClob(int parameterIndex, Reader reader, long length)
+        throws SQLException {
+        
+        setParameter(parameterIndex, reader);
+    }
+    
+    public void setSQLXML(int parameterIndex, SQLXML xmlObject)
+        throws SQLException {
+        
+        setParameter(parameterIndex, xmlObject);
+    }
+    
+    public void setObject(int parameterIndex, Object x, int targetSqlType, int scaleOrLength)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setAsciiStream(int parameterIndex, InputStream x, long length)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setBinaryStream(int parameterIndex, InputStream x, long length)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setCharacterStream(int parameterIndex, Reader reader, long length)
+        throws SQLException {
+        
+        setParameter(parameterIndex, reader);
+    }
+    
+    public void setAsciiStream(int parameterIndex, InputStream x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setBinaryStream(int parameterIndex, InputStream x)
+        throws SQLException {
+        
+        setParameter(parameterIndex, x);
+    }
+    
+    public void setCharacterStream(int parameterIndex, Reader reader)
+        throws SQLException {
+        
+        setParameter(parameterIndex, reader);
+    }
+    
+    public void setNCharacterStream(int parameterIndex, Reader value)
+        throws SQLException {
+        
+        setParameter(parameterIndex, value);
+    }
+    
+    public void setClob(int parameterIndex, Reader reader)
+        throws SQLException {
+        
+        setParameter(parameterIndex, reader);
+    }
+    
+    public void setBlob(int parameterIndex, InputStream inputStream)
+        throws SQLException {
+        
+        setParameter(parameterIndex, inputStream);
+    }
+    
+    public void setNClob(int parameterIndex, Reader reader)
+        throws SQLException {
+        
+        setParameter(parameterIndex, reader);
+    }
+    
+    public void registerOutParameter(int parameterIndex, int sqlType)
+        throws SQLException {
+        
+        throw unsupported("registerOutParameter");
+    }
+    
+    public void registerOutParameter(int parameterIndex, int sqlType, int scale)
+        throws SQLException {
+        
+        throw unsupported("registerOutParameter");
+    }
+    
+    public boolean wasNull()
+        throws SQLException {
+        
+        return false;
+    }
+    
+    public String getString(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getString");
+    }
+    
+    public boolean getBoolean(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getBoolean");
+    }
+    
+    public byte getByte(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getByte");
+    }
+    
+    public short getShort(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getShort");
+    }
+    
+    public int getInt(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getInt");
+    }
+    
+    public long getLong(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getLong");
+    }
+    
+    public float getFloat(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getFloat");
+    }
+    
+    public double getDouble(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getDouble");
+    }
+    
+    public BigDecimal getBigDecimal(int parameterIndex, int scale)
+        throws SQLException {
+        
+        throw unsupported("getBigDecimal");
+    }
+    
+    public byte[] getBytes(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getBytes");
+    }
+    
+    public Date getDate(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getDate");
+    }
+    
+    public Time getTime(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getTime");
+    }
+    
+    public Timestamp getTimestamp(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getTimestamp");
+    }
+    
+    public Object getObject(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getObject");
+    }
+    
+    public BigDecimal getBigDecimal(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getBigDecimal");
+    }
+    
+    public Object getObject(int parameterIndex, Map<String,Class<?>> map)
+        throws SQLException {
+        
+        throw unsupported("getObject");
+    }
+    
+    public Ref getRef (int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getRef");
+    }
+    
+    public Blob getBlob (int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getBlob");
+    }
+    
+    public Clob getClob (int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getClob");
+    }
+    
+    public Array getArray (int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getArray");
+    }
+    
+    public Date getDate(int parameterIndex, Calendar cal)
+        throws SQLException {
+        
+        throw unsupported("getDate");
+    }
+    
+    public Time getTime(int parameterIndex, Calendar cal)
+        throws SQLException {
+        
+        throw unsupported("getTime");
+    }
+    
+    public Timestamp getTimestamp(int parameterIndex, Calendar cal)
+        throws SQLException {
+        
+        throw unsupported("getTimestamp");
+    }
+    
+    public void registerOutParameter (int parameterIndex, int sqlType, String typeName)
+        throws SQLException {
+        
+        throw unsupported("registerOutParameter");
+    }
+    
+    public void registerOutParameter(String parameterName, int sqlType)
+        throws SQLException {
+        
+        throw unsupported("registerOutParameter");
+    }
+    
+    public void registerOutParameter(String parameterName, int sqlType, int scale)
+        throws SQLException {
+        
+        throw unsupported("registerOutParameter");
+    }
+    
+    public void registerOutParameter (String parameterName, int sqlType, String typeName)
+        throws SQLException {
+        
+        throw unsupported("registerOutParameter");
+    }
+    
+    public URL getURL(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getURL");
+    }
+    
+    public void setURL(String parameterName, URL val)
+        throws SQLException {
+        
+        throw unsupported("setURL");
+    }
+    
+    public void setNull(String parameterName, int sqlType)
+        throws SQLException {
+        
+        throw unsupported("setNull");
+    }
+    
+    public void setBoolean(String parameterName, boolean x)
+        throws SQLException {
+        
+        throw unsupported("setBoolean");
+    }
+    
+    public void setByte(String parameterName, byte x)
+        throws SQLException {
+        
+        throw unsupported("setByte");
+    }
+    
+    public void setShort(String parameterName, short x)
+        throws SQLException {
+        
+        throw unsupported("setShort");
+    }
+    
+    public void setInt(String parameterName, int x)
+        throws SQLException {
+        
+        throw unsupported("setInt");
+    }
+    
+    public void setLong(String parameterName, long x)
+        throws SQLException {
+        
+        throw unsupported("setLong");
+    }
+    
+    public void setFloat(String parameterName, float x)
+        throws SQLException {
+        
+        throw unsupported("setFloat");
+    }
+    
+    public void setDouble(String parameterName, double x)
+        throws SQLException {
+        
+        throw unsupported("setDouble");
+    }
+    
+    public void setBigDecimal(String parameterName, BigDecimal x)
+        throws SQLException {
+        
+        throw unsupported("setBigDecimal");
+    }
+    
+    public void setString(String parameterName, String x)
+        throws SQLException {
+        
+        throw unsupported("setString");
+    }
+    
+    public void setBytes(String parameterName, byte[] x)
+        throws SQLException {
+        
+        throw unsupported("setBytes");
+    }
+    
+    public void setDate(String parameterName, Date x)
+        throws SQLException {
+        
+        throw unsupported("setDate");
+    }
+    
+    public void setTime(String parameterName, Time x)
+        throws SQLException {
+        
+        throw unsupported("setTime");
+    }
+    
+    public void setTimestamp(String parameterName, Timestamp x)
+        throws SQLException {
+        
+        throw unsupported("setTimestamp");
+    }
+    
+    public void setAsciiStream(String parameterName, InputStream x, int length)
+        throws SQLException {
+        
+        throw unsupported("setAsciiStream");
+    }
+    
+    public void setBinaryStream(String parameterName, InputStream x, int length)
+        throws SQLException {
+        
+        throw unsupported("setBinaryStream");
+    }
+    
+    public void setObject(String parameterName, Object x, int targetSqlType, int scale)
+        throws SQLException {
+        
+        throw unsupported("setObject");
+    }
+    
+    public void setObject(String parameterName, Object x, int targetSqlType)
+        throws SQLException {
+        
+        throw unsupported("setObject");
+    }
+    
+    public void setObject(String parameterName, Object x)
+        throws SQLException {
+        
+        throw unsupported("setObject");
+    }
+    
+    public void setCharacterStream(String parameterName, Reader reader, int length)
+        throws SQLException {
+        
+        throw unsupported("setCharacterStream");
+    }
+    
+    public void setDate(String parameterName, Date x, Calendar cal)
+        throws SQLException {
+        
+        throw unsupported("setDate");
+    }
+    
+    public void setTime(String parameterName, Time x, Calendar cal)
+        throws SQLException {
+        
+        throw unsupported("setTime");
+    }
+    
+    public void setTimestamp(String parameterName, Timestamp x, Calendar cal)
+        throws SQLException {
+        
+        throw unsupported("setTimestamp");
+    }
+    
+    public void setNull (String parameterName, int sqlType, String typeName)
+        throws SQLException {
+        
+        throw unsupported("setNull");
+    }
+    
+    public String getString(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getString");
+    }
+    
+    public boolean getBoolean(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getBoolean");
+    }
+    
+    public byte getByte(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getByte");
+    }
+    
+    public short getShort(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getShort");
+    }
+    
+    public int getInt(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getInt");
+    }
+    
+    public long getLong(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getLong");
+    }
+    
+    public float getFloat(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getFloat");
+    }
+    
+    public double getDouble(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getDouble");
+    }
+    
+    public byte[] getBytes(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getBytes");
+    }
+    
+    public Date getDate(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getDate");
+    }
+    
+    public Time getTime(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getTime");
+    }
+    
+    public Timestamp getTimestamp(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getTimestamp");
+    }
+    
+    public Object getObject(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getObject");
+    }
+    
+    public BigDecimal getBigDecimal(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getBigDecimal");
+    }
+    
+    public Object getObject(String parameterName, Map<String,Class<?>> map)
+        throws SQLException {
+        
+        throw unsupported("getObject");
+    }
+    
+    public Ref getRef (String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getRef");
+    }
+    
+    public Blob getBlob (String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getBlob");
+    }
+    
+    public Clob getClob (String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getClob");
+    }
+    
+    public Array getArray (String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getArray");
+    }
+    
+    public Date getDate(String parameterName, Calendar cal)
+        throws SQLException {
+        
+        throw unsupported("getDate");
+    }
+    
+    public Time getTime(String parameterName, Calendar cal)
+        throws SQLException {
+        
+        throw unsupported("getTime");
+    }
+    
+    public Timestamp getTimestamp(String parameterName, Calendar cal)
+        throws SQLException {
+        
+        throw unsupported("getTimestamp");
+    }
+    
+    public URL getURL(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getURL");
+    }
+    
+    public RowId getRowId(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getRowId");
+    }
+    
+    public RowId getRowId(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getRowId");
+    }
+    
+    public void setRowId(String parameterName, RowId x)
+        throws SQLException {
+        
+        throw unsupported("setRowId");
+    }
+    
+    public void setNString(String parameterName, String value)
+        throws SQLException {
+        
+        throw unsupported("setNString");
+    }
+    
+    public void setNCharacterStream(String parameterName, Reader value, long length)
+        throws SQLException {
+        
+        throw unsupported("setNCharacterStream");
+    }
+    
+    public void setNClob(String parameterName, NClob value)
+        throws SQLException {
+        
+        throw unsupported("setNClob");
+    }
+    
+    public void setClob(String parameterName, Reader reader, long length)
+        throws SQLException {
+        
+        throw unsupported("setClob");
+    }
+    
+    public void setBlob(String parameterName, InputStream inputStream, long length)
+        throws SQLException {
+        
+        throw unsupported("setBlob");
+    }
+    
+    public void setNClob(String parameterName, Reader reader, long length)
+        throws SQLException {
+        
+        throw unsupported("setNClob");
+    }
+    
+    public NClob getNClob (int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getNClob");
+    }
+    
+    public NClob getNClob (String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getNClob");
+    }
+    
+    public void setSQLXML(String parameterName, SQLXML xmlObject)
+        throws SQLException {
+        
+        throw unsupported("setSQLXML");
+    }
+    
+    public SQLXML getSQLXML(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getSQLXML");
+    }
+    
+    public SQLXML getSQLXML(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getSQLXML");
+    }
+    
+    public String getNString(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getNString");
+    }
+    
+    public String getNString(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getNString");
+    }
+    
+    public Reader getNCharacterStream(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getNCharacterStream");
+    }
+    
+    public Reader getNCharacterStream(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getNCharacterStream");
+    }
+    
+    public Reader getCharacterStream(int parameterIndex)
+        throws SQLException {
+        
+        throw unsupported("getCharacterStream");
+    }
+    
+    public Reader getCharacterStream(String parameterName)
+        throws SQLException {
+        
+        throw unsupported("getCharacterStream");
+    }
+    
+    public void setBlob (String parameterName, Blob x)
+        throws SQLException {
+        
+        throw unsupported("setBlob");
+    }
+    
+    public void setClob (String parameterName, Clob x)
+        throws SQLException {
+        
+        throw unsupported("setClob");
+    }
+    
+    public void setAsciiStream(String parameterName, InputStream x, long length)
+        throws SQLException {
+        
+        throw unsupported("setAsciiStream");
+    }
+    
+    public void setBinaryStream(String parameterName, InputStream x, long length)
+        throws SQLException {
+        
+        throw unsupported("setBinaryStream");
+    }
+    
+    public void setCharacterStream(String parameterName, Reader reader, long length)
+        throws SQLException {
+        
+        throw unsupported("setCharacterStream");
+    }
+    
+    public void setAsciiStream(String parameterName, InputStream x)
+        throws SQLException {
+        
+        throw unsupported("setAsciiStream");
+    }
+    
+    public void setBinaryStream(String parameterName, InputStream x)
+        throws SQLException {
+        
+        throw unsupported("setBinaryStream");
+    }
+    
+    public void setCharacterStream(String parameterName, Reader reader)
+        throws SQLException {
+        
+        throw unsupported("setCharacterStream");
+    }
+    
+    public void setNCharacterStream(String parameterName, Reader value)
+        throws SQLException {
+        
+        throw unsupported("setNCharacterStream");
+    }
+    
+    public void setClob(String parameterName, Reader reader)
+        throws SQLException {
+        
+        throw unsupported("setClob");
+    }
+    
+    public void setBlob(String parameterName, InputStream inputStream)
+        throws SQLException {
+        
+        throw unsupported("setBlob");
+    }
+    
+    public void setNClob(String parameterName, Reader reader)
+        throws SQLException {
+        
+        throw unsupported("setNClob");
+    }
+    
+    public <T> T getObject(int parameterIndex, Class<T> type)
+        throws SQLException {
+        
+        throw unsupported("getObject");
+    }
+    
+    public <T> T getObject(String parameterName, Class<T> type)
+        throws SQLException {
+        
+        throw unsupported("getObject");
+    }
+    
+    public <T> T unwrap(Class<T> iface)
+        throws SQLException {
+        
+        return iface.cast(this);
+    }
+    
+    public boolean isWrapperFor(Class<?> iface)
+        throws SQLException {
+        
+        return iface.isInstance(this);
+    }
+}
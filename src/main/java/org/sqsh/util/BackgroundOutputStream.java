@@ -0,0 +1,59 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.util;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+
+/**
+ * An output stream that hands everything written to it to another
+ * stream on a background thread, so that expensive streams (such as a
+ * {@link java.util.zip.GZIPOutputStream}) do their work in parallel with
+ * whatever is producing the output. This is an asynchronous
+ * {@link ChannelOutputStream} writing to a channel over the stream.
+ */
+public class BackgroundOutputStream
+    extends ChannelOutputStream {
+    
+    private OutputStream out;
+    
+    /**
+     * Creates the stream and starts its background thread.
+     *
+     * @param out The stream to write to.
+     * @param bufferSize The size of each of the two buffers.
+     * @param name The name to give the background thread.
+     */
+    public BackgroundOutputStream (OutputStream out, int bufferSize,
+            String name) {
+        
+        super(Channels.newChannel(out), bufferSize, name);
+        this.out = out;
+    }
+    
+    /**
+     * Hands everything buffered to the background thread and waits for
+     * it to be written to the underlying stream, which is then flushed.
+     */
+    @Override
+    public void flush ()
+        throws IOException {
+        
+        super.flush();
+        out.flush();
+    }
+}
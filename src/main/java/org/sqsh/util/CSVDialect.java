@@ -0,0 +1,318 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.util;
+
+import org.sqsh.CannotSetValueError;
+
+/**
+ * Describes a flavor of delimited text written by a {@link CSVWriter}:
+ * the character between fields, how fields are quoted or escaped, the
+ * line ending and how NULLs are written. A dialect starts out as one of
+ * a few well known ones (see {@link #forName(String)}), and its
+ * properties may then be changed individually. The properties are
+ * exposed as strings so that they can be set from jsqsh variables, with
+ * control characters written as escapes such as "\t".
+ */
+public class CSVDialect {
+    
+    /**
+     * The CSV jsqsh has always written: fields are quoted when they
+     * contain a delimiter, quote or newline, start or end with white
+     * space, or are empty (so that they are not mistaken for NULLs).
+     */
+    public static final String CSV = "csv";
+    
+    /**
+     * CSV as described by RFC 4180: lines end with CR LF and fields are
+     * only quoted when they have to be, which includes when they contain
+     * a carriage return.
+     */
+    public static final String RFC4180 = "rfc4180";
+    
+    /**
+     * Tab separated values, with no quoting. Tabs, line breaks and
+     * backslashes within fields are written as \t, \n, \r and \\.
+     */
+    public static final String TSV = "tsv";
+    
+    private static final String LINE_SEPARATOR =
+        System.getProperty("line.separator");
+    
+    private String name;
+    private char delimiter = ',';
+    private char quote = '"';
+    private String lineEnding = LINE_SEPARATOR;
+    private String nullToken = "";
+    private boolean quoteEmpty = true;
+    private boolean quoteSpaces = true;
+    private boolean quoteReturns = false;
+    
+    private CSVDialect (String name) {
+        
+        this.name = name;
+    }
+    
+    /**
+     * Returns a new copy of one of the well known dialects.
+     *
+     * @param name The name of the dialect: "csv", "rfc4180" or "tsv".
+     * @return The dialect.
+     * @throws CannotSetValueError If the name is not that of a dialect.
+     */
+    public static CSVDialect forName(String name) {
+        
+        CSVDialect dialect = new CSVDialect(name.toLowerCase());
+        
+        if (dialect.name.equals(CSV)) {
+            
+            return dialect;
+        }
+        
+        if (dialect.name.equals(RFC4180)) {
+            
+            dialect.lineEnding = "\r\n";
+            dialect.quoteSpaces = false;
+            dialect.quoteReturns = true;
+            return dialect;
+        }
+        
+        if (dialect.name.equals(TSV)) {
+            
+            dialect.delimiter = '\t';
+            dialect.quote = 0;
+            dialect.quoteEmpty = false;
+            dialect.quoteSpaces = false;
+            return dialect;
+        }
+        
+        throw new CannotSetValueError("Invalid CSV dialect '" + name
+            + "': valid dialects are " + CSV + ", " + RFC4180 + " and "
+            + TSV);
+    }
+    
+    /**
+     * @return The name of the dialect this one started out as.
+     */
+    public String getName() {
+        
+        return name;
+    }
+    
+    /**
+     * @return The character between fields.
+     */
+    public char getDelimiterChar() {
+        
+        return delimiter;
+    }
+    
+    /**
+     * @return The character that fields are quoted with, or 0 if fields
+     *   are never quoted, in which case special characters are escaped
+     *   with a backslash instead.
+     */
+    public char getQuoteChar() {
+        
+        return quote;
+    }
+    
+    /**
+     * @return true if empty strings are quoted.
+     */
+    public boolean isQuoteEmpty() {
+        
+        return quoteEmpty;
+    }
+    
+    /**
+     * @return true if strings starting or ending with white space are
+     *   quoted.
+     */
+    public boolean isQuoteSpaces() {
+        
+        return quoteSpaces;
+    }
+    
+    /**
+     * @return true if strings containing a carriage return are quoted,
+     *   as well as those containing a newline.
+     */
+    public boolean isQuoteReturns() {
+        
+        return quoteReturns;
+    }
+    
+    /**
+     * @return The character between fields, escaped.
+     */
+    public String getDelimiter() {
+        
+        return escape(delimiter == 0 ? "" : String.valueOf(delimiter));
+    }
+    
+    /**
+     * @param delimiter The character between fields, which may be an
+     *   escape such as "\t".
+     */
+    public void setDelimiter(String delimiter) {
+        
+        String str = unescape(delimiter);
+        if (str.length() != 1) {
+            
+            throw new CannotSetValueError("The delimiter must be a single "
+                + "character");
+        }
+        
+        this.delimiter = str.charAt(0);
+    }
+    
+    /**
+     * @return The quote character, or an empty string if fields are
+     *   never quoted.
+     */
+    public String getQuote() {
+        
+        return (quote == 0 ? "" : escape(String.valueOf(quote)));
+    }
+    
+    /**
+     * @param quote The quote character, or an empty string if fields
+     *   are never to be quoted.
+     */
+    public void setQuote(String quote) {
+        
+        String str = unescape(quote);
+        if (str.length() > 1) {
+            
+            throw new CannotSetValueError("The quote must be a single "
+                + "character, or empty");
+        }
+        
+        this.quote = (str.length() == 0 ? 0 : str.charAt(0));
+    }
+    
+    /**
+     * @return The characters that end each line, escaped.
+     */
+    public String getLineEnding() {
+        
+        return escape(lineEnding);
+    }
+    
+    /**
+     * @param lineEnding The characters that end each line. These may be
+     *   given as escapes (such as "\r\n"), or as one of the names "lf",
+     *   "crlf" or "native".
+     */
+    public void setLineEnding(String lineEnding) {
+        
+        if (lineEnding.equalsIgnoreCase("lf")) {
+            
+            this.lineEnding = "\n";
+        }
+        else if (lineEnding.equalsIgnoreCase("crlf")) {
+            
+            this.lineEnding = "\r\n";
+        }
+        else if (lineEnding.equalsIgnoreCase("native")) {
+            
+            this.lineEnding = LINE_SEPARATOR;
+        }
+        else {
+            
+            this.lineEnding = unescape(lineEnding);
+        }
+    }
+    
+    /**
+     * @return The characters that end each line.
+     */
+    public String getLineEndingChars() {
+        
+        return lineEnding;
+    }
+    
+    /**
+     * @return What is written for a NULL.
+     */
+    public String getNullToken() {
+        
+        return nullToken;
+    }
+    
+    /**
+     * @param nullToken What is written for a NULL, which is written as
+     *   it is, without quotes.
+     */
+    public void setNullToken(String nullToken) {
+        
+        this.nullToken = (nullToken == null ? "" : nullToken);
+    }
+    
+    @Override
+    public String toString() {
+        
+        return name;
+    }
+    
+    private static String escape(String str) {
+        
+        StringBuilder sb = new StringBuilder(str.length() + 4);
+        for (int i = 0; i < str.length(); i++) {
+            
+            char ch = str.charAt(i);
+            switch (ch) {
+                
+                case '\t': sb.append("\\t"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\\': sb.append("\\\\"); break;
+                default: sb.append(ch);
+            }
+        }
+        
+        return sb.toString();
+    }
+    
+    private static String unescape(String str) {
+        
+        if (str == null) {
+            
+            return "";
+        }
+        
+        StringBuilder sb = new StringBuilder(str.length());
+        for (int i = 0; i < str.length(); i++) {
+            
+            char ch = str.charAt(i);
+            if (ch == '\\' && i + 1 < str.length()) {
+                
+                ch = str.charAt(++i);
+                switch (ch) {
+                    
+                    case 't': ch = '\t'; break;
+                    case 'n': ch = '\n'; break;
+                    case 'r': ch = '\r'; break;
+                    default: break;
+                }
+            }
+            
+            sb.append(ch);
+        }
+        
+        return sb.toString();
+    }
+}
@@ -16,21 +16,34 @@
 package org.sqsh.util;
 
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Class capable of processing a file full of comma separated values.
+ * Characters are read a buffer at a time from a Reader, so any character
+ * set may be read, and the character between fields may be something
+ * other than a comma. Empty fields are returned as nulls.
  */
 public class CSVReader {
     
     private boolean hasHeaders = true;
     private String []headers = null;
-    private InputStream in;
+    private Reader in;
+    private char delimiter = ',';
+    
+    private char []buf = new char[8192];
+    private int pos = 0;
+    private int len = 0;
+    private List<String> words = new ArrayList<String>();
         
     /**
-     * Creates a CSVReader.
+     * Creates a CSVReader. Each byte of the input is read as a single
+     * (ISO-8859-1) character.
      * 
      * @param in The input stream to read from.
      * @param headers If true, then the first line of the input file
@@ -41,8 +54,27 @@ public class CSVReader {
     public CSVReader (InputStream in, boolean headers) 
         throws IOException {
         
+        this(new InputStreamReader(in, Charset.forName("ISO-8859-1")),
+            headers, ',');
+    }
+    
+    /**
+     * Creates a CSVReader.
+     * 
+     * @param in The characters to read. The reader does its own
+     *    buffering, so there is no need for it to be buffered.
+     * @param headers If true, then the first line of the input file
+     *    is assumed to contain column headers.
+     * @param delimiter The character between fields.
+     *    
+     * @throws IOException Thrown if the input could not be read.
+     */
+    public CSVReader (Reader in, boolean headers, char delimiter) 
+        throws IOException {
+        
         this.hasHeaders = headers;
         this.in = in;
+        this.delimiter = delimiter;
         
         if (hasHeaders) {
             
@@ -72,16 +104,16 @@ public class CSVReader {
     public String[] next()
         throws IOException {
         
-        List<String> words = new ArrayList<String>();
         boolean done = false;
         StringBuilder word = new StringBuilder();
             
-        int ch = in.read();
+        words.clear();
+        int ch = read();
         while (!done && ch >= 0) {
             
             if (ch == '\r') {
                 
-                ch = in.read();
+                ch = read();
             }
             else if (ch == '\n') {
                 
@@ -89,18 +121,18 @@ public class CSVReader {
                 done = true;
             }
             else if (Character.isWhitespace(ch)
-                    && word.length() == 0) {
+                    && ch != delimiter && word.length() == 0) {
                 
                 /*
                  * Discard leading white space.
                  */
-                ch = in.read();
+                ch = read();
             }
-            else if (ch == ',') {
+            else if (ch == delimiter) {
                 
                 words.add(trimField(word));
                 word.setLength(0);
-                ch = in.read();
+                ch = read();
             }
             else if (ch == '"') {
                 
@@ -112,7 +144,7 @@ public class CSVReader {
                 if (word.length() > 0) {
                     
                     word.append((char) ch);
-                    ch = in.read();
+                    ch = read();
                 }
                 else {
                     
@@ -122,29 +154,29 @@ public class CSVReader {
                     
                     /*
                      * After the closing quote, we will suck forward
-                     * to consume white space. We stop at a comma,
+                     * to consume white space. We stop at a delimiter,
                      * or new line.
                      */
-                    while (ch != '\n' && ch != ','
+                    while (ch != '\n' && ch != delimiter
                         && Character.isWhitespace(ch)) {
                         
-                        ch = in.read();
+                        ch = read();
                     }
                     
                     if (ch == '\n' || ch == -1) {
                         
                         done = true;
                     }
-                    else if (ch == ',') {
+                    else if (ch == delimiter) {
                         
-                        ch = in.read();
+                        ch = read();
                     }
                 }
             }
             else {
                 
                 word.append((char) ch);
-                ch = in.read();
+                ch = read();
             }
         }
         
@@ -161,6 +193,26 @@ public class CSVReader {
         return words.toArray(new String[0]);
     }
     
+    /*
+     * Returns the next character of the input, or -1 at the end of it.
+     */
+    private int read()
+        throws IOException {
+        
+        if (pos == len) {
+            
+            len = in.read(buf, 0, buf.length);
+            pos = 0;
+            if (len <= 0) {
+                
+                len = 0;
+                return -1;
+            }
+        }
+        
+        return buf[pos++];
+    }
+    
     /**
      * This method expects to be called after a " has been read as the
      * first character of a field from the input stream.  It processes
@@ -178,16 +230,16 @@ public class CSVReader {
         throws IOException {
         
         boolean done = false;
-        int ch = in.read();
+        int ch = read();
         while (!done && ch >= 0) {
             
             if (ch == '"') {
                 
-                ch = in.read();
+                ch = read();
                 if (ch == '"') {
                     
                     field.append('"');
-                    ch = in.read();
+                    ch = read();
                 }
                 else {
                     
@@ -197,7 +249,7 @@ public class CSVReader {
             else {
                 
                 field.append((char) ch);
-                ch = in.read();
+                ch = read();
             }
         }
         
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.util;
+
+/**
+ * Builds lines of delimited text according to a {@link CSVDialect}. Fields
+ * are escaped into a single character buffer that is re-used from one
+ * line to the next, so that a whole batch of lines can be built up and
+ * then written out with one call, with no intermediate strings.
+ *
+ * <p>Each field is examined only once: its characters are copied into
+ * the buffer as they are checked, and should a character turn up that
+ * requires the field to be quoted, the part of the field already copied
+ * is shifted over to make room for the opening quote.
+ */
+public class CSVWriter {
+    
+    private final char delimiter;
+    private final char quote;
+    private final char []lineEnding;
+    private final char []nullToken;
+    private final boolean quoteEmpty;
+    private final boolean quoteSpaces;
+    private final boolean quoteReturns;
+    
+    private char []buf;
+    private int len = 0;
+    private boolean firstField = true;
+    
+    /**
+     * Creates a writer. The dialect is copied, so later changes to it do
+     * not affect the writer.
+     *
+     * @param dialect The dialect to write.
+     */
+    public CSVWriter (CSVDialect dialect) {
+        
+        this.delimiter = dialect.getDelimiterChar();
+        this.quote = dialect.getQuoteChar();
+        this.lineEnding = dialect.getLineEndingChars().toCharArray();
+        this.nullToken = dialect.getNullToken().toCharArray();
+        this.quoteEmpty = dialect.isQuoteEmpty();
+        this.quoteSpaces = dialect.isQuoteSpaces();
+        this.quoteReturns = dialect.isQuoteReturns();
+        this.buf = new char[8192];
+    }
+    
+    /**
+     * @return The buffer holding the text written so far. It is only
+     *   valid until the next call to the writer.
+     */
+    public char[] getBuffer() {
+        
+        return buf;
+    }
+    
+    /**
+     * @return The number of characters written so far.
+     */
+    public int length() {
+        
+        return len;
+    }
+    
+    /**
+     * Discards the text written so far.
+     */
+    public void clear() {
+        
+        len = 0;
+        firstField = true;
+    }
+    
+    /**
+     * Adds a field to the current line.
+     *
+     * @param value The value of the field, or null for a NULL.
+     */
+    public void field(String value) {
+        
+        if (!firstField) {
+            
+            ensure(1);
+            buf[len++] = delimiter;
+        }
+        firstField = false;
+        
+        if (value == null) {
+            
+            append(nullToken);
+        }
+        else if (quote == 0) {
+            
+            escaped(value);
+        }
+        else {
+            
+            quoted(value);
+        }
+    }
+    
+    /**
+     * Adds a NULL to the current line.
+     */
+    public void nullField() {
+        
+        field(null);
+    }
+    
+    /**
+     * Ends the current line.
+     */
+    public void endLine() {
+        
+        append(lineEnding);
+        firstField = true;
+    }
+    
+    private void quoted(String value) {
+        
+        int n = value.length();
+        int start = len;
+        boolean isQuoted;
+        
+        if (n == 0) {
+            
+            isQuoted = quoteEmpty;
+        }
+        else {
+            
+            isQuoted = quoteSpaces
+                && (Character.isWhitespace(value.charAt(0))
+                    || Character.isWhitespace(value.charAt(n - 1)));
+        }
+        
+        ensure(n + 2);
+        if (isQuoted) {
+            
+            buf[len++] = quote;
+        }
+        
+        for (int i = 0; i < n; i++) {
+            
+            char ch = value.charAt(i);
+            if (ch == quote || ch == delimiter || ch == '\n'
+                || (ch == '\r' && quoteReturns)) {
+                
+                ensure(n - i + 3);
+                if (!isQuoted) {
+                    
+                    System.arraycopy(buf, start, buf, start + 1, len - start);
+                    buf[start] = quote;
+                    ++len;
+                    isQuoted = true;
+                }
+                
+                if (ch == quote) {
+                    
+                    buf[len++] = quote;
+                }
+            }
+            
+            buf[len++] = ch;
+        }
+        
+        if (isQuoted) {
+            
+            buf[len++] = quote;
+        }
+    }
+    
+    private void escaped(String value) {
+        
+        int n = value.length();
+        
+        ensure(n);
+        for (int i = 0; i < n; i++) {
+            
+            char ch = value.charAt(i);
+            char esc;
+            
+            switch (ch) {
+                
+                case '\t': esc = 't'; break;
+                case '\n': esc = 'n'; break;
+                case '\r': esc = 'r'; break;
+                case '\\': esc = '\\'; break;
+                default:
+                    esc = (ch == delimiter ? ch : 0);
+                    break;
+            }
+            
+            if (esc == 0) {
+                
+                buf[len++] = ch;
+            }
+            else {
+                
+                ensure(n - i + 1);
+                buf[len++] = '\\';
+                buf[len++] = esc;
+            }
+        }
+    }
+    
+    private void append(char []chars) {
+        
+        ensure(chars.length);
+        System.arraycopy(chars, 0, buf, len, chars.length);
+        len += chars.length;
+    }
+    
+    private void ensure(int n) {
+        
+        if (len + n > buf.length) {
+            
+            char []newBuf = new char[Math.max(buf.length * 2, len + n)];
+            System.arraycopy(buf, 0, newBuf, 0, len);
+            buf = newBuf;
+        }
+    }
+}
@@ -0,0 +1,339 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.util;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * An output stream that gathers bytes into a large buffer and hands
+ * the buffer to a channel (normally a {@link FileChannel}) only when it
+ * is full, or when the stream is flushed or closed.
+ *
+ * <p>When created to be asynchronous, the stream uses two buffers and
+ * a writer thread: while the writer thread is writing one buffer to the
+ * channel the caller fills the other, so that producing the output and
+ * waiting for the disk overlap. A failure of the writer thread is
+ * reported by the next call made to the stream.
+ */
+public class ChannelOutputStream
+    extends OutputStream {
+    
+    /**
+     * The buffer size used when none is provided.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+    
+    private WritableByteChannel channel;
+    
+    /*
+     * The buffer being filled by the caller.
+     */
+    private ByteBuffer buffer;
+    
+    /*
+     * Asynchronous only. The buffer that is not being filled, which is
+     * null while the writer thread is writing it.
+     */
+    private ByteBuffer spare = null;
+    private ByteBuffer pending = null;
+    private Writer writer = null;
+    private IOException failure = null;
+    private boolean closed = false;
+    
+    /**
+     * Creates a synchronous stream with the default buffer size.
+     *
+     * @param channel The channel to write to.
+     */
+    public ChannelOutputStream (FileChannel channel) {
+        
+        this(channel, DEFAULT_BUFFER_SIZE, false);
+    }
+    
+    /**
+     * Creates a stream.
+     *
+     * @param channel The channel to write to.
+     * @param bufferSize The size of the buffer (of each buffer, for an
+     *   asynchronous stream).
+     * @param async If true, the writes to the channel are performed by
+     *   a background thread.
+     */
+    public ChannelOutputStream (FileChannel channel, int bufferSize,
+            boolean async) {
+        
+        this(channel, bufferSize, async ? "jsqsh-output-writer" : null);
+    }
+    
+    /**
+     * Creates a stream.
+     *
+     * @param channel The channel to write to.
+     * @param bufferSize The size of the buffer (of each buffer, for an
+     *   asynchronous stream).
+     * @param writerName If not null, the stream is asynchronous and this
+     *   is the name given to its writer thread.
+     */
+    protected ChannelOutputStream (WritableByteChannel channel,
+            int bufferSize, String writerName) {
+        
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 1024));
+        
+        if (writerName != null) {
+            
+            spare = ByteBuffer.allocateDirect(buffer.capacity());
+            writer = new Writer(writerName);
+            writer.start();
+        }
+    }
+    
+    @Override
+    public void write (int b)
+        throws IOException {
+        
+        if (!buffer.hasRemaining()) {
+            
+            drain();
+        }
+        
+        buffer.put((byte) b);
+    }
+    
+    @Override
+    public void write (byte[] b, int off, int len)
+        throws IOException {
+        
+        /*
+         * Writes that are bigger than the buffer would only be copied
+         * through it in pieces, so they go straight to the channel.
+         */
+        if (len >= buffer.capacity()) {
+            
+            drain();
+            await();
+            writeFully(ByteBuffer.wrap(b, off, len));
+            return;
+        }
+        
+        while (len > 0) {
+            
+            if (!buffer.hasRemaining()) {
+                
+                drain();
+            }
+            
+            int n = Math.min(len, buffer.remaining());
+            buffer.put(b, off, n);
+            off += n;
+            len -= n;
+        }
+    }
+    
+    /**
+     * Writes everything that has been buffered to the channel, waiting
+     * for the writer thread to finish with it if the stream is
+     * asynchronous.
+     */
+    @Override
+    public void flush ()
+        throws IOException {
+        
+        drain();
+        await();
+    }
+    
+    @Override
+    public void close ()
+        throws IOException {
+        
+        if (channel == null) {
+            
+            return;
+        }
+        
+        try {
+            
+            flush();
+        }
+        finally {
+            
+            if (writer != null) {
+                
+                synchronized (this) {
+                    
+                    closed = true;
+                    notifyAll();
+                }
+            }
+            
+            channel.close();
+            channel = null;
+        }
+    }
+    
+    /**
+     * Hands the contents of the buffer to the channel, either directly or
+     * by passing the buffer to the writer thread and taking the spare.
+     */
+    private void drain ()
+        throws IOException {
+        
+        if (channel == null) {
+            
+            throw new IOException("Stream closed");
+        }
+        
+        if (buffer.position() == 0) {
+            
+            checkFailure();
+            return;
+        }
+        
+        buffer.flip();
+        if (writer == null) {
+            
+            writeFully(buffer);
+            buffer.clear();
+            return;
+        }
+        
+        synchronized (this) {
+            
+            await();
+            
+            pending = buffer;
+            buffer = spare;
+            spare = null;
+            notifyAll();
+        }
+    }
+    
+    /**
+     * Waits for the writer thread, if any, to finish with the buffer it
+     * has been handed.
+     */
+    private synchronized void await ()
+        throws IOException {
+        
+        try {
+            
+            while (pending != null && failure == null) {
+                
+                wait();
+            }
+        }
+        catch (InterruptedException e) {
+            
+            throw new InterruptedIOException(
+                "Interrupted waiting for output to be written");
+        }
+        
+        checkFailure();
+    }
+    
+    private synchronized void checkFailure ()
+        throws IOException {
+        
+        if (failure != null) {
+            
+            IOException e = new IOException(failure.getMessage());
+            e.initCause(failure);
+            throw e;
+        }
+    }
+    
+    private void writeFully (ByteBuffer buf)
+        throws IOException {
+        
+        while (buf.hasRemaining()) {
+            
+            channel.write(buf);
+        }
+    }
+    
+    /**
+     * Writes the buffers handed to it to the channel until the stream
+     * is closed.
+     */
+    private class Writer
+        extends Thread {
+        
+        public Writer (String name) {
+            
+            super(name);
+            setDaemon(true);
+        }
+        
+        @Override
+        public void run () {
+            
+            while (true) {
+                
+                ByteBuffer buf;
+                synchronized (ChannelOutputStream.this) {
+                    
+                    while (pending == null && !closed) {
+                        
+                        try {
+                            
+                            ChannelOutputStream.this.wait();
+                        }
+                        catch (InterruptedException e) {
+                            
+                            /* IGNORED */
+                        }
+                    }
+                    
+                    if (pending == null) {
+                        
+                        return;
+                    }
+                    
+                    buf = pending;
+                }
+                
+                IOException error = null;
+                try {
+                    
+                    writeFully(buf);
+                }
+                catch (IOException e) {
+                    
+                    error = e;
+                }
+                
+                buf.clear();
+                synchronized (ChannelOutputStream.this) {
+                    
+                    if (error != null) {
+                        
+                        failure = error;
+                    }
+                    
+                    spare = buf;
+                    pending = null;
+                    ChannelOutputStream.this.notifyAll();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.util;
+
+/**
+ * Sorts an array of row indexes, rather than the rows themselves, with a
+ * stable merge sort. Large arrays are split into pieces that are sorted
+ * by separate threads and then merged.
+ */
+public final class IndexSort {
+    
+    /**
+     * Arrays smaller than this are not worth splitting up between
+     * threads.
+     */
+    private static final int PARALLEL_THRESHOLD = 8192;
+    
+    /**
+     * Compares the rows with two indexes. It is called from several
+     * threads at once, so it must not change anything.
+     */
+    public static interface Comparator {
+        
+        /**
+         * @param idx1 The index of the first row.
+         * @param idx2 The index of the second row.
+         * @return A negative number, zero or a positive number as the
+         *   first row sorts before, with or after the second.
+         */
+        int compare(int idx1, int idx2);
+    }
+    
+    private IndexSort() {
+        
+        /* NOT INSTANTIATED */
+    }
+    
+    /**
+     * Sorts an array of indexes.
+     *
+     * @param idx The indexes.
+     * @param cmp Compares the rows for two indexes.
+     * @param nThreads The maximum number of threads to sort with.
+     * @throws InterruptedException If the sort was interrupted, in which
+     *   case the array is left in an undefined order.
+     */
+    public static void sort(final int []idx, final Comparator cmp,
+            int nThreads)
+        throws InterruptedException {
+        
+        final int n = idx.length;
+        final int []tmp = new int[n];
+        
+        if (nThreads < 2 || n < PARALLEL_THRESHOLD) {
+            
+            mergeSort(idx, tmp, 0, n, cmp);
+            return;
+        }
+        
+        /*
+         * Sort each piece in its own thread...
+         */
+        int nPieces = Math.min(nThreads, n / (PARALLEL_THRESHOLD / 2));
+        final int []bounds = new int[nPieces + 1];
+        Thread []threads = new Thread[nPieces];
+        
+        for (int i = 0; i <= nPieces; i++) {
+            
+            bounds[i] = (int) ((long) n * i / nPieces);
+        }
+        
+        for (int i = 0; i < nPieces; i++) {
+            
+            final int from = bounds[i];
+            final int to = bounds[i + 1];
+            threads[i] = new Thread("jsqsh-sort-" + i) {
+                
+                public void run() {
+                    
+                    mergeSort(idx, tmp, from, to, cmp);
+                }
+            };
+            threads[i].setDaemon(true);
+            threads[i].start();
+        }
+        
+        for (int i = 0; i < nPieces; i++) {
+            
+            threads[i].join();
+        }
+        
+        /*
+         * ...then merge neighbouring pieces until only one is left.
+         */
+        int []src = idx;
+        int []dest = tmp;
+        for (int width = 1; width < nPieces; width *= 2) {
+            
+            for (int i = 0; i < nPieces; i += 2 * width) {
+                
+                int from = bounds[i];
+                int mid = bounds[Math.min(i + width, nPieces)];
+                int to = bounds[Math.min(i + 2 * width, nPieces)];
+                
+                merge(src, dest, from, mid, to, cmp);
+            }
+            
+            int []swap = src;
+            src = dest;
+            dest = swap;
+            
+            if (Thread.interrupted()) {
+                
+                throw new InterruptedException();
+            }
+        }
+        
+        if (src != idx) {
+            
+            System.arraycopy(src, 0, idx, 0, n);
+        }
+    }
+    
+    /*
+     * Sorts idx[from..to), using tmp[from..to) as scratch space.
+     */
+    private static void mergeSort(int []idx, int []tmp, int from, int to,
+            Comparator cmp) {
+        
+        if (to - from < 16) {
+            
+            for (int i = from + 1; i < to; i++) {
+                
+                int v = idx[i];
+                int j = i - 1;
+                while (j >= from && cmp.compare(idx[j], v) > 0) {
+                    
+                    idx[j + 1] = idx[j];
+                    --j;
+                }
+                idx[j + 1] = v;
+            }
+            
+            return;
+        }
+        
+        int mid = (from + to) >>> 1;
+        mergeSort(idx, tmp, from, mid, cmp);
+        mergeSort(idx, tmp, mid, to, cmp);
+        
+        if (cmp.compare(idx[mid - 1], idx[mid]) <= 0) {
+            
+            return;
+        }
+        
+        System.arraycopy(idx, from, tmp, from, to - from);
+        merge(tmp, idx, from, mid, to, cmp);
+    }
+    
+    /*
+     * Merges the sorted src[from..mid) and src[mid..to) into dest.
+     */
+    private static void merge(int []src, int []dest, int from, int mid,
+            int to, Comparator cmp) {
+        
+        int i = from;
+        int j = mid;
+        
+        for (int k = from; k < to; k++) {
+            
+            if (j >= to || (i < mid && cmp.compare(src[i], src[j]) <= 0)) {
+                
+                dest[k] = src[i++];
+            }
+            else {
+                
+                dest[k] = src[j++];
+            }
+        }
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.util;
+
+import java.sql.Types;
+
+/**
+ * Builds JSON text into a single character buffer that is re-used from
+ * one row to the next, in the same fashion as {@link CSVWriter}. The
+ * writer knows nothing of the structure of the document being written;
+ * it is up to the caller to add the braces, commas and member names
+ * (which are best encoded once, with {@link #encodeName(String, String)}).
+ */
+public class JSONWriter {
+    
+    private static final char []HEX = "0123456789abcdef".toCharArray();
+    
+    /*
+     * For each character below 0x80, what it is escaped as, or null if
+     * it is written as it is.
+     */
+    private static final char [][]ESCAPES = new char[128][];
+    static {
+        
+        for (int ch = 0; ch < 0x20; ch++) {
+            
+            ESCAPES[ch] = new char[] {
+                '\\', 'u', '0', '0', HEX[ch >> 4], HEX[ch & 0xf] };
+        }
+        
+        ESCAPES['"']  = "\\\"".toCharArray();
+        ESCAPES['\\'] = "\\\\".toCharArray();
+        ESCAPES['\n'] = "\\n".toCharArray();
+        ESCAPES['\r'] = "\\r".toCharArray();
+        ESCAPES['\t'] = "\\t".toCharArray();
+        ESCAPES['\b'] = "\\b".toCharArray();
+        ESCAPES['\f'] = "\\f".toCharArray();
+    }
+    
+    private static final char []NULL = "null".toCharArray();
+    
+    private char []buf = new char[8192];
+    private int len = 0;
+    
+    /**
+     * Encodes the name of a member of an object, as a quoted and escaped
+     * string followed by a colon.
+     *
+     * @param name The name, or null for an empty name.
+     * @param separator What to place after the colon (e.g. a space), or
+     *   null.
+     * @return The encoded name.
+     */
+    public static char[] encodeName(String name, String separator) {
+        
+        JSONWriter writer = new JSONWriter();
+        writer.string(name == null ? "" : name);
+        writer.append(':');
+        if (separator != null) {
+            
+            writer.append(separator);
+        }
+        
+        char []encoded = new char[writer.len];
+        System.arraycopy(writer.buf, 0, encoded, 0, writer.len);
+        return encoded;
+    }
+    
+    /**
+     * Determines whether values of a type may be written without quotes,
+     * which is the case for numbers and booleans.
+     *
+     * @param type The type (see {@link java.sql.Types}).
+     * @return true if the values may be written without quotes.
+     */
+    public static boolean isUnquoted(int type) {
+        
+        switch (type) {
+            
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+            case Types.BOOLEAN:
+            case Types.BIT:
+                return true;
+            
+            default:
+                return false;
+        }
+    }
+    
+    /**
+     * Checks that a formatted number or boolean is something that JSON
+     * accepts without quotes (NaN, Infinity and ".5", for example, are
+     * not).
+     *
+     * @param value The formatted value.
+     * @return true if the value may be written without quotes.
+     */
+    public static boolean isLiteral(String value) {
+        
+        if (value.equals("true") || value.equals("false")) {
+            
+            return true;
+        }
+        
+        /*
+         * -?(0|[1-9][0-9]*)(\.[0-9]+)?([eE][+-]?[0-9]+)?
+         */
+        int len = value.length();
+        int i = 0;
+        if (i < len && value.charAt(i) == '-') {
+            
+            ++i;
+        }
+        
+        if (i == len) {
+            
+            return false;
+        }
+        
+        char ch = value.charAt(i);
+        if (ch == '0') {
+            
+            ++i;
+        }
+        else if (ch >= '1' && ch <= '9') {
+            
+            i = digits(value, i + 1);
+        }
+        else {
+            
+            return false;
+        }
+        
+        if (i < len && value.charAt(i) == '.') {
+            
+            int start = i + 1;
+            i = digits(value, start);
+            if (i == start) {
+                
+                return false;
+            }
+        }
+        
+        if (i < len && (value.charAt(i) == 'e' || value.charAt(i) == 'E')) {
+            
+            ++i;
+            if (i < len && (value.charAt(i) == '+' || value.charAt(i) == '-')) {
+                
+                ++i;
+            }
+            
+            int start = i;
+            i = digits(value, start);
+            if (i == start) {
+                
+                return false;
+            }
+        }
+        
+        return i == len;
+    }
+    
+    private static int digits(String value, int i) {
+        
+        int len = value.length();
+        while (i < len && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+            
+            ++i;
+        }
+        
+        return i;
+    }
+    
+    /**
+     * @return The buffer holding the text written so far. It is only
+     *   valid until the next call to the writer.
+     */
+    public char[] getBuffer() {
+        
+        return buf;
+    }
+    
+    /**
+     * @return The number of characters written so far.
+     */
+    public int length() {
+        
+        return len;
+    }
+    
+    /**
+     * Discards the text written so far.
+     */
+    public void clear() {
+        
+        len = 0;
+    }
+    
+    /**
+     * Adds a value.
+     *
+     * @param value The formatted value, or null for a NULL.
+     * @param unquoted If true, and the value is a valid JSON number or
+     *   boolean, it is written without quotes (see {@link #isUnquoted(int)}).
+     */
+    public void value(String value, boolean unquoted) {
+        
+        if (value == null) {
+            
+            append(NULL);
+        }
+        else if (unquoted && isLiteral(value)) {
+            
+            append(value);
+        }
+        else if (unquoted && isFraction(value)) {
+            
+            /*
+             * Numbers are formatted without a zero in front of the
+             * decimal point (".5"), which JSON requires.
+             */
+            int dot = value.indexOf('.');
+            ensure(value.length() + 1);
+            value.getChars(0, dot, buf, len);
+            len += dot;
+            buf[len++] = '0';
+            value.getChars(dot, value.length(), buf, len);
+            len += value.length() - dot;
+        }
+        else {
+            
+            string(value);
+        }
+    }
+    
+    /**
+     * @return true if the value is a number that would be a valid JSON
+     *   literal with a zero in front of its decimal point.
+     */
+    private static boolean isFraction(String value) {
+        
+        int dot = (value.startsWith("-") ? 1 : 0);
+        return value.length() > dot + 1 && value.charAt(dot) == '.'
+            && isLiteral(value.substring(0, dot) + '0' + value.substring(dot));
+    }
+    
+    /**
+     * Adds a quoted and escaped string.
+     *
+     * @param value The string.
+     */
+    public void string(String value) {
+        
+        int n = value.length();
+        
+        ensure(n + 2);
+        buf[len++] = '"';
+        
+        /*
+         * Most strings need no escaping at all, so they are copied in
+         * one go until the first character that does.
+         */
+        int i = 0;
+        while (i < n) {
+            
+            char ch = value.charAt(i);
+            if (ch < 0x80 && ESCAPES[ch] != null) {
+                
+                break;
+            }
+            
+            ++i;
+        }
+        
+        value.getChars(0, i, buf, len);
+        len += i;
+        
+        for (; i < n; i++) {
+            
+            char ch = value.charAt(i);
+            char []esc = (ch < 0x80 ? ESCAPES[ch] : null);
+            if (esc == null) {
+                
+                ensure(n - i + 1);
+                buf[len++] = ch;
+            }
+            else {
+                
+                ensure(n - i + esc.length);
+                System.arraycopy(esc, 0, buf, len, esc.length);
+                len += esc.length;
+            }
+        }
+        
+        ensure(1);
+        buf[len++] = '"';
+    }
+    
+    /**
+     * Adds characters as they are.
+     *
+     * @param chars The characters.
+     */
+    public void append(char []chars) {
+        
+        ensure(chars.length);
+        System.arraycopy(chars, 0, buf, len, chars.length);
+        len += chars.length;
+    }
+    
+    /**
+     * Adds characters as they are.
+     *
+     * @param str The characters.
+     */
+    public void append(String str) {
+        
+        int n = str.length();
+        ensure(n);
+        str.getChars(0, n, buf, len);
+        len += n;
+    }
+    
+    /**
+     * Adds a character as it is.
+     *
+     * @param ch The character.
+     */
+    public void append(char ch) {
+        
+        ensure(1);
+        buf[len++] = ch;
+    }
+    
+    private void ensure(int n) {
+        
+        if (len + n > buf.length) {
+            
+            char []newBuf = new char[Math.max(buf.length * 2, len + n)];
+            System.arraycopy(buf, 0, newBuf, 0, len);
+            buf = newBuf;
+        }
+    }
+}
@@ -0,0 +1,520 @@
+/*
+ * Copyright 2007-2012 Scott C. Gray
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.sqsh.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Holds rows of formatted values in a compact, columnar form for
+ * renderers that need to see all of the rows of a result set before
+ * they can display any of them. Rather than keeping a String (and a
+ * String[] per row), the characters of all of the values of a column are
+ * packed into a single character array, with the offset at which each
+ * value ends kept alongside, which roughly halves the memory that is
+ * needed and leaves the garbage collector with a handful of large
+ * objects rather than millions of small ones.
+ *
+ * <p>The store may be given a limit on the memory it uses. Once the limit
+ * is reached the rows held so far, and all rows that follow, are written
+ * to a temporary file instead, and are read back from there when the
+ * rows are replayed with {@link #open()}.
+ */
+public class RowStore {
+    
+    private static final int INITIAL_ROWS = 64;
+    private static final int INITIAL_CHARS = 1024;
+    
+    private final int nCols;
+    private final long maxMemory;
+    
+    /*
+     * For each column, the characters of all of its values and the
+     * offset just past the end of the value of each row.
+     */
+    private char [][]arenas;
+    private int []arenaLength;
+    private int [][]ends;
+    private int capacity;
+    private int size = 0;
+    private long memory = 0L;
+    
+    /*
+     * Once the memory limit has been reached, rows are written to the
+     * spill file.
+     */
+    private File spillFile = null;
+    private OutputStream spillOut = null;
+    private byte []rowBytes = null;
+    private int rowCount = 0;
+    
+    /**
+     * Creates a store.
+     *
+     * @param nCols The number of columns in each row.
+     * @param maxMemory The number of bytes that rows may occupy in
+     *   memory before they are spilled to disk, or a value less than 1 if
+     *   rows are always to be kept in memory.
+     */
+    public RowStore (int nCols, long maxMemory) {
+        
+        this.nCols = nCols;
+        this.maxMemory = maxMemory;
+        reset();
+    }
+    
+    /**
+     * @return The number of rows in the store.
+     */
+    public int size() {
+        
+        return rowCount;
+    }
+    
+    /**
+     * @return true if the rows have been spilled to disk.
+     */
+    public boolean isSpilled() {
+        
+        return spillFile != null;
+    }
+    
+    /**
+     * Returns a value held in memory.
+     *
+     * @param row The index of the row.
+     * @param col The index of the column.
+     * @return The value.
+     * @throws IllegalStateException If the rows have been spilled to
+     *   disk, in which case they may only be read with {@link #open()}.
+     */
+    public String get(int row, int col) {
+        
+        if (spillFile != null) {
+            
+            throw new IllegalStateException("Rows have been spilled to disk");
+        }
+        
+        return value(arenas[col], ends[col], row);
+    }
+    
+    /**
+     * Returns a view of the values of a column held in memory, as they
+     * stand now. Rows added later are not visible through the view, but
+     * the view may be read without any locking while they are being
+     * added, as the rows it covers never change.
+     *
+     * @param col The index of the column.
+     * @return The view.
+     * @throws IllegalStateException If the rows have been spilled to
+     *   disk.
+     */
+    public Column getColumn(int col) {
+        
+        if (spillFile != null) {
+        
+            throw new IllegalStateException("Rows have been spilled to disk");
+        }
+        
+        return new Column(arenas[col], ends[col]);
+    }
+    
+    /**
+     * Adds a row to the store. The values are copied, so the array may
+     * be re-used by the caller.
+     *
+     * @param row The values of the row, none of which may be null.
+     * @throws IOException If the row had to be written to disk and could
+     *   not be.
+     */
+    public void add(String []row)
+        throws IOException {
+        
+        if (spillFile != null) {
+            
+            writeRow(row);
+        }
+        else {
+            
+            if (size == capacity) {
+                
+                growRows();
+            }
+            
+            for (int i = 0; i < nCols; i++) {
+                
+                String value = row[i];
+                int len = value.length();
+                int start = arenaLength[i];
+                char []arena = arenas[i];
+                
+                if (start + len > arena.length) {
+                    
+                    arena = growArena(i, start + len);
+                }
+                
+                value.getChars(0, len, arena, start);
+                arenaLength[i] = start + len;
+                ends[i][size] = start + len;
+            }
+            
+            ++size;
+            
+            if (maxMemory > 0 && memory > maxMemory) {
+                
+                spill();
+            }
+        }
+        
+        ++rowCount;
+    }
+    
+    /**
+     * Opens a reader over the rows in the store, in the order in which
+     * they were added. No rows may be added while the reader is open.
+     *
+     * @return The reader.
+     * @throws IOException If the rows have been spilled to disk and
+     *   the file cannot be read.
+     */
+    public Reader open()
+        throws IOException {
+        
+        if (spillFile != null) {
+            
+            spillOut.flush();
+            return new Reader(new DataInputStream(new BufferedInputStream(
+                new FileInputStream(spillFile), 64 * 1024)));
+        }
+        
+        return new Reader(null);
+    }
+    
+    /**
+     * Discards all of the rows in the store, releasing the memory and
+     * any file they occupied.
+     */
+    public void clear() {
+        
+        if (spillFile != null) {
+            
+            try {
+                
+                spillOut.close();
+            }
+            catch (IOException e) {
+                
+                /* IGNORED */
+            }
+            
+            spillFile.delete();
+            spillFile = null;
+            spillOut = null;
+            rowBytes = null;
+        }
+        
+        reset();
+    }
+    
+    private void reset() {
+        
+        arenas = new char[nCols][INITIAL_CHARS];
+        arenaLength = new int[nCols];
+        ends = new int[nCols][INITIAL_ROWS];
+        capacity = INITIAL_ROWS;
+        size = 0;
+        rowCount = 0;
+        memory = (long) nCols * (INITIAL_CHARS * 2 + INITIAL_ROWS * 4);
+    }
+    
+    private void growRows() {
+        
+        int newCapacity = capacity * 2;
+        for (int i = 0; i < nCols; i++) {
+            
+            int []newEnds = new int[newCapacity];
+            System.arraycopy(ends[i], 0, newEnds, 0, size);
+            ends[i] = newEnds;
+        }
+        
+        memory += (long) nCols * (newCapacity - capacity) * 4;
+        capacity = newCapacity;
+    }
+    
+    private char[] growArena(int col, int needed) {
+        
+        char []arena = arenas[col];
+        int capacity = Math.max(arena.length * 2, needed);
+        char []newArena = new char[capacity];
+        
+        System.arraycopy(arena, 0, newArena, 0, arenaLength[col]);
+        memory += (long) (capacity - arena.length) * 2;
+        arenas[col] = newArena;
+        return newArena;
+    }
+    
+    private static String value(char []arena, int []colEnds, int row) {
+        
+        int start = (row == 0 ? 0 : colEnds[row - 1]);
+        return new String(arena, start, colEnds[row] - start);
+    }
+    
+    private static int compare(char []arena, int []colEnds,
+            int row1, int row2) {
+        
+        int start1 = (row1 == 0 ? 0 : colEnds[row1 - 1]);
+        int start2 = (row2 == 0 ? 0 : colEnds[row2 - 1]);
+        int len1 = colEnds[row1] - start1;
+        int len2 = colEnds[row2] - start2;
+        int n = Math.min(len1, len2);
+        
+        for (int i = 0; i < n; i++) {
+            
+            char ch1 = arena[start1 + i];
+            char ch2 = arena[start2 + i];
+            if (ch1 != ch2) {
+                
+                return ch1 - ch2;
+            }
+        }
+        
+        return len1 - len2;
+    }
+    
+    /*
+     * Moves the rows held in memory to a new spill file, after which
+     * all rows are written to the file.
+     */
+    private void spill()
+        throws IOException {
+        
+        File file = File.createTempFile("jsqsh_rows_", ".tmp");
+        file.deleteOnExit();
+        
+        spillOut = new BufferedOutputStream(new FileOutputStream(file),
+            64 * 1024);
+        rowBytes = new byte[8192];
+        
+        String []row = new String[nCols];
+        for (int r = 0; r < size; r++) {
+            
+            for (int i = 0; i < nCols; i++) {
+                
+                row[i] = get(r, i);
+            }
+            
+            writeRow(row);
+        }
+        
+        spillFile = file;
+        arenas = null;
+        arenaLength = null;
+        ends = null;
+        size = 0;
+        memory = 0L;
+    }
+    
+    /*
+     * Writes a row to the spill file: for each value its length,
+     * followed by its characters, two bytes apiece.
+     */
+    private void writeRow(String []row)
+        throws IOException {
+        
+        int needed = 0;
+        for (int i = 0; i < nCols; i++) {
+            
+            needed += 4 + row[i].length() * 2;
+        }
+        
+        if (needed > rowBytes.length) {
+            
+            rowBytes = new byte[Math.max(needed, rowBytes.length * 2)];
+        }
+        
+        byte []b = rowBytes;
+        int pos = 0;
+        for (int i = 0; i < nCols; i++) {
+            
+            String value = row[i];
+            int len = value.length();
+            
+            b[pos++] = (byte) (len >>> 24);
+            b[pos++] = (byte) (len >>> 16);
+            b[pos++] = (byte) (len >>> 8);
+            b[pos++] = (byte) len;
+            
+            for (int j = 0; j < len; j++) {
+                
+                char ch = value.charAt(j);
+                b[pos++] = (byte) (ch >>> 8);
+                b[pos++] = (byte) ch;
+            }
+        }
+        
+        spillOut.write(b, 0, pos);
+    }
+    
+    /**
+     * The values of a column, as returned by {@link RowStore#getColumn(int)}.
+     * The arrays are the ones the store was using at the time; should the
+     * store outgrow them it copies them rather than changing them.
+     */
+    public static class Column {
+        
+        private final char []arena;
+        private final int []ends;
+        
+        private Column (char []arena, int []ends) {
+            
+            this.arena = arena;
+            this.ends = ends;
+        }
+        
+        /**
+         * @param row The index of the row.
+         * @return The value.
+         */
+        public String get(int row) {
+            
+            return value(arena, ends, row);
+        }
+        
+        /**
+         * Compares the values of two rows, as
+         * {@link String#compareTo(String)} would, without creating
+         * Strings for them.
+         *
+         * @param row1 The index of the first row.
+         * @param row2 The index of the second row.
+         * @return A negative number, zero or a positive number as the
+         *   value in the first row is less than, equal to or greater than
+         *   that in the second.
+         */
+        public int compare(int row1, int row2) {
+            
+            return RowStore.compare(arena, ends, row1, row2);
+        }
+    }
+    
+    /**
+     * Reads the rows of a store back.
+     */
+    public class Reader {
+        
+        private DataInputStream in;
+        private int row = 0;
+        private byte []bytes = null;
+        private char []chars = null;
+        
+        private Reader (DataInputStream in) {
+            
+            this.in = in;
+            if (in != null) {
+                
+                bytes = new byte[8192];
+                chars = new char[4096];
+            }
+        }
+        
+        /**
+         * Reads the next row.
+         *
+         * @param values The array into which the values of the row are
+         *   placed.
+         * @return false if there are no more rows.
+         * @throws IOException If the row could not be read from disk.
+         */
+        public boolean next(String []values)
+            throws IOException {
+            
+            if (row == rowCount) {
+                
+                return false;
+            }
+            
+            if (in == null) {
+                
+                for (int i = 0; i < nCols; i++) {
+                    
+                    values[i] = get(row, i);
+                }
+            }
+            else {
+                
+                for (int i = 0; i < nCols; i++) {
+                    
+                    values[i] = readValue();
+                }
+            }
+            
+            ++row;
+            return true;
+        }
+        
+        /**
+         * Closes the reader.
+         */
+        public void close() {
+            
+            if (in != null) {
+                
+                try {
+                    
+                    in.close();
+                }
+                catch (IOException e) {
+                    
+                    /* IGNORED */
+                }
+                
+                in = null;
+            }
+        }
+        
+        private String readValue()
+            throws IOException {
+            
+            int len = in.readInt();
+            if (len < 0) {
+                
+                throw new EOFException("Corrupt row in " + spillFile);
+            }
+            
+            if (len * 2 > bytes.length) {
+                
+                bytes = new byte[len * 2];
+                chars = new char[len];
+            }
+            
+            in.readFully(bytes, 0, len * 2);
+            for (int j = 0, pos = 0; j < len; j++, pos += 2) {
+                
+                chars[j] = (char) (((bytes[pos] & 0xff) << 8)
+                    | (bytes[pos + 1] & 0xff));
+            }
+            
+            return new String(chars, 0, len);
+        }
+    }
+}
@@ -69,6 +69,54 @@ public class TimeUtils {
         return sb.toString ();
     }
     
+    /**
+     * Given a number of nanoseconds, produces a short, human readable
+     * duration. Durations under a second are shown in the most natural
+     * unit (for example "850ns", "12.5us" or "3.127ms"), longer durations
+     * are shown as per {@link #millisToDurationString(long)}.
+     * 
+     * @param nanos Nanoseconds in duration
+     * @return A duration string.
+     */
+    public static String nanosToDurationString (long nanos) {
+        
+        if (nanos < 0L) {
+            
+            return "-" + nanosToDurationString(-nanos);
+        }
+        
+        StringBuilder sb = new StringBuilder();
+        if (nanos < 1000L) {
+            
+            sb.append(nanos).append("ns");
+        }
+        else if (nanos < 1000000L) {
+            
+            sb.append(nanos / 1000L).append('.')
+              .append((nanos % 1000L) / 100L).append("us");
+        }
+        else if (nanos < 1000000000L) {
+            
+            long micros = (nanos / 1000L) % 1000L;
+            sb.append(nanos / 1000000L).append('.');
+            if (micros < 100L) {
+                
+                sb.append('0');
+            }
+            if (micros < 10L) {
+                
+                sb.append('0');
+            }
+            sb.append(micros).append("ms");
+        }
+        else {
+            
+            sb.append(millisToDurationString(nanos / 1000000L));
+        }
+        
+        return sb.toString();
+    }
+    
     /**
      * Given a number of milliseconds, product a string of the format dd:hh:mm:ss
      * 